@@ -0,0 +1,371 @@
+package com.motorepartidor.bots;
+
+import com.badlogic.gdx.Input;
+import com.badlogic.gdx.math.Rectangle;
+import com.motorepartidor.GameController;
+import com.motorepartidor.server.MapaServidor;
+import red.FlujoEntradas;
+import red.ReceptorMensajes;
+import red.Snapshot;
+import red.TransporteNio;
+import red.hiloCliente;
+
+import java.io.IOException;
+import java.net.InetAddress;
+
+/**
+ * Un jugador simulado: un {@link hiloCliente} de verdad más lo que haría GameScreen en
+ * cada frame (despachar eventos, decidir teclas, mandar entradas), a 60 Hz.
+ *
+ * Va al dealer, toma el pedido, lo lleva y vuelve; si se queda con poca nafta pasa
+ * antes por el surtidor más cercano. Como GameScreen, pide solo las motos cercanas (AREA
+ * alrededor suyo del tamaño de la cámara sin estirar más el margen). Al terminar la partida (o si se va el rival o se
+ * cae el server) se desconecta y vuelve a entrar: la carga se mantiene. Si deja de ver
+ * al server, primero intenta reanudar la sesión como GameScreen.
+ *
+ * Mide, en el hilo del bot:
+ * - tiempo entre snapshots aplicados (llegada de red del que se aplicó en el frame);
+ * - eco de entrada: desde que mandó la entrada N hasta que llega un snapshot que dice
+ *   que el server ya la aplicó (solo binario).
+ * Todo lo de GameController corre en {@link #paso}, el mismo hilo.
+ */
+final class Bot implements GameController {
+
+    /** Pongs perdidos durante esto y se reconecta (el mismo límite que GameScreen). */
+    static final long SIN_SERVER_MS = 3500;
+    static final long ESPERA_RECONEXION_NS = 1_000_000_000L;
+    static final float NAFTA_BAJA = 20f;
+    static final float NAFTA_LLENA = 95f;
+    /** Medio AREA: 20x15 tiles de 64 px (la cámara de GameScreen) más su MARGEN_AREA. */
+    static final int AREA_MEDIO_ANCHO = 640 + 384, AREA_MEDIO_ALTO = 480 + 384;
+    /** Envíos recordados para el eco (potencia de 2; 4 s a 60 Hz). */
+    private static final int ECO = 256;
+
+    private final Enjambre enjambre;
+    private final InetAddress servidor;
+    private final MapaServidor mapa;
+    private final Piloto piloto = new Piloto();
+
+    private volatile hiloCliente cliente;
+    private long proximaConexionNs;
+    private long ultimoPasoNs;
+    private boolean reconectar;
+    private boolean reanudando;
+    private long tick;
+
+    // ===== Estado de la partida (lo que llega por GameController) =====
+    private int id = -1;
+    private boolean jugando;
+    private boolean conPosicion;
+    private float x, y, angulo, velocidad;
+    private float gas = 100f;
+    private boolean cargando;
+    private final Rectangle pedido = new Rectangle();
+    private boolean conPedido;
+
+    // ===== Entradas =====
+    private int secuencia;
+    private int teclasTexto;
+    private final long[] enviadoNs = new long[ECO];
+    private int ultimoEco;
+    private boolean hayEco;
+    private long ultimaLlegadaNs;
+
+    // ===== Métricas (las vacía el reporte) =====
+    final Histograma entreSnapshots = new Histograma();
+    final Histograma eco = new Histograma();
+    /** Entre frames del bot: si se estira, el que no da abasto es el generador. */
+    final Histograma entreFrames = new Histograma();
+
+    Bot(Enjambre enjambre, InetAddress servidor, MapaServidor mapa, long primeraConexionNs) {
+        this.enjambre = enjambre;
+        this.servidor = servidor;
+        this.mapa = mapa;
+        this.proximaConexionNs = primeraConexionNs;
+    }
+
+    /** Un frame: 60 veces por segundo. */
+    void paso(long ahora) {
+        if (ultimoPasoNs != 0) entreFrames.registrar(ahora - ultimoPasoNs);
+        ultimoPasoNs = ahora;
+        hiloCliente c = cliente;
+        if (c == null) {
+            if (ahora - proximaConexionNs >= 0) conectar();
+            return;
+        }
+        c.despacharEventos();
+        if (!reconectar && id >= 0 && !c.isServerAlive(SIN_SERVER_MS)) {
+            if (!reanudando) reanudando = c.reanudar();
+            // no se puede reanudar (texto) o se venció: afuera
+            if (!reanudando || !c.isReanudando()) {
+                enjambre.caidas.increment();
+                salir(ahora);
+            }
+            return;
+        }
+        if (reconectar) {
+            salir(ahora);
+            return;
+        }
+        if (reanudando || !jugando || !conPosicion) return; // el Reanudada llega en el próximo despacho
+
+        tick++;
+        int teclas = decidir();
+        if (c.isBinario()) {
+            secuencia++;
+            enviadoNs[secuencia & (ECO - 1)] = ahora;
+            c.registrarEntrada(secuencia, teclas);
+            c.enviarEntradas();
+            if (enjambre.isArea()) {
+                c.reportarArea((int) x - AREA_MEDIO_ANCHO, (int) y - AREA_MEDIO_ALTO,
+                    (int) x + AREA_MEDIO_ANCHO, (int) y + AREA_MEDIO_ALTO);
+            }
+        } else {
+            enviarTexto(c, teclas);
+        }
+    }
+
+    private int decidir() {
+        if (cargando || gas < NAFTA_BAJA) {
+            MapaServidor.Zonas surtidores = mapa.getGasolina();
+            if (surtidores.buscar(x, y, 0f) >= 0) {
+                // adentro: quieto y con G hasta llenar
+                cargando = gas < NAFTA_LLENA;
+                return cargando ? FlujoEntradas.G | (velocidad > 0 ? FlujoEntradas.S : 0) : 0;
+            }
+            cargando = false;
+            int i = masCercano(surtidores);
+            if (i >= 0) return piloto.teclas(x, y, angulo, velocidad, surtidores.getCentroX(i), surtidores.getCentroY(i));
+        }
+
+        float ox, oy;
+        boolean llegue;
+        if (conPedido) {
+            ox = pedido.x + pedido.width / 2f;
+            oy = pedido.y + pedido.height / 2f;
+            llegue = pedido.contains(x, y);
+        } else {
+            MapaServidor.Zonas dealer = mapa.getDealer();
+            ox = dealer.getCentroX(0);
+            oy = dealer.getCentroY(0);
+            llegue = dealer.contiene(0, x, y, 0f);
+        }
+        int t = piloto.teclas(x, y, angulo, velocidad, ox, oy);
+        // E a toques (el server mira el flanco)
+        if (llegue && (tick & 1) == 0) t |= FlujoEntradas.E;
+        return t;
+    }
+
+    private int masCercano(MapaServidor.Zonas z) {
+        int mejor = -1;
+        float minimo = Float.MAX_VALUE;
+        for (int i = 0; i < z.getCantidad(); i++) {
+            float dx = z.getCentroX(i) - x, dy = z.getCentroY(i) - y;
+            float d = dx * dx + dy * dy;
+            if (d < minimo) {
+                minimo = d;
+                mejor = i;
+            }
+        }
+        return mejor;
+    }
+
+    /** Server de texto: los cambios de teclas como Input (negativo = soltada). */
+    private void enviarTexto(hiloCliente c, int teclas) {
+        int cambios = teclas ^ teclasTexto;
+        if (cambios == 0) return;
+        for (int bit = 1; bit <= FlujoEntradas.E; bit <<= 1) {
+            if ((cambios & bit) == 0) continue;
+            int keycode = keycode(bit);
+            c.enviarInput((teclas & bit) != 0 ? keycode : -keycode);
+        }
+        teclasTexto = teclas;
+    }
+
+    private static int keycode(int bit) {
+        switch (bit) {
+            case FlujoEntradas.W: return Input.Keys.W;
+            case FlujoEntradas.A: return Input.Keys.A;
+            case FlujoEntradas.S: return Input.Keys.S;
+            case FlujoEntradas.D: return Input.Keys.D;
+            case FlujoEntradas.G: return Input.Keys.G;
+            default: return Input.Keys.E;
+        }
+    }
+
+    // =========================================================
+    // Conexión
+    // =========================================================
+
+    private void conectar() {
+        try {
+            TransporteMedido t = new TransporteMedido(new TransporteNio(hiloCliente.TAM_BUFFER),
+                enjambre.trafico, enjambre.getPerdida());
+            hiloCliente c = new hiloCliente(t);
+            c.setGameController(this);
+            c.start();
+            c.conectarA(servidor);
+            cliente = c;
+        } catch (IOException e) {
+            System.err.println("[bots] sin socket: " + e.getMessage());
+            proximaConexionNs = System.nanoTime() + ESPERA_RECONEXION_NS;
+        }
+    }
+
+    /** Cierra la sesión y vuelve a entrar en un rato (partida nueva). */
+    private void salir(long ahora) {
+        hiloCliente c = cliente;
+        cliente = null;
+        c.desconectar();
+        if (jugando) enjambre.jugando.decrement();
+        if (id >= 0) enjambre.conectados.decrement();
+        reiniciar();
+        id = -1;
+        reconectar = false;
+        proximaConexionNs = ahora + ESPERA_RECONEXION_NS;
+        enjambre.reconexiones.increment();
+    }
+
+    /** Al apagar el enjambre. */
+    void terminar() {
+        hiloCliente c = cliente;
+        cliente = null;
+        if (c != null) c.desconectar();
+    }
+
+    private void reiniciar() {
+        jugando = conPosicion = conPedido = cargando = reanudando = false;
+        gas = 100f;
+        teclasTexto = 0;
+        hayEco = false;
+        ultimaLlegadaNs = 0;
+        piloto.reiniciar();
+    }
+
+    /** RTT p50 del heartbeat (ms), o -1 sin conexión. */
+    float getRttP50() {
+        hiloCliente c = cliente;
+        return c == null || id < 0 ? -1f : c.getMedidorPing().getRttP50();
+    }
+
+    // =========================================================
+    // GameController
+    // =========================================================
+
+    @Override
+    public void enviarInput(int tecla) {}
+
+    @Override
+    public void onConnected(int playerId) {
+        if (id < 0) enjambre.conectados.increment();
+        id = playerId;
+        secuencia = 0;
+    }
+
+    @Override
+    public void onStartMatch() {
+        if (!jugando) enjambre.jugando.increment();
+        jugando = true;
+    }
+
+    @Override
+    public void onReset() {
+        if (jugando) enjambre.jugando.decrement();
+        reiniciar();
+    }
+
+    @Override
+    public void aplicarSnapshot(Snapshot s) {
+        if (id < 0 || !s.presente[id]) return;
+        x = s.x[id];
+        y = s.y[id];
+        angulo = s.angulo[id];
+        velocidad = s.velocidad[id];
+        gas = s.gas[id];
+        conPosicion = true;
+        llegada(s.nanos, s.entrada);
+    }
+
+    @Override
+    public void actualizarPosicion(int id, float x, float y, float angulo, long tiempoNanos,
+                                   long entradaConfirmada, float velocidad) {
+        if (this.id < 0 || id != this.id) return;
+        this.x = x;
+        this.y = y;
+        this.angulo = angulo;
+        // el Movimiento de texto sin entrada tampoco trae velocidad: que el piloto acelere
+        this.velocidad = entradaConfirmada == ReceptorMensajes.SIN_TICK ? 0f : velocidad;
+        conPosicion = true;
+        llegada(tiempoNanos, entradaConfirmada);
+    }
+
+    @Override
+    public void registrarArribo(long tiempoNanos) {
+        // llegada() ya va una vez por Movimiento: solo mira la entidad propia
+    }
+
+    private void llegada(long nanos, long entrada) {
+        if (ultimaLlegadaNs != 0 && nanos > ultimaLlegadaNs) entreSnapshots.registrar(nanos - ultimaLlegadaNs);
+        ultimaLlegadaNs = nanos;
+
+        if (entrada == ReceptorMensajes.SIN_TICK) return;
+        int e = (int) entrada;
+        // solo entradas nuevas y que todavía están en la ventana de envíos
+        if (hayEco && e - ultimoEco <= 0) return;
+        if (secuencia - e < 0 || secuencia - e >= ECO) return;
+        eco.registrar(nanos - enviadoNs[e & (ECO - 1)]);
+        ultimoEco = e;
+        hayEco = true;
+    }
+
+    @Override
+    public void actualizarGas(float gas, int id) {
+        if (id == this.id) this.gas = gas;
+    }
+
+    @Override public void actualizarDinero(int dinero, int id) {}
+    @Override public void actualizarVida(int vida, int id) {}
+
+    @Override
+    public void actualizarDelivery(Rectangle target, boolean dangerous, int reward, int id) {
+        if (id != this.id) return;
+        if (target != null) {
+            pedido.set(target);
+            conPedido = true;
+            enjambre.pedidos.increment();
+        } else if (conPedido) {
+            conPedido = false;
+            enjambre.entregas.increment();
+        }
+    }
+
+    @Override public void actualizarHint(int id, int tipo) {}
+    @Override public void actualizarGasHint(int idJugador, boolean enGas) {}
+
+    @Override
+    public void onGameOver(int winnerIndex) {
+        enjambre.finales.increment();
+        reconectar = true;
+    }
+
+    @Override
+    public void onOpponentLeft() {
+        reconectar = true;
+    }
+
+    @Override
+    public void onConnectionLost() {
+        reconectar = true;
+    }
+
+    @Override
+    public void onReanudada() {
+        reanudando = false;
+        // las entradas y el hueco del corte no son eco ni tiempo entre snapshots
+        hayEco = false;
+        ultimaLlegadaNs = 0;
+        enjambre.reanudadas.increment();
+        hiloCliente c = cliente;
+        if (c != null) enjambre.reanudar.registrar(c.getUltimaReanudacionNs());
+    }
+}
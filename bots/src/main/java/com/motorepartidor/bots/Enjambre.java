@@ -0,0 +1,159 @@
+package com.motorepartidor.bots;
+
+import com.motorepartidor.fisica.ModeloConduccion;
+import com.motorepartidor.server.MapaServidor;
+
+import java.net.InetAddress;
+import java.util.Arrays;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * N bots contra un server, cada uno a 60 Hz.
+ *
+ * Los frames corren en un ScheduledThreadPoolExecutor chico, con un scheduleAtFixedRate
+ * por bot desfasados para no mandar todo junto. El hilo de red de cada
+ * {@link red.hiloCliente} es aparte (un hilo normal por bot).
+ *
+ * Junta los contadores de todos y arma el reporte de cada ventana más el total.
+ */
+final class Enjambre {
+
+    private final Bot[] bots;
+    private final float perdida;
+    private final boolean area;
+    private volatile boolean activo;
+    private ScheduledThreadPoolExecutor pool;
+
+    // ===== Contadores (los escriben todos los bots) =====
+    final TransporteMedido.Trafico trafico = new TransporteMedido.Trafico();
+    final LongAdder conectados = new LongAdder();
+    final LongAdder jugando = new LongAdder();
+    final LongAdder pedidos = new LongAdder();
+    final LongAdder entregas = new LongAdder();
+    final LongAdder finales = new LongAdder();
+    final LongAdder reconexiones = new LongAdder();
+    final LongAdder caidas = new LongAdder();
+    final LongAdder reanudadas = new LongAdder();
+    final LongAdder errores = new LongAdder();
+
+    // ===== Reporte =====
+    private final Histograma entreSnapshots = new Histograma();
+    private final Histograma eco = new Histograma();
+    private final Histograma entreFrames = new Histograma();
+    /** Del primer Reanudar al Reanudada, de toda la corrida (lo llenan los bots). */
+    final Histograma reanudar = new Histograma();
+    private final Histograma totalEntreSnapshots = new Histograma();
+    private final Histograma totalEco = new Histograma();
+    private final long[] informado = new long[6];
+    private long inicioVentanaNs, inicioNs;
+
+    /**
+     * @param escalonadoNs entre la conexión de un bot y la del siguiente (que no entren
+     *                     todos en el mismo milisegundo)
+     * @param area         que los bots manden AREA como GameScreen (si no, les llega todo)
+     */
+    Enjambre(InetAddress servidor, MapaServidor mapa, int cantidad, float perdida, long escalonadoNs, boolean area) {
+        this.perdida = perdida;
+        this.area = area;
+        bots = new Bot[cantidad];
+        long ahora = System.nanoTime();
+        for (int i = 0; i < cantidad; i++) bots[i] = new Bot(this, servidor, mapa, ahora + i * escalonadoNs);
+    }
+
+    /** @param hilosPool hilos del pool que corre los frames */
+    void iniciar(int hilosPool) {
+        activo = true;
+        inicioNs = inicioVentanaNs = System.nanoTime();
+        AtomicInteger n = new AtomicInteger();
+        pool = new ScheduledThreadPoolExecutor(Math.max(1, hilosPool), r -> {
+            Thread t = new Thread(r, "bots-" + n.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        });
+        for (int i = 0; i < bots.length; i++) {
+            Bot bot = bots[i];
+            pool.scheduleAtFixedRate(() -> paso(bot, System.nanoTime()),
+                i * ModeloConduccion.TICK_NS / bots.length, ModeloConduccion.TICK_NS, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void paso(Bot bot, long ahora) {
+        if (!activo) return;
+        try {
+            bot.paso(ahora);
+        } catch (RuntimeException e) {
+            // en el pool una excepción cancelaría los frames de este bot para siempre
+            if (errores.sum() == 0) e.printStackTrace(); // la primera, para saber qué pasa
+            errores.increment();
+        }
+    }
+
+    void detener() {
+        activo = false;
+        if (pool != null) pool.shutdownNow();
+        for (Bot b : bots) b.terminar();
+    }
+
+    float getPerdida() { return perdida; }
+    boolean isArea() { return area; }
+    int getCantidad() { return bots.length; }
+
+    // =========================================================
+    // Reporte
+    // =========================================================
+
+    /** Una línea con la ventana desde el reporte anterior (y la suma al total). */
+    String tomarReporte() {
+        long ahora = System.nanoTime();
+        double segundos = (ahora - inicioVentanaNs) / 1e9;
+        inicioVentanaNs = ahora;
+
+        float[] rtts = new float[bots.length];
+        int conRtt = 0;
+        for (Bot b : bots) {
+            b.entreSnapshots.volcarEn(entreSnapshots);
+            b.eco.volcarEn(eco);
+            b.entreFrames.volcarEn(entreFrames);
+            float r = b.getRttP50();
+            if (r >= 0) rtts[conRtt++] = r;
+        }
+        Arrays.sort(rtts, 0, conRtt);
+        float rtt = conRtt == 0 ? 0f : rtts[conRtt / 2];
+
+        long[] ahoraT = {
+            trafico.paquetesEntrada.sum(), trafico.bytesEntrada.sum(),
+            trafico.paquetesSalida.sum(), trafico.bytesSalida.sum(),
+            trafico.perdidosEntrada.sum(), trafico.perdidosSalida.sum()};
+        long[] d = new long[ahoraT.length];
+        for (int i = 0; i < d.length; i++) {
+            d[i] = ahoraT[i] - informado[i];
+            informado[i] = ahoraT[i];
+        }
+
+        String s = String.format(
+            "[bots] %d bots, %d conectados, %d jugando | entrada %.0f pkt/s %.1f KB/s, salida %.0f pkt/s %.1f KB/s, "
+                + "perdidos %d/%d | entre snapshots (ms) %s | eco entrada (ms) %s | rtt p50 %.2f ms | frame p99 %.1f ms | "
+                + "%d pedidos, %d entregas, %d finales, %d reconexiones, %d caidas, %d reanudadas",
+            bots.length, conectados.sum(), jugando.sum(),
+            d[0] / segundos, d[1] / segundos / 1024, d[2] / segundos, d[3] / segundos / 1024, d[4], d[5],
+            entreSnapshots.resumen(1e6), eco.resumen(1e6), rtt, entreFrames.percentil(99f) / 1e6,
+            pedidos.sum(), entregas.sum(), finales.sum(), reconexiones.sum(), caidas.sum(), reanudadas.sum());
+
+        entreSnapshots.volcarEn(totalEntreSnapshots);
+        eco.volcarEn(totalEco);
+        entreFrames.limpiar();
+        return s;
+    }
+
+    /** Distribución completa de toda la corrida (llamar después del último reporte). */
+    String reporteFinal() {
+        double segundos = (System.nanoTime() - inicioNs) / 1e9;
+        return String.format("[bots] total %.0f s%n", segundos)
+            + "-- entre snapshots --\n" + totalEntreSnapshots.distribucion(1e6, "ms") + "\n"
+            + "-- eco de entrada --\n" + totalEco.distribucion(1e6, "ms")
+            + (reanudar.getCantidad() == 0 ? "" : "\n-- reanudar (Reanudar -> Reanudada) --\n" + reanudar.distribucion(1e6, "ms"));
+    }
+}
@@ -0,0 +1,72 @@
+package com.motorepartidor.bots;
+
+import com.motorepartidor.server.MapaServidor;
+
+import java.io.File;
+import java.net.InetAddress;
+
+/**
+ * Generador de carga: N clientes simulados contra un server (por defecto el local).
+ *
+ * Uso: EnjambreLauncher [host] [bots] [segundos]  (127.0.0.1, 100, 0 = hasta Ctrl+C),
+ * más propiedades opcionales:
+ * -Dmotorepartidor.bots.perdida=F      fracción de datagramas perdidos en cada sentido (0)
+ * -Dmotorepartidor.bots.pool=N         hilos del pool (uno por núcleo)
+ * -Dmotorepartidor.bots.escalonado=MS  entre la conexión de un bot y la del siguiente (10)
+ * -Dmotorepartidor.bots.mapa=ruta      .tmx (map/Map.tmx, o assets/map/Map.tmx)
+ * -Dmotorepartidor.bots.reporte=S      cada cuántos segundos imprimir (5)
+ * -Dmotorepartidor.bots.area=false     no mandar AREA: les llegan todas las motos (true)
+ */
+public class EnjambreLauncher {
+
+    public static final String PROP_PERDIDA = "motorepartidor.bots.perdida";
+    public static final String PROP_POOL = "motorepartidor.bots.pool";
+    public static final String PROP_ESCALONADO = "motorepartidor.bots.escalonado";
+    public static final String PROP_MAPA = "motorepartidor.bots.mapa";
+    public static final String PROP_REPORTE = "motorepartidor.bots.reporte";
+    public static final String PROP_AREA = "motorepartidor.bots.area";
+
+    public static void main(String[] args) throws Exception {
+        InetAddress servidor = InetAddress.getByName(args.length > 0 ? args[0] : "127.0.0.1");
+        int cantidad = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        long segundos = args.length > 2 ? Long.parseLong(args[2]) : 0;
+        float perdida = Float.parseFloat(System.getProperty(PROP_PERDIDA, "0"));
+        int hilosPool = Integer.getInteger(PROP_POOL, Runtime.getRuntime().availableProcessors());
+        long escalonadoMs = Integer.getInteger(PROP_ESCALONADO, 10);
+        int reporte = Math.max(1, Integer.getInteger(PROP_REPORTE, 5));
+        boolean area = Boolean.parseBoolean(System.getProperty(PROP_AREA, "true"));
+
+        MapaServidor mapa = MapaServidor.cargar(buscarMapa());
+        Enjambre enjambre = new Enjambre(servidor, mapa, cantidad, perdida, escalonadoMs * 1_000_000L, area);
+        enjambre.iniciar(hilosPool);
+        System.out.println("[bots] " + cantidad + " bots contra " + servidor.getHostAddress() + " | "
+            + "pool de " + hilosPool + " hilos"
+            + (perdida > 0 ? String.format(" | %.1f%% de perdida", perdida * 100) : "")
+            + (area ? "" : " | sin area de interes"));
+
+        Thread terminar = new Thread(() -> {
+            enjambre.detener();
+            System.out.println(enjambre.tomarReporte());
+            System.out.println(enjambre.reporteFinal());
+        });
+        Runtime.getRuntime().addShutdownHook(terminar);
+
+        long finNs = System.nanoTime() + segundos * 1_000_000_000L;
+        while (segundos <= 0 || System.nanoTime() - finNs < 0) {
+            long resta = reporte * 1000L;
+            if (segundos > 0) resta = Math.min(resta, (finNs - System.nanoTime()) / 1_000_000L);
+            if (resta > 0) Thread.sleep(resta);
+            if (segundos <= 0 || System.nanoTime() - finNs < 0) System.out.println(enjambre.tomarReporte());
+        }
+        Runtime.getRuntime().removeShutdownHook(terminar);
+        terminar.run();
+        System.exit(0);
+    }
+
+    private static File buscarMapa() {
+        String ruta = System.getProperty(PROP_MAPA);
+        if (ruta != null) return new File(ruta);
+        File f = new File("map/Map.tmx");
+        return f.exists() ? f : new File("assets/map/Map.tmx");
+    }
+}
@@ -0,0 +1,107 @@
+package com.motorepartidor.bots;
+
+import java.util.Arrays;
+
+/**
+ * Histograma de latencias al estilo HdrHistogram: cubetas lineales dentro de cada potencia
+ * de 2, así el error relativo es fijo (1/{@link #MITAD}, ~3%) desde 1 ns hasta horas,
+ * con un array de tamaño fijo y sin crear objetos al registrar.
+ *
+ * Lo escribe un bot y lo vacía el reporte con {@link #volcarEn} (synchronized: sin
+ * competencia salvo una vez por ventana).
+ */
+final class Histograma {
+
+    private static final int BITS = 6;
+    private static final int SUB = 1 << BITS;   // valores < SUB van exactos
+    private static final int MITAD = SUB >> 1;  // cubetas por potencia de 2 desde ahí
+    private static final int CUBETAS = SUB + (63 - BITS) * MITAD;
+
+    private static final float[] PERCENTILES = {50f, 75f, 90f, 95f, 99f, 99.9f, 99.99f, 100f};
+
+    private final long[] cuentas = new long[CUBETAS];
+    private long cantidad, suma, minimo = Long.MAX_VALUE, maximo;
+
+    static int indice(long v) {
+        if (v < SUB) return (int) Math.max(0, v);
+        int exponente = 63 - Long.numberOfLeadingZeros(v);
+        int corrimiento = exponente - BITS + 1;
+        int mantisa = (int) (v >>> corrimiento); // en [MITAD, SUB)
+        return SUB + (corrimiento - 1) * MITAD + (mantisa - MITAD);
+    }
+
+    /** Valor más alto que cae en la cubeta i. */
+    static long techo(int i) {
+        if (i < SUB) return i;
+        int corrimiento = (i - SUB) / MITAD + 1;
+        long mantisa = (i - SUB) % MITAD + MITAD;
+        return ((mantisa + 1) << corrimiento) - 1;
+    }
+
+    synchronized void registrar(long v) {
+        cuentas[indice(v)]++;
+        cantidad++;
+        suma += v;
+        if (v < minimo) minimo = v;
+        if (v > maximo) maximo = v;
+    }
+
+    /** Suma este histograma a `destino` y lo deja vacío. */
+    synchronized void volcarEn(Histograma destino) {
+        destino.agregar(this);
+        limpiar();
+    }
+
+    synchronized void agregar(Histograma o) {
+        for (int i = 0; i < CUBETAS; i++) cuentas[i] += o.cuentas[i];
+        cantidad += o.cantidad;
+        suma += o.suma;
+        minimo = Math.min(minimo, o.minimo);
+        maximo = Math.max(maximo, o.maximo);
+    }
+
+    synchronized void limpiar() {
+        Arrays.fill(cuentas, 0L);
+        cantidad = suma = maximo = 0;
+        minimo = Long.MAX_VALUE;
+    }
+
+    /** Percentil p (0..100): el techo de la cubeta donde cae, o 0 si está vacío. */
+    synchronized long percentil(float p) {
+        if (cantidad == 0) return 0;
+        long objetivo = Math.max(1, (long) Math.ceil(p / 100.0 * cantidad));
+        long acumulado = 0;
+        for (int i = 0; i < CUBETAS; i++) {
+            acumulado += cuentas[i];
+            if (acumulado >= objetivo) return Math.min(techo(i), maximo);
+        }
+        return maximo;
+    }
+
+    synchronized long getCantidad() { return cantidad; }
+    synchronized long getMaximo() { return maximo; }
+    synchronized long getMinimo() { return cantidad == 0 ? 0 : minimo; }
+    synchronized double getPromedio() { return cantidad == 0 ? 0 : (double) suma / cantidad; }
+
+    /** "p50 1.23 p99 4.56 max 7.89" en la unidad dada (ej. 1e6 para ms). */
+    String resumen(double unidad) {
+        return String.format("p50 %.2f p90 %.2f p99 %.2f p99.9 %.2f max %.2f",
+            percentil(50f) / unidad, percentil(90f) / unidad, percentil(99f) / unidad,
+            percentil(99.9f) / unidad, getMaximo() / unidad);
+    }
+
+    /** Tabla de percentiles, como la de HdrHistogram (valor, percentil, cuenta acumulada). */
+    synchronized String distribucion(double unidad, String nombreUnidad) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%12s %10s %12s%n", nombreUnidad, "percentil", "cuenta"));
+        for (float p : PERCENTILES) {
+            long v = percentil(p);
+            long hasta = 0;
+            for (int i = 0; i <= indice(v) && i < CUBETAS; i++) hasta += cuentas[i];
+            sb.append(String.format("%12.3f %10.3f %12d%n", v / unidad, p, hasta));
+        }
+        sb.append(String.format("#[promedio %.3f, min %.3f, max %.3f, muestras %d]",
+            getPromedio() / unidad, getMinimo() / unidad, maximo / unidad, cantidad));
+        return sb.toString();
+    }
+}
@@ -0,0 +1,159 @@
+package com.motorepartidor.bots;
+
+import com.badlogic.gdx.ai.steer.Steerable;
+import com.badlogic.gdx.ai.steer.SteeringAcceleration;
+import com.badlogic.gdx.ai.steer.behaviors.Arrive;
+import com.badlogic.gdx.ai.utils.Location;
+import com.badlogic.gdx.math.Vector2;
+import com.motorepartidor.fisica.ModeloConduccion;
+
+/**
+ * La moto de un bot vista por gdx-ai: un {@link Arrive} hacia el objetivo (dealer,
+ * entrega o surtidor) y la aceleración que devuelve traducida a teclas.
+ *
+ * Arrive pide una velocidad (hacia el objetivo, más baja al acercarse); la moto no puede
+ * acelerar de costado, así que se gira hacia esa velocidad con A/D y se acelera o frena
+ * con W/S según lo que le falte en la dirección en que apunta. Si se queda trabada
+ * contra una pared da marcha atrás girando un rato.
+ *
+ * No conoce las paredes: en un mapa con calles se traba seguido, pero para generar
+ * carga alcanza (se mueve, dobla, llega al dealer y a varias entregas).
+ */
+final class Piloto implements Steerable<Vector2> {
+
+    /** Grados de diferencia que se toleran sin girar. */
+    static final float TOLERANCIA = 4f;
+    /** A esta distancia (px) Arrive empieza a bajar la velocidad pedida. */
+    static final float RADIO_FRENADO = 120f;
+    static final float TIEMPO_OBJETIVO = 0.25f;
+    /** Con el objetivo muy de costado se va despacio para poder girar (y sin velocidad no gira). */
+    static final float VELOCIDAD_GIRO = 70f;
+    static final float VELOCIDAD_MINIMA = 30f;
+    static final int TICKS_ATASCO = 45;
+    static final int TICKS_REVERSA = 40;
+
+    private final Vector2 posicion = new Vector2();
+    private final Vector2 velocidad = new Vector2();
+    private final Vector2 frente = new Vector2();
+    private final Vector2 pedida = new Vector2();
+    private float orientacion; // radianes, la convención de gdx-ai
+    private boolean marcado;
+
+    private final Punto objetivo = new Punto();
+    private final Arrive<Vector2> arrive = new Arrive<Vector2>(this, objetivo)
+        .setArrivalTolerance(4f)
+        .setDecelerationRadius(RADIO_FRENADO)
+        .setTimeToTarget(TIEMPO_OBJETIVO);
+    private final SteeringAcceleration<Vector2> salida = new SteeringAcceleration<>(new Vector2());
+
+    private int atascado;
+    private int reversa;
+
+    void reiniciar() {
+        atascado = reversa = 0;
+    }
+
+    /** Teclas (bits de ModeloConduccion) para ir de la moto al objetivo. */
+    int teclas(float x, float y, float angulo, float v, float objetivoX, float objetivoY) {
+        posicion.set(x, y);
+        orientacion = (float) Math.toRadians(angulo);
+        angleToVector(frente, orientacion);
+        velocidad.set(frente).scl(v);
+        objetivo.posicion.set(objetivoX, objetivoY);
+
+        arrive.calculateSteering(salida);
+        // la velocidad que quiere Arrive: la actual más lo que acelera en TIEMPO_OBJETIVO
+        pedida.set(velocidad).mulAdd(salida.linear, TIEMPO_OBJETIVO);
+        float diferencia = 0f;
+        if (pedida.len2() > 1e-4f) {
+            float deseado = (float) Math.toDegrees(vectorToAngle(pedida));
+            diferencia = ModeloConduccion.normalizar(deseado - angulo + 180f) - 180f; // (-180, 180]
+        }
+
+        if (reversa > 0) {
+            reversa--;
+            // en reversa el giro se invierte
+            return ModeloConduccion.FRENAR | (diferencia > 0 ? ModeloConduccion.DERECHA : ModeloConduccion.IZQUIERDA);
+        }
+
+        int t = 0;
+        if (diferencia > TOLERANCIA) t |= ModeloConduccion.IZQUIERDA;
+        else if (diferencia < -TOLERANCIA) t |= ModeloConduccion.DERECHA;
+
+        float meta = pedida.len();
+        if (Math.abs(diferencia) > 90f) meta = Math.min(meta, VELOCIDAD_GIRO);
+        if (meta > 0f) meta = Math.max(meta, VELOCIDAD_MINIMA);
+        if (v < meta) t |= ModeloConduccion.ACELERAR;
+        else if (v > meta + 20f) t |= ModeloConduccion.FRENAR;
+
+        if ((t & ModeloConduccion.ACELERAR) != 0 && v < 5f) {
+            if (++atascado > TICKS_ATASCO) {
+                atascado = 0;
+                reversa = TICKS_REVERSA;
+            }
+        } else {
+            atascado = 0;
+        }
+        return t;
+    }
+
+    // ===== Location / Steerable =====
+
+    @Override public Vector2 getPosition() { return posicion; }
+    @Override public float getOrientation() { return orientacion; }
+    @Override public void setOrientation(float o) { orientacion = o; }
+
+    /** La moto avanza hacia (-sin a, cos a): ver ModeloConduccion.paso. */
+    @Override
+    public float vectorToAngle(Vector2 v) {
+        return (float) Math.atan2(-v.x, v.y);
+    }
+
+    @Override
+    public Vector2 angleToVector(Vector2 out, float angulo) {
+        out.x = -(float) Math.sin(angulo);
+        out.y = (float) Math.cos(angulo);
+        return out;
+    }
+
+    @Override public Location<Vector2> newLocation() { return new Punto(); }
+
+    @Override public Vector2 getLinearVelocity() { return velocidad; }
+    @Override public float getAngularVelocity() { return 0f; }
+    @Override public float getBoundingRadius() { return ModeloConduccion.ALTO / 2f; }
+    @Override public boolean isTagged() { return marcado; }
+    @Override public void setTagged(boolean t) { marcado = t; }
+
+    // ===== Limiter: los límites de ModeloConduccion =====
+
+    @Override public float getZeroLinearSpeedThreshold() { return 0.001f; }
+    @Override public void setZeroLinearSpeedThreshold(float v) {}
+    @Override public float getMaxLinearSpeed() { return ModeloConduccion.VELOCIDAD_MAXIMA; }
+    @Override public void setMaxLinearSpeed(float v) {}
+    @Override public float getMaxLinearAcceleration() { return ModeloConduccion.FRENADO; }
+    @Override public void setMaxLinearAcceleration(float v) {}
+    @Override public float getMaxAngularSpeed() { return (float) Math.toRadians(ModeloConduccion.GIRO); }
+    @Override public void setMaxAngularSpeed(float v) {}
+    @Override public float getMaxAngularAcceleration() { return Float.MAX_VALUE; }
+    @Override public void setMaxAngularAcceleration(float v) {}
+
+    /** Objetivo de Arrive: un punto fijo del mapa. */
+    private static final class Punto implements Location<Vector2> {
+        final Vector2 posicion = new Vector2();
+        float orientacion;
+
+        @Override public Vector2 getPosition() { return posicion; }
+        @Override public float getOrientation() { return orientacion; }
+        @Override public void setOrientation(float o) { orientacion = o; }
+        @Override public float vectorToAngle(Vector2 v) { return (float) Math.atan2(-v.x, v.y); }
+
+        @Override
+        public Vector2 angleToVector(Vector2 out, float angulo) {
+            out.x = -(float) Math.sin(angulo);
+            out.y = (float) Math.cos(angulo);
+            return out;
+        }
+
+        @Override public Location<Vector2> newLocation() { return new Punto(); }
+    }
+}
@@ -0,0 +1,92 @@
+package com.motorepartidor.bots;
+
+import com.badlogic.gdx.math.Rectangle;
+import com.motorepartidor.GameController;
+import red.ReproductorCaptura;
+import red.Snapshot;
+
+import java.io.File;
+
+/**
+ * Corre una captura (ver red.GrabadorCaptura) contra un GameController que solo cuenta,
+ * sin esperar y varias veces: el costo del lado cliente (parser, filtros, colas y
+ * despacho) por datagrama, sin red ni pantalla.
+ *
+ * Uso: ReproduccionLauncher archivo.mrc [vueltas]  (5; la primera es de calentamiento)
+ * Por defecto cada despacho es un frame de captura (POR_FRAME: se coalesce como en el
+ * juego a 60 Hz); -Dmotorepartidor.reproducir.modo=maxima mete de a 64 datagramas.
+ * Para grabar: -Dmotorepartidor.captura=dir en el juego o en EnjambreLauncher.
+ */
+public class ReproduccionLauncher {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("uso: ReproduccionLauncher archivo.mrc [vueltas]");
+            System.exit(2);
+        }
+        File archivo = new File(args[0]);
+        int vueltas = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        ReproductorCaptura.Modo modo = ReproductorCaptura.Modo.valueOf(
+            System.getProperty(ReproductorCaptura.PROP_MODO, "por_frame").toUpperCase());
+        float velocidad = Float.parseFloat(System.getProperty(ReproductorCaptura.PROP_VELOCIDAD, "1"));
+
+        Histograma porDatagrama = new Histograma();
+        Contador contador = new Contador();
+        for (int v = 0; v < vueltas; v++) {
+            try (ReproductorCaptura r = new ReproductorCaptura(archivo, modo, velocidad)) {
+                contador.limpiar();
+                long t0 = System.nanoTime();
+                long n = r.reproducirTodo(contador);
+                long ns = System.nanoTime() - t0;
+                if (v == 0) {
+                    System.out.printf("[replay] %s: %d datagramas, %.1f KB, %.1f s grabados%n", archivo.getName(), n,
+                        r.getBytes() / 1024.0, r.getLector().getDuracionNs() / 1e9);
+                    System.out.println("[replay] eventos: " + contador);
+                    continue; // calentamiento
+                }
+                if (n > 0) porDatagrama.registrar(ns / n);
+                System.out.printf("[replay] vuelta %d: %.2f ms, %.0f ns/datagrama (%.0f en el parser), x%.0f tiempo real%n",
+                    v, ns / 1e6, (double) ns / Math.max(1, n), (double) r.getProcesoNs() / Math.max(1, n),
+                    r.getLector().getDuracionNs() / (double) Math.max(1, ns));
+            }
+        }
+        if (vueltas > 1) System.out.println("[replay] ns/datagrama " + porDatagrama.resumen(1));
+    }
+
+    /** Cuenta los callbacks: dos corridas de la misma captura tienen que dar lo mismo. */
+    private static final class Contador implements GameController {
+        long conectado, comienzo, posiciones, snapshots, gas, dinero, vida, delivery, hint, gasHint, fin, reset, rival;
+
+        void limpiar() {
+            conectado = comienzo = posiciones = snapshots = gas = dinero = vida = delivery = hint = gasHint = 0;
+            fin = reset = rival = 0;
+        }
+
+        @Override public void enviarInput(int tecla) {}
+        @Override public void onConnected(int playerId) { conectado++; }
+        @Override public void onStartMatch() { comienzo++; }
+        @Override public void onReset() { reset++; }
+        @Override public void aplicarSnapshot(Snapshot s) { snapshots++; }
+        @Override
+        public void actualizarPosicion(int id, float x, float y, float angulo, long tiempoNanos,
+                                       long entradaConfirmada, float velocidad) { posiciones++; }
+        @Override public void registrarArribo(long tiempoNanos) {}
+        @Override public void actualizarGas(float g, int id) { gas++; }
+        @Override public void actualizarDinero(int d, int id) { dinero++; }
+        @Override public void actualizarVida(int v, int id) { vida++; }
+        @Override public void actualizarDelivery(Rectangle target, boolean dangerous, int reward, int id) { delivery++; }
+        @Override public void actualizarHint(int id, int tipo) { hint++; }
+        @Override public void actualizarGasHint(int idJugador, boolean enGas) { gasHint++; }
+        @Override public void onGameOver(int winnerIndex) { fin++; }
+        @Override public void onOpponentLeft() { rival++; }
+        @Override public void onConnectionLost() {}
+        @Override public void onReanudada() {}
+
+        @Override
+        public String toString() {
+            return "id " + conectado + ", comienzo " + comienzo + ", snapshots " + snapshots + ", movimientos "
+                + posiciones + ", gas " + gas + ", dinero " + dinero + ", vida " + vida + ", delivery " + delivery
+                + ", hint " + hint + ", gasHint " + gasHint + ", fin " + fin + ", reset " + reset + ", rival " + rival;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.motorepartidor.bots;
+
+import red.Transporte;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Envuelve el transporte de un {@link red.hiloCliente}: cuenta paquetes y bytes de todo
+ * el enjambre y, si se pide, pierde una fracción de los datagramas en cada sentido
+ * (pérdida uniforme, sin ráfagas) para ver cómo se porta el cliente en una red mala.
+ */
+final class TransporteMedido implements Transporte {
+
+    /** Contadores compartidos por todos los bots (LongAdder: muchos hilos escriben). */
+    static final class Trafico {
+        final LongAdder paquetesEntrada = new LongAdder();
+        final LongAdder bytesEntrada = new LongAdder();
+        final LongAdder paquetesSalida = new LongAdder();
+        final LongAdder bytesSalida = new LongAdder();
+        final LongAdder perdidosEntrada = new LongAdder();
+        final LongAdder perdidosSalida = new LongAdder();
+    }
+
+    private final Transporte base;
+    private final Trafico trafico;
+    private final float perdida;
+
+    TransporteMedido(Transporte base, Trafico trafico, float perdida) {
+        this.base = base;
+        this.trafico = trafico;
+        this.perdida = perdida;
+    }
+
+    private boolean perder() {
+        return perdida > 0f && ThreadLocalRandom.current().nextFloat() < perdida;
+    }
+
+    @Override
+    public ByteBuffer entrada() {
+        return base.entrada();
+    }
+
+    @Override
+    public InetAddress recibir(long timeoutMs) throws IOException {
+        InetAddress origen = base.recibir(timeoutMs);
+        if (origen == null) return null;
+        if (perder()) {
+            // para el cliente es como si no hubiera llegado; el próximo recibir sigue drenando
+            trafico.perdidosEntrada.increment();
+            return null;
+        }
+        trafico.paquetesEntrada.increment();
+        trafico.bytesEntrada.add(base.entrada().remaining());
+        return origen;
+    }
+
+    @Override
+    public void enviar(ByteBuffer datos, InetSocketAddress destino) throws IOException {
+        if (perder()) {
+            trafico.perdidosSalida.increment();
+            return;
+        }
+        trafico.paquetesSalida.increment();
+        trafico.bytesSalida.add(datos.remaining());
+        base.enviar(datos, destino);
+    }
+
+    @Override
+    public void despertar() {
+        base.despertar();
+    }
+
+    @Override
+    public boolean isCerrado() {
+        return base.isCerrado();
+    }
+
+    @Override
+    public void cerrar() {
+        base.cerrar();
+    }
+}
@@ -1,13 +1,34 @@
 package com.motorepartidor;
 
-import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.math.Rectangle;
+import red.Snapshot;
 
 public interface GameController {
 
 
     void enviarInput (int tecla );
-    void actualizarPosicion(Vector2 pos1 , Vector2 pos2 , float angulo1 , float angulo2);
+    /**
+     * Posición de una entidad (id del server). Un Movimiento de texto llega como una
+     * llamada por jugador.
+     * tiempoNanos: System.nanoTime() de cuando llegó el snapshot.
+     * entradaConfirmada: última entrada del jugador local que aplicó el server (u32), o
+     * ReceptorMensajes.SIN_TICK si no la manda o si id no es el local; velocidad viene con ella.
+     */
+    void actualizarPosicion(int id, float x, float y, float angulo, long tiempoNanos,
+                            long entradaConfirmada, float velocidad);
+
+    /**
+     * Llegó un Movimiento: una vez por datagrama, antes de sus actualizarPosicion (el
+     * retardo de interpolación mide el intervalo entre datagramas, no entre entidades).
+     * aplicarSnapshot ya es uno por datagrama y no pasa por acá.
+     */
+    void registrarArribo(long tiempoNanos);
+
+    /**
+     * Estado de todos los jugadores de un mismo tick (SNAPSHOT agrupado): posición, gas,
+     * dinero, vida y hints se aplican juntos. El objeto se reutiliza: copiar, no guardar.
+     */
+    void aplicarSnapshot(Snapshot snapshot);
 
     void actualizarGas(float gas , int id );
     void actualizarDinero(int dinero , int id);
@@ -15,6 +36,10 @@ public interface GameController {
     void actualizarDelivery(Rectangle target, boolean dangerous, int reward, int id);
 
     void actualizarHint(int id, int tipo);
+    /**
+     * winnerIndex: id + 1 del ganador; en partidas de dos, 3 es empate (en las de más no
+     * hay empate: desempata el dinero).
+     */
     void onGameOver(int winnerIndex);
     void onReset();
 
@@ -22,6 +47,11 @@ public interface GameController {
     void onStartMatch();
 
     void onConnectionLost();
+    /**
+     * Se volvió a tomar la sesión después de un corte (ver hiloCliente#reanudar): sigue la
+     * misma partida; lo próximo es un snapshot completo.
+     */
+    void onReanudada();
     void onOpponentLeft();
 
     void actualizarGasHint(int idJugador, boolean enGas);
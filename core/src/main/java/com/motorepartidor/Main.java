@@ -5,8 +5,13 @@ import com.badlogic.gdx.Gdx;
 import com.motorepartidor.audio.AudioManager;
 import com.motorepartidor.screens.GameScreen;
 import com.motorepartidor.screens.MainMenuScreen;
+import com.motorepartidor.screens.ReplayScreen;
+import red.ReproductorCaptura;
+import red.ReproductorPartida;
 import red.hiloCliente;
 
+import java.io.IOException;
+
 
 public class Main extends Game {
 
@@ -19,6 +24,7 @@ public class Main extends Game {
 
     // Resultado de la última partida (0 = ninguno / empate)
     private int lastWinner = 0;
+    private int lastJugadores = 2;
 
 
 
@@ -28,6 +34,32 @@ public class Main extends Game {
         //  Audio global
         audio = new AudioManager();
 
+        //  Reproducción de una captura: directo a la partida, sin red ni menú
+        ReproductorCaptura reproductor = null;
+        try {
+            reproductor = ReproductorCaptura.desdePropiedades();
+        } catch (IOException | IllegalArgumentException e) {
+            Gdx.app.error("Main", "No se pudo abrir la captura", e);
+        }
+        if (reproductor != null) {
+            cliente = reproductor.crearCliente();
+            startGame();
+            return;
+        }
+
+        //  Repetición de una partida grabada (-Dmotorepartidor.partida=archivo)
+        ReproductorPartida partida = null;
+        try {
+            partida = ReproductorPartida.desdePropiedades();
+        } catch (IOException e) {
+            Gdx.app.error("Main", "No se pudo abrir la partida", e);
+        }
+        if (partida != null) {
+            cliente = partida.crearCliente();
+            setScreen(new ReplayScreen(this, audio, cliente, partida));
+            return;
+        }
+
         //  Cliente de red (único durante toda la app)
         cliente = new hiloCliente();
         cliente.setDaemon(true); // no bloquea cierre de la JVM
@@ -63,8 +95,10 @@ public class Main extends Game {
     }
 
 
-    public void onMatchFinished(int winnerIndex) {
+    /** winnerIndex como el GameOver (id + 1; 3 es empate solo si eran dos). */
+    public void onMatchFinished(int winnerIndex, int jugadores) {
         this.lastWinner = winnerIndex;
+        this.lastJugadores = jugadores;
         showMainMenu();
     }
 
@@ -80,6 +114,11 @@ public class Main extends Game {
         return lastWinner;
     }
 
+    /** Cuántos jugadores tenía la última partida. */
+    public int getLastJugadores() {
+        return lastJugadores;
+    }
+
     public hiloCliente getCliente() {
         return cliente;
     }
@@ -7,12 +7,14 @@ import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.math.Polygon;
 import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.math.Vector2;
+import com.motorepartidor.entities.components.BufferInterpolacion;
 import com.motorepartidor.entities.components.PlayerRenderer;
 
 
 public class Jugador {
 
     private Texture textura;
+    private final boolean texturaPropia; // la compartida la libera quien la cargó
     private TextureRegion[] frames;
 
     private final Vector2 posicion;
@@ -31,8 +33,23 @@ public class Jugador {
 
     private final PlayerRenderer renderer;
 
+    // Snapshots del server para dibujar a los remotos interpolados: un segundo a 60 Hz,
+    // lo que puede llegar a atrasarse el espectador (GameScreen)
+    private static final int CAPACIDAD_SNAPSHOTS = 64;
+    private final BufferInterpolacion snapshots = new BufferInterpolacion(CAPACIDAD_SNAPSHOTS);
+
     public Jugador(String texturaPath, int frameWidth, int frameHeight, Vector2 posicionInicial) {
-        this.textura = safeLoadTexture(texturaPath);
+        this(null, texturaPath, frameWidth, frameHeight, posicionInicial);
+    }
+
+    /** Con una textura ya cargada y compartida entre varios (dispose no la libera). */
+    public Jugador(Texture compartida, int frameWidth, int frameHeight, Vector2 posicionInicial) {
+        this(compartida, null, frameWidth, frameHeight, posicionInicial);
+    }
+
+    private Jugador(Texture compartida, String texturaPath, int frameWidth, int frameHeight, Vector2 posicionInicial) {
+        this.texturaPropia = compartida == null;
+        this.textura = compartida != null ? compartida : safeLoadTexture(texturaPath);
         this.frames = splitFrames(this.textura, frameWidth, frameHeight);
 
         this.posicion = new Vector2(posicionInicial);
@@ -68,19 +85,40 @@ public class Jugador {
     }
 
     public void dispose() {
-        if (textura != null) textura.dispose();
+        if (textura != null && texturaPropia) textura.dispose();
     }
 
     //  Estado sincronizado desde el servidor
 
     public void setPosicion(Vector2 nuevaPos) {
-        this.posicion.set(nuevaPos);
+        setPosicion(nuevaPos.x, nuevaPos.y);
+    }
+
+    public void setPosicion(float x, float y) {
+        this.posicion.set(x, y);
         this.bounds.setPosition(posicion.x, posicion.y);
         this.polygon.setPosition(posicion.x, posicion.y);
     }
 
     public Vector2 getPosicion() { return posicion; }
 
+    /** Guarda un snapshot con su tiempo de llegada; no mueve al jugador todavía. */
+    public void agregarSnapshot(long tiempoNs, float x, float y, float ang) {
+        snapshots.agregar(tiempoNs, x, y, ang);
+    }
+
+    /** Ubica al jugador donde estaba en tiempoNs según los snapshots (sin objetos nuevos). */
+    public void interpolar(long tiempoNs) {
+        if (!snapshots.muestrear(tiempoNs)) return;
+        setPosicion(snapshots.getX(), snapshots.getY());
+        setAngulo(snapshots.getAngulo());
+    }
+
+    /** Descarta el historial (teletransporte, reset). */
+    public void limpiarSnapshots() {
+        snapshots.limpiar();
+    }
+
     public void setAngulo(float ang) {
         this.angulo = ang;
         this.polygon.setRotation(ang);
@@ -109,7 +147,8 @@ public class Jugador {
 
     //  Helpers
 
-    private Texture safeLoadTexture(String path) {
+    /** Carga la textura o, si no está, badlogic.jpg (para compartirla entre varios Jugador). */
+    public static Texture safeLoadTexture(String path) {
         try {
             return new Texture(Gdx.files.internal(path));
         } catch (Exception e) {
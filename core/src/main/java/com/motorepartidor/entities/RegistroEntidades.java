@@ -0,0 +1,117 @@
+package com.motorepartidor.entities;
+
+import red.Snapshot;
+
+import java.util.Arrays;
+
+/**
+ * Estado de todas las motos de la partida, indexado por id de entidad (el id del server,
+ * 0..{@link #CAPACIDAD}-1), en arrays de primitivos: nada de objetos por entidad ni por
+ * actualización.
+ *
+ * Las que están en la partida se llevan además en una lista densa ({@link #getId}),
+ * así recorrerlas cuesta O(presentes) y no O(capacidad); {@link #visibles} filtra esa
+ * lista contra un rectángulo para que el render cueste O(visibles).
+ *
+ * Lo usa solo el hilo de render (los callbacks del GameController y el frame).
+ */
+public final class RegistroEntidades {
+
+    public static final int CAPACIDAD = Snapshot.MAX_JUGADORES;
+
+    public static final int HINT_NADA = 0, HINT_DEALER = 1, HINT_ENTREGA = 2;
+
+    // ===== Presencia =====
+    private final boolean[] presente = new boolean[CAPACIDAD];
+    private final int[] ids = new int[CAPACIDAD];      // densa: las primeras `cantidad`
+    private final int[] posicion = new int[CAPACIDAD]; // id -> índice en ids
+    private int cantidad;
+
+    // ===== Estado (lo último que mandó el server; la pose dibujada la tiene cada Jugador) =====
+    public final float[] x = new float[CAPACIDAD];
+    public final float[] y = new float[CAPACIDAD];
+    public final float[] angulo = new float[CAPACIDAD];
+    public final float[] velocidad = new float[CAPACIDAD];
+    public final float[] gas = new float[CAPACIDAD];
+    public final int[] dinero = new int[CAPACIDAD];
+    public final int[] vida = new int[CAPACIDAD];
+    public final int[] hint = new int[CAPACIDAD];
+    public final boolean[] enGas = new boolean[CAPACIDAD];
+
+    // ===== Pedido activo =====
+    public final boolean[] conPedido = new boolean[CAPACIDAD];
+    public final float[] pedidoX = new float[CAPACIDAD];
+    public final float[] pedidoY = new float[CAPACIDAD];
+    public final float[] pedidoAncho = new float[CAPACIDAD];
+    public final float[] pedidoAlto = new float[CAPACIDAD];
+    public final boolean[] peligroso = new boolean[CAPACIDAD];
+    public final int[] recompensa = new int[CAPACIDAD];
+
+    public static boolean valido(int id) {
+        return id >= 0 && id < CAPACIDAD;
+    }
+
+    public boolean contiene(int id) {
+        return valido(id) && presente[id];
+    }
+
+    /**
+     * Da de alta la entidad con valores de arranque (vida y nafta llenas, sin plata ni
+     * pedido). @return true si es nueva
+     */
+    public boolean agregar(int id) {
+        if (!valido(id) || presente[id]) return false;
+        presente[id] = true;
+        posicion[id] = cantidad;
+        ids[cantidad++] = id;
+        reiniciar(id);
+        return true;
+    }
+
+    /** Saca la entidad (el hueco lo ocupa la última de la lista densa). */
+    public boolean quitar(int id) {
+        if (!contiene(id)) return false;
+        presente[id] = false;
+        int i = posicion[id];
+        int ultimo = ids[--cantidad];
+        ids[i] = ultimo;
+        posicion[ultimo] = i;
+        return true;
+    }
+
+    /** Valores de arranque de una entidad (Reset). */
+    public void reiniciar(int id) {
+        x[id] = y[id] = angulo[id] = velocidad[id] = 0f;
+        gas[id] = 100f;
+        dinero[id] = 0;
+        vida[id] = 100;
+        hint[id] = HINT_NADA;
+        enGas[id] = false;
+        conPedido[id] = false;
+    }
+
+    /** Olvida todas. */
+    public void limpiar() {
+        Arrays.fill(presente, false);
+        cantidad = 0;
+    }
+
+    public int getCantidad() { return cantidad; }
+
+    /** La i-ésima presente (0 &lt;= i &lt; {@link #getCantidad()}; el orden cambia al quitar). */
+    public int getId(int i) { return ids[i]; }
+
+    /**
+     * Ids de las presentes cuya posición cae en [minX, maxX] x [minY, maxY] (px del mundo,
+     * ya con el margen que haga falta), en `salida`. @return cuántas
+     */
+    public int visibles(float minX, float minY, float maxX, float maxY, int[] salida) {
+        int n = 0;
+        for (int i = 0; i < cantidad; i++) {
+            int id = ids[i];
+            float px = x[id], py = y[id];
+            if (px >= minX && px <= maxX && py >= minY && py <= maxY) salida[n++] = id;
+        }
+        return n;
+    }
+}
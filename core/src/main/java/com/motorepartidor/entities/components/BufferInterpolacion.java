@@ -0,0 +1,139 @@
+package com.motorepartidor.entities.components;
+
+/**
+ * Historial de snapshots de una entidad (tiempo, x, y, ángulo) en un ring buffer
+ * preasignado, para dibujarla un poco "en el pasado" interpolando entre dos
+ * snapshots reales en vez de saltar a cada posición que manda el server.
+ *
+ * - Posición: interpolación lineal.
+ * - Ángulo: por el arco más corto (de 359° a 1° gira 2°, no 358°).
+ * - Si el tiempo pedido es más nuevo que el último snapshot (paquetes perdidos)
+ *   se extrapola con la última velocidad, como máximo {@link #MAX_EXTRAPOLACION_NS}.
+ *
+ * El resultado queda en {@link #getX()}, {@link #getY()}, {@link #getAngulo()}: no hay
+ * objetos nuevos por frame.
+ */
+public class BufferInterpolacion {
+
+    public static final long MAX_EXTRAPOLACION_NS = 150_000_000L;
+
+    private final long[] tiempos;
+    private final float[] xs;
+    private final float[] ys;
+    private final float[] angs;
+    private int inicio = 0;   // índice del más viejo
+    private int cantidad = 0;
+
+    private float x, y, angulo;
+
+    public BufferInterpolacion(int capacidad) {
+        tiempos = new long[capacidad];
+        xs = new float[capacidad];
+        ys = new float[capacidad];
+        angs = new float[capacidad];
+    }
+
+    /** Agrega un snapshot. Si llega con tiempo anterior al último se ignora. */
+    public void agregar(long tiempoNs, float px, float py, float ang) {
+        if (cantidad > 0 && tiempoNs <= tiempos[indice(cantidad - 1)]) return;
+
+        int i;
+        if (cantidad < tiempos.length) {
+            i = indice(cantidad);
+            cantidad++;
+        } else {
+            // lleno: pisamos el más viejo
+            i = inicio;
+            inicio = (inicio + 1) % tiempos.length;
+        }
+        tiempos[i] = tiempoNs;
+        xs[i] = px;
+        ys[i] = py;
+        angs[i] = ang;
+    }
+
+    public void limpiar() {
+        inicio = 0;
+        cantidad = 0;
+    }
+
+    public boolean isVacio() {
+        return cantidad == 0;
+    }
+
+    /**
+     * Calcula el estado en tiempoNs.
+     * @return false si todavía no hay snapshots (el resultado no cambia)
+     */
+    public boolean muestrear(long tiempoNs) {
+        if (cantidad == 0) return false;
+
+        int ultimo = indice(cantidad - 1);
+        if (cantidad == 1 || tiempoNs <= tiempos[inicio]) {
+            // antes del primero (o uno solo): no hay con qué interpolar
+            int i = tiempoNs <= tiempos[inicio] ? inicio : ultimo;
+            fijar(xs[i], ys[i], angs[i]);
+            return true;
+        }
+
+        if (tiempoNs >= tiempos[ultimo]) {
+            extrapolar(indice(cantidad - 2), ultimo, tiempoNs);
+            return true;
+        }
+
+        // buscamos el par [a, b] que encierra tiempoNs (de atrás para adelante:
+        // lo normal es estar cerca del final)
+        for (int k = cantidad - 2; k >= 0; k--) {
+            int a = indice(k);
+            if (tiempos[a] <= tiempoNs) {
+                int b = indice(k + 1);
+                float t = (float) (tiempoNs - tiempos[a]) / (float) (tiempos[b] - tiempos[a]);
+                fijar(xs[a] + (xs[b] - xs[a]) * t,
+                      ys[a] + (ys[b] - ys[a]) * t,
+                      angs[a] + diferenciaAngulo(angs[a], angs[b]) * t);
+                return true;
+            }
+        }
+        return true;
+    }
+
+    private void extrapolar(int a, int b, long tiempoNs) {
+        long dt = tiempos[b] - tiempos[a];
+        long extra = Math.min(tiempoNs - tiempos[b], MAX_EXTRAPOLACION_NS);
+        if (dt <= 0 || extra <= 0) {
+            fijar(xs[b], ys[b], angs[b]);
+            return;
+        }
+        float t = (float) extra / (float) dt;
+        fijar(xs[b] + (xs[b] - xs[a]) * t,
+              ys[b] + (ys[b] - ys[a]) * t,
+              angs[b] + diferenciaAngulo(angs[a], angs[b]) * t);
+    }
+
+    private void fijar(float px, float py, float ang) {
+        x = px;
+        y = py;
+        angulo = normalizarAngulo(ang);
+    }
+
+    private int indice(int k) {
+        return (inicio + k) % tiempos.length;
+    }
+
+    /** Diferencia b - a en grados por el camino más corto, en [-180, 180). */
+    public static float diferenciaAngulo(float a, float b) {
+        float d = (b - a) % 360f;
+        if (d >= 180f) d -= 360f;
+        else if (d < -180f) d += 360f;
+        return d;
+    }
+
+    private static float normalizarAngulo(float a) {
+        a %= 360f;
+        return a < 0 ? a + 360f : a;
+    }
+
+    public float getX() { return x; }
+    public float getY() { return y; }
+    public float getAngulo() { return angulo; }
+}
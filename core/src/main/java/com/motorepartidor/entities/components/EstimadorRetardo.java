@@ -0,0 +1,78 @@
+package com.motorepartidor.entities.components;
+
+/**
+ * Calcula cuánto "en el pasado" hay que dibujar a las entidades remotas.
+ *
+ * Mide el intervalo entre snapshots y su jitter (media móvil de la desviación, con
+ * ganancia 1/16 como en RFC 3550). El retardo objetivo es un intervalo medio más
+ * tres veces el jitter, así casi siempre hay un snapshot más nuevo para interpolar.
+ * El retardo real se mueve hacia el objetivo de a poco para que el tiempo de render
+ * nunca pegue saltos: sube rápido (si no, hay tirones) y baja despacio.
+ */
+public class EstimadorRetardo {
+
+    private final long minimoNs;
+    private final long maximoNs;
+
+    /** Cuánto puede variar el retardo por segundo de juego. */
+    private static final double VELOCIDAD_SUBIDA = 0.50;
+    private static final double VELOCIDAD_BAJADA = 0.10;
+
+    private long ultimoArriboNs = -1;
+    private double intervaloNs = 0;
+    private double jitterNs = 0;
+    private double retardoNs;
+
+    public EstimadorRetardo(long minimoNs, long maximoNs) {
+        this.minimoNs = minimoNs;
+        this.maximoNs = maximoNs;
+        this.retardoNs = minimoNs;
+    }
+
+    /** Registrar la llegada de un snapshot (tiempo local de recepción). */
+    public void registrarArribo(long ahoraNs) {
+        if (ultimoArriboNs >= 0) {
+            long dt = ahoraNs - ultimoArriboNs;
+            if (intervaloNs == 0) {
+                intervaloNs = dt;
+            } else {
+                jitterNs += (Math.abs(dt - intervaloNs) - jitterNs) / 16.0;
+                intervaloNs += (dt - intervaloNs) / 16.0;
+            }
+        }
+        ultimoArriboNs = ahoraNs;
+    }
+
+    /** Acerca el retardo al objetivo. Llamar una vez por frame. */
+    public void actualizar(float delta) {
+        double objetivo = getObjetivoNs();
+        double diff = objetivo - retardoNs;
+        double paso = retardoNs * (diff > 0 ? VELOCIDAD_SUBIDA : VELOCIDAD_BAJADA) * delta;
+        if (Math.abs(diff) <= paso) retardoNs = objetivo;
+        else retardoNs += Math.signum(diff) * paso;
+    }
+
+    public long getObjetivoNs() {
+        double objetivo = intervaloNs + 3 * jitterNs;
+        return (long) Math.max(minimoNs, Math.min(maximoNs, objetivo));
+    }
+
+    public long getRetardoNs() {
+        return (long) retardoNs;
+    }
+
+    public long getJitterNs() {
+        return (long) jitterNs;
+    }
+
+    public long getIntervaloNs() {
+        return (long) intervaloNs;
+    }
+
+    public void reiniciar() {
+        ultimoArriboNs = -1;
+        intervaloNs = 0;
+        jitterNs = 0;
+        retardoNs = minimoNs;
+    }
+}
@@ -0,0 +1,199 @@
+package com.motorepartidor.entities.components;
+
+import com.motorepartidor.fisica.EstadoMoto;
+import com.motorepartidor.fisica.MapaColisiones;
+import com.motorepartidor.fisica.ModeloConduccion;
+
+/**
+ * Predicción del jugador local con reconciliación contra el server.
+ *
+ * Cada tick fijo se toma una entrada (estado de las teclas) con número de secuencia,
+ * se guarda en un ring buffer junto con el estado que dio, y se simula con
+ * {@link ModeloConduccion} sin esperar al server. Cuando llega un estado autoritativo
+ * con la última secuencia que el server aplicó, se vuelve a ese estado y se
+ * re-simulan las entradas que el server todavía no vio.
+ *
+ * La diferencia entre lo que se estaba mostrando y el resultado corregido no se aplica
+ * de golpe: queda como un offset que se desvanece en ~{@link #SUAVIZADO_S} s. Si es
+ * enorme (teletransporte, respawn) se salta directo.
+ *
+ * Todo corre en el hilo de render; no crea objetos por frame.
+ */
+public class PrediccionLocal {
+
+    private static final int CAPACIDAD = 256;          // ~4 s de entradas a 60 Hz
+    private static final float SUAVIZADO_S = 0.1f;
+    private static final float UMBRAL_SALTO = 96f;     // px: más que esto no se suaviza
+    private static final float UMBRAL_CORRECCION = 0.5f;
+    private static final int MAX_TICKS_POR_FRAME = 10; // si el frame se colgó, no intentamos alcanzar
+
+    private final MapaColisiones mapa;
+
+    // ===== Historial de entradas (ring por secuencia) =====
+    private final int[] teclas = new int[CAPACIDAD];
+    private final float[] xs = new float[CAPACIDAD];   // estado predicho después de la entrada
+    private final float[] ys = new float[CAPACIDAD];
+    private int secuencia = 0;        // última entrada generada
+    private int ultimaConfirmada = 0; // última que el server dijo haber aplicado
+
+    private final EstadoMoto estado = new EstadoMoto();
+    private float acumulador = 0f;
+    private boolean activa = false;
+
+    // ===== Suavizado de correcciones =====
+    private float offX, offY, offAng;
+
+    // ===== Métricas =====
+    private long reconciliaciones;
+    private long correcciones;
+    private long ticksResimulados;
+    private float errorUltimo;
+    private float errorMedio;
+    private float errorMaximo;
+
+    public PrediccionLocal(MapaColisiones mapa) {
+        this.mapa = mapa;
+    }
+
+    /** Vuelve a un estado conocido (inicio de partida, reset) y olvida las entradas. */
+    public void reiniciar(float x, float y, float angulo) {
+        estado.set(x, y, angulo, 0f);
+        ultimaConfirmada = secuencia;
+        acumulador = 0f;
+        activa = false;
+        offX = offY = offAng = 0f;
+    }
+
+    /**
+     * Avanza la simulación local los ticks fijos que entren en delta.
+     * Las entradas generadas son las secuencias (getSecuencia() - n, getSecuencia()].
+     * @return n, la cantidad de ticks (entradas) nuevos
+     */
+    public int avanzar(float delta, int teclasTick, boolean conNafta) {
+        decaerOffset(delta);
+
+        acumulador += delta;
+        int n = 0;
+        while (acumulador >= ModeloConduccion.DT && n < MAX_TICKS_POR_FRAME) {
+            acumulador -= ModeloConduccion.DT;
+            int seq = ++secuencia;
+            int i = seq & (CAPACIDAD - 1);
+            teclas[i] = teclasTick; // el modelo solo mira los bits de movimiento
+            if (activa) ModeloConduccion.paso(estado, teclas[i], conNafta, mapa);
+            xs[i] = estado.x;
+            ys[i] = estado.y;
+            n++;
+        }
+        if (n == MAX_TICKS_POR_FRAME) acumulador = 0f;
+        return n;
+    }
+
+    /**
+     * Estado autoritativo del jugador local.
+     * @param confirmada última secuencia de entrada que el server aplicó (u32)
+     */
+    public void reconciliar(long confirmada, float x, float y, float angulo, float velocidad, boolean conNafta) {
+        int ack = (int) confirmada;
+        int pendientes = secuencia - ack;
+
+        if (pendientes < 0 || pendientes >= CAPACIDAD) {
+            // el server habla de entradas que no tenemos (sesión nueva, lag enorme): sin rebobinar
+            estado.set(x, y, angulo, velocidad);
+            ultimaConfirmada = ack;
+            offX = offY = offAng = 0f;
+            activa = true;
+            return;
+        }
+        if (activa && ack - ultimaConfirmada < 0) return; // más viejo que uno ya aplicado
+        boolean primera = !activa;
+        activa = true;
+        ultimaConfirmada = ack;
+        reconciliaciones++;
+
+        if (!primera) {
+            // error de predicción: dónde creíamos estar al aplicar `ack` vs dónde dice el server
+            int i = ack & (CAPACIDAD - 1);
+            float ex = x - xs[i], ey = y - ys[i];
+            registrarError((float) Math.sqrt(ex * ex + ey * ey));
+        }
+
+        float antesX = estado.x + offX;
+        float antesY = estado.y + offY;
+        float antesAng = estado.angulo + offAng;
+
+        // rebobinar y re-simular lo que el server todavía no vio
+        estado.set(x, y, angulo, velocidad);
+        for (int s = ack + 1; s - secuencia <= 0; s++) {
+            int k = s & (CAPACIDAD - 1);
+            ModeloConduccion.paso(estado, teclas[k], conNafta, mapa);
+            xs[k] = estado.x;
+            ys[k] = estado.y;
+        }
+        ticksResimulados += pendientes;
+
+        offX = antesX - estado.x;
+        offY = antesY - estado.y;
+        offAng = BufferInterpolacion.diferenciaAngulo(estado.angulo, antesAng);
+        if (primera || offX * offX + offY * offY > UMBRAL_SALTO * UMBRAL_SALTO) {
+            offX = offY = offAng = 0f;
+        }
+    }
+
+    private void registrarError(float error) {
+        errorUltimo = error;
+        errorMedio += (error - errorMedio) / 16f;
+        if (error > errorMaximo) errorMaximo = error;
+        if (error > UMBRAL_CORRECCION) correcciones++;
+    }
+
+    private void decaerOffset(float delta) {
+        if (offX == 0f && offY == 0f && offAng == 0f) return;
+        float k = (float) Math.exp(-delta / SUAVIZADO_S);
+        offX *= k;
+        offY *= k;
+        offAng *= k;
+        if (Math.abs(offX) < 0.01f && Math.abs(offY) < 0.01f && Math.abs(offAng) < 0.01f) {
+            offX = offY = offAng = 0f;
+        }
+    }
+
+    // =========================================================
+    // Resultado (lo que se dibuja)
+    // =========================================================
+
+    /** false hasta recibir el primer estado con secuencia confirmada. */
+    public boolean isActiva() { return activa; }
+
+    public float getX() { return estado.x + offX; }
+    public float getY() { return estado.y + offY; }
+    public float getAngulo() { return ModeloConduccion.normalizar(estado.angulo + offAng); }
+    public float getVelocidad() { return estado.velocidad; }
+
+    public int getSecuencia() { return secuencia; }
+
+    /** Teclas de la entrada seq (mientras siga en el buffer). */
+    public int getTeclas(int seq) { return teclas[seq & (CAPACIDAD - 1)]; }
+
+    // =========================================================
+    // Métricas
+    // =========================================================
+
+    /** Estados del server aplicados con rebobinado. */
+    public long getReconciliaciones() { return reconciliaciones; }
+
+    /** Reconciliaciones donde la predicción erró por más de medio px. */
+    public long getCorrecciones() { return correcciones; }
+
+    public long getTicksResimulados() { return ticksResimulados; }
+
+    /** Entradas enviadas que el server todavía no confirmó. */
+    public int getPendientes() { return secuencia - ultimaConfirmada; }
+
+    /** Error de predicción en px (último, media móvil 1/16, máximo). */
+    public float getErrorUltimo() { return errorUltimo; }
+    public float getErrorMedio() { return errorMedio; }
+    public float getErrorMaximo() { return errorMaximo; }
+
+    /** Cuánto de la última corrección falta absorber (px). */
+    public float getOffsetPendiente() { return (float) Math.sqrt(offX * offX + offY * offY); }
+}
@@ -0,0 +1,25 @@
+package com.motorepartidor.fisica;
+
+/**
+ * Estado físico de una moto: lo que necesita {@link ModeloConduccion} para avanzar un tick.
+ * (x, y) es la esquina inferior izquierda del sprite, igual que en Jugador; el ángulo va
+ * en grados, 0 = mirando hacia arriba, positivo = antihorario.
+ */
+public final class EstadoMoto {
+
+    public float x, y;
+    public float angulo;
+    public float velocidad; // px/s, negativa = marcha atrás
+
+    public EstadoMoto set(float x, float y, float angulo, float velocidad) {
+        this.x = x;
+        this.y = y;
+        this.angulo = angulo;
+        this.velocidad = velocidad;
+        return this;
+    }
+
+    public EstadoMoto copiarDe(EstadoMoto o) {
+        return set(o.x, o.y, o.angulo, o.velocidad);
+    }
+}
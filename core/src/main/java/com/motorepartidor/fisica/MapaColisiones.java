@@ -0,0 +1,170 @@
+package com.motorepartidor.fisica;
+
+import com.badlogic.gdx.maps.MapLayer;
+import com.badlogic.gdx.maps.MapObject;
+import com.badlogic.gdx.maps.MapProperties;
+import com.badlogic.gdx.maps.objects.RectangleMapObject;
+import com.badlogic.gdx.maps.tiled.TiledMap;
+import com.badlogic.gdx.math.Rectangle;
+
+import java.util.Arrays;
+
+/**
+ * Paredes del mapa (capa de objetos "colisiones") para chequear choques sin objetos nuevos.
+ *
+ * Los rectángulos quedan en arrays primitivos y se indexan en una grilla uniforme de
+ * {@link #CELDA} px: cada consulta prueba solo los que tocan las celdas de la moto.
+ * La moto es una caja rotada (OBB), así que la prueba es por ejes separados (SAT).
+ * Salirse de los bordes del mapa cuenta como choque.
+ *
+ * Se arma con {@link #agregar} y se cierra con {@link #construir()}; en el cliente
+ * {@link #desdeMapa(TiledMap)} hace las dos cosas.
+ *
+ * No es thread-safe ({@link #choca} usa marcas internas): una instancia por hilo.
+ */
+public final class MapaColisiones {
+
+    public static final String CAPA = "colisiones";
+    public static final float CELDA = 128f;
+
+    private final float ancho, alto;
+
+    private float[] rx = new float[64], ry = new float[64], rw = new float[64], rh = new float[64];
+    private int cantidad = 0;
+
+    // ===== Grilla (listas por celda aplanadas) =====
+    private int columnas, filas;
+    private int[] inicioCelda;  // [celda] -> offset en indices; [celda+1] = fin
+    private int[] indices;
+    private int[] marca;        // evita probar dos veces el mismo rect en una consulta
+    private int consulta = 0;
+
+    public MapaColisiones(float ancho, float alto) {
+        this.ancho = ancho;
+        this.alto = alto;
+    }
+
+    /** Lee la capa de colisiones y el tamaño de un mapa ya cargado. */
+    public static MapaColisiones desdeMapa(TiledMap mapa) {
+        MapProperties p = mapa.getProperties();
+        float ancho = p.get("width", 0, Integer.class) * p.get("tilewidth", 0, Integer.class);
+        float alto = p.get("height", 0, Integer.class) * p.get("tileheight", 0, Integer.class);
+
+        MapaColisiones m = new MapaColisiones(ancho, alto);
+        MapLayer capa = mapa.getLayers().get(CAPA);
+        if (capa != null) {
+            for (MapObject o : capa.getObjects()) {
+                if (!(o instanceof RectangleMapObject)) continue;
+                Rectangle r = ((RectangleMapObject) o).getRectangle();
+                m.agregar(r.x, r.y, r.width, r.height);
+            }
+        }
+        return m.construir();
+    }
+
+    public void agregar(float x, float y, float w, float h) {
+        if (cantidad == rx.length) {
+            int cap = cantidad * 2;
+            rx = Arrays.copyOf(rx, cap);
+            ry = Arrays.copyOf(ry, cap);
+            rw = Arrays.copyOf(rw, cap);
+            rh = Arrays.copyOf(rh, cap);
+        }
+        rx[cantidad] = x;
+        ry[cantidad] = y;
+        rw[cantidad] = w;
+        rh[cantidad] = h;
+        cantidad++;
+    }
+
+    /** Arma la grilla. Llamar después del último {@link #agregar}. */
+    public MapaColisiones construir() {
+        columnas = Math.max(1, (int) Math.ceil(ancho / CELDA));
+        filas = Math.max(1, (int) Math.ceil(alto / CELDA));
+        int celdas = columnas * filas;
+
+        // dos pasadas: contar por celda y después repartir
+        inicioCelda = new int[celdas + 1];
+        for (int i = 0; i < cantidad; i++) {
+            for (int f = fila(ry[i]); f <= fila(ry[i] + rh[i]); f++)
+                for (int c = columna(rx[i]); c <= columna(rx[i] + rw[i]); c++)
+                    inicioCelda[f * columnas + c + 1]++;
+        }
+        for (int k = 0; k < celdas; k++) inicioCelda[k + 1] += inicioCelda[k];
+
+        indices = new int[inicioCelda[celdas]];
+        int[] llenado = Arrays.copyOf(inicioCelda, celdas);
+        for (int i = 0; i < cantidad; i++) {
+            for (int f = fila(ry[i]); f <= fila(ry[i] + rh[i]); f++)
+                for (int c = columna(rx[i]); c <= columna(rx[i] + rw[i]); c++)
+                    indices[llenado[f * columnas + c]++] = i;
+        }
+        marca = new int[cantidad];
+        return this;
+    }
+
+    /**
+     * ¿La moto con esquina inferior izquierda en (x, y) y rotada ang grados (alrededor
+     * de su centro) toca alguna pared o se sale del mapa?
+     */
+    public boolean choca(float x, float y, float ang) {
+        float cx = x + ModeloConduccion.ANCHO / 2f;
+        float cy = y + ModeloConduccion.ALTO / 2f;
+        float hx = ModeloConduccion.ANCHO / 2f;
+        float hy = ModeloConduccion.ALTO / 2f;
+
+        double rad = StrictMath.toRadians(ang);
+        float cos = (float) StrictMath.cos(rad);
+        float sin = (float) StrictMath.sin(rad);
+        // ejes locales de la caja: u = (cos, sin), v = (-sin, cos)
+        float ext = hx * Math.abs(cos) + hy * Math.abs(sin);  // semiancho del AABB
+        float eyt = hx * Math.abs(sin) + hy * Math.abs(cos);  // semialto del AABB
+
+        if (cx - ext < 0 || cy - eyt < 0 || cx + ext > ancho || cy + eyt > alto) return true;
+        if (cantidad == 0) return false;
+
+        if (++consulta == 0) { Arrays.fill(marca, 0); consulta = 1; }
+
+        for (int f = fila(cy - eyt); f <= fila(cy + eyt); f++) {
+            for (int c = columna(cx - ext); c <= columna(cx + ext); c++) {
+                int celda = f * columnas + c;
+                for (int k = inicioCelda[celda]; k < inicioCelda[celda + 1]; k++) {
+                    int i = indices[k];
+                    if (marca[i] == consulta) continue;
+                    marca[i] = consulta;
+                    if (solapa(i, cx, cy, hx, hy, cos, sin, ext, eyt)) return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /** SAT entre la caja rotada y el rectángulo i: ejes X, Y, u y v. */
+    private boolean solapa(int i, float cx, float cy, float hx, float hy,
+                           float cos, float sin, float ext, float eyt) {
+        float rhw = rw[i] / 2f, rhh = rh[i] / 2f;
+        float dx = rx[i] + rhw - cx;
+        float dy = ry[i] + rhh - cy;
+
+        if (Math.abs(dx) >= rhw + ext) return false;
+        if (Math.abs(dy) >= rhh + eyt) return false;
+
+        float du = dx * cos + dy * sin;
+        if (Math.abs(du) >= hx + rhw * Math.abs(cos) + rhh * Math.abs(sin)) return false;
+
+        float dv = -dx * sin + dy * cos;
+        return Math.abs(dv) < hy + rhw * Math.abs(sin) + rhh * Math.abs(cos);
+    }
+
+    private int columna(float x) {
+        return Math.max(0, Math.min(columnas - 1, (int) (x / CELDA)));
+    }
+
+    private int fila(float y) {
+        return Math.max(0, Math.min(filas - 1, (int) (y / CELDA)));
+    }
+
+    public int getCantidad() { return cantidad; }
+    public float getAncho() { return ancho; }
+    public float getAlto() { return alto; }
+}
@@ -0,0 +1,98 @@
+package com.motorepartidor.fisica;
+
+/**
+ * Reglas de manejo de la moto, compartidas por el cliente (predicción) y el server.
+ *
+ * Se avanza siempre de a un tick fijo ({@link #DT}) con las teclas de movimiento que
+ * estaban apretadas en ese tick, así que dos simulaciones con el mismo estado inicial y
+ * las mismas entradas terminan en el mismo lugar. No crea objetos.
+ *
+ * - W acelera hacia adelante; S frena y, ya parado, da marcha atrás.
+ * - Sin W ni S la moto pierde velocidad por rozamiento.
+ * - A/D giran, más rápido cuanto más rápido va (parada no gira).
+ * - Sin nafta no acelera, solo frena y rueda.
+ * - Chocar de frente frena en seco; de costado se desliza por la pared.
+ */
+public final class ModeloConduccion {
+
+    private ModeloConduccion() {}
+
+    // ===== Tick =====
+    public static final int TICKS_POR_SEGUNDO = 60;
+    public static final float DT = 1f / TICKS_POR_SEGUNDO;
+    public static final long TICK_NS = 1_000_000_000L / TICKS_POR_SEGUNDO;
+
+    // ===== Teclas de movimiento (bitmask) =====
+    public static final int ACELERAR  = 1;      // W
+    public static final int IZQUIERDA = 1 << 1; // A
+    public static final int FRENAR    = 1 << 2; // S
+    public static final int DERECHA   = 1 << 3; // D
+    public static final int MASCARA_MOVIMIENTO = ACELERAR | IZQUIERDA | FRENAR | DERECHA;
+
+    // ===== Reglas (px, s, grados) =====
+    public static final float VELOCIDAD_MAXIMA = 220f;
+    public static final float VELOCIDAD_REVERSA = -70f;
+    public static final float ACELERACION = 260f;
+    public static final float FRENADO = 480f;
+    public static final float ROZAMIENTO = 140f;
+    public static final float GIRO = 160f; // grados/s a velocidad máxima
+
+    // ===== Caja de colisión (sprite de 18x36) =====
+    public static final float ANCHO = 18f;
+    public static final float ALTO = 36f;
+
+    /**
+     * Avanza un tick.
+     * @param teclas   bitmask de ACELERAR / IZQUIERDA / FRENAR / DERECHA
+     * @param conNafta false si el tanque está vacío
+     * @param mapa     paredes, o null para simular sin colisiones
+     */
+    public static void paso(EstadoMoto m, int teclas, boolean conNafta, MapaColisiones mapa) {
+        // ===== Velocidad =====
+        float v = m.velocidad;
+        boolean acelera = (teclas & ACELERAR) != 0 && conNafta;
+        boolean frena = (teclas & FRENAR) != 0;
+
+        if (acelera && !frena) {
+            v = v < 0 ? Math.min(0f, v + FRENADO * DT) : Math.min(VELOCIDAD_MAXIMA, v + ACELERACION * DT);
+        } else if (frena && !acelera) {
+            v = v > 0 ? Math.max(0f, v - FRENADO * DT) : Math.max(VELOCIDAD_REVERSA, v - ACELERACION * DT);
+        } else if (v > 0) {
+            v = Math.max(0f, v - ROZAMIENTO * DT);
+        } else if (v < 0) {
+            v = Math.min(0f, v + ROZAMIENTO * DT);
+        }
+        m.velocidad = v;
+
+        // ===== Giro (proporcional a la velocidad, invertido en reversa) =====
+        int giro = ((teclas & IZQUIERDA) != 0 ? 1 : 0) - ((teclas & DERECHA) != 0 ? 1 : 0);
+        if (giro != 0 && v != 0) {
+            float nuevo = normalizar(m.angulo + giro * GIRO * (v / VELOCIDAD_MAXIMA) * DT);
+            if (mapa == null || !mapa.choca(m.x, m.y, nuevo)) m.angulo = nuevo;
+        }
+
+        // ===== Avance =====
+        if (v == 0) return;
+        // StrictMath: mismo resultado bit a bit en el cliente y en el server
+        double rad = StrictMath.toRadians(m.angulo);
+        float dx = (float) (-StrictMath.sin(rad) * v * DT);
+        float dy = (float) (StrictMath.cos(rad) * v * DT);
+
+        if (mapa == null || !mapa.choca(m.x + dx, m.y + dy, m.angulo)) {
+            m.x += dx;
+            m.y += dy;
+        } else if (!mapa.choca(m.x + dx, m.y, m.angulo)) {
+            m.x += dx;
+        } else if (!mapa.choca(m.x, m.y + dy, m.angulo)) {
+            m.y += dy;
+        } else {
+            m.velocidad = 0f;
+        }
+    }
+
+    /** Ángulo en [0, 360). */
+    public static float normalizar(float a) {
+        a %= 360f;
+        return a < 0 ? a + 360f : a;
+    }
+}
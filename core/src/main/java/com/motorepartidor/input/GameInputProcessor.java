@@ -4,11 +4,17 @@ import com.badlogic.gdx.Input;
 import com.badlogic.gdx.InputProcessor;
 import com.motorepartidor.GameController;
 import com.motorepartidor.screens.GameScreen;
+import red.FlujoEntradas;
 
 public class GameInputProcessor implements InputProcessor {
 
     private final GameController gameController;
 
+    // Teclas apretadas ahora (bits de FlujoEntradas) y las que se apretaron desde la
+    // última muestra: un toque más corto que un tick igual tiene que llegar al server
+    private int teclas = 0;
+    private int apretadasDesdeMuestra = 0;
+
     public GameInputProcessor(GameController gameController) {
         this.gameController = gameController;
     }
@@ -25,6 +31,8 @@ public class GameInputProcessor implements InputProcessor {
     @Override
     public boolean keyDown(int keycode) {
         if (isAllowed(keycode)) {
+            teclas |= bit(keycode);
+            apretadasDesdeMuestra |= bit(keycode);
            gameController.enviarInput(keycode);      // pressed
             return true;
         }
@@ -34,12 +42,38 @@ public class GameInputProcessor implements InputProcessor {
     @Override
     public boolean keyUp(int keycode) {
         if (isAllowed(keycode)) {
+            teclas &= ~bit(keycode);
             gameController.enviarInput(-keycode);     // released
             return true;
         }
         return false;
     }
 
+    private int bit(int keycode) {
+        switch (keycode) {
+            case Input.Keys.W: return FlujoEntradas.W;
+            case Input.Keys.A: return FlujoEntradas.A;
+            case Input.Keys.S: return FlujoEntradas.S;
+            case Input.Keys.D: return FlujoEntradas.D;
+            case Input.Keys.G: return FlujoEntradas.G;
+            case Input.Keys.E: return FlujoEntradas.E;
+            default: return 0;
+        }
+    }
+
+    /** Muestra para el tick de entrada: las apretadas ahora más los toques desde la anterior. */
+    public int tomarTeclas() {
+        int t = teclas | apretadasDesdeMuestra;
+        apretadasDesdeMuestra = 0;
+        return t;
+    }
+
+    /** Al perder el foco no llegan los keyUp: soltamos todo. */
+    public void soltarTodo() {
+        teclas = 0;
+        apretadasDesdeMuestra = 0;
+    }
+
     @Override public boolean keyTyped(char character) { return false; }
     @Override public boolean touchDown(int screenX, int screenY, int pointer, int button) { return false; }
     @Override public boolean touchUp(int screenX, int screenY, int pointer, int button) { return false; }
@@ -2,6 +2,7 @@ package com.motorepartidor.screens;
 
 import com.badlogic.gdx.Game;
 import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.Preferences;
 import com.badlogic.gdx.Screen;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.GL20;
@@ -10,7 +11,6 @@ import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.BitmapFont;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.math.Rectangle;
-import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.scenes.scene2d.InputEvent;
 import com.badlogic.gdx.scenes.scene2d.Stage;
 import com.badlogic.gdx.scenes.scene2d.ui.Label;
@@ -25,14 +25,21 @@ import com.badlogic.gdx.utils.viewport.FitViewport;
 import com.badlogic.gdx.utils.viewport.Viewport;
 import com.motorepartidor.GameController;
 import com.motorepartidor.audio.AudioManager;
+import red.DescubrimientoServidores;
+import red.Snapshot;
 import red.hiloCliente;
 
+import java.net.InetAddress;
+import java.util.List;
+
 import static com.motorepartidor.screens.GameScreen.SERVER_TIMEOUT_MS;
 
 public class BuscarServidorScreen implements Screen, GameController {
 
     private enum Estado {
         BUSCANDO_SERVIDOR,
+        ELIGIENDO_SERVIDOR,
+        CONECTANDO,
         SERVIDOR_ENCONTRADO,
         BUSCANDO_RIVAL,
         COMENZANDO_PARTIDA,
@@ -56,10 +63,26 @@ public class BuscarServidorScreen implements Screen, GameController {
 
     private float stateTime = 0f;     // tiempo dentro del estado
     private float searchTime = 0f;    // tiempo total buscando servidor
-    private float pingAccum = 0f;     // para reintentos
 
     private static final float TIMEOUT_SERVIDOR = 10f;
-    private static final float INTERVALO_PING   = 0.5f;
+    private static final float TIMEOUT_CONECTANDO = 3f;
+
+    // ===== Búsqueda: primero el último server, después sondeo en la LAN, y si nadie
+    // contesta el Sondeo (servers viejos) el broadcast de Conexion de siempre =====
+    private enum Fase { ULTIMO, SONDEO, BROADCAST }
+
+    private static final float PLAZO_ULTIMO = 1f;     // s esperando al server guardado
+    private static final float VENTANA_SONDEO = 0.3f; // s máximos juntando respuestas
+    private static final long ESPERA_OTROS_NS = 50_000_000L; // tras la primera, en la LAN llegan juntas
+
+    private static final String PREFS_NAME = "red";
+    private static final String KEY_ULTIMO_SERVIDOR = "ultimoServidor";
+
+    private Fase fase;
+    private float faseTime = 0f;
+    private long inicioBusquedaNs;
+    private Table listaServidores;
+    private int versionLista = -1;
 
     public BuscarServidorScreen(Game game, AudioManager audio, hiloCliente cliente) {
         this.game = game;
@@ -120,6 +143,11 @@ public class BuscarServidorScreen implements Screen, GameController {
         root.add(statusLabel).width(700).padBottom(20);
         root.row();
 
+        listaServidores = new Table();
+        listaServidores.defaults().pad(4);
+        root.add(listaServidores).padBottom(10);
+        root.row();
+
         root.add(retryBtn).width(320).height(60);
         root.row();
 
@@ -134,40 +162,38 @@ public class BuscarServidorScreen implements Screen, GameController {
         Gdx.gl.glClearColor(0.08f, 0.08f, 0.1f, 1f);
         Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
 
-        stateTime += delta;
-        pingAccum += delta;
+        // Eventos de red (ID, Comienza...) en el hilo de render
+        cliente.despacharEventos();
+        if (game.getScreen() != this) return;
 
-        if (pingAccum >= INTERVALO_PING) {
-            pingAccum = 0f;
+        stateTime += delta;
 
-            // si todavía no tenemos ID, intentamos conexión (broadcast)
-            if (cliente.getPlayerId() < 0) {
-                cliente.establecerConexion();
-            } else {
-                // si ya hay ID, mandamos ping para mantener vivo
-                cliente.enviarPing();
-            }
-        }
+        // Reintentos de "Conexion" y pings los agenda el hilo de red (hiloCliente)
 
         switch (estado) {
 
             case BUSCANDO_SERVIDOR:
                 searchTime += delta;
-                pingAccum += delta;
+                faseTime += delta;
 
-                // Reintenta "Conexion" cada 0.5s
-                if (pingAccum >= INTERVALO_PING) {
-                    pingAccum = 0f;
-                    cliente.establecerConexion();
-                    cliente.enviarPing();
+                if (fase == Fase.ULTIMO && faseTime >= PLAZO_ULTIMO) {
+                    empezarSondeo();
+                } else if (fase == Fase.SONDEO && (faseTime >= VENTANA_SONDEO || sondeoCompleto())) {
+                    elegirServidor();
                 }
 
-                if (!cliente.isServerAlive(SERVER_TIMEOUT_MS) && estado != Estado.BUSCANDO_SERVIDOR) {
-                    onConnectionLost();
-                    return;
+                if (searchTime >= TIMEOUT_SERVIDOR) {
+                    setEstado(Estado.TIMEOUT);
                 }
+                break;
 
-                if (searchTime >= TIMEOUT_SERVIDOR) {
+            case ELIGIENDO_SERVIDOR:
+                // siguen llegando respuestas: la lista se reordena sola
+                actualizarLista();
+                break;
+
+            case CONECTANDO:
+                if (stateTime >= TIMEOUT_CONECTANDO) {
                     setEstado(Estado.TIMEOUT);
                 }
                 break;
@@ -201,10 +227,25 @@ public class BuscarServidorScreen implements Screen, GameController {
     private void setEstado(Estado nuevo) {
         estado = nuevo;
         stateTime = 0f;
-        pingAccum = 0f;
 
         if (estado == Estado.BUSCANDO_SERVIDOR) {
             searchTime = 0f;
+            inicioBusquedaNs = System.nanoTime();
+            InetAddress ultimo = leerUltimoServidor();
+            if (ultimo != null) {
+                // directo al último que anduvo: sin broadcast
+                fase = Fase.ULTIMO;
+                faseTime = 0f;
+                cliente.conectarA(ultimo);
+            } else {
+                empezarSondeo();
+            }
+        } else if (estado == Estado.TIMEOUT) {
+            cliente.detenerBusqueda();
+        }
+        if (estado != Estado.ELIGIENDO_SERVIDOR && listaServidores != null) {
+            listaServidores.clearChildren();
+            versionLista = -1;
         }
 
         switch (estado) {
@@ -214,6 +255,18 @@ public class BuscarServidorScreen implements Screen, GameController {
                 exitBtn.setVisible(false);
                 break;
 
+            case ELIGIENDO_SERVIDOR:
+                statusLabel.setText("Elegí un servidor:");
+                retryBtn.setVisible(true);
+                exitBtn.setVisible(true);
+                break;
+
+            case CONECTANDO:
+                statusLabel.setText("Conectando...");
+                retryBtn.setVisible(false);
+                exitBtn.setVisible(false);
+                break;
+
             case TIMEOUT:
                 statusLabel.setText("No se encontró servidor.\n¿Querés volver a intentar?");
                 retryBtn.setVisible(true);
@@ -241,6 +294,83 @@ public class BuscarServidorScreen implements Screen, GameController {
     }
 
 
+    // Descubrimiento
+
+
+    private void empezarSondeo() {
+        fase = Fase.SONDEO;
+        faseTime = 0f;
+        cliente.detenerBusqueda();
+        cliente.buscarServidores();
+    }
+
+    /** Ya contestó alguien y pasó un rato como para que contesten los demás. */
+    private boolean sondeoCompleto() {
+        long primera = cliente.getDescubrimiento().getPrimeraRespuestaNs();
+        return primera != 0L && System.nanoTime() - primera >= ESPERA_OTROS_NS;
+    }
+
+    /** Cierra la ventana de sondeo: uno solo -> directo; varios -> lista; ninguno -> broadcast viejo. */
+    private void elegirServidor() {
+        List<DescubrimientoServidores.Servidor> servidores = cliente.getDescubrimiento().getServidores();
+        if (servidores.size() == 1) {
+            conectar(servidores.get(0).ip);
+        } else if (servidores.size() > 1) {
+            setEstado(Estado.ELIGIENDO_SERVIDOR);
+            actualizarLista();
+        } else {
+            // nadie entiende Sondeo: servers viejos, "Conexion" a broadcast como antes
+            fase = Fase.BROADCAST;
+            faseTime = 0f;
+            cliente.establecerConexion();
+        }
+    }
+
+    private void conectar(InetAddress ip) {
+        setEstado(Estado.CONECTANDO);
+        cliente.conectarA(ip);
+    }
+
+    private void actualizarLista() {
+        DescubrimientoServidores d = cliente.getDescubrimiento();
+        if (d.getVersion() == versionLista) return;
+        versionLista = d.getVersion();
+
+        listaServidores.clearChildren();
+        boolean primero = true;
+        for (final DescubrimientoServidores.Servidor s : d.getServidores()) {
+            String texto = s.toString()
+                + (s.jugadores >= 0 ? "  (" + s.jugadores + " jugando)" : "")
+                + (primero ? "  - el más rápido" : "");
+            TextButton b = new TextButton(texto, skin);
+            b.addListener(new ClickListener() {
+                @Override public void clicked(InputEvent event, float x, float y) {
+                    conectar(s.ip);
+                }
+            });
+            listaServidores.add(b).width(520).height(44);
+            listaServidores.row();
+            primero = false;
+        }
+    }
+
+    private InetAddress leerUltimoServidor() {
+        try {
+            String ip = Gdx.app.getPreferences(PREFS_NAME).getString(KEY_ULTIMO_SERVIDOR, "");
+            return ip.isEmpty() ? null : InetAddress.getByName(ip);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private void guardarUltimoServidor(InetAddress ip) {
+        if (ip == null || ip.isMulticastAddress()) return;
+        Preferences prefs = Gdx.app.getPreferences(PREFS_NAME);
+        prefs.putString(KEY_ULTIMO_SERVIDOR, ip.getHostAddress());
+        prefs.flush();
+    }
+
+
     // Callbacks desde red
 
 
@@ -248,7 +378,17 @@ public class BuscarServidorScreen implements Screen, GameController {
     public void onConnected(int playerId) {
         // Llega cuando el cliente recibe "ID:x"
 
-        if (estado == Estado.BUSCANDO_SERVIDOR || estado == Estado.TIMEOUT) {
+        if (estado == Estado.BUSCANDO_SERVIDOR || estado == Estado.ELIGIENDO_SERVIDOR
+            || estado == Estado.CONECTANDO || estado == Estado.TIMEOUT) {
+            Gdx.app.log("BuscarServidor", "Conectado a " + cliente.getServidor().getHostAddress() + " en "
+                + (System.nanoTime() - inicioBusquedaNs) / 1_000_000L + " ms"
+                + (fase != null ? " (" + fase + ")" : ""));
+            guardarUltimoServidor(cliente.getServidor());
+            if (cliente.isEspectador()) {
+                // no espera rival: mira desde ya (lobby incluido)
+                game.setScreen(new GameScreen(game, audio, cliente));
+                return;
+            }
             setEstado(Estado.SERVIDOR_ENCONTRADO);
         }
     }
@@ -259,11 +399,15 @@ public class BuscarServidorScreen implements Screen, GameController {
         game.setScreen(new MensajeScreen(game, audio, "Conexión perdida", "Volver al menú"));
     }
 
+    // en el lobby no se reanuda: si se corta antes de la partida se vuelve a buscar
+    @Override public void onReanudada() {}
+
 
     @Override
     public void onStartMatch() {
         // Llega cuando el cliente recibe "Comienza"
-        if (estado == Estado.BUSCANDO_RIVAL || estado == Estado.SERVIDOR_ENCONTRADO || estado == Estado.BUSCANDO_SERVIDOR) {
+        if (estado == Estado.BUSCANDO_RIVAL || estado == Estado.SERVIDOR_ENCONTRADO || estado == Estado.BUSCANDO_SERVIDOR
+            || estado == Estado.CONECTANDO) {
             setEstado(Estado.COMENZANDO_PARTIDA);
         }
     }
@@ -288,7 +432,14 @@ public class BuscarServidorScreen implements Screen, GameController {
     }
 
     @Override
-    public void actualizarPosicion(Vector2 pos1, Vector2 pos2, float ang1, float ang2) {}
+    public void actualizarPosicion(int id, float x, float y, float angulo, long tiempoNanos,
+                                   long entradaConfirmada, float velocidad) {}
+
+    @Override
+    public void registrarArribo(long tiempoNanos) {}
+
+    @Override
+    public void aplicarSnapshot(Snapshot snapshot) {}
 
     @Override
     public void actualizarGas(float gas, int id) {}
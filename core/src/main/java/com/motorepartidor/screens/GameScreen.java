@@ -6,6 +6,7 @@ import com.badlogic.gdx.Input;
 import com.badlogic.gdx.Screen;
 import com.badlogic.gdx.graphics.GL20;
 import com.badlogic.gdx.graphics.OrthographicCamera;
+import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.maps.MapLayer;
 import com.badlogic.gdx.maps.tiled.TiledMap;
@@ -18,10 +19,18 @@ import com.motorepartidor.GameController;
 import com.motorepartidor.Main;
 import com.motorepartidor.audio.AudioManager;
 import com.motorepartidor.entities.Jugador;
+import com.motorepartidor.entities.RegistroEntidades;
+import com.motorepartidor.entities.components.EstimadorRetardo;
+import com.motorepartidor.entities.components.PrediccionLocal;
+import com.motorepartidor.fisica.MapaColisiones;
 import com.motorepartidor.input.GameInputProcessor;
 import com.motorepartidor.ui.DeliveryIndicator;
+import com.motorepartidor.ui.GraficoRed;
 import com.motorepartidor.ui.HUD;
 import com.badlogic.gdx.graphics.Color;
+import red.GrabadorPartida;
+import red.ReceptorMensajes;
+import red.Snapshot;
 import red.hiloCliente;
 
 public class GameScreen implements Screen, GameController {
@@ -35,6 +44,21 @@ public class GameScreen implements Screen, GameController {
 
     private static final String DEFAULT_SPRITE_PATH = "sprites/sprite.png";
     private static final String DEFAULT_SPRITE_PATH2 = "sprites/sprite2.png";
+    private static final int SPRITE_ANCHO = 18, SPRITE_ALTO = 36;
+
+    /**
+     * Se dibujan las motos a menos de esto (px) del borde de la cámara: cubre el sprite
+     * rotado y lo que se mueve la pose interpolada respecto de la última del server.
+     */
+    static final float MARGEN_VISIBLE = 128f;
+
+    /**
+     * Lo que se le pide al server más allá del borde de la cámara (px, ver
+     * hiloCliente#reportarArea): una moto tiene que llegar antes de entrar al margen de
+     * dibujo y con un par de snapshots para interpolar, aunque las dos vayan a fondo y el
+     * AREA tarde medio RTT en llegar.
+     */
+    static final float MARGEN_AREA = 384f;
 
     public static final long SERVER_TIMEOUT_MS = 3500;
 
@@ -61,34 +85,78 @@ public class GameScreen implements Screen, GameController {
     // =========================
     private HUD hud;
     private GameInputProcessor inputProcessor;
+    private boolean mostrarRed = false; // F3: net graph
+    private final GraficoRed graficoRed;
 
-    private final DeliveryIndicator p1Indicator = new DeliveryIndicator();
-    private final DeliveryIndicator p2Indicator = new DeliveryIndicator();
+    private final DeliveryIndicator indicador = new DeliveryIndicator();
 
     // =========================
-    // Estado local (solo visual)
+    // Entidades
     // =========================
-    private final Jugador[] jugadores = new Jugador[2];
+    // Estado de cada moto por id (lo que manda el server); las que están en la partida se
+    // dan de alta con su primera posición y se olvidan en el Reset o cuando salen del área
+    // de interés (el server deja de mandarlas).
+    private final RegistroEntidades registro = new RegistroEntidades();
+    // Lo visual (pose dibujada, interpolación, animación): se crea la primera vez que
+    // aparece cada id y se reutiliza. Las texturas se comparten.
+    private final Jugador[] jugadores = new Jugador[RegistroEntidades.CAPACIDAD];
+    private final Texture[] texturas = new Texture[2];
+    private final int[] visibles = new int[RegistroEntidades.CAPACIDAD];
+    private int cantVisibles;
+    // id más alto que apareció + 1: con área de interés no están todas a la vez en el registro
+    private int jugadoresVistos;
 
-    private final boolean[] nearDealer = new boolean[]{false, false};
-    private final boolean[] nearDrop   = new boolean[]{false, false};
-    private final boolean[] inGasFromServer = new boolean[]{false, false};
+    private float pingTimer = 0f;
 
-    private static class ActiveDelivery {
-        Rectangle target;
-        boolean dangerous;
-        int reward;
-    }
-    private ActiveDelivery p1Delivery = null;
-    private ActiveDelivery p2Delivery = null;
+    // Retardo de interpolación de los remotos, adaptado al jitter medido
+    private static final long RETARDO_MIN_NS = 50_000_000L;
+    private static final long RETARDO_MAX_NS = 300_000_000L;
+    // Mirando no hay nada que responder a tiempo: un colchón largo y no se traba nunca
+    // (Jugador guarda un segundo de snapshots a 60 Hz)
+    private static final long RETARDO_ESPECTADOR_MIN_NS = 250_000_000L;
+    private static final long RETARDO_ESPECTADOR_MAX_NS = 1_000_000_000L;
+    private final EstimadorRetardo retardoRemotos;
 
-    private float pingTimer = 0f;
+    // =========================
+    // Espectador (sin moto propia: todas son remotas)
+    // =========================
+    private final boolean espectador;
+    private static final float VELOCIDAD_CAMARA = 900f; // px/s de la cámara libre
+    private static final float ZOOM_MIN = 0.5f, ZOOM_MAX = 4f;
+    // id que sigue la cámara, o -1 (el primero que aparezca)
+    private int seguido = -1;
+    private boolean camaraLibre = false;
+    private float libreX, libreY; // centro de la cámara libre, px del mundo
+    private final StringBuilder leyenda = new StringBuilder(128);
+
+    // =========================
+    // Corte de red: se reanuda la sesión sin salir de la partida
+    // =========================
+    private boolean reconectando = false;
+    private long reconectandoDesdeNs;
+    // el primer estado propio después de reanudar reubica la predicción (lo del corte no vale)
+    private boolean resincronizar = false;
+    private final StringBuilder cartelReconectando = new StringBuilder(64);
+    private long segundosCartel = -1;
+
+    // Predicción del jugador local (se arma con el mapa en show)
+    private MapaColisiones mapaColisiones;
+    private PrediccionLocal prediccion;
+
+    // Grabación de la partida para verla después (null si está apagada o es una repetición)
+    private final GrabadorPartida grabador;
 
     public GameScreen(Game game, AudioManager audio, hiloCliente cliente) {
         this.game = game;
         this.audio = audio;
         this.cliente = cliente;
-        this.cliente.setGameController(this);
+        this.espectador = cliente.isEspectador();
+        this.retardoRemotos = espectador
+            ? new EstimadorRetardo(RETARDO_ESPECTADOR_MIN_NS, RETARDO_ESPECTADOR_MAX_NS)
+            : new EstimadorRetardo(RETARDO_MIN_NS, RETARDO_MAX_NS);
+        this.grabador = cliente.isReproduccion() ? null : GrabadorPartida.desdePropiedades(this, cliente);
+        this.graficoRed = new GraficoRed(cliente);
+        this.cliente.setGameController(grabador != null ? grabador : this);
     }
 
     @Override
@@ -98,8 +166,11 @@ public class GameScreen implements Screen, GameController {
         camera = new OrthographicCamera();
         viewport = new com.badlogic.gdx.utils.viewport.ExtendViewport(VIRTUAL_WIDTH, VIRTUAL_HEIGHT, camera);
 
-        inputProcessor = new GameInputProcessor(this);
-        Gdx.input.setInputProcessor(inputProcessor);
+        // el espectador no manda teclas: lo suyo (cámara) se lee directo en render
+        if (!espectador) {
+            inputProcessor = new GameInputProcessor(this);
+            Gdx.input.setInputProcessor(inputProcessor);
+        }
 
         try {
             if (audio != null) audio.playMusic("audio/song.mp3", true, 0.1f);
@@ -110,30 +181,45 @@ public class GameScreen implements Screen, GameController {
         tiledMap = new TmxMapLoader().load("map/Map.tmx");
         tiledMapRenderer = new OrthogonalTiledMapRenderer(tiledMap, UNIT_SCALE);
         collisionLayer = tiledMap.getLayers().get("colisiones");
+        mapaColisiones = MapaColisiones.desdeMapa(tiledMap);
+        prediccion = new PrediccionLocal(mapaColisiones);
+        libreX = mapaColisiones.getAncho() / 2f;
+        libreY = mapaColisiones.getAlto() / 2f;
 
-        jugadores[0] = new Jugador(DEFAULT_SPRITE_PATH, 18, 36, new Vector2(1700, 500));
-        jugadores[1] = new Jugador(DEFAULT_SPRITE_PATH2, 18, 36, new Vector2(1700, 450));
-
-        p1Indicator.setColor(Color.CYAN);
-        p2Indicator.setColor(Color.MAGENTA);
+        texturas[0] = Jugador.safeLoadTexture(DEFAULT_SPRITE_PATH);
+        texturas[1] = Jugador.safeLoadTexture(DEFAULT_SPRITE_PATH2);
 
         resetVisualState();
     }
 
     private void resetVisualState() {
-        nearDealer[0] = nearDealer[1] = false;
-        nearDrop[0]   = nearDrop[1]   = false;
-        inGasFromServer[0] = inGasFromServer[1] = false;
-        p1Delivery = null;
-        p2Delivery = null;
+        registro.limpiar();
+        cantVisibles = 0;
+        jugadoresVistos = 0;
+        indicador.clearTarget();
         pingTimer = 0f;
+        retardoRemotos.reiniciar();
     }
 
     @Override
     public void render(float delta) {
-        // ===== Heartbeat =====
-        if (!cliente.isServerAlive(SERVER_TIMEOUT_MS)) {
-            onConnectionLost();
+        // ===== Red: aplicar lo recibido desde el último frame =====
+        cliente.despacharEventos();
+        if (game.getScreen() != this) return; // un evento pudo cambiar de pantalla
+
+        // ===== Heartbeat: sin server se intenta reanudar; si no se puede o no vuelve, afuera =====
+        if (!reconectando && !cliente.isServerAlive(SERVER_TIMEOUT_MS)) {
+            if (!cliente.reanudar()) {
+                onConnectionLost();
+                return;
+            }
+            reconectando = true;
+            reconectandoDesdeNs = System.nanoTime();
+            segundosCartel = -1;
+            if (inputProcessor != null) inputProcessor.soltarTodo();
+        }
+        if (reconectando && !cliente.isReanudando() && !cliente.isServerAlive(SERVER_TIMEOUT_MS)) {
+            onConnectionLost(); // se venció REANUDAR_MAX_MS
             return;
         }
 
@@ -141,9 +227,20 @@ public class GameScreen implements Screen, GameController {
         Gdx.gl.glClearColor(0, 0, 0, 1);
         Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
 
+        if (reconectando) {
+            renderReconectando();
+            return;
+        }
+
+        if (espectador) {
+            renderEspectador(delta);
+            return;
+        }
+
         int localId = cliente.getPlayerId();
 
-        if (localId < 0 || localId > 1) {
+        if (!registro.contiene(localId)) {
+            // sin ID o todavía sin la primera posición propia
             camera.position.set(VIRTUAL_WIDTH / 2f, VIRTUAL_HEIGHT / 2f, 0f);
             camera.update();
             viewport.apply();
@@ -152,69 +249,278 @@ public class GameScreen implements Screen, GameController {
             return;
         }
 
-        // ===== 1. ACTUALIZAR ANIMACIONES (CRUCIAL) =====
-        
-        if (jugadores[0] != null) jugadores[0].update(delta);
-        if (jugadores[1] != null) jugadores[1].update(delta);
+        // ===== Local: entradas por tick fijo + predicción =====
+        // (reproduciendo una captura no hay entradas: el local va donde dijo el server)
+        Jugador local = jugadores[localId];
+        local.update(delta);
+        int ticks = cliente.isReproduccion() ? 0
+            : prediccion.avanzar(delta, inputProcessor.tomarTeclas(), registro.gas[localId] > 0f);
+        if (ticks > 0) {
+            for (int s = prediccion.getSecuencia() - ticks + 1; s - prediccion.getSecuencia() <= 0; s++) {
+                cliente.registrarEntrada(s, prediccion.getTeclas(s));
+            }
+            cliente.enviarEntradas();
+        }
+        if (prediccion.isActiva()) {
+            local.setPosicion(prediccion.getX(), prediccion.getY());
+            local.setAngulo(prediccion.getAngulo());
+        }
 
-        // ===== Indicadores de delivery =====
-        ActiveDelivery localDelivery = (localId == 0) ? p1Delivery : p2Delivery;
-        if (localDelivery != null && localDelivery.target != null) {
-            float cx = (localDelivery.target.x + localDelivery.target.width * 0.5f) * UNIT_SCALE;
-            float cy = (localDelivery.target.y + localDelivery.target.height * 0.5f) * UNIT_SCALE;
-            if (localId == 0) p1Indicator.setTarget(cx, cy);
-            else p2Indicator.setTarget(cx, cy);
+        // ===== Indicador de delivery =====
+        if (registro.conPedido[localId]) {
+            float cx = (registro.pedidoX[localId] + registro.pedidoAncho[localId] * 0.5f) * UNIT_SCALE;
+            float cy = (registro.pedidoY[localId] + registro.pedidoAlto[localId] * 0.5f) * UNIT_SCALE;
+            indicador.setTarget(cx, cy);
         } else {
-            if (localId == 0) p1Indicator.clearTarget();
-            else p2Indicator.clearTarget();
+            indicador.clearTarget();
         }
 
         // ===== CÃ¡mara =====
-        Jugador localPlayer = jugadores[localId];
         camera.position.set(
-            localPlayer.getPosicion().x * UNIT_SCALE,
-            localPlayer.getPosicion().y * UNIT_SCALE,
+            local.getPosicion().x * UNIT_SCALE,
+            local.getPosicion().y * UNIT_SCALE,
             0f
         );
         camera.update();
+        reportarArea();
+
+        // ===== Remotos visibles: interpolados en (ahora - retardo) =====
+        // solo los que caen en la cámara (más el margen); los demás siguen juntando
+        // snapshots y se ubican cuando entran
+        retardoRemotos.actualizar(delta);
+        long tiempoRender = System.nanoTime() - retardoRemotos.getRetardoNs();
+        cantVisibles = cullRemotos(localId);
+        for (int i = 0; i < cantVisibles; i++) {
+            Jugador j = jugadores[visibles[i]];
+            j.interpolar(tiempoRender);
+            j.update(delta);
+        }
 
         // ===== Mapa =====
         tiledMapRenderer.setView(camera);
         tiledMapRenderer.render();
 
-        // ===== Jugadores =====
+        // ===== Jugadores (el local arriba) =====
         batch.setProjectionMatrix(camera.combined);
         batch.begin();
-        if (jugadores[0] != null) jugadores[0].dibujar(batch);
-        if (jugadores[1] != null) jugadores[1].dibujar(batch);
+        for (int i = 0; i < cantVisibles; i++) jugadores[visibles[i]].dibujar(batch);
+        local.dibujar(batch);
         batch.end();
 
         // ===== Indicador =====
-        float px = localPlayer.getPosicion().x * UNIT_SCALE;
-        float py = localPlayer.getPosicion().y * UNIT_SCALE;
-        if (localId == 0) p1Indicator.renderWorld(px, py, camera, delta);
-        else p2Indicator.renderWorld(px, py, camera, delta);
+        float px = local.getPosicion().x * UNIT_SCALE;
+        float py = local.getPosicion().y * UNIT_SCALE;
+        indicador.renderWorld(px, py, camera, delta);
 
         // ===== HUD =====
-        boolean localInGas      = inGasFromServer[localId];
-        boolean localNearDealer = nearDealer[localId];
-        boolean localNearDrop   = nearDrop[localId];
+        boolean localInGas      = registro.enGas[localId];
+        boolean localNearDealer = registro.hint[localId] == RegistroEntidades.HINT_DEALER;
+        boolean localNearDrop   = registro.hint[localId] == RegistroEntidades.HINT_ENTREGA;
 
         String deliveryStatus = buildDeliveryStatus(localId);
-        hud.renderSingle(localPlayer, localInGas, localNearDealer, localNearDrop, deliveryStatus, localId);
+        hud.renderSingle(registro.vida[localId], registro.gas[localId], registro.dinero[localId],
+            localInGas, localNearDealer, localNearDrop, deliveryStatus, localId);
+        if (mostrarRed) {
+            graficoRed.actualizar(System.nanoTime());
+            hud.renderGraficoRed(graficoRed);
+        }
 
         // ===== Input =====
+        if (Gdx.input.isKeyJustPressed(Input.Keys.F3)) alternarRed();
         if (Gdx.input.isKeyJustPressed(Input.Keys.ESCAPE)) {
             game.setScreen(new OptionsScreen(game, this, audio));
         }
     }
 
+    /**
+     * Cortado: el mundo quieto como quedó en el último frame (sin predicción ni entradas) y
+     * el cartel encima. Sigue así hasta el evento Reanudada, aunque el server ya haya contestado.
+     */
+    private void renderReconectando() {
+        tiledMapRenderer.setView(camera);
+        tiledMapRenderer.render();
+
+        int localId = cliente.getPlayerId();
+        batch.setProjectionMatrix(camera.combined);
+        batch.begin();
+        for (int i = 0; i < cantVisibles; i++) jugadores[visibles[i]].dibujar(batch);
+        if (registro.contiene(localId)) jugadores[localId].dibujar(batch);
+        batch.end();
+
+        long segundos = (System.nanoTime() - reconectandoDesdeNs) / 1_000_000_000L;
+        if (segundos != segundosCartel) {
+            segundosCartel = segundos;
+            cartelReconectando.setLength(0);
+            cartelReconectando.append("Sin conexion hace ").append(segundos + SERVER_TIMEOUT_MS / 1000)
+                .append(" s (").append(cliente.getIntentosReanudar()).append(" intentos)");
+        }
+        hud.renderReconectando("Reconectando...", cartelReconectando);
+    }
+
+    /**
+     * Espectador: todas las motos interpoladas con el retardo largo y la cámara siguiendo a
+     * una o libre. No manda AREA: le llegan todas y cambiar a quién sigue es instantáneo.
+     */
+    private void renderEspectador(float delta) {
+        entradaEspectador(delta);
+        if (game.getScreen() != this) return;
+
+        retardoRemotos.actualizar(delta);
+        long tiempoRender = System.nanoTime() - retardoRemotos.getRetardoNs();
+
+        if (!camaraLibre && !registro.contiene(seguido)) seguido = siguienteSeguido(seguido, 1);
+        Jugador foco = !camaraLibre && seguido >= 0 ? jugadores[seguido] : null;
+        if (foco != null) {
+            foco.interpolar(tiempoRender);
+            foco.update(delta);
+            camera.position.set(foco.getPosicion().x * UNIT_SCALE, foco.getPosicion().y * UNIT_SCALE, 0f);
+        } else {
+            camera.position.set(libreX * UNIT_SCALE, libreY * UNIT_SCALE, 0f);
+        }
+        camera.update();
+
+        cantVisibles = cullRemotos(foco != null ? seguido : -1);
+        for (int i = 0; i < cantVisibles; i++) {
+            Jugador j = jugadores[visibles[i]];
+            j.interpolar(tiempoRender);
+            j.update(delta);
+        }
+
+        tiledMapRenderer.setView(camera);
+        tiledMapRenderer.render();
+
+        batch.setProjectionMatrix(camera.combined);
+        batch.begin();
+        for (int i = 0; i < cantVisibles; i++) jugadores[visibles[i]].dibujar(batch);
+        if (foco != null) foco.dibujar(batch); // el seguido arriba, como el local
+        batch.end();
+
+        armarLeyenda();
+        hud.renderEspectador(leyenda, camaraLibre
+            ? "WASD/flechas: mover  +/-: zoom  ESPACIO: seguir  ESC: menu"
+            : "TAB/flechas: cambiar  1-9: elegir  +/-: zoom  ESPACIO: camara libre  ESC: menu");
+        if (mostrarRed) {
+            graficoRed.actualizar(System.nanoTime());
+            hud.renderGraficoRed(graficoRed);
+        }
+    }
+
+    /** F3: prende el net graph desde cero o lo apaga (y con él las mediciones del hilo de red). */
+    private void alternarRed() {
+        mostrarRed = !mostrarRed;
+        if (mostrarRed) graficoRed.mostrar();
+        else graficoRed.ocultar();
+    }
+
+    /** Teclas del espectador (sin InputProcessor: no hay nada que mandar al server). */
+    private void entradaEspectador(float delta) {
+        if (Gdx.input.isKeyJustPressed(Input.Keys.F3)) alternarRed();
+        if (Gdx.input.isKeyJustPressed(Input.Keys.ESCAPE)) {
+            game.setScreen(new OptionsScreen(game, this, audio));
+            return;
+        }
+        if (Gdx.input.isKeyJustPressed(Input.Keys.SPACE) || Gdx.input.isKeyJustPressed(Input.Keys.F)) {
+            if (!camaraLibre && seguido >= 0) {
+                // arranca donde estaba mirando, sin salto
+                libreX = camera.position.x / UNIT_SCALE;
+                libreY = camera.position.y / UNIT_SCALE;
+            }
+            camaraLibre = !camaraLibre;
+        }
+        if (Gdx.input.isKeyPressed(Input.Keys.PLUS) || Gdx.input.isKeyPressed(Input.Keys.EQUALS)) {
+            camera.zoom = Math.max(ZOOM_MIN, camera.zoom - camera.zoom * delta);
+        }
+        if (Gdx.input.isKeyPressed(Input.Keys.MINUS)) {
+            camera.zoom = Math.min(ZOOM_MAX, camera.zoom + camera.zoom * delta);
+        }
+
+        if (camaraLibre) {
+            float paso = VELOCIDAD_CAMARA * camera.zoom * delta;
+            if (Gdx.input.isKeyPressed(Input.Keys.A) || Gdx.input.isKeyPressed(Input.Keys.LEFT)) libreX -= paso;
+            if (Gdx.input.isKeyPressed(Input.Keys.D) || Gdx.input.isKeyPressed(Input.Keys.RIGHT)) libreX += paso;
+            if (Gdx.input.isKeyPressed(Input.Keys.S) || Gdx.input.isKeyPressed(Input.Keys.DOWN)) libreY -= paso;
+            if (Gdx.input.isKeyPressed(Input.Keys.W) || Gdx.input.isKeyPressed(Input.Keys.UP)) libreY += paso;
+            libreX = Math.max(0f, Math.min(mapaColisiones.getAncho(), libreX));
+            libreY = Math.max(0f, Math.min(mapaColisiones.getAlto(), libreY));
+            if (Gdx.input.isKeyJustPressed(Input.Keys.TAB)) camaraLibre = false;
+            return;
+        }
+        if (Gdx.input.isKeyJustPressed(Input.Keys.TAB) || Gdx.input.isKeyJustPressed(Input.Keys.RIGHT)) {
+            seguido = siguienteSeguido(seguido, 1);
+        } else if (Gdx.input.isKeyJustPressed(Input.Keys.LEFT)) {
+            seguido = siguienteSeguido(seguido, -1);
+        }
+        for (int k = 0; k < 9; k++) {
+            if (Gdx.input.isKeyJustPressed(Input.Keys.NUM_1 + k) && registro.contiene(k)) seguido = k;
+        }
+    }
+
+    /** La próxima moto presente después de (o antes de, con paso -1) desde; -1 si no hay ninguna. */
+    private int siguienteSeguido(int desde, int paso) {
+        int n = RegistroEntidades.CAPACIDAD;
+        int id = desde < 0 ? (paso > 0 ? -1 : 0) : desde;
+        for (int i = 0; i < n; i++) {
+            id = ((id + paso) % n + n) % n;
+            if (registro.contiene(id)) return id;
+        }
+        return -1;
+    }
+
+    /** Primera línea del cartel del espectador, en {@link #leyenda} (sin armar Strings por frame). */
+    private void armarLeyenda() {
+        leyenda.setLength(0);
+        leyenda.append("MIRANDO  ");
+        if (registro.getCantidad() == 0) {
+            leyenda.append("Esperando jugadores...");
+            return;
+        }
+        if (camaraLibre || seguido < 0) {
+            leyenda.append("camara libre  |  ").append(registro.getCantidad()).append(" jugadores");
+            return;
+        }
+        leyenda.append("Jugador ").append(seguido + 1)
+            .append("  |  Vida ").append(registro.vida[seguido])
+            .append("  Nafta ").append((int) registro.gas[seguido])
+            .append("  $").append(registro.dinero[seguido]);
+        if (registro.conPedido[seguido]) {
+            leyenda.append(registro.peligroso[seguido] ? "  |  Pedido PELIGROSO $" : "  |  Pedido $")
+                .append(registro.recompensa[seguido]);
+        }
+    }
+
+    /** El rectángulo de la cámara más {@link #MARGEN_AREA}: lo de afuera el server no lo manda. */
+    private void reportarArea() {
+        float medioAncho = camera.viewportWidth * camera.zoom * 0.5f / UNIT_SCALE + MARGEN_AREA;
+        float medioAlto = camera.viewportHeight * camera.zoom * 0.5f / UNIT_SCALE + MARGEN_AREA;
+        float cx = camera.position.x / UNIT_SCALE, cy = camera.position.y / UNIT_SCALE;
+        cliente.reportarArea((int) (cx - medioAncho), (int) (cy - medioAlto),
+            (int) (cx + medioAncho), (int) (cy + medioAlto));
+    }
+
+    /**
+     * Remotos en el rectángulo de la cámara (px del mundo, más {@link #MARGEN_VISIBLE}),
+     * en {@link #visibles}, sin localId (-1: ninguno). @return cuántos
+     */
+    private int cullRemotos(int localId) {
+        float medioAncho = camera.viewportWidth * camera.zoom * 0.5f / UNIT_SCALE + MARGEN_VISIBLE;
+        float medioAlto = camera.viewportHeight * camera.zoom * 0.5f / UNIT_SCALE + MARGEN_VISIBLE;
+        float cx = camera.position.x / UNIT_SCALE, cy = camera.position.y / UNIT_SCALE;
+        int n = registro.visibles(cx - medioAncho, cy - medioAlto, cx + medioAncho, cy + medioAlto, visibles);
+        // el local se dibuja aparte (con la pose predicha)
+        for (int i = 0; i < n; i++) {
+            if (visibles[i] == localId) {
+                visibles[i] = visibles[--n];
+                break;
+            }
+        }
+        return n;
+    }
+
     private String buildDeliveryStatus(int localId) {
-        ActiveDelivery d = (localId == 0) ? p1Delivery : p2Delivery;
-        if (d == null) return "Pedido: ninguno";
-        return d.dangerous
-            ? "Pedido: PELIGROSO $" + d.reward
-            : "Pedido: Normal $" + d.reward;
+        if (!registro.conPedido[localId]) return "Pedido: ninguno";
+        return registro.peligroso[localId]
+            ? "Pedido: PELIGROSO $" + registro.recompensa[localId]
+            : "Pedido: Normal $" + registro.recompensa[localId];
     }
 
     // =========================
@@ -227,64 +533,129 @@ public class GameScreen implements Screen, GameController {
     }
 
     @Override
-    public void actualizarPosicion(Vector2 pos1, Vector2 pos2, float ang1, float ang2) {
-        if (jugadores[0] == null || jugadores[1] == null) return;
+    public void actualizarPosicion(int id, float x, float y, float ang, long tiempoNanos,
+                                   long entradaConfirmada, float velocidad) {
+        if (!RegistroEntidades.valido(id)) return;
+        aplicarPosicion(id, x, y, ang, Float.NaN, tiempoNanos, entradaConfirmada, velocidad);
+    }
+
+    @Override
+    public void registrarArribo(long tiempoNanos) {
+        retardoRemotos.registrarArribo(tiempoNanos);
+    }
 
-        jugadores[0].setPosicion(pos1);
-        jugadores[1].setPosicion(pos2);
+    @Override
+    public void aplicarSnapshot(Snapshot s) {
+        retardoRemotos.registrarArribo(s.nanos);
+        for (int id = 0; id < Snapshot.MAX_JUGADORES; id++) {
+            if (!s.presente[id]) {
+                // salió del área de interés: se olvida y, si vuelve, se da de alta de nuevo ahí
+                registro.quitar(id);
+                continue;
+            }
+            // el gas entra con la posición (la predicción lo usa), después el resto
+            aplicarPosicion(id, s.x[id], s.y[id], s.angulo[id], s.gas[id], s.nanos, s.entrada, s.velocidad[id]);
+            registro.velocidad[id] = s.velocidad[id];
+            registro.dinero[id] = s.dinero[id];
+            registro.vida[id] = s.vida[id];
+            registro.hint[id] = s.hint[id];
+            registro.enGas[id] = s.gasHint[id];
+        }
+    }
 
-        jugadores[0].getBounds().setPosition(pos1.x, pos1.y);
-        jugadores[1].getBounds().setPosition(pos2.x, pos2.y);
+    /**
+     * Da de alta la entidad si es su primera posición: valores de arranque, su Jugador
+     * (creado la primera vez que aparece el id) ahí y, si es la local, la predicción.
+     */
+    private void alta(int id, float x, float y, float ang) {
+        if (!registro.agregar(id)) return;
+        jugadoresVistos = Math.max(jugadoresVistos, id + 1);
+        Jugador j = jugadores[id];
+        if (j == null) {
+            j = new Jugador(texturas[id % texturas.length], SPRITE_ANCHO, SPRITE_ALTO, new Vector2(x, y));
+            jugadores[id] = j;
+        }
+        j.limpiarSnapshots();
+        j.setPosicion(x, y);
+        j.setAngulo(ang);
+        if (id == cliente.getPlayerId()) {
+            prediccion.reiniciar(x, y, ang);
+            indicador.setColor(id % 2 == 0 ? Color.CYAN : Color.MAGENTA);
+        }
+    }
 
-        jugadores[0].setAngulo(ang1);
-        jugadores[1].setAngulo(ang2);
+    /**
+     * El jugador local se reconcilia con la predicción (o va directo a la posición del
+     * server si este no confirma entradas o si es una captura reproducida); los remotos
+     * se interpolan en render.
+     * @param gas el del mismo snapshot, o NaN si llega aparte (texto); se fija después del
+     *            alta, que lo reinicia, y antes de reconciliar
+     */
+    private void aplicarPosicion(int id, float x, float y, float ang, float gas, long tiempoNanos,
+                                 long entrada, float velocidad) {
+        alta(id, x, y, ang);
+        if (!Float.isNaN(gas)) registro.gas[id] = gas;
+        boolean local = id == cliente.getPlayerId();
+        Jugador j = jugadores[id];
+        registro.x[id] = x;
+        registro.y[id] = y;
+        registro.angulo[id] = ang;
+
+        if (local) {
+            if (resincronizar) {
+                resincronizar = false;
+                prediccion.reiniciar(x, y, ang);
+            }
+            if (entrada != ReceptorMensajes.SIN_TICK && !cliente.isReproduccion()) {
+                prediccion.reconciliar(entrada, x, y, ang, velocidad, registro.gas[id] > 0f);
+                return;
+            }
+            j.setPosicion(x, y);
+            j.setAngulo(ang);
+        } else {
+            j.agregarSnapshot(tiempoNanos, x, y, ang);
+        }
     }
 
     @Override public void actualizarGas(float gas, int id) {
-        if (id < 0 || id > 1 || jugadores[id] == null) return;
-        jugadores[id].setGasolina(gas);
+        if (!registro.contiene(id)) return;
+        registro.gas[id] = gas;
     }
 
     @Override public void actualizarDinero(int dinero, int id) {
-        if (id < 0 || id > 1 || jugadores[id] == null) return;
-        jugadores[id].setDinero(dinero);
+        if (!registro.contiene(id)) return;
+        registro.dinero[id] = dinero;
     }
 
     @Override public void actualizarVida(int vida, int id) {
-        if (id < 0 || id > 1 || jugadores[id] == null) return;
-        jugadores[id].setVida(vida);
+        if (!registro.contiene(id)) return;
+        registro.vida[id] = vida;
     }
 
     @Override
     public void actualizarDelivery(Rectangle target, boolean dangerous, int reward, int id) {
-        if (id < 0 || id > 1) return;
-
-        if (target == null) {
-            if (id == 0) p1Delivery = null;
-            else p2Delivery = null;
-            return;
-        }
-
-        ActiveDelivery d = new ActiveDelivery();
-        d.target = target;
-        d.dangerous = dangerous;
-        d.reward = reward;
-
-        if (id == 0) p1Delivery = d;
-        else p2Delivery = d;
+        if (!registro.contiene(id)) return;
+
+        registro.conPedido[id] = target != null;
+        if (target == null) return;
+        registro.pedidoX[id] = target.x;
+        registro.pedidoY[id] = target.y;
+        registro.pedidoAncho[id] = target.width;
+        registro.pedidoAlto[id] = target.height;
+        registro.peligroso[id] = dangerous;
+        registro.recompensa[id] = reward;
     }
 
     @Override
     public void actualizarHint(int id, int tipo) {
-        if (id < 0 || id > 1) return;
-        nearDealer[id] = (tipo == 1);
-        nearDrop[id]   = (tipo == 2);
+        if (!registro.contiene(id)) return;
+        registro.hint[id] = tipo;
     }
 
     @Override
     public void actualizarGasHint(int idJugador, boolean enGas) {
-        if (idJugador < 0 || idJugador > 1) return;
-        inGasFromServer[idJugador] = enGas;
+        if (!registro.contiene(idJugador)) return;
+        registro.enGas[idJugador] = enGas;
     }
 
     @Override
@@ -292,39 +663,63 @@ public class GameScreen implements Screen, GameController {
         try { if (audio != null) audio.stopMusic(); } catch (Exception ignored) {}
         try { if (cliente != null) cliente.desconectar(); } catch (Throwable ignored) {}
 
-        if (game instanceof Main) ((Main) game).onMatchFinished(winnerIndex);
+        if (espectador) {
+            // el menú cuenta el resultado como de un jugador: al espectador, solo quién ganó
+            String resultado = winnerIndex == 3 && jugadoresVistos <= 2 ? "Empate" : "Gano el Jugador " + winnerIndex;
+            game.setScreen(new MensajeScreen(game, audio, resultado, "Volver al menu"));
+            return;
+        }
+
+        if (game instanceof Main) ((Main) game).onMatchFinished(winnerIndex, jugadoresVistos);
         else game.setScreen(new MainMenuScreen(game, audio, cliente));
     }
 
     @Override
     public void onReset() {
-        p1Delivery = null;
-        p2Delivery = null;
-        nearDealer[0] = nearDealer[1] = false;
-        nearDrop[0]   = nearDrop[1]   = false;
+        // se olvidan todas: vuelven (con sus valores de arranque) con el primer snapshot
+        resetVisualState();
+    }
 
-        jugadores[0].setVida(100);
-        jugadores[1].setVida(100);
-        jugadores[0].setDinero(0);
-        jugadores[1].setDinero(0);
-        jugadores[0].setGasolina(100);
-        jugadores[1].setGasolina(100);
+    /** Predicción del jugador local (error, correcciones) para métricas. */
+    public PrediccionLocal getPrediccion() {
+        return prediccion;
+    }
 
-        jugadores[0].setPosicion(new Vector2(1700, 500));
-        jugadores[1].setPosicion(new Vector2(1700, 450));
-        jugadores[0].setAngulo(0);
-        jugadores[1].setAngulo(0);
+    /**
+     * Motos en la partida: el id más alto que mandó el server desde el último Reset, + 1
+     * (los ids son 0..n-1; con área de interés no se tienen todas a la vez).
+     */
+    protected int getCantidadEntidades() {
+        return jugadoresVistos;
     }
 
     @Override
     public void onConnectionLost() {
+        // el heartbeat lo detecta acá mismo, sin pasar por el grabador
+        if (grabador != null) grabador.close();
         try { if (cliente != null) cliente.desconectar(); } catch (Throwable ignored) {}
         game.setScreen(new MensajeScreen(game, audio, "ConexiÃ³n perdida", "Volver al menÃº"));
     }
 
+    @Override
+    public void onReanudada() {
+        Gdx.app.log("GameScreen", "Sesion reanudada " + (System.nanoTime() - reconectandoDesdeNs) / 1_000_000L
+            + " ms despues del corte (Reanudar -> Reanudada " + cliente.getUltimaReanudacionNs() / 1_000_000L + " ms)");
+        // la misma partida: registro, pedidos y motos siguen; la interpolación no (queda un
+        // hueco de segundos) y la predicción se reubica con el primer estado propio
+        reconectando = false;
+        resincronizar = true;
+        retardoRemotos.reiniciar();
+        for (Jugador j : jugadores) if (j != null) j.limpiarSnapshots();
+    }
+
     @Override
     public void onOpponentLeft() {
         try { if (cliente != null) cliente.desconectar(); } catch (Throwable ignored) {}
+        if (espectador) {
+            game.setScreen(new MensajeScreen(game, audio, "Un jugador abandono la partida", "Volver al menu"));
+            return;
+        }
         game.setScreen(new MensajeScreen(game, audio, "El oponente ha abandonado", "Volver al menÃº"));
     }
 
@@ -337,16 +732,21 @@ public class GameScreen implements Screen, GameController {
         hud.resize(width, height);
     }
 
-    @Override public void pause() {}
+    @Override
+    public void pause() {
+        if (inputProcessor != null) inputProcessor.soltarTodo();
+    }
     @Override public void resume() {}
 
     @Override
     public void hide() {
         Gdx.input.setInputProcessor(null);
+        if (inputProcessor != null) inputProcessor.soltarTodo();
     }
 
     @Override
     public void dispose() {
+        if (grabador != null) grabador.close();
         if (batch != null) batch.dispose();
         if (tiledMapRenderer != null) tiledMapRenderer.dispose();
         if (tiledMap != null) tiledMap.dispose();
@@ -355,8 +755,11 @@ public class GameScreen implements Screen, GameController {
             if (jugadores[i] != null) jugadores[i].dispose();
         }
 
-        p1Indicator.dispose();
-        p2Indicator.dispose();
+        for (int i = 0; i < texturas.length; i++) {
+            if (texturas[i] != null) texturas[i].dispose();
+        }
+
+        indicador.dispose();
 
         if (hud != null) hud.dispose();
 
@@ -23,8 +23,11 @@ import com.badlogic.gdx.scenes.scene2d.utils.TextureRegionDrawable;
 import com.badlogic.gdx.utils.viewport.FitViewport;
 import com.badlogic.gdx.utils.viewport.Viewport;
 import com.motorepartidor.audio.AudioManager;
+import red.GrabadorPartida;
 import red.hiloCliente;
 
+import java.io.File;
+
 public class MainMenuScreen implements Screen {
 
     private final Game game;
@@ -78,7 +81,11 @@ public class MainMenuScreen implements Screen {
             String txtP1 = "";
             String txtP2 = "";
 
-            if (lastWinner == 1) {
+            if (((Main) game).getLastJugadores() > 2) {
+                // más de dos: no hay empate, el ganador y nada más
+                if (lastWinner > 0) txtP1 = "Gano el Jugador " + lastWinner;
+                resultP1Label.setColor(Color.GREEN);
+            } else if (lastWinner == 1) {
                 // Ganó Jugador 1
                 txtP1 = "Jugador 1: Has ganado";
                 txtP2 = "Jugador 2: Has perdido";
@@ -90,8 +97,7 @@ public class MainMenuScreen implements Screen {
                 txtP2 = "Jugador 2: Has ganado";
                 resultP1Label.setColor(Color.RED);
                 resultP2Label.setColor(Color.GREEN);
-            }
-            if(lastWinner == 3) {
+            } else if (lastWinner == 3) {
                 txtP1 = "Empate";
                 txtP2 = "Empate";
                 resultP1Label.setColor(Color.GRAY);
@@ -104,9 +110,22 @@ public class MainMenuScreen implements Screen {
         }
 
         TextButton playBtn = new TextButton("Jugar", skin);
+        TextButton watchBtn = new TextButton("Mirar partida", skin);
         TextButton optionsBtn = new TextButton("Opciones", skin);
         TextButton exitBtn = new TextButton("Salir", skin);
 
+        // Repetición: solo si hay alguna partida grabada
+        final File ultimaPartida = GrabadorPartida.ultima();
+        TextButton replayBtn = ultimaPartida != null ? new TextButton("Ver ultima partida", skin) : null;
+        if (replayBtn != null) {
+            replayBtn.addListener(new ClickListener() {
+                @Override public void clicked(InputEvent event, float x, float y) {
+                    ReplayScreen replay = ReplayScreen.abrir(game, audio, ultimaPartida);
+                    if (replay != null) game.setScreen(replay);
+                }
+            });
+        }
+
         playBtn.addListener(new ClickListener() {
             @Override public void clicked(InputEvent event, float x, float y) {
                 try {
@@ -121,6 +140,19 @@ public class MainMenuScreen implements Screen {
                 }
             }
         });
+        watchBtn.addListener(new ClickListener() {
+            @Override public void clicked(InputEvent event, float x, float y) {
+                try {
+                    // misma búsqueda, pero entra a mirar (sin lobby ni moto)
+                    hiloCliente nuevo = new hiloCliente();
+                    nuevo.setEspectador(true);
+                    nuevo.start();
+                    game.setScreen(new BuscarServidorScreen(game, audio, nuevo));
+                } catch (Throwable t) {
+                    Gdx.app.error("MainMenu", "Error al iniciar búsqueda", t);
+                }
+            }
+        });
         optionsBtn.addListener(new ClickListener() {
             @Override public void clicked(InputEvent event, float x, float y) {
                 try {
@@ -153,6 +185,12 @@ public class MainMenuScreen implements Screen {
 
         root.add(playBtn).width(280).height(60);
         root.row();
+        root.add(watchBtn).width(280).height(60);
+        root.row();
+        if (replayBtn != null) {
+            root.add(replayBtn).width(280).height(60);
+            root.row();
+        }
         root.add(optionsBtn).width(280).height(60);
         root.row();
         root.add(exitBtn).width(280).height(60);
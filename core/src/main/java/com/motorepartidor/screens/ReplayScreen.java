@@ -0,0 +1,168 @@
+package com.motorepartidor.screens;
+
+import com.badlogic.gdx.Game;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.Input;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.OrthographicCamera;
+import com.badlogic.gdx.graphics.g2d.BitmapFont;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.glutils.ShapeRenderer;
+import com.motorepartidor.Main;
+import com.motorepartidor.audio.AudioManager;
+import red.GrabadorPartida;
+import red.ReproductorPartida;
+import red.hiloCliente;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Repetición de una partida grabada: el mismo GameScreen (mapa, motos, HUD, indicador)
+ * alimentado por un {@link ReproductorPartida} en vez de la red, más una barra abajo.
+ *
+ * Controles: ESPACIO play/pausa, IZQ/DER un keyframe atrás/adelante, ARRIBA/ABAJO
+ * velocidad (0.25x a 8x), 0-9 ir al 0%-90%, click en la barra para ir ahí, ESC al menú.
+ */
+public class ReplayScreen extends GameScreen {
+
+    private static final float ALTO_BARRA = 10f;
+    private static final float MARGEN = 20f;
+
+    private final Game game;
+    private final AudioManager audio;
+    private final hiloCliente cliente;
+    private final ReproductorPartida reproductor;
+
+    private OrthographicCamera camara;
+    private SpriteBatch batch;
+    private ShapeRenderer formas;
+    private BitmapFont fuente;
+
+    public ReplayScreen(Game game, AudioManager audio, hiloCliente cliente, ReproductorPartida reproductor) {
+        super(game, audio, cliente);
+        this.game = game;
+        this.audio = audio;
+        this.cliente = cliente;
+        this.reproductor = reproductor;
+    }
+
+    /** Abre la partida y arma la pantalla; null (y lo loguea) si el archivo no sirve. */
+    public static ReplayScreen abrir(Game game, AudioManager audio, File archivo) {
+        try {
+            ReproductorPartida r = new ReproductorPartida(archivo);
+            return new ReplayScreen(game, audio, r.crearCliente(), r);
+        } catch (IOException e) {
+            Gdx.app.error("Replay", "No se pudo abrir " + archivo, e);
+            return null;
+        }
+    }
+
+    @Override
+    public void show() {
+        super.show();
+        camara = new OrthographicCamera();
+        camara.setToOrtho(false, Gdx.graphics.getWidth(), Gdx.graphics.getHeight());
+        batch = new SpriteBatch();
+        formas = new ShapeRenderer();
+        fuente = new BitmapFont();
+    }
+
+    @Override
+    public void render(float delta) {
+        if (Gdx.input.isKeyJustPressed(Input.Keys.ESCAPE)) {
+            salir();
+            return;
+        }
+        controles();
+        super.render(delta);
+        if (game.getScreen() == this) dibujarBarra();
+    }
+
+    private void controles() {
+        if (Gdx.input.isKeyJustPressed(Input.Keys.SPACE)) reproductor.alternarPausa();
+        if (Gdx.input.isKeyJustPressed(Input.Keys.RIGHT)) reproductor.saltar(1);
+        if (Gdx.input.isKeyJustPressed(Input.Keys.LEFT)) reproductor.saltar(-1);
+        if (Gdx.input.isKeyJustPressed(Input.Keys.UP)) reproductor.setVelocidad(reproductor.getVelocidad() * 2f);
+        if (Gdx.input.isKeyJustPressed(Input.Keys.DOWN)) reproductor.setVelocidad(reproductor.getVelocidad() / 2f);
+        for (int i = 0; i <= 9; i++) {
+            if (Gdx.input.isKeyJustPressed(Input.Keys.NUM_0 + i)) reproductor.buscar(reproductor.getDuracionMs() * i / 10);
+        }
+        if (Gdx.input.justTouched()) {
+            float y = Gdx.graphics.getHeight() - Gdx.input.getY();
+            float ancho = Gdx.graphics.getWidth() - 2 * MARGEN;
+            if (y <= MARGEN + ALTO_BARRA * 2 && ancho > 0) {
+                float f = Math.max(0f, Math.min(1f, (Gdx.input.getX() - MARGEN) / ancho));
+                reproductor.buscar((long) (reproductor.getDuracionMs() * f));
+            }
+        }
+    }
+
+    private void dibujarBarra() {
+        float ancho = Gdx.graphics.getWidth() - 2 * MARGEN;
+        long duracion = Math.max(1, reproductor.getDuracionMs());
+        float f = Math.min(1f, (float) reproductor.getTiempoMs() / duracion);
+        camara.update();
+
+        formas.setProjectionMatrix(camara.combined);
+        formas.begin(ShapeRenderer.ShapeType.Filled);
+        formas.setColor(Color.DARK_GRAY);
+        formas.rect(MARGEN, MARGEN, ancho, ALTO_BARRA);
+        formas.setColor(Color.ORANGE);
+        formas.rect(MARGEN, MARGEN, ancho * f, ALTO_BARRA);
+        formas.end();
+
+        String estado = reproductor.isTerminado() ? "fin" : reproductor.isPausado() ? "pausa" : "play";
+        String texto = String.format("%s  %s / %s  x%s   [ESPACIO] play/pausa  [IZQ/DER] +-%d s  "
+                + "[ARRIBA/ABAJO] velocidad  [0-9] ir a %%  [ESC] salir",
+            estado, reloj(reproductor.getTiempoMs()), reloj(reproductor.getDuracionMs()),
+            velocidad(reproductor.getVelocidad()), reproductor.getLector().getIntervaloMs() / 1000);
+        String resultado = resultado(reproductor.getLector().getGanador(), getCantidadEntidades());
+
+        batch.setProjectionMatrix(camara.combined);
+        batch.begin();
+        fuente.setColor(Color.WHITE);
+        fuente.draw(batch, texto, MARGEN, MARGEN + ALTO_BARRA + 22f);
+        if (resultado != null && reproductor.isTerminado()) {
+            fuente.draw(batch, resultado, MARGEN, MARGEN + ALTO_BARRA + 44f);
+        }
+        batch.end();
+    }
+
+    private static String reloj(long ms) {
+        long s = ms / 1000;
+        return String.format("%02d:%02d", s / 60, s % 60);
+    }
+
+    private static String velocidad(float v) {
+        return v == (int) v ? Integer.toString((int) v) : Float.toString(v);
+    }
+
+    /** Como lo muestra el menú: id + 1 del ganador; 3 es empate si eran dos. */
+    private static String resultado(int ganador, int jugadores) {
+        if (ganador == 3 && jugadores <= 2) return "Empate";
+        if (ganador > 0) return "Gano el Jugador " + ganador;
+        return ganador == GrabadorPartida.SIN_GANADOR ? "Partida sin terminar" : null;
+    }
+
+    private void salir() {
+        cliente.terminarCliente();
+        try { reproductor.close(); } catch (IOException ignored) {}
+        if (game instanceof Main) ((Main) game).showMainMenu();
+        else game.setScreen(new MainMenuScreen(game, audio, cliente));
+    }
+
+    @Override
+    public void resize(int width, int height) {
+        super.resize(width, height);
+        if (camara != null) camara.setToOrtho(false, width, height);
+    }
+
+    @Override
+    public void dispose() {
+        super.dispose();
+        if (batch != null) batch.dispose();
+        if (formas != null) formas.dispose();
+        if (fuente != null) fuente.dispose();
+    }
+}
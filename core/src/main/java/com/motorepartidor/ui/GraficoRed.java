@@ -0,0 +1,328 @@
+package com.motorepartidor.ui;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.g2d.BitmapFont;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.glutils.ShapeRenderer;
+import red.EstadisticasRed;
+import red.MedidorPing;
+import red.SelectorTasa;
+import red.hiloCliente;
+
+/**
+ * Net graph de F3: una columna cada {@link #PASO_NS} con lo que pasó en ese rato, las más
+ * nuevas a la derecha.
+ *
+ * - Arriba: bytes/s de entrada (verde) y salida (celeste) apilados, escala automática.
+ * - Abajo: el peor hueco entre snapshots de la columna (verde, amarillo si pasa 1.5 veces
+ *   el intervalo de la tasa aplicada, rojo si pasa 3) y en blanco la edad del estado
+ *   aplicado más nuevo (cuánto hace que lo mandó el server).
+ * - A la derecha: histograma de los últimos huecos entre snapshots, de a 10 ms.
+ * - Texto: paquetes y bytes por segundo en cada sentido, RTT y jitter, lo que tarda el hilo
+ *   de red por datagrama, eventos que encontró cada frame en la cola y la tasa de snapshots.
+ *
+ * Todo en arreglos fijos y StringBuilders que se reusan: dibujar no crea objetos. Oculto
+ * no se llama y el hilo de red solo suma contadores ({@link EstadisticasRed#setMidiendo}).
+ * Hilo de render.
+ */
+public final class GraficoRed {
+
+    public static final int COLUMNAS = 120;
+    public static final long PASO_NS = 100_000_000L; // 12 s a la vista
+
+    static final int CUBETAS = 26;           // la última junta todo lo de 250 ms o más
+    static final int ANCHO_CUBETA_MS = 10;
+    static final int COLUMNAS_SEGUNDO = 10;  // para el texto, que es por segundo
+    static final float TOPE_MS = 250f;       // escala de la franja de tiempos
+
+    // ===== Layout (px de pantalla) =====
+    private static final float X = 20f, Y = 20f;
+    private static final float ANCHO_COLUMNA = 3f;
+    private static final float ALTO_FRANJA = 50f, SEPARACION = 10f;
+    private static final float ANCHO_CUBETA = 6f;
+    private static final float ALTO_LINEA = 18f;
+
+    private final hiloCliente cliente;
+    private final EstadisticasRed est;
+
+    // ===== Columnas (anillo) =====
+    private final float[] entradaBps = new float[COLUMNAS];
+    private final float[] salidaBps = new float[COLUMNAS];
+    private final float[] entreMs = new float[COLUMNAS];
+    private final float[] edadMs = new float[COLUMNAS];
+    private final int[] paquetesEntrada = new int[COLUMNAS];
+    private final int[] paquetesSalida = new int[COLUMNAS];
+    private final int[] bytesEntrada = new int[COLUMNAS];
+    private final int[] bytesSalida = new int[COLUMNAS];
+    private final long[] duracionNs = new long[COLUMNAS];
+    private int proxima, llenas;
+
+    // ===== Columna en curso =====
+    private long columnaNs;
+    private float colEntreMs, colEdadMs;
+    private int colEventos;
+
+    // ===== Lecturas anteriores de los contadores =====
+    private long paqEnt0, paqSal0, bytesEnt0, bytesSal0, decod0, decodNs0, snapshots0;
+
+    // ===== Histograma =====
+    private final int[] cubetas = new int[CUBETAS];
+    private int totalCubetas, maxCubeta;
+
+    // ===== Texto (se rearma al cerrar cada columna) =====
+    private final StringBuilder trafico = new StringBuilder(128);
+    private final StringBuilder latencia = new StringBuilder(128);
+    private final StringBuilder render = new StringBuilder(128);
+    private final StringBuilder tasa = new StringBuilder(128);
+    private final StringBuilder escala = new StringBuilder(16);
+    private float maxEscala = 1024f;
+    private float decodUs;
+    private int eventosMax;
+
+    public GraficoRed(hiloCliente cliente) {
+        this.cliente = cliente;
+        this.est = cliente.getEstadisticas();
+    }
+
+    /** Al prenderlo: historia vacía y los contadores de ahora como base. */
+    public void mostrar() {
+        est.setMidiendo(true);
+        llenas = proxima = 0;
+        totalCubetas = maxCubeta = 0;
+        for (int i = 0; i < CUBETAS; i++) cubetas[i] = 0;
+        trafico.setLength(0);
+        latencia.setLength(0);
+        render.setLength(0);
+        tasa.setLength(0);
+        snapshots0 = est.getSnapshots();
+        tomarBase(System.nanoTime());
+    }
+
+    public void ocultar() {
+        est.setMidiendo(false);
+    }
+
+    private void tomarBase(long ahora) {
+        columnaNs = ahora;
+        paqEnt0 = est.getPaquetesEntrada();
+        paqSal0 = est.getPaquetesSalida();
+        bytesEnt0 = est.getBytesEntrada();
+        bytesSal0 = est.getBytesSalida();
+        decod0 = est.getDecodificados();
+        decodNs0 = est.getDecodificacionNs();
+        colEntreMs = colEdadMs = 0f;
+        colEventos = 0;
+    }
+
+    // =========================================================
+    // Muestreo (una vez por frame, visible)
+    // =========================================================
+
+    public void actualizar(long ahora) {
+        // huecos nuevos entre snapshots (si se atrasó más que el anillo, los últimos)
+        long n = est.getSnapshots();
+        for (long i = Math.max(snapshots0, n - EstadisticasRed.INTERVALOS); i < n; i++) {
+            colEntreMs = Math.max(colEntreMs, est.getIntervalo(i));
+        }
+        snapshots0 = n;
+
+        if (est.hayAplicado()) {
+            float edad = (cliente.getReloj().aServidor(ahora) - est.getAplicadoServidorNs()) / 1e6f;
+            colEdadMs = Math.max(colEdadMs, edad);
+        }
+        colEventos = Math.max(colEventos, est.getEventosFrame());
+
+        if (ahora - columnaNs >= PASO_NS) cerrarColumna(ahora);
+    }
+
+    private void cerrarColumna(long ahora) {
+        long dur = ahora - columnaNs;
+        long paqEnt = est.getPaquetesEntrada(), paqSal = est.getPaquetesSalida();
+        long bEnt = est.getBytesEntrada(), bSal = est.getBytesSalida();
+        long decod = est.getDecodificados(), decodNs = est.getDecodificacionNs();
+
+        int c = proxima;
+        paquetesEntrada[c] = (int) (paqEnt - paqEnt0);
+        paquetesSalida[c] = (int) (paqSal - paqSal0);
+        bytesEntrada[c] = (int) (bEnt - bytesEnt0);
+        bytesSalida[c] = (int) (bSal - bytesSal0);
+        duracionNs[c] = dur;
+        entradaBps[c] = bytesEntrada[c] * 1e9f / dur;
+        salidaBps[c] = bytesSalida[c] * 1e9f / dur;
+        entreMs[c] = colEntreMs;
+        edadMs[c] = colEdadMs;
+        if (decod > decod0) decodUs = (decodNs - decodNs0) / 1000f / (decod - decod0);
+        eventosMax = colEventos;
+        proxima = (proxima + 1) % COLUMNAS;
+        llenas = Math.min(llenas + 1, COLUMNAS);
+
+        tomarBase(ahora);
+
+        armarHistograma();
+        armarTexto(ahora);
+    }
+
+    private void armarHistograma() {
+        for (int i = 0; i < CUBETAS; i++) cubetas[i] = 0;
+        long n = est.getSnapshots();
+        totalCubetas = (int) Math.min(n, EstadisticasRed.INTERVALOS);
+        maxCubeta = 0;
+        for (long i = n - totalCubetas; i < n; i++) {
+            int k = Math.min(CUBETAS - 1, (int) (est.getIntervalo(i) / ANCHO_CUBETA_MS));
+            maxCubeta = Math.max(maxCubeta, ++cubetas[k]);
+        }
+    }
+
+    /** Percentil p (0..1) del histograma: el borde de arriba de su cubeta, en ms. */
+    private int percentilCubetas(float p) {
+        if (totalCubetas == 0) return 0;
+        int objetivo = (int) Math.ceil(p * totalCubetas), acumulado = 0;
+        for (int i = 0; i < CUBETAS; i++) {
+            acumulado += cubetas[i];
+            if (acumulado >= objetivo) return (i + 1) * ANCHO_CUBETA_MS;
+        }
+        return CUBETAS * ANCHO_CUBETA_MS;
+    }
+
+    private void armarTexto(long ahora) {
+        // el último segundo (o lo que haya)
+        int pe = 0, ps = 0, be = 0, bs = 0;
+        long dur = 0;
+        for (int i = 1; i <= Math.min(llenas, COLUMNAS_SEGUNDO); i++) {
+            int c = (proxima - i + COLUMNAS) % COLUMNAS;
+            pe += paquetesEntrada[c];
+            ps += paquetesSalida[c];
+            be += bytesEntrada[c];
+            bs += bytesSalida[c];
+            dur += duracionNs[c];
+        }
+        float seg = Math.max(1e-3f, dur / 1e9f);
+
+        trafico.setLength(0);
+        trafico.append("entrada ").append(Math.round(pe / seg)).append(" pkt/s ");
+        kb(trafico, be / seg).append(" | salida ").append(Math.round(ps / seg)).append(" pkt/s ");
+        kb(trafico, bs / seg);
+
+        MedidorPing ping = cliente.getMedidorPing();
+        latencia.setLength(0);
+        latencia.append("rtt ");
+        decimal(latencia, ping.getRttP50()).append(" ms  jitter ");
+        decimal(latencia, ping.getJitter()).append(" ms  perdida ");
+        decimal(latencia, ping.getPerdida(ahora)).append("% | procesar ");
+        decimal(latencia, decodUs).append(" us/datagrama");
+
+        render.setLength(0);
+        render.append("cola ").append(eventosMax).append(" eventos/frame (max ")
+            .append(cliente.getEventos().getProfundidadMaxima()).append(", sin lugar ")
+            .append(cliente.getSnapshotsSinLugar()).append(") | estado de hace ")
+            .append(Math.round(edadMs[(proxima - 1 + COLUMNAS) % COLUMNAS])).append(" ms | entre snapshots p50 ")
+            .append(percentilCubetas(0.5f)).append(" p99 ").append(percentilCubetas(0.99f)).append(" ms");
+
+        SelectorTasa t = cliente.getSelectorTasa();
+        tasa.setLength(0);
+        tasa.append("snapshots ");
+        if (t.getAplicada() > 0) tasa.append(t.getAplicada()).append(" Hz");
+        else tasa.append("? (server viejo)");
+        tasa.append(" (pedido ").append(t.getPedida()).append(", max ").append(t.getMaxima()).append(") limita:");
+        if (!t.isLimiteFps() && !t.isLimitePerdida() && !t.isLimiteRtt()) tasa.append(" nada");
+        if (t.isLimiteFps()) tasa.append(" fps");
+        if (t.isLimitePerdida()) tasa.append(" perdida");
+        if (t.isLimiteRtt()) tasa.append(" rtt");
+        tasa.append(" | fps ").append(Math.round(t.getFps(ahora))).append(" | ahorro ")
+            .append(Math.round(t.getAhorro() * 100f)).append("% ");
+        kb(tasa, t.getAhorroBytesPorSegundo());
+
+        // escala de la franja de tráfico: potencia de 2 en KB/s que cubra lo visible
+        float max = 0f;
+        for (int i = 0; i < llenas; i++) max = Math.max(max, entradaBps[i] + salidaBps[i]);
+        maxEscala = 1024f;
+        while (maxEscala < max) maxEscala *= 2f;
+        escala.setLength(0);
+        escala.append(Math.round(maxEscala / 1024f)).append(" KB/s");
+    }
+
+    /** Un decimal sin String.format (que crea objetos). */
+    private static StringBuilder decimal(StringBuilder sb, float v) {
+        if (v < 0f) {
+            sb.append('-');
+            v = -v;
+        }
+        int d = Math.round(v * 10f);
+        return sb.append(d / 10).append('.').append(d % 10);
+    }
+
+    private static StringBuilder kb(StringBuilder sb, float bytesPorSegundo) {
+        return decimal(sb, bytesPorSegundo / 1024f).append(" KB/s");
+    }
+
+    // =========================================================
+    // Dibujo (HUD ya fijó la proyección y el blending)
+    // =========================================================
+
+    /** Fondo, franjas e histograma. Con el ShapeRenderer abierto en Filled. */
+    void dibujarFormas(ShapeRenderer sr) {
+        float anchoGrafico = COLUMNAS * ANCHO_COLUMNA;
+        float yTiempos = Y;
+        float yTrafico = Y + ALTO_FRANJA + SEPARACION;
+        float xHisto = X + anchoGrafico + SEPARACION * 2;
+
+        sr.setColor(0f, 0f, 0f, 0.5f);
+        sr.rect(X - 6f, Y - 6f, anchoGrafico + SEPARACION * 2 + CUBETAS * ANCHO_CUBETA + 12f,
+            ALTO_FRANJA * 2 + SEPARACION + 4 * ALTO_LINEA + 16f);
+
+        float nominalMs = cliente.getSelectorTasa().getAplicada() > 0
+            ? 1000f / cliente.getSelectorTasa().getAplicada() : 1000f / 60f;
+        int primera = COLUMNAS - llenas;
+        for (int i = 0; i < llenas; i++) {
+            int c = (proxima - llenas + i + COLUMNAS) % COLUMNAS;
+            float x = X + (primera + i) * ANCHO_COLUMNA;
+
+            // tráfico: entrada abajo, salida apilada
+            float he = entradaBps[c] / maxEscala * ALTO_FRANJA;
+            float hs = salidaBps[c] / maxEscala * ALTO_FRANJA;
+            sr.setColor(Color.GREEN);
+            sr.rect(x, yTrafico, ANCHO_COLUMNA - 1f, he);
+            sr.setColor(Color.SKY);
+            sr.rect(x, yTrafico + he, ANCHO_COLUMNA - 1f, hs);
+
+            // tiempos: peor hueco entre snapshots y edad del estado
+            float entre = entreMs[c];
+            if (entre > nominalMs * 3f) sr.setColor(Color.RED);
+            else if (entre > nominalMs * 1.5f) sr.setColor(Color.YELLOW);
+            else sr.setColor(Color.FOREST);
+            sr.rect(x, yTiempos, ANCHO_COLUMNA - 1f, Math.min(entre, TOPE_MS) / TOPE_MS * ALTO_FRANJA);
+            sr.setColor(Color.WHITE);
+            sr.rect(x, yTiempos + Math.min(edadMs[c], TOPE_MS) / TOPE_MS * ALTO_FRANJA, ANCHO_COLUMNA - 1f, 1f);
+        }
+
+        // líneas de referencia: el intervalo nominal y el tope de cada franja
+        sr.setColor(Color.GRAY);
+        sr.rect(X, yTiempos + Math.min(nominalMs, TOPE_MS) / TOPE_MS * ALTO_FRANJA, anchoGrafico, 1f);
+        sr.rect(X, yTiempos + ALTO_FRANJA, anchoGrafico, 1f);
+        sr.rect(X, yTrafico + ALTO_FRANJA, anchoGrafico, 1f);
+
+        float altoHisto = ALTO_FRANJA * 2 + SEPARACION;
+        for (int i = 0; i < CUBETAS && maxCubeta > 0; i++) {
+            sr.setColor(i == CUBETAS - 1 ? Color.RED : Color.LIGHT_GRAY);
+            sr.rect(xHisto + i * ANCHO_CUBETA, Y, ANCHO_CUBETA - 1f, (float) cubetas[i] / maxCubeta * altoHisto);
+        }
+    }
+
+    /** Texto arriba de las franjas y escalas. Con el batch abierto. */
+    void dibujarTexto(SpriteBatch batch, BitmapFont font) {
+        float yTexto = Y + ALTO_FRANJA * 2 + SEPARACION + 4 * ALTO_LINEA + 4f;
+
+        font.setColor(Color.YELLOW);
+        font.draw(batch, tasa, X, yTexto);
+        font.setColor(Color.WHITE);
+        font.draw(batch, trafico, X, yTexto - ALTO_LINEA);
+        font.draw(batch, latencia, X, yTexto - ALTO_LINEA * 2);
+        font.draw(batch, render, X, yTexto - ALTO_LINEA * 3);
+
+        // escalas adentro de cada franja, arriba a la izquierda
+        font.setColor(Color.LIGHT_GRAY);
+        font.draw(batch, escala, X + 2f, Y + ALTO_FRANJA * 2 + SEPARACION - 2f);
+        font.draw(batch, "250 ms", X + 2f, Y + ALTO_FRANJA - 2f);
+        font.setColor(Color.WHITE);
+    }
+}
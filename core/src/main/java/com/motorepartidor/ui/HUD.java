@@ -2,6 +2,7 @@ package com.motorepartidor.ui;
 
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.GL20;
 import com.badlogic.gdx.graphics.OrthographicCamera;
 import com.badlogic.gdx.graphics.g2d.BitmapFont;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
@@ -107,7 +108,10 @@ public class HUD {
         hudBatch.end();
     }
 
-    public void renderSingle(Jugador player,
+    /** HUD del jugador local: vida, gasolina y dinero vienen del registro de entidades. */
+    public void renderSingle(int vida,
+                             float gasolina,
+                             int dinero,
                              boolean inGas,
                              boolean nearDealer,
                              boolean nearDrop,
@@ -130,7 +134,7 @@ public class HUD {
         shapeRenderer.rect(xBar, vidaY, 100, 15);
         shapeRenderer.setColor(Color.GREEN);
         shapeRenderer.rect(xBar, vidaY,
-            Math.max(0, Math.min(100, player.getVida())),
+            Math.max(0, Math.min(100, vida)),
             15);
 
         // Gasolina
@@ -138,7 +142,7 @@ public class HUD {
         shapeRenderer.rect(xBar, gasY, 100, 15);
         shapeRenderer.setColor(Color.ORANGE);
         shapeRenderer.rect(xBar, gasY,
-            Math.max(0, Math.min(100, player.getGasolina())),
+            Math.max(0, Math.min(100, gasolina)),
             15);
 
         shapeRenderer.end();
@@ -155,9 +159,9 @@ public class HUD {
         // Vida / gasolina / dinero
         font.draw(hudBatch, "Vida:", x, y);
         y -= 40;
-        font.draw(hudBatch, "Gasolina: " + (int) player.getGasolina(), x, y);
+        font.draw(hudBatch, "Gasolina: " + (int) gasolina, x, y);
         y -= 40;
-        font.draw(hudBatch, "Dinero: $" + player.getDinero(), x, y);
+        font.draw(hudBatch, "Dinero: $" + dinero, x, y);
 
         // Estado del pedido
         y -= 40;
@@ -176,7 +180,7 @@ public class HUD {
         // Mensaje de cargar nafta
         if (inGas) {
             y -= 20;
-            int resta = 100 - (int) player.getGasolina();
+            int resta = 100 - (int) gasolina;
             String key =  "[E]" ;
             font.draw(hudBatch, key + " Cargar nafta " + resta + "$", x, y);
         }
@@ -184,6 +188,68 @@ public class HUD {
         hudBatch.end();
     }
 
+    /** Cartel del espectador: a quién sigue (o cámara libre) y las teclas, arriba a la izquierda. */
+    public void renderEspectador(CharSequence estado, String ayuda) {
+        hudCamera.update();
+        hudBatch.setProjectionMatrix(hudCamera.combined);
+        hudBatch.begin();
+
+        float x = 20f;
+        float y = Gdx.graphics.getHeight() - 20f;
+        font.setColor(Color.WHITE);
+        font.draw(hudBatch, estado, x, y);
+        font.setColor(Color.LIGHT_GRAY);
+        font.draw(hudBatch, ayuda, x, y - 20f);
+
+        font.setColor(Color.WHITE);
+        hudBatch.end();
+    }
+
+    /** Cartel de corte de red: oscurece la pantalla (el mundo queda quieto atrás) y el texto al medio. */
+    public void renderReconectando(CharSequence titulo, CharSequence detalle) {
+        hudCamera.update();
+        float w = Gdx.graphics.getWidth();
+        float h = Gdx.graphics.getHeight();
+
+        Gdx.gl.glEnable(GL20.GL_BLEND);
+        Gdx.gl.glBlendFunc(GL20.GL_SRC_ALPHA, GL20.GL_ONE_MINUS_SRC_ALPHA);
+        shapeRenderer.setProjectionMatrix(hudCamera.combined);
+        shapeRenderer.begin(ShapeRenderer.ShapeType.Filled);
+        shapeRenderer.setColor(0f, 0f, 0f, 0.6f);
+        shapeRenderer.rect(0, 0, w, h);
+        shapeRenderer.end();
+        Gdx.gl.glDisable(GL20.GL_BLEND);
+
+        hudBatch.setProjectionMatrix(hudCamera.combined);
+        hudBatch.begin();
+        font.setColor(Color.WHITE);
+        font.draw(hudBatch, titulo, w / 2f - 100f, h / 2f + 20f);
+        font.setColor(Color.LIGHT_GRAY);
+        font.draw(hudBatch, detalle, w / 2f - 100f, h / 2f);
+        font.setColor(Color.WHITE);
+        hudBatch.end();
+    }
+
+    /**
+     * Vista de debug de la red (F3): el {@link GraficoRed} con su fondo semitransparente.
+     * No crea objetos (ver GraficoRed).
+     */
+    public void renderGraficoRed(GraficoRed grafico) {
+        hudCamera.update();
+
+        Gdx.gl.glEnable(GL20.GL_BLEND);
+        Gdx.gl.glBlendFunc(GL20.GL_SRC_ALPHA, GL20.GL_ONE_MINUS_SRC_ALPHA);
+        shapeRenderer.setProjectionMatrix(hudCamera.combined);
+        shapeRenderer.begin(ShapeRenderer.ShapeType.Filled);
+        grafico.dibujarFormas(shapeRenderer);
+        shapeRenderer.end();
+        Gdx.gl.glDisable(GL20.GL_BLEND);
+
+        hudBatch.setProjectionMatrix(hudCamera.combined);
+        hudBatch.begin();
+        grafico.dibujarTexto(hudBatch, font);
+        hudBatch.end();
+    }
 
     public void resize(int width, int height) {
         hudCamera.setToOrtho(false, width, height);
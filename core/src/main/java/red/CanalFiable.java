@@ -0,0 +1,349 @@
+package red;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Canal confiable y ordenado arriba del mismo socket UDP, para los eventos que no se
+ * pueden perder (Comienza, Delivery, DeliveryFin, GameOver, Reset, OpponentLeft,
+ * Disconnect). Los snapshots siguen sin garantía: nunca esperan a una retransmisión.
+ * El ID no pasa por acá: sale con el OK antes de que haya binario y lo cubre el
+ * reintento del handshake (ver {@link Protocolo}).
+ *
+ * Cada mensaje viaja dentro de un sobre FIABLE con secuencia u16 y, de paso, el ack de
+ * lo que llegó en el otro sentido: la última secuencia recibida y un bitfield con las 32
+ * anteriores. El mismo ack viaja también al final de las ENTRADA y, si no hay nada que
+ * lo lleve, en un FIABLE_ACK suelto después de {@link #DEMORA_ACK_NS}.
+ *
+ * Emisor: hasta {@link #VENTANA} mensajes en vuelo; se retransmiten cuando vence el RTO
+ * (srtt + 4·rttvar como en RFC 6298, duplicándose con cada reintento), y las muestras de
+ * RTT salen solo de mensajes que no se retransmitieron (Karn).
+ *
+ * Receptor: descarta duplicados y guarda los que llegan adelantados hasta que se llena
+ * el hueco, así cada mensaje se entrega una sola vez y en orden.
+ *
+ * No hace IO: {@link #atender} escribe lo que haya que (re)mandar y lo pasa a una
+ * {@link Salida}. Todos los métodos públicos son synchronized (el cliente lo usa desde
+ * el hilo de red y, para encolar, desde el de render).
+ */
+public final class CanalFiable {
+
+    /** Mensajes en vuelo por sentido; igual al ancho del bitfield de acks. */
+    public static final int VENTANA = 32;
+    /** Frame interno más largo que se acepta (magia+tipo+campos). */
+    public static final int MAX_CARGA = 128;
+
+    /** Cuánto puede esperar un ack a que algún frame lo lleve antes de salir suelto. */
+    public static final long DEMORA_ACK_NS = 30_000_000L;
+
+    private static final long RTO_INICIAL_NS = 250_000_000L;
+    private static final long RTO_MIN_NS = 40_000_000L;
+    private static final long RTO_MAX_NS = 2_000_000_000L;
+
+    /** Destino de los sobres ya armados (posición..límite). */
+    public interface Salida {
+        void enviar(ByteBuffer sobre);
+    }
+
+    /** Destino de los frames internos ya en orden, sin decodificar (ej. el server). */
+    public interface Entrega {
+        void entregar(ByteBuffer frame);
+    }
+
+    // ===== Emisor =====
+    private final byte[][] cargaEnviada = new byte[VENTANA][MAX_CARGA];
+    private final int[] largoEnviado = new int[VENTANA];
+    private final int[] secuenciaEnviada = new int[VENTANA];
+    private final boolean[] enVuelo = new boolean[VENTANA];
+    private final long[] enviadoNs = new long[VENTANA];
+    private final int[] reintentos = new int[VENTANA];
+    private int proxima = 0;   // próxima secuencia a asignar (u16)
+    private int cantEnVuelo = 0;
+    private float srttNs = -1f, rttvarNs;
+    private long rtoNs = RTO_INICIAL_NS;
+
+    // ===== Receptor =====
+    private final byte[][] cargaRecibida = new byte[VENTANA][MAX_CARGA];
+    private final ByteBuffer[] vistaRecibida = new ByteBuffer[VENTANA];
+    private final boolean[] guardado = new boolean[VENTANA];
+    private int esperada = 0;         // próxima a entregar (u16)
+    private boolean hayRecibidas = false;
+    private int ultimaRecibida;       // la más nueva vista (u16)
+    private int bitsRecibidas;        // bit i = llegó ultimaRecibida - 1 - i
+    private boolean ackPendiente = false;
+    private long ackPendienteDesdeNs;
+
+    private final ByteBuffer sobre = ByteBuffer.allocate(MAX_CARGA + CodecBinario.CABECERA_FIABLE)
+        .order(ByteOrder.LITTLE_ENDIAN);
+
+    // ===== Métricas =====
+    private volatile long enviados;
+    private volatile long retransmitidos;
+    private volatile long entregados;
+    private volatile long duplicados;
+    private volatile long adelantados;
+
+    public CanalFiable() {
+        for (int i = 0; i < VENTANA; i++) {
+            vistaRecibida[i] = ByteBuffer.wrap(cargaRecibida[i]).order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+
+    /** Sesión nueva: secuencias desde 0 en los dos sentidos y nada en vuelo. */
+    public synchronized void reiniciar() {
+        proxima = 0;
+        cantEnVuelo = 0;
+        for (int i = 0; i < VENTANA; i++) { enVuelo[i] = false; guardado[i] = false; }
+        srttNs = -1f;
+        rtoNs = RTO_INICIAL_NS;
+        esperada = 0;
+        hayRecibidas = false;
+        bitsRecibidas = 0;
+        ackPendiente = false;
+        notifyAll();
+    }
+
+    // =========================================================
+    // Emisor
+    // =========================================================
+
+    /**
+     * Encola un frame binario completo ([position, limit) de frame) para mandarlo
+     * confiable. Sale en el próximo {@link #atender}.
+     * @return false si la ventana está llena o el frame es demasiado largo
+     */
+    public synchronized boolean enviar(ByteBuffer frame) {
+        int largo = frame.remaining();
+        if (largo > MAX_CARGA || cantEnVuelo == VENTANA) return false;
+        int i = proxima & (VENTANA - 1);
+        if (enVuelo[i]) return false; // el más viejo sigue sin ack: no pisarlo
+        frame.duplicate().get(cargaEnviada[i], 0, largo);
+        largoEnviado[i] = largo;
+        secuenciaEnviada[i] = proxima;
+        enVuelo[i] = true;
+        enviadoNs[i] = 0L; // vencido: sale ya
+        reintentos[i] = -1;
+        cantEnVuelo++;
+        proxima = (proxima + 1) & 0xFFFF;
+        return true;
+    }
+
+    /**
+     * Manda lo que venció (nuevo o retransmisión) y el ack suelto si nadie lo llevó.
+     * @return nanoTime del próximo vencimiento, o ahora + 1 s si no hay nada pendiente
+     */
+    public synchronized long atender(long ahora, Salida salida) {
+        long proximo = ahora + 1_000_000_000L;
+        if (cantEnVuelo > 0) {
+            // de la más vieja a la más nueva para respetar el orden en el cable
+            int primera = (proxima - VENTANA) & 0xFFFF;
+            for (int k = 0; k < VENTANA; k++) {
+                int seq = (primera + k) & 0xFFFF;
+                int i = seq & (VENTANA - 1);
+                if (!enVuelo[i]) continue;
+                long vence = reintentos[i] < 0 ? ahora : enviadoNs[i] + rto(reintentos[i]);
+                if (ahora - vence >= 0) {
+                    if (reintentos[i] >= 0) retransmitidos++;
+                    else enviados++;
+                    reintentos[i]++;
+                    enviadoNs[i] = ahora;
+                    salida.enviar(armarSobre(seq, i));
+                    vence = ahora + rto(reintentos[i]);
+                }
+                if (vence - proximo < 0) proximo = vence;
+            }
+        }
+        if (ackPendiente) {
+            long vence = ackPendienteDesdeNs + DEMORA_ACK_NS;
+            if (ahora - vence >= 0) {
+                sobre.clear();
+                CodecBinario.escribirFiableAck(sobre, ultimaRecibida, bitsRecibidas);
+                ackPendiente = false;
+                sobre.flip();
+                salida.enviar(sobre);
+            } else if (vence - proximo < 0) {
+                proximo = vence;
+            }
+        }
+        return proximo;
+    }
+
+    /** RTO con backoff exponencial por reintento, con techo. */
+    private long rto(int reintentos) {
+        return Math.min(RTO_MAX_NS, rtoNs << Math.min(reintentos, 4));
+    }
+
+    private ByteBuffer armarSobre(int seq, int i) {
+        sobre.clear();
+        CodecBinario.escribirFiable(sobre, seq, hayRecibidas ? ultimaRecibida : 0xFFFF,
+            hayRecibidas ? bitsRecibidas : 0);
+        sobre.put(cargaEnviada[i], 0, largoEnviado[i]);
+        if (hayRecibidas) ackPendiente = false;
+        sobre.flip();
+        return sobre;
+    }
+
+    /** Ack que vino del otro lado (en un FIABLE, un FIABLE_ACK o al final de una ENTRADA). */
+    public synchronized void recibirAck(int ack, int bits, long ahora) {
+        confirmar(ack & 0xFFFF, ahora);
+        for (int b = 0; b < 32; b++) {
+            if ((bits & (1 << b)) != 0) confirmar((ack - 1 - b) & 0xFFFF, ahora);
+        }
+    }
+
+    /** Frame FIABLE_ACK completo ([position, limit) de buf). */
+    public boolean recibirAckSuelto(ByteBuffer buf, long ahora) {
+        buf.order(ByteOrder.LITTLE_ENDIAN);
+        int p = buf.position();
+        if (buf.limit() - p < Protocolo.HEADER + 6) return false;
+        recibirAck(buf.getShort(p + 2), buf.getInt(p + 4), ahora);
+        return true;
+    }
+
+    private void confirmar(int seq, long ahora) {
+        // solo secuencias ya asignadas y dentro de la ventana
+        int atras = (proxima - seq) & 0xFFFF;
+        if (atras == 0 || atras > VENTANA) return;
+        int i = seq & (VENTANA - 1);
+        if (!enVuelo[i] || secuenciaEnviada[i] != seq) return;
+        enVuelo[i] = false;
+        cantEnVuelo--;
+        if (reintentos[i] == 0) medirRtt(ahora - enviadoNs[i]);
+        if (cantEnVuelo == 0) notifyAll();
+    }
+
+    private void medirRtt(long muestra) {
+        if (srttNs < 0f) {
+            srttNs = muestra;
+            rttvarNs = muestra / 2f;
+        } else {
+            rttvarNs += (Math.abs(srttNs - muestra) - rttvarNs) / 4f;
+            srttNs += (muestra - srttNs) / 8f;
+        }
+        rtoNs = Math.max(RTO_MIN_NS, Math.min(RTO_MAX_NS, (long) (srttNs + 4f * rttvarNs)));
+    }
+
+    /** Espera (bloqueando) a que se confirme todo lo enviado, hasta `timeoutMs`. */
+    public synchronized boolean esperarConfirmacion(long timeoutMs) throws InterruptedException {
+        long limite = System.nanoTime() + timeoutMs * 1_000_000L;
+        while (cantEnVuelo > 0) {
+            long resta = limite - System.nanoTime();
+            if (resta <= 0) return false;
+            wait(Math.max(1, resta / 1_000_000L));
+        }
+        return true;
+    }
+
+    // =========================================================
+    // Receptor
+    // =========================================================
+
+    /**
+     * Procesa un sobre FIABLE ([position, limit) de buf) y entrega al receptor, en orden,
+     * todos los mensajes que quedaron listos.
+     * @return false si el sobre está mal formado
+     */
+    public synchronized boolean recibir(ByteBuffer buf, ReceptorMensajes r, long ahora) {
+        return recibir(buf, r, null, ahora);
+    }
+
+    /** Igual, pero los frames internos se pasan crudos: los decodifica quien recibe. */
+    public synchronized boolean recibir(ByteBuffer buf, Entrega entrega, long ahora) {
+        return recibir(buf, null, entrega, ahora);
+    }
+
+    private boolean recibir(ByteBuffer buf, ReceptorMensajes r, Entrega entrega, long ahora) {
+        buf.order(ByteOrder.LITTLE_ENDIAN);
+        int p = buf.position();
+        int largo = buf.limit() - p - CodecBinario.CABECERA_FIABLE;
+        if (largo < Protocolo.HEADER || largo > MAX_CARGA) return false;
+
+        int seq = buf.getShort(p + 2) & 0xFFFF;
+        recibirAck(buf.getShort(p + 4), buf.getInt(p + 6), ahora);
+
+        marcarRecibida(seq, ahora);
+        int adelanto = (seq - esperada) & 0xFFFF;
+        if (adelanto >= VENTANA) {        // ya entregado (o demasiado adelante)
+            duplicados++;
+            return true;
+        }
+        int i = seq & (VENTANA - 1);
+        if (guardado[i]) {
+            duplicados++;
+            return true;
+        }
+        for (int k = 0; k < largo; k++) cargaRecibida[i][k] = buf.get(p + CodecBinario.CABECERA_FIABLE + k);
+        vistaRecibida[i].limit(largo).position(0);
+        guardado[i] = true;
+        if (adelanto > 0) adelantados++;
+
+        // entregar todo lo contiguo desde la esperada
+        while (guardado[esperada & (VENTANA - 1)]) {
+            int j = esperada & (VENTANA - 1);
+            guardado[j] = false;
+            esperada = (esperada + 1) & 0xFFFF;
+            entregados++;
+            ByteBuffer m = vistaRecibida[j];
+            // un FIABLE adentro de otro no tiene sentido: se ignora
+            if (m.get(1) == Protocolo.FIABLE || m.get(1) == Protocolo.FIABLE_ACK) continue;
+            if (entrega != null) entrega.entregar(m);
+            else CodecBinario.decodificar(m, r);
+        }
+        return true;
+    }
+
+    private void marcarRecibida(int seq, long ahora) {
+        if (!hayRecibidas) {
+            hayRecibidas = true;
+            ultimaRecibida = seq;
+            bitsRecibidas = 0;
+        } else {
+            int d = (short) (seq - ultimaRecibida);
+            if (d > 0) {
+                // ojo: en Java x << 32 == x
+                bitsRecibidas = d >= 32 ? 0 : bitsRecibidas << d;
+                if (d <= 32) bitsRecibidas |= 1 << (d - 1);
+                ultimaRecibida = seq;
+            } else if (d < 0 && d >= -32) {
+                bitsRecibidas |= 1 << (-d - 1);
+            }
+        }
+        if (!ackPendiente) {
+            ackPendiente = true;
+            ackPendienteDesdeNs = ahora;
+        }
+    }
+
+    /**
+     * Agrega el ack (u16 última, u32 bits) al final de un frame que ya sale, si hay
+     * algo que confirmar.
+     * @return false si todavía no se recibió nada (no se escribió nada)
+     */
+    public synchronized boolean escribirAck(ByteBuffer out) {
+        if (!hayRecibidas) return false;
+        out.putShort((short) ultimaRecibida).putInt(bitsRecibidas);
+        ackPendiente = false;
+        return true;
+    }
+
+    // =========================================================
+    // Métricas
+    // =========================================================
+
+    /** Mensajes propios mandados por primera vez / retransmitidos. */
+    public long getEnviados() { return enviados; }
+    public long getRetransmitidos() { return retransmitidos; }
+
+    /** Mensajes del otro lado entregados (una vez cada uno), duplicados descartados y
+     *  llegados antes que uno anterior. */
+    public long getEntregados() { return entregados; }
+    public long getDuplicados() { return duplicados; }
+    public long getAdelantados() { return adelantados; }
+
+    public synchronized int getEnVuelo() { return cantEnVuelo; }
+
+    /** RTT suavizado en ms (de los acks del canal), o -1 sin muestras. */
+    public synchronized float getRttMs() { return srttNs < 0f ? -1f : srttNs / 1e6f; }
+
+    public synchronized float getRtoMs() { return rtoNs / 1e6f; }
+}
@@ -0,0 +1,460 @@
+package red;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Codec del protocolo binario. Todos los campos son little-endian y de largo fijo.
+ *
+ * <pre>
+ * header        : u8 magia|version, u8 tipo
+ * ID            : u8 id
+ * COMIENZA      : -
+ * MOVIMIENTO    : f32 x1, f32 y1, f32 x2, f32 y2, f32 ang1, f32 ang2 [, u32 tick [, u32 entrada, f32 velocidad]]
+ * GAS           : u8 id, f32 gas [, u32 tick]
+ * DINERO        : u8 id, i32 dinero [, u32 tick]
+ * VIDA          : u8 id, i16 vida [, u32 tick]
+ * DELIVERY      : u8 id, f32 x, f32 y, f32 w, f32 h, u8 peligroso, i32 recompensa
+ * DELIVERY_FIN  : u8 id
+ * HINT          : u8 id, u8 tipo
+ * GAS_HINT      : u8 id, u8 enGas
+ * GAME_OVER     : i8 ganador (id + 1; 3 = empate solo de a dos)
+ * RESET         : -
+ * OPPONENT_LEFT : -
+ * PONG          : [u32 secuencia, u64 marca [, i64 recibido, i64 respondido]]
+ *                 (eco del PING y los nanoTime del server al recibirlo y al contestar)
+ * SNAPSHOT      : u32 tick, u32 baseline, u32 entrada, u8 cantidad, y por jugador:
+ *                 u8 id, u8 campos, [f32 x, f32 y] [f32 ang] [f32 vel] [f32 gas]
+ *                 [i32 dinero] [i16 vida] [u8 hint] [u8 enGas]   (según los bits de campos;
+ *                 campos = 0: salió del área de interés, ver {@link Snapshot#SALE})
+ * SNAPSHOT_CUANTIZADO : igual que SNAPSHOT pero con [u16 x, u16 y] [u16 ang] (ver
+ *                 {@link Cuantizacion}; el ángulo usa 12 bits y los de arriba van en 0)
+ * TASA          : u8 aplicada, u8 maxima   (snapshots por segundo; va por FIABLE)
+ * INPUT         : u8 id, i16 keycode (negativo = soltada)
+ * PING          : u8 id, u32 secuencia, u64 marca   (marca = System.nanoTime del cliente)
+ * DISCONNECT    : u8 id
+ * ENTRADA       : u8 id, u32 secuencia, u8 cantidad, u8 teclas × cantidad
+ *                 (la de `secuencia` primero y después las anteriores; bits de FlujoEntradas)
+ *                 [, u16 ack, u32 bitsAck]   (ack del canal confiable, si hay)
+ * SNAPSHOT_ACK  : u8 id, u32 tick
+ * PEDIDO_TASA   : u8 id, u8 hz   (va por FIABLE)
+ * AREA          : u8 id, u16 minX, u16 minY, u16 maxX, u16 maxY   (px del mundo)
+ * FRAGMENTO     : u16 mensaje, u8 indice, u8 total, u16 offset, bytes del frame partido
+ *                 (offset = dónde van esos bytes dentro del frame completo)
+ *
+ * FIABLE        : u16 secuencia, u16 ack, u32 bitsAck, y un frame completo (magia, tipo, campos)
+ * FIABLE_ACK    : u16 ack, u32 bitsAck
+ *                 (ack = última secuencia FIABLE recibida del otro lado, bit i = llegó ack-1-i;
+ *                  el mismo par u16+u32 puede ir al final de una ENTRADA)
+ * </pre>
+ *
+ * El tick de los snapshots es opcional: si el frame termina antes, se entrega
+ * {@link ReceptorMensajes#SIN_TICK}. Lo mismo la entrada confirmada de Movimiento
+ * (que es propia de cada cliente: el server arma un frame por destinatario).
+ * En SNAPSHOT, baseline y entrada valen 0xFFFFFFFF cuando no hay (= SIN_TICK).
+ *
+ * Los métodos de lectura usan acceso absoluto sobre [position, limit) para no tocar
+ * el estado del buffer (el orden de bytes se pone en little-endian para leer y se
+ * devuelve como estaba); los de escritura avanzan la posición del buffer de salida.
+ */
+public final class CodecBinario {
+
+    private CodecBinario() {}
+
+    public static boolean esBinario(ByteBuffer buf) {
+        return buf.remaining() >= Protocolo.HEADER
+            && Protocolo.versionDeMagia(buf.get(buf.position())) > 0;
+    }
+
+    /**
+     * Decodifica un frame y lo entrega al receptor.
+     * @return false si el frame está truncado, es de otra versión o el tipo no se conoce.
+     */
+    public static boolean decodificar(ByteBuffer buf, ReceptorMensajes r) {
+        return decodificar(buf, r, null);
+    }
+
+    /**
+     * Igual, pero entendiendo SNAPSHOT_CUANTIZADO con la cuantización del mapa actual
+     * (sin ella, o null, esos frames dan false).
+     */
+    public static boolean decodificar(ByteBuffer buf, ReceptorMensajes r, Cuantizacion q) {
+        ByteOrder orden = buf.order();
+        buf.order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            return leer(buf, r, q);
+        } finally {
+            buf.order(orden);
+        }
+    }
+
+    private static boolean leer(ByteBuffer buf, ReceptorMensajes r, Cuantizacion q) {
+        int p = buf.position();
+        int len = buf.limit() - p;
+        if (len < Protocolo.HEADER) return false;
+        if (Protocolo.versionDeMagia(buf.get(p)) != Protocolo.VERSION) return false;
+
+        byte tipo = buf.get(p + 1);
+        int o = p + Protocolo.HEADER;
+
+        switch (tipo) {
+            case Protocolo.ID:
+                if (len < 3) return false;
+                r.onId(buf.get(o) & 0xFF);
+                return true;
+
+            case Protocolo.COMIENZA:
+                r.onComienza();
+                return true;
+
+            case Protocolo.MOVIMIENTO:
+                if (len < 2 + 24) return false;
+                r.onMovimiento(
+                    buf.getFloat(o), buf.getFloat(o + 4),
+                    buf.getFloat(o + 8), buf.getFloat(o + 12),
+                    buf.getFloat(o + 16), buf.getFloat(o + 20),
+                    tick(buf, o + 24, p + len),
+                    len >= 2 + 36 ? buf.getInt(o + 28) & 0xFFFFFFFFL : ReceptorMensajes.SIN_TICK,
+                    len >= 2 + 36 ? buf.getFloat(o + 32) : 0f);
+                return true;
+
+            case Protocolo.GAS:
+                if (len < 2 + 5) return false;
+                r.onGas(buf.get(o) & 0xFF, buf.getFloat(o + 1), tick(buf, o + 5, p + len));
+                return true;
+
+            case Protocolo.DINERO:
+                if (len < 2 + 5) return false;
+                r.onDinero(buf.get(o) & 0xFF, buf.getInt(o + 1), tick(buf, o + 5, p + len));
+                return true;
+
+            case Protocolo.VIDA:
+                if (len < 2 + 3) return false;
+                r.onVida(buf.get(o) & 0xFF, buf.getShort(o + 1), tick(buf, o + 3, p + len));
+                return true;
+
+            case Protocolo.DELIVERY:
+                if (len < 2 + 22) return false;
+                r.onDelivery(buf.get(o) & 0xFF,
+                    buf.getFloat(o + 1), buf.getFloat(o + 5),
+                    buf.getFloat(o + 9), buf.getFloat(o + 13),
+                    buf.get(o + 17) != 0, buf.getInt(o + 18));
+                return true;
+
+            case Protocolo.DELIVERY_FIN:
+                if (len < 3) return false;
+                r.onDeliveryFin(buf.get(o) & 0xFF);
+                return true;
+
+            case Protocolo.HINT:
+                if (len < 4) return false;
+                r.onHint(buf.get(o) & 0xFF, buf.get(o + 1) & 0xFF);
+                return true;
+
+            case Protocolo.GAS_HINT:
+                if (len < 4) return false;
+                r.onGasHint(buf.get(o) & 0xFF, buf.get(o + 1) != 0);
+                return true;
+
+            case Protocolo.GAME_OVER:
+                if (len < 3) return false;
+                r.onGameOver(buf.get(o));
+                return true;
+
+            case Protocolo.RESET:
+                r.onReset();
+                return true;
+
+            case Protocolo.OPPONENT_LEFT:
+                r.onOpponentLeft();
+                return true;
+
+            case Protocolo.PONG:
+                if (len >= 2 + 28) {
+                    r.onPong(buf.getInt(o) & 0xFFFFFFFFL, buf.getLong(o + 4), buf.getLong(o + 12), buf.getLong(o + 20));
+                } else if (len >= 2 + 12) {
+                    r.onPong(buf.getInt(o) & 0xFFFFFFFFL, buf.getLong(o + 4),
+                        ReceptorMensajes.SIN_TIEMPO, ReceptorMensajes.SIN_TIEMPO);
+                } else {
+                    r.onPong(ReceptorMensajes.SIN_TICK, 0L, ReceptorMensajes.SIN_TIEMPO, ReceptorMensajes.SIN_TIEMPO);
+                }
+                return true;
+
+            case Protocolo.SNAPSHOT:
+                return decodificarSnapshot(buf, o, p + len, r, null);
+
+            case Protocolo.SNAPSHOT_CUANTIZADO:
+                return q != null && decodificarSnapshot(buf, o, p + len, r, q);
+
+            case Protocolo.TASA:
+                if (len < 4) return false;
+                r.onTasa(buf.get(o) & 0xFF, buf.get(o + 1) & 0xFF);
+                return true;
+
+            default:
+                return false;
+        }
+    }
+
+    private static final int CABECERA_SNAPSHOT = 13;
+
+    /** Header + secuencia + ack + bits, antes del frame interno de un FIABLE. */
+    public static final int CABECERA_FIABLE = Protocolo.HEADER + 8;
+
+    /** Header + mensaje + índice + total + offset, antes del pedazo de frame de un FRAGMENTO. */
+    public static final int CABECERA_FRAGMENTO = Protocolo.HEADER + 6;
+
+    /** Tipo del frame (sin validar el resto), o -1 si no es binario de esta versión. */
+    public static int tipo(ByteBuffer buf) {
+        int p = buf.position();
+        if (buf.limit() - p < Protocolo.HEADER) return -1;
+        if (Protocolo.versionDeMagia(buf.get(p)) != Protocolo.VERSION) return -1;
+        return buf.get(p + 1);
+    }
+
+    /** q != null: posición y ángulo cuantizados (SNAPSHOT_CUANTIZADO). */
+    private static boolean decodificarSnapshot(ByteBuffer buf, int o, int fin, ReceptorMensajes r, Cuantizacion q) {
+        if (fin - o < CABECERA_SNAPSHOT) return false;
+        int cantidad = buf.get(o + 12) & 0xFF;
+        boolean cuantizado = q != null;
+
+        // primero validamos el largo: un frame truncado no tiene que dejar medio estado armado
+        int k = o + CABECERA_SNAPSHOT;
+        for (int i = 0; i < cantidad; i++) {
+            if (k + 2 > fin) return false;
+            k += 2 + largoCampos(buf.get(k + 1) & 0xFF, cuantizado);
+        }
+        if (k > fin) return false;
+
+        long tick = buf.getInt(o) & 0xFFFFFFFFL;
+        r.onSnapshot(tick, opcional(buf.getInt(o + 4)), opcional(buf.getInt(o + 8)));
+
+        k = o + CABECERA_SNAPSHOT;
+        for (int i = 0; i < cantidad; i++) {
+            int id = buf.get(k) & 0xFF;
+            int c = buf.get(k + 1) & 0xFF;
+            k += 2;
+            float x = 0, y = 0, ang = 0, vel = 0, gas = 0;
+            int dinero = 0, vida = 0, hint = 0;
+            boolean enGas = false;
+            if (cuantizado) {
+                if ((c & Snapshot.POSICION) != 0) {
+                    x = q.decodificarX(buf.getShort(k) & 0xFFFF);
+                    y = q.decodificarY(buf.getShort(k + 2) & 0xFFFF);
+                    k += 4;
+                }
+                if ((c & Snapshot.ANGULO) != 0) { ang = Cuantizacion.decodificarAngulo(buf.getShort(k)); k += 2; }
+            } else {
+                if ((c & Snapshot.POSICION) != 0) { x = buf.getFloat(k); y = buf.getFloat(k + 4); k += 8; }
+                if ((c & Snapshot.ANGULO) != 0) { ang = buf.getFloat(k); k += 4; }
+            }
+            if ((c & Snapshot.VELOCIDAD) != 0) { vel = buf.getFloat(k); k += 4; }
+            if ((c & Snapshot.GAS) != 0) { gas = buf.getFloat(k); k += 4; }
+            if ((c & Snapshot.DINERO) != 0) { dinero = buf.getInt(k); k += 4; }
+            if ((c & Snapshot.VIDA) != 0) { vida = buf.getShort(k); k += 2; }
+            if ((c & Snapshot.HINT) != 0) { hint = buf.get(k) & 0xFF; k += 1; }
+            if ((c & Snapshot.GAS_HINT) != 0) { enGas = buf.get(k) != 0; k += 1; }
+            r.onSnapshotJugador(id, c, x, y, ang, vel, gas, dinero, vida, hint, enGas);
+        }
+        r.onSnapshotFin(tick);
+        return true;
+    }
+
+    /** Bytes que ocupan los campos presentes en la máscara. */
+    public static int largoCampos(int c) {
+        return largoCampos(c, false);
+    }
+
+    /** Lo mismo en SNAPSHOT_CUANTIZADO (cuantizado = true). */
+    public static int largoCampos(int c, boolean cuantizado) {
+        int n = 0;
+        if ((c & Snapshot.POSICION) != 0) n += cuantizado ? 4 : 8;
+        if ((c & Snapshot.ANGULO) != 0) n += cuantizado ? 2 : 4;
+        if ((c & Snapshot.VELOCIDAD) != 0) n += 4;
+        if ((c & Snapshot.GAS) != 0) n += 4;
+        if ((c & Snapshot.DINERO) != 0) n += 4;
+        if ((c & Snapshot.VIDA) != 0) n += 2;
+        if ((c & Snapshot.HINT) != 0) n += 1;
+        if ((c & Snapshot.GAS_HINT) != 0) n += 1;
+        return n;
+    }
+
+    private static long opcional(int v) {
+        return v == -1 ? ReceptorMensajes.SIN_TICK : v & 0xFFFFFFFFL;
+    }
+
+    private static long tick(ByteBuffer buf, int o, int fin) {
+        return o + 4 <= fin ? buf.getInt(o) & 0xFFFFFFFFL : ReceptorMensajes.SIN_TICK;
+    }
+
+    // =========================================================
+    // Escritura
+    // =========================================================
+
+    private static ByteBuffer header(ByteBuffer out, byte tipo) {
+        out.order(ByteOrder.LITTLE_ENDIAN);
+        out.put(Protocolo.magia(Protocolo.VERSION));
+        out.put(tipo);
+        return out;
+    }
+
+    // ----- server -> cliente -----
+
+    public static void escribirId(ByteBuffer out, int id) {
+        header(out, Protocolo.ID).put((byte) id);
+    }
+
+    public static void escribirVacio(ByteBuffer out, byte tipo) {
+        header(out, tipo);
+    }
+
+    public static void escribirMovimiento(ByteBuffer out, float x1, float y1, float x2, float y2, float ang1, float ang2, long tick) {
+        header(out, Protocolo.MOVIMIENTO)
+            .putFloat(x1).putFloat(y1)
+            .putFloat(x2).putFloat(y2)
+            .putFloat(ang1).putFloat(ang2)
+            .putInt((int) tick);
+    }
+
+    /** Movimiento con la última entrada aplicada y la velocidad del destinatario. */
+    public static void escribirMovimiento(ByteBuffer out, float x1, float y1, float x2, float y2, float ang1, float ang2,
+                                          long tick, long entrada, float velocidad) {
+        escribirMovimiento(out, x1, y1, x2, y2, ang1, ang2, tick);
+        out.putInt((int) entrada).putFloat(velocidad);
+    }
+
+    public static void escribirGas(ByteBuffer out, int id, float gas, long tick) {
+        header(out, Protocolo.GAS).put((byte) id).putFloat(gas).putInt((int) tick);
+    }
+
+    public static void escribirDinero(ByteBuffer out, int id, int dinero, long tick) {
+        header(out, Protocolo.DINERO).put((byte) id).putInt(dinero).putInt((int) tick);
+    }
+
+    public static void escribirVida(ByteBuffer out, int id, int vida, long tick) {
+        header(out, Protocolo.VIDA).put((byte) id).putShort((short) vida).putInt((int) tick);
+    }
+
+    public static void escribirDelivery(ByteBuffer out, int id, float x, float y, float w, float h, boolean peligroso, int recompensa) {
+        header(out, Protocolo.DELIVERY).put((byte) id)
+            .putFloat(x).putFloat(y).putFloat(w).putFloat(h)
+            .put((byte) (peligroso ? 1 : 0)).putInt(recompensa);
+    }
+
+    public static void escribirDeliveryFin(ByteBuffer out, int id) {
+        header(out, Protocolo.DELIVERY_FIN).put((byte) id);
+    }
+
+    public static void escribirHint(ByteBuffer out, int id, int tipo) {
+        header(out, Protocolo.HINT).put((byte) id).put((byte) tipo);
+    }
+
+    public static void escribirGasHint(ByteBuffer out, int id, boolean enGas) {
+        header(out, Protocolo.GAS_HINT).put((byte) id).put((byte) (enGas ? 1 : 0));
+    }
+
+    public static void escribirPong(ByteBuffer out, long secuencia, long marca, long recibido, long respondido) {
+        header(out, Protocolo.PONG).putInt((int) secuencia).putLong(marca).putLong(recibido).putLong(respondido);
+    }
+
+    public static void escribirGameOver(ByteBuffer out, int ganador) {
+        header(out, Protocolo.GAME_OVER).put((byte) ganador);
+    }
+
+    public static void escribirTasa(ByteBuffer out, int aplicada, int maxima) {
+        header(out, Protocolo.TASA).put((byte) aplicada).put((byte) maxima);
+    }
+
+    /** Cabecera de FRAGMENTO; seguir con los bytes del frame desde offset. */
+    public static void escribirFragmento(ByteBuffer out, int mensaje, int indice, int total, int offset) {
+        header(out, Protocolo.FRAGMENTO).putShort((short) mensaje).put((byte) indice).put((byte) total)
+            .putShort((short) offset);
+    }
+
+    /** Cabecera de SNAPSHOT; seguir con exactamente `cantidad` {@link #escribirSnapshotJugador}. */
+    public static void escribirSnapshot(ByteBuffer out, long tick, long baseline, long entrada, int cantidad) {
+        header(out, Protocolo.SNAPSHOT)
+            .putInt((int) tick).putInt((int) baseline).putInt((int) entrada)
+            .put((byte) cantidad);
+    }
+
+    /** Cabecera de SNAPSHOT_CUANTIZADO; seguir con `cantidad` jugadores escritos con la misma q. */
+    public static void escribirSnapshotCuantizado(ByteBuffer out, long tick, long baseline, long entrada, int cantidad) {
+        header(out, Protocolo.SNAPSHOT_CUANTIZADO)
+            .putInt((int) tick).putInt((int) baseline).putInt((int) entrada)
+            .put((byte) cantidad);
+    }
+
+    public static void escribirSnapshotJugador(ByteBuffer out, Snapshot s, int id, int campos) {
+        escribirSnapshotJugador(out, s, id, campos, null);
+    }
+
+    /** Con q != null, posición y ángulo cuantizados (para SNAPSHOT_CUANTIZADO). */
+    public static void escribirSnapshotJugador(ByteBuffer out, Snapshot s, int id, int campos, Cuantizacion q) {
+        out.put((byte) id).put((byte) campos);
+        if (q != null) {
+            if ((campos & Snapshot.POSICION) != 0) {
+                out.putShort((short) q.codificarX(s.x[id])).putShort((short) q.codificarY(s.y[id]));
+            }
+            if ((campos & Snapshot.ANGULO) != 0) out.putShort((short) Cuantizacion.codificarAngulo(s.angulo[id]));
+        } else {
+            if ((campos & Snapshot.POSICION) != 0) out.putFloat(s.x[id]).putFloat(s.y[id]);
+            if ((campos & Snapshot.ANGULO) != 0) out.putFloat(s.angulo[id]);
+        }
+        if ((campos & Snapshot.VELOCIDAD) != 0) out.putFloat(s.velocidad[id]);
+        if ((campos & Snapshot.GAS) != 0) out.putFloat(s.gas[id]);
+        if ((campos & Snapshot.DINERO) != 0) out.putInt(s.dinero[id]);
+        if ((campos & Snapshot.VIDA) != 0) out.putShort((short) s.vida[id]);
+        if ((campos & Snapshot.HINT) != 0) out.put((byte) s.hint[id]);
+        if ((campos & Snapshot.GAS_HINT) != 0) out.put((byte) (s.gasHint[id] ? 1 : 0));
+    }
+
+    // ----- cliente -> server -----
+
+    public static void escribirInput(ByteBuffer out, int id, int keycode) {
+        header(out, Protocolo.INPUT).put((byte) id).putShort((short) keycode);
+    }
+
+    public static void escribirPing(ByteBuffer out, int id, int secuencia, long marca) {
+        header(out, Protocolo.PING).put((byte) id).putInt(secuencia).putLong(marca);
+    }
+
+    public static void escribirDisconnect(ByteBuffer out, int id) {
+        header(out, Protocolo.DISCONNECT).put((byte) id);
+    }
+
+    /** Cabecera de ENTRADA; seguir con `cantidad` bytes de teclas (ver {@link FlujoEntradas}). */
+    public static void escribirEntrada(ByteBuffer out, int id, int secuencia, int cantidad) {
+        header(out, Protocolo.ENTRADA).put((byte) id).putInt(secuencia).put((byte) cantidad);
+    }
+
+    public static void escribirSnapshotAck(ByteBuffer out, int id, long tick) {
+        header(out, Protocolo.SNAPSHOT_ACK).put((byte) id).putInt((int) tick);
+    }
+
+    public static void escribirPedidoTasa(ByteBuffer out, int id, int hz) {
+        header(out, Protocolo.PEDIDO_TASA).put((byte) id).put((byte) hz);
+    }
+
+    /** Coordenadas recortadas a 0..65535. */
+    public static void escribirArea(ByteBuffer out, int id, int minX, int minY, int maxX, int maxY) {
+        header(out, Protocolo.AREA).put((byte) id)
+            .putShort((short) u16(minX)).putShort((short) u16(minY))
+            .putShort((short) u16(maxX)).putShort((short) u16(maxY));
+    }
+
+    private static int u16(int v) {
+        return Math.max(0, Math.min(0xFFFF, v));
+    }
+
+    // ----- canal confiable (los dos sentidos) -----
+
+    /** Cabecera de FIABLE; seguir con el frame interno completo. */
+    public static void escribirFiable(ByteBuffer out, int secuencia, int ack, int bitsAck) {
+        header(out, Protocolo.FIABLE).putShort((short) secuencia).putShort((short) ack).putInt(bitsAck);
+    }
+
+    public static void escribirFiableAck(ByteBuffer out, int ack, int bitsAck) {
+        header(out, Protocolo.FIABLE_ACK).putShort((short) ack).putInt(bitsAck);
+    }
+}
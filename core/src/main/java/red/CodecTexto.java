@@ -0,0 +1,395 @@
+package red;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Parser del protocolo de texto histórico ("Cabeza:campo:campo...").
+ * Se mantiene para hablar con servers que no negocian el formato binario.
+ *
+ * Trabaja directo sobre el rango de bytes del datagrama: los campos se marcan con
+ * índices en arrays preasignados y los números se leen sin pasar por String,
+ * así el camino caliente (Movimiento, Gas, Dinero, Vida, Pong) no genera basura.
+ * No es thread-safe: cada hilo receptor usa su propia instancia.
+ */
+public final class CodecTexto {
+
+    private static final int MAX_CAMPOS = 16;
+
+    private static final byte[] PONG          = ascii("Pong");
+    private static final byte[] OK            = ascii("OK");
+    private static final byte[] ID            = ascii("ID");
+    private static final byte[] COMIENZA      = ascii("Comienza");
+    private static final byte[] MOVIMIENTO    = ascii("Movimiento");
+    private static final byte[] MIRANDO       = ascii(Protocolo.MIRANDO);
+    private static final byte[] GAS           = ascii("Gas");
+    private static final byte[] DINERO        = ascii("Dinero");
+    private static final byte[] VIDA          = ascii("Vida");
+    private static final byte[] DELIVERY      = ascii("Delivery");
+    private static final byte[] DELIVERY_FIN  = ascii("DeliveryFin");
+    private static final byte[] HINT          = ascii("Hint");
+    private static final byte[] GAS_HINT      = ascii("GasHint");
+    private static final byte[] GAME_OVER     = ascii("GameOver");
+    private static final byte[] RESET         = ascii("Reset");
+    private static final byte[] REANUDADA     = ascii(Protocolo.REANUDADA);
+    private static final byte[] SERVIDOR      = ascii(Protocolo.SERVIDOR);
+    private static final byte[] OPPONENT_LEFT = ascii("OpponentLeft");
+
+    /** Potencias de 10 exactas en double (hasta 1e22). */
+    private static final double[] POT10 = new double[23];
+    static {
+        POT10[0] = 1d;
+        for (int i = 1; i < POT10.length; i++) POT10[i] = POT10[i - 1] * 10d;
+    }
+
+    // ===== Estado reutilizable =====
+    private final int[] ini = new int[MAX_CAMPOS];
+    private final int[] fin = new int[MAX_CAMPOS];
+    private int campos;
+    private ByteBuffer buf;
+
+    /** @return false si el mensaje está vacío, mal formado o no se reconoce. */
+    public boolean decodificar(ByteBuffer buffer, ReceptorMensajes r) {
+        this.buf = buffer;
+        try {
+            return despachar(r);
+        } finally {
+            this.buf = null;
+        }
+    }
+
+    private boolean despachar(ReceptorMensajes r) {
+        if (!separar()) return false;
+
+        switch (buf.get(ini[0])) {
+            case 'P':
+                // Pong[:secuencia:marca[:recibido:respondido]]
+                if (cabeza(PONG)) {
+                    long sinT = ReceptorMensajes.SIN_TIEMPO;
+                    if (campos >= 5) r.onPong(tick(1), largo(2), largo(3), largo(4));
+                    else if (campos >= 3) r.onPong(tick(1), largo(2), sinT, sinT);
+                    else r.onPong(ReceptorMensajes.SIN_TICK, 0L, sinT, sinT);
+                    return true;
+                }
+                return false;
+
+            case 'O':
+                if (cabeza(OK)) {
+                    // "OK" = server viejo (solo texto), "OK:n" = ofrece binario versión n,
+                    // "OK:n:ancho:alto" = además cuantiza posiciones sobre ese mapa
+                    boolean conMapa = campos >= 4;
+                    r.onOk(campos >= 2 ? entero(1) : 0, conMapa ? entero(2) : 0, conMapa ? entero(3) : 0);
+                    return true;
+                }
+                if (cabeza(OPPONENT_LEFT)) { r.onOpponentLeft(); return true; }
+                return false;
+
+            case 'I':
+                // ID:slot[:token]
+                if (!cabeza(ID) || campos < 2) return false;
+                if (campos >= 3) r.onSesion(largo(2));
+                r.onId(entero(1));
+                return true;
+
+            case 'C':
+                if (cabeza(COMIENZA)) { r.onComienza(); return true; }
+                return false;
+
+            case 'M':
+                // Mirando:v:ancho:alto (espectador) | Movimiento:pos1:pos2:ang1:ang2[:tick[:entrada:velocidad]]
+                if (cabeza(MIRANDO) && campos >= 4) { r.onMirando(entero(1), entero(2), entero(3)); return true; }
+                if (!cabeza(MOVIMIENTO) || campos < 5) return false;
+                int coma1 = coma(1);
+                int coma2 = coma(2);
+                if (coma1 < 0 || coma2 < 0) return false;
+                r.onMovimiento(
+                    numero(inicioVector(1), coma1), numero(coma1 + 1, finVector(1)),
+                    numero(inicioVector(2), coma2), numero(coma2 + 1, finVector(2)),
+                    decimal(3), decimal(4), tick(5),
+                    campos >= 8 ? tick(6) : ReceptorMensajes.SIN_TICK,
+                    campos >= 8 ? decimal(7) : 0f);
+                return true;
+
+            case 'G':
+                // Gas:valor:id[:tick] | GasHint:id:0|1 | GameOver:ganador
+                if (cabeza(GAS) && campos >= 3) { r.onGas(entero(2), decimal(1), tick(3)); return true; }
+                if (cabeza(GAS_HINT) && campos >= 3) { r.onGasHint(entero(1), esUno(2)); return true; }
+                if (cabeza(GAME_OVER) && campos >= 2) { r.onGameOver(entero(1)); return true; }
+                return false;
+
+            case 'D':
+                // Dinero:valor:id[:tick] | Delivery:x,y,w,h:dangerous:reward:id | DeliveryFin:id
+                if (cabeza(DINERO) && campos >= 3) { r.onDinero(entero(2), entero(1), tick(3)); return true; }
+                if (cabeza(DELIVERY) && campos >= 5) return delivery(r);
+                if (cabeza(DELIVERY_FIN) && campos >= 2) { r.onDeliveryFin(entero(1)); return true; }
+                return false;
+
+            case 'V':
+                // Vida:valor:id[:tick]
+                if (cabeza(VIDA) && campos >= 3) { r.onVida(entero(2), entero(1), tick(3)); return true; }
+                return false;
+
+            case 'H':
+                // Hint:id:tipo
+                if (cabeza(HINT) && campos >= 3) { r.onHint(entero(1), entero(2)); return true; }
+                return false;
+
+            case 'R':
+                // Reset | Reanudada:v:slot
+                if (cabeza(RESET)) { r.onReset(); return true; }
+                if (cabeza(REANUDADA) && campos >= 3) { r.onReanudada(entero(1), entero(2)); return true; }
+                return false;
+
+            case 'S':
+                // Servidor:seq:marca[:version[:jugadores]]
+                if (cabeza(SERVIDOR) && campos >= 3) {
+                    r.onServidor(tick(1), largo(2), campos >= 4 ? entero(3) : 0, campos >= 5 ? entero(4) : -1);
+                    return true;
+                }
+                return false;
+
+            default:
+                // ignorar mensajes desconocidos
+                return false;
+        }
+    }
+
+    private boolean delivery(ReceptorMensajes r) {
+        int a = ini[1], b = fin[1];
+        int c1 = indexOf(',', a, b);
+        if (c1 < 0) return false;
+        int c2 = indexOf(',', c1 + 1, b);
+        if (c2 < 0) return false;
+        int c3 = indexOf(',', c2 + 1, b);
+        if (c3 < 0) return false;
+
+        r.onDelivery(entero(4),
+            numero(a, c1), numero(c1 + 1, c2), numero(c2 + 1, c3), numero(c3 + 1, b),
+            esUno(2), entero(3));
+        return true;
+    }
+
+    // =========================================================
+    // Tokenizado
+    // =========================================================
+
+    /** Recorta espacios (como String.trim) y marca los campos separados por ':'. */
+    private boolean separar() {
+        int a = buf.position();
+        int b = buf.limit();
+        while (a < b && (buf.get(a) & 0xFF) <= ' ') a++;
+        while (b > a && (buf.get(b - 1) & 0xFF) <= ' ') b--;
+        if (a == b) return false;
+
+        campos = 0;
+        int inicio = a;
+        for (int i = a; i < b; i++) {
+            if (buf.get(i) == ':') {
+                if (!marcar(inicio, i)) return false;
+                inicio = i + 1;
+            }
+        }
+        return marcar(inicio, b);
+    }
+
+    private boolean marcar(int a, int b) {
+        if (campos == MAX_CAMPOS) return false;
+        ini[campos] = a;
+        fin[campos] = b;
+        campos++;
+        return true;
+    }
+
+    private boolean cabeza(byte[] nombre) {
+        int a = ini[0];
+        if (fin[0] - a != nombre.length) return false;
+        for (int i = 0; i < nombre.length; i++) {
+            if (buf.get(a + i) != nombre[i]) return false;
+        }
+        return true;
+    }
+
+    private boolean esUno(int campo) {
+        return fin[campo] - ini[campo] == 1 && buf.get(ini[campo]) == '1';
+    }
+
+    private int indexOf(char c, int a, int b) {
+        for (int i = a; i < b; i++) if (buf.get(i) == c) return i;
+        return -1;
+    }
+
+    // ----- "Vector2(x,y)" -----
+
+    private int inicioVector(int campo) {
+        int p = indexOf('(', ini[campo], fin[campo]);
+        return p < 0 ? ini[campo] : p + 1;
+    }
+
+    private int finVector(int campo) {
+        int p = indexOf(')', ini[campo], fin[campo]);
+        return p < 0 ? fin[campo] : p;
+    }
+
+    private int coma(int campo) {
+        return indexOf(',', ini[campo], fin[campo]);
+    }
+
+    // =========================================================
+    // Números
+    // =========================================================
+
+    private int entero(int campo) {
+        return entero(ini[campo], fin[campo]);
+    }
+
+    private float decimal(int campo) {
+        return numero(ini[campo], fin[campo]);
+    }
+
+    /** Tick opcional (u32) al final del mensaje. */
+    private long tick(int campo) {
+        if (campo >= campos) return ReceptorMensajes.SIN_TICK;
+        long v = 0;
+        int a = ini[campo], b = fin[campo];
+        if (a == b || b - a > 10) throw new NumberFormatException("tick inválido");
+        for (int i = a; i < b; i++) {
+            int d = buf.get(i) - '0';
+            if (d < 0 || d > 9) throw new NumberFormatException("tick inválido");
+            v = v * 10 + d;
+        }
+        return v & 0xFFFFFFFFL;
+    }
+
+    /** Entero largo con signo (ej. la marca de tiempo del Pong). */
+    private long largo(int campo) {
+        int a = ini[campo], b = fin[campo];
+        boolean neg = a < b && buf.get(a) == '-';
+        if (neg) a++;
+        if (a == b || b - a > 19) throw new NumberFormatException("largo inválido");
+        long v = 0;
+        for (int i = a; i < b; i++) {
+            int d = buf.get(i) - '0';
+            if (d < 0 || d > 9) throw new NumberFormatException("largo inválido");
+            v = v * 10 + d;
+        }
+        return neg ? -v : v;
+    }
+
+    private int entero(int a, int b) {
+        while (a < b && buf.get(a) == ' ') a++;
+        while (b > a && buf.get(b - 1) == ' ') b--;
+        if (a == b) throw new NumberFormatException("campo vacío");
+
+        boolean neg = false;
+        byte c = buf.get(a);
+        if (c == '-' || c == '+') {
+            neg = c == '-';
+            a++;
+        }
+        if (a == b) throw new NumberFormatException("sin dígitos");
+
+        long v = 0;
+        for (int i = a; i < b; i++) {
+            int d = buf.get(i) - '0';
+            if (d < 0 || d > 9) throw new NumberFormatException("entero inválido");
+            v = v * 10 + d;
+            if (v > 0x80000000L) throw new NumberFormatException("entero fuera de rango");
+        }
+        if (neg) v = -v;
+        if (v > Integer.MAX_VALUE) throw new NumberFormatException("entero fuera de rango");
+        return (int) v;
+    }
+
+    /**
+     * Decimal en el formato de Float.toString / String.valueOf(float):
+     * signo, dígitos, punto opcional y exponente opcional ("1.5E-4").
+     * Casos raros (NaN, Infinity, mantisas enormes) caen al parser de la JDK.
+     *
+     * Da lo mismo que Float.parseFloat: con la mantisa exacta en double (hasta 2^53) y una
+     * potencia de 10 exacta, la cuenta es un solo redondeo. El paso a float redondea otra
+     * vez, y eso solo puede diferir si el double cayó justo entre dos float; ahí decide
+     * la JDK.
+     */
+    private float numero(int a, int b) {
+        while (a < b && buf.get(a) == ' ') a++;
+        while (b > a && buf.get(b - 1) == ' ') b--;
+        if (a == b) throw new NumberFormatException("campo vacío");
+
+        int i = a;
+        boolean neg = false;
+        byte c = buf.get(i);
+        if (c == '-' || c == '+') {
+            neg = c == '-';
+            i++;
+        }
+
+        long mantisa = 0;
+        int digitos = 0;
+        int escala = 0;
+        boolean punto = false;
+        boolean alguno = false;
+
+        for (; i < b; i++) {
+            c = buf.get(i);
+            if (c >= '0' && c <= '9') {
+                alguno = true;
+                if (digitos < 18) {
+                    mantisa = mantisa * 10 + (c - '0');
+                    if (mantisa != 0) digitos++;
+                    if (punto) escala--;
+                } else if (!punto) {
+                    escala++;
+                }
+            } else if (c == '.' && !punto) {
+                punto = true;
+            } else {
+                break;
+            }
+        }
+        if (!alguno) return lento(a, b);
+
+        if (i < b) {
+            if (c != 'E' && c != 'e') return lento(a, b);
+            escala += entero(i + 1, b);
+        }
+
+        if (mantisa > 1L << 53) return lento(a, b);
+
+        double v = mantisa;
+        if (escala < 0) {
+            if (-escala >= POT10.length) return lento(a, b);
+            v /= POT10[-escala];
+        } else if (escala > 0) {
+            if (escala >= POT10.length) return lento(a, b);
+            v *= POT10[escala];
+        }
+        float f = (float) v;
+        if (v != f) {
+            if (Float.isInfinite(f)) return lento(a, b);
+            float otro = v > f ? Math.nextUp(f) : Math.nextDown(f);
+            if (((double) f + otro) / 2d == v) return lento(a, b);
+        }
+        return neg ? -f : f;
+    }
+
+    private float lento(int a, int b) {
+        byte[] raw = new byte[b - a];
+        for (int i = 0; i < raw.length; i++) raw[i] = buf.get(a + i);
+        return Float.parseFloat(new String(raw, StandardCharsets.US_ASCII));
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /** "Vector2(x,y)" -> {x, y}. Versión con String, para usos fuera del camino caliente. */
+    public static float[] parseVector(String s) {
+        s = s.replace("Vector2", "")
+            .replace("(", "")
+            .replace(")", "")
+            .trim();
+
+        String[] parts = s.split(",");
+        return new float[]{ Float.parseFloat(parts[0]), Float.parseFloat(parts[1]) };
+    }
+}
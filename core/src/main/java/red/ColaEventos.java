@@ -0,0 +1,32 @@
+package red;
+
+/**
+ * Cola circular single-producer / single-consumer entre el hilo de red (productor)
+ * y el hilo de render (consumidor).
+ *
+ * Los {@link Evento} se preasignan una vez y se reciclan (ver {@link ColaSpsc}).
+ */
+public final class ColaEventos extends ColaSpsc<ColaEventos.Evento> {
+
+    /** Registro reutilizable. El significado de cada campo depende del tipo. */
+    public static final class Evento {
+        public byte tipo;
+        public int id;
+        public int entero;
+        public boolean flag;
+        public float f0, f1, f2, f3, f4, f5, f6;
+        public long secuencia;
+        public long nanos; // System.nanoTime() de recepción
+
+        public void copiarDe(Evento o) {
+            tipo = o.tipo; id = o.id; entero = o.entero; flag = o.flag; nanos = o.nanos;
+            f0 = o.f0; f1 = o.f1; f2 = o.f2; f3 = o.f3; f4 = o.f4; f5 = o.f5; f6 = o.f6;
+            secuencia = o.secuencia;
+        }
+    }
+
+    /** @param capacidad se redondea a la siguiente potencia de 2 */
+    public ColaEventos(int capacidad) {
+        super(capacidad, Evento::new);
+    }
+}
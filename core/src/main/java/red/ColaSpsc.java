@@ -0,0 +1,109 @@
+package red;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Cola circular single-producer / single-consumer de elementos preasignados.
+ *
+ * El productor pide un slot con {@link #reservar()}, lo completa y lo confirma con
+ * {@link #publicar()}; el consumidor los recorre con {@link #siguiente()} /
+ * {@link #liberar()}. Sin locks ni objetos nuevos por elemento. Si la cola está llena
+ * el elemento se descarta y se cuenta en {@link #getDescartados()}.
+ */
+public class ColaSpsc<T> {
+
+    private final Object[] slots;
+    private final int mascara;
+
+    // Índices monótonos: escritura solo la mueve el productor, lectura solo el consumidor
+    private final AtomicLong escritura = new AtomicLong();
+    private final AtomicLong lectura = new AtomicLong();
+    private long lecturaCache; // copia local del productor para no leer el volatile siempre
+
+    // ===== Métricas (cada una la escribe un solo hilo) =====
+    private volatile long publicados;
+    private volatile long descartados;
+    private volatile int profundidadMaxima;
+
+    /** @param capacidad se redondea a la siguiente potencia de 2 */
+    public ColaSpsc(int capacidad, Supplier<T> fabrica) {
+        int cap = Integer.highestOneBit(Math.max(2, capacidad - 1)) << 1;
+        slots = new Object[cap];
+        for (int i = 0; i < cap; i++) slots[i] = fabrica.get();
+        mascara = cap - 1;
+    }
+
+    // =========================================================
+    // Productor (hilo de red)
+    // =========================================================
+
+    /** @return el slot a completar, o null si la cola está llena (elemento descartado). */
+    public T reservar() {
+        long w = escritura.get();
+        if (w - lecturaCache >= slots.length) {
+            lecturaCache = lectura.get();
+            if (w - lecturaCache >= slots.length) {
+                descartados++;
+                return null;
+            }
+        }
+        return elemento(w);
+    }
+
+    /** Hace visible al consumidor el slot devuelto por el último {@link #reservar()}. */
+    public void publicar() {
+        long w = escritura.get() + 1;
+        escritura.lazySet(w);
+        publicados++;
+
+        int prof = (int) (w - lectura.get());
+        if (prof > profundidadMaxima) profundidadMaxima = prof;
+    }
+
+    // =========================================================
+    // Consumidor (hilo de render)
+    // =========================================================
+
+    /** @return el próximo evento publicado, o null si no hay. No lo consume. */
+    public T siguiente() {
+        long r = lectura.get();
+        if (r == escritura.get()) return null;
+        return elemento(r);
+    }
+
+    /** Devuelve al productor el slot obtenido con {@link #siguiente()}. */
+    public void liberar() {
+        lectura.lazySet(lectura.get() + 1);
+    }
+
+    @SuppressWarnings("unchecked")
+    private T elemento(long i) {
+        return (T) slots[(int) i & mascara];
+    }
+
+    // =========================================================
+    // Métricas
+    // =========================================================
+
+    public int getCapacidad() {
+        return slots.length;
+    }
+
+    /** Elementos publicados y todavía no consumidos. */
+    public int getProfundidad() {
+        return (int) (escritura.get() - lectura.get());
+    }
+
+    public int getProfundidadMaxima() {
+        return profundidadMaxima;
+    }
+
+    public long getPublicados() {
+        return publicados;
+    }
+
+    public long getDescartados() {
+        return descartados;
+    }
+}
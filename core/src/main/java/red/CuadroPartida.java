@@ -0,0 +1,145 @@
+package red;
+
+import java.util.Arrays;
+
+/**
+ * Estado de todos los jugadores en un instante de una partida grabada, ya cuantizado: lo
+ * que escribe {@link GrabadorPartida} y lo que va reconstruyendo {@link LectorPartida}.
+ *
+ * Los deltas se calculan entre enteros cuantizados (no entre floats), así que grabar y
+ * leer llegan exactamente al mismo estado sin acumular error.
+ */
+public final class CuadroPartida {
+
+    public static final int MAX_JUGADORES = Snapshot.MAX_JUGADORES;
+
+    // ===== Cuantización =====
+    /** 1/8 px: error máximo 0.06 px. */
+    public static final float POSICION = 8f;
+    /** 1/8 de grado. */
+    public static final float ANGULO = 8f;
+    public static final int VUELTA = (int) (360 * ANGULO);
+    /** 1/4 px/s. */
+    public static final float VELOCIDAD = 4f;
+    /** 1/16 de litro. */
+    public static final float GAS = 16f;
+
+    // ===== Campos extra (además de los de Snapshot) =====
+    public static final int PEDIDO = 1 << 8;
+
+    public long tiempoMs;
+    public final boolean[] presente = new boolean[MAX_JUGADORES];
+    public final int[] x = new int[MAX_JUGADORES];
+    public final int[] y = new int[MAX_JUGADORES];
+    /** [0, VUELTA) */
+    public final int[] angulo = new int[MAX_JUGADORES];
+    public final int[] velocidad = new int[MAX_JUGADORES];
+    public final int[] gas = new int[MAX_JUGADORES];
+    public final int[] dinero = new int[MAX_JUGADORES];
+    public final int[] vida = new int[MAX_JUGADORES];
+    public final int[] hint = new int[MAX_JUGADORES];
+    public final boolean[] gasHint = new boolean[MAX_JUGADORES];
+
+    // ===== Pedido en curso (sin cuantizar: cambia pocas veces) =====
+    public final boolean[] conPedido = new boolean[MAX_JUGADORES];
+    public final float[] pedidoX = new float[MAX_JUGADORES];
+    public final float[] pedidoY = new float[MAX_JUGADORES];
+    public final float[] pedidoAncho = new float[MAX_JUGADORES];
+    public final float[] pedidoAlto = new float[MAX_JUGADORES];
+    public final boolean[] peligroso = new boolean[MAX_JUGADORES];
+    public final int[] recompensa = new int[MAX_JUGADORES];
+
+    /**
+     * Todo en cero: los deltas de un jugador que aparece se cuentan desde cero, así que
+     * grabador y lector tienen que tener lo mismo para los ausentes.
+     */
+    public void limpiar() {
+        tiempoMs = 0;
+        Arrays.fill(presente, false);
+        Arrays.fill(x, 0);
+        Arrays.fill(y, 0);
+        Arrays.fill(angulo, 0);
+        Arrays.fill(velocidad, 0);
+        Arrays.fill(gas, 0);
+        Arrays.fill(dinero, 0);
+        Arrays.fill(vida, 0);
+        Arrays.fill(hint, 0);
+        Arrays.fill(gasHint, false);
+        Arrays.fill(conPedido, false);
+    }
+
+    // ===== Cuantizar / volver a float =====
+
+    public void setPosicion(int id, float px, float py) {
+        x[id] = Math.round(px * POSICION);
+        y[id] = Math.round(py * POSICION);
+    }
+
+    public void setAngulo(int id, float grados) {
+        int a = Math.round(grados * ANGULO) % VUELTA;
+        angulo[id] = a < 0 ? a + VUELTA : a;
+    }
+
+    public void setVelocidad(int id, float v) { velocidad[id] = Math.round(v * VELOCIDAD); }
+    public void setGas(int id, float g) { gas[id] = Math.round(g * GAS); }
+
+    public float getX(int id) { return x[id] / POSICION; }
+    public float getY(int id) { return y[id] / POSICION; }
+    public float getAngulo(int id) { return angulo[id] / ANGULO; }
+    public float getVelocidad(int id) { return velocidad[id] / VELOCIDAD; }
+    public float getGas(int id) { return gas[id] / GAS; }
+
+    public void setPedido(int id, float px, float py, float ancho, float alto, boolean peligro, int premio) {
+        conPedido[id] = true;
+        pedidoX[id] = px;
+        pedidoY[id] = py;
+        pedidoAncho[id] = ancho;
+        pedidoAlto[id] = alto;
+        peligroso[id] = peligro;
+        recompensa[id] = premio;
+    }
+
+    /** Campos del jugador id que difieren de base (bits de Snapshot más PEDIDO). */
+    public int diferencias(CuadroPartida base, int id) {
+        if (!base.presente[id]) return Snapshot.TODOS | PEDIDO;
+        int c = 0;
+        if (x[id] != base.x[id] || y[id] != base.y[id]) c |= Snapshot.POSICION;
+        if (angulo[id] != base.angulo[id]) c |= Snapshot.ANGULO;
+        if (velocidad[id] != base.velocidad[id]) c |= Snapshot.VELOCIDAD;
+        if (gas[id] != base.gas[id]) c |= Snapshot.GAS;
+        if (dinero[id] != base.dinero[id]) c |= Snapshot.DINERO;
+        if (vida[id] != base.vida[id]) c |= Snapshot.VIDA;
+        if (hint[id] != base.hint[id]) c |= Snapshot.HINT;
+        if (gasHint[id] != base.gasHint[id]) c |= Snapshot.GAS_HINT;
+        if (!mismoPedido(base, id)) c |= PEDIDO;
+        return c;
+    }
+
+    public boolean mismoPedido(CuadroPartida o, int id) {
+        if (conPedido[id] != o.conPedido[id]) return false;
+        return !conPedido[id] || (pedidoX[id] == o.pedidoX[id] && pedidoY[id] == o.pedidoY[id]
+            && pedidoAncho[id] == o.pedidoAncho[id] && pedidoAlto[id] == o.pedidoAlto[id]
+            && peligroso[id] == o.peligroso[id] && recompensa[id] == o.recompensa[id]);
+    }
+
+    public void copiarDe(CuadroPartida o) {
+        tiempoMs = o.tiempoMs;
+        System.arraycopy(o.presente, 0, presente, 0, MAX_JUGADORES);
+        System.arraycopy(o.x, 0, x, 0, MAX_JUGADORES);
+        System.arraycopy(o.y, 0, y, 0, MAX_JUGADORES);
+        System.arraycopy(o.angulo, 0, angulo, 0, MAX_JUGADORES);
+        System.arraycopy(o.velocidad, 0, velocidad, 0, MAX_JUGADORES);
+        System.arraycopy(o.gas, 0, gas, 0, MAX_JUGADORES);
+        System.arraycopy(o.dinero, 0, dinero, 0, MAX_JUGADORES);
+        System.arraycopy(o.vida, 0, vida, 0, MAX_JUGADORES);
+        System.arraycopy(o.hint, 0, hint, 0, MAX_JUGADORES);
+        System.arraycopy(o.gasHint, 0, gasHint, 0, MAX_JUGADORES);
+        System.arraycopy(o.conPedido, 0, conPedido, 0, MAX_JUGADORES);
+        System.arraycopy(o.pedidoX, 0, pedidoX, 0, MAX_JUGADORES);
+        System.arraycopy(o.pedidoY, 0, pedidoY, 0, MAX_JUGADORES);
+        System.arraycopy(o.pedidoAncho, 0, pedidoAncho, 0, MAX_JUGADORES);
+        System.arraycopy(o.pedidoAlto, 0, pedidoAlto, 0, MAX_JUGADORES);
+        System.arraycopy(o.peligroso, 0, peligroso, 0, MAX_JUGADORES);
+        System.arraycopy(o.recompensa, 0, recompensa, 0, MAX_JUGADORES);
+    }
+}
@@ -0,0 +1,60 @@
+package red;
+
+/**
+ * Posición y ángulo en punto fijo para SNAPSHOT_CUANTIZADO.
+ *
+ * x e y van en u16 repartidos sobre el tamaño del mapa (el de Map.tmx, que el server
+ * manda en el OK): en el mapa de 400x225 tiles de 16 px el paso es 0.098 px en x y
+ * 0.055 px en y, y el error nunca pasa de medio paso. Lo que quede fuera del mapa se
+ * recorta al borde. El ángulo va en {@link #BITS_ANGULO} bits (0.088° de paso), en un
+ * u16 con los 4 bits de arriba en 0.
+ *
+ * Inmutable: la arman el server (con su MapaServidor) y el cliente al recibir el OK.
+ */
+public final class Cuantizacion {
+
+    public static final int BITS_POSICION = 16;
+    public static final int BITS_ANGULO = 12;
+
+    private static final int MAX_POSICION = (1 << BITS_POSICION) - 1;
+    private static final int VUELTA = 1 << BITS_ANGULO;
+    private static final float PASO_ANGULO = 360f / VUELTA;
+
+    private final float ancho, alto;
+    private final float pasoX, pasoY;
+
+    /** @param ancho ancho del mapa en px (> 0); alto, lo mismo */
+    public Cuantizacion(float ancho, float alto) {
+        if (!(ancho > 0f) || !(alto > 0f)) throw new IllegalArgumentException("mapa " + ancho + "x" + alto);
+        this.ancho = ancho;
+        this.alto = alto;
+        this.pasoX = ancho / MAX_POSICION;
+        this.pasoY = alto / MAX_POSICION;
+    }
+
+    public int codificarX(float x) { return codificar(x, pasoX); }
+    public int codificarY(float y) { return codificar(y, pasoY); }
+    public float decodificarX(int q) { return (q & MAX_POSICION) * pasoX; }
+    public float decodificarY(int q) { return (q & MAX_POSICION) * pasoY; }
+
+    private static int codificar(float v, float paso) {
+        int q = Math.round(v / paso);
+        return q < 0 ? 0 : Math.min(q, MAX_POSICION);
+    }
+
+    /** Cualquier ángulo en grados (se normaliza a [0, 360)). */
+    public static int codificarAngulo(float grados) {
+        return Math.round(grados / PASO_ANGULO) & (VUELTA - 1);
+    }
+
+    /** En [0, 360). */
+    public static float decodificarAngulo(int q) {
+        return (q & (VUELTA - 1)) * PASO_ANGULO;
+    }
+
+    public float getAncho() { return ancho; }
+    public float getAlto() { return alto; }
+    public float getPasoX() { return pasoX; }
+    public float getPasoY() { return pasoY; }
+    public static float getPasoAngulo() { return PASO_ANGULO; }
+}
@@ -0,0 +1,151 @@
+package red;
+
+import java.net.InetAddress;
+import java.net.InterfaceAddress;
+import java.net.NetworkInterface;
+import java.net.SocketException;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+
+/**
+ * Búsqueda de servers en la LAN sin registrarse en ninguno.
+ *
+ * En vez de "Conexion" (que para el server ya es unirse) se manda "Sondeo:seq:marca"
+ * a la vez a la dirección de broadcast de cada interfaz, a 255.255.255.255, a
+ * 127.0.0.1 (server en la misma máquina) y, si está configurado, a un grupo multicast.
+ * Cada server contesta "Servidor:seq:marca[:version[:jugadores]]" con el eco, así el RTT
+ * sale de la misma respuesta. Los resultados quedan ordenados por RTT.
+ *
+ * Un server viejo no contesta Sondeo: quien use esto vuelve al broadcast de Conexion
+ * si en la ventana no apareció nadie.
+ *
+ * Lo llena el hilo de red y lo lee el de render: métodos synchronized; {@link #getVersion()}
+ * cambia con cada novedad para que la UI copie la lista solo cuando hace falta.
+ */
+public final class DescubrimientoServidores {
+
+    /** -Dmotorepartidor.multicast=grupo (vacío = sin multicast). */
+    public static final String PROP_MULTICAST = "motorepartidor.multicast";
+    public static final String MULTICAST_DEFECTO = "239.255.67.67";
+
+    /** Un server que contestó. */
+    public static final class Servidor {
+        public final InetAddress ip;
+        public float rttMs;
+        public int versionBinaria;
+        public int jugadores;
+        public int respuestas;
+
+        Servidor(InetAddress ip) {
+            this.ip = ip;
+        }
+
+        Servidor copia() {
+            Servidor s = new Servidor(ip);
+            s.rttMs = rttMs;
+            s.versionBinaria = versionBinaria;
+            s.jugadores = jugadores;
+            s.respuestas = respuestas;
+            return s;
+        }
+
+        @Override
+        public String toString() {
+            return ip.getHostAddress() + String.format("  %.0f ms", rttMs);
+        }
+    }
+
+    private final List<InetAddress> destinos = new ArrayList<>();
+    private final List<Servidor> servidores = new ArrayList<>();
+    private int secuencia = 0;
+    private long inicioNs;
+    private long primeraRespuestaNs;
+    private int version = 0;
+
+    /** Arranca una búsqueda nueva: recalcula destinos y olvida los resultados. */
+    public synchronized void empezar(long ahora) {
+        destinos.clear();
+        servidores.clear();
+        inicioNs = ahora;
+        primeraRespuestaNs = 0L;
+        version++;
+        calcularDestinos();
+    }
+
+    private void calcularDestinos() {
+        agregar("255.255.255.255");
+        agregar("127.0.0.1");
+        try {
+            Enumeration<NetworkInterface> ifs = NetworkInterface.getNetworkInterfaces();
+            while (ifs != null && ifs.hasMoreElements()) {
+                NetworkInterface ni = ifs.nextElement();
+                if (!ni.isUp() || ni.isLoopback()) continue;
+                for (InterfaceAddress ia : ni.getInterfaceAddresses()) {
+                    InetAddress b = ia.getBroadcast();
+                    if (b != null && !destinos.contains(b)) destinos.add(b);
+                }
+            }
+        } catch (SocketException e) {
+            // sin lista de interfaces: quedan el broadcast global y localhost
+        }
+        String grupo = System.getProperty(PROP_MULTICAST, MULTICAST_DEFECTO);
+        if (!grupo.isEmpty()) agregar(grupo);
+    }
+
+    private void agregar(String ip) {
+        try {
+            InetAddress a = InetAddress.getByName(ip);
+            if (!destinos.contains(a)) destinos.add(a);
+        } catch (UnknownHostException ignored) {}
+    }
+
+    /** Destinos del sondeo (el hilo de red los recorre en cada ronda). */
+    public synchronized List<InetAddress> getDestinos() {
+        return new ArrayList<>(destinos);
+    }
+
+    /** Secuencia para la próxima ronda de sondeos. */
+    public synchronized int proximaRonda() {
+        return ++secuencia;
+    }
+
+    /**
+     * Respuesta de un server.
+     * @param marca eco del nanoTime del sondeo
+     */
+    public synchronized void respuesta(InetAddress ip, long marca, int versionBinaria, int jugadores, long ahora) {
+        if (ip == null || marca - inicioNs < 0) return; // de una búsqueda anterior
+        Servidor s = null;
+        for (Servidor x : servidores) if (x.ip.equals(ip)) { s = x; break; }
+        if (servidores.isEmpty()) primeraRespuestaNs = ahora;
+        if (s == null) {
+            s = new Servidor(ip);
+            s.rttMs = Float.MAX_VALUE;
+            servidores.add(s);
+        }
+        // nos quedamos con el mejor RTT: los demás se comieron cola o el broadcast
+        s.rttMs = Math.min(s.rttMs, (ahora - marca) / 1e6f);
+        s.versionBinaria = versionBinaria;
+        s.jugadores = jugadores;
+        s.respuestas++;
+        Collections.sort(servidores, (a, b) -> Float.compare(a.rttMs, b.rttMs));
+        version++;
+    }
+
+    /** Copia de los servers encontrados, del menor RTT al mayor. */
+    public synchronized List<Servidor> getServidores() {
+        List<Servidor> l = new ArrayList<>(servidores.size());
+        for (Servidor s : servidores) l.add(s.copia());
+        return l;
+    }
+
+    public synchronized int getCantidad() { return servidores.size(); }
+
+    /** nanoTime de la primera respuesta de esta búsqueda (0 si todavía nadie contestó). */
+    public synchronized long getPrimeraRespuestaNs() { return primeraRespuestaNs; }
+
+    public synchronized int getVersion() { return version; }
+}
@@ -0,0 +1,110 @@
+package red;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Contadores de red del cliente para el gráfico de F3. Son totales que solo crecen: quien
+ * los muestra guarda la lectura anterior y resta.
+ *
+ * - Entrada (datagramas, bytes, decodificación): los escribe solo el hilo de red.
+ * - Salida: se manda desde el hilo de render (entradas, AREA) y desde el de red (pings,
+ *   canal fiable), así que van en AtomicLong.
+ * - Tiempo entre snapshots: anillo de los últimos {@link #INTERVALOS}, en ms.
+ * - Eventos por frame y estado aplicado: los escribe el hilo de render al despachar.
+ *
+ * El tiempo por datagrama (decodificar, encolar y, si es un snapshot, mandar el ack; dos
+ * nanoTime) se toma solo con {@link #setMidiendo} prendido, o sea con el gráfico a la
+ * vista; el resto es una suma.
+ */
+public final class EstadisticasRed {
+
+    /** Potencia de 2: ~4 s de snapshots a 60 Hz. */
+    public static final int INTERVALOS = 256;
+
+    // ===== Entrada (hilo de red) =====
+    private volatile long paquetesEntrada, bytesEntrada;
+    private volatile long decodificados, decodificacionNs;
+
+    // ===== Salida (cualquier hilo) =====
+    private final AtomicLong paquetesSalida = new AtomicLong();
+    private final AtomicLong bytesSalida = new AtomicLong();
+
+    // ===== Entre snapshots (hilo de red) =====
+    private final float[] intervalos = new float[INTERVALOS];
+    private volatile long snapshots;
+    private long ultimoSnapshotNs;
+
+    // ===== Render =====
+    private volatile boolean midiendo;
+    private int eventosFrame;
+    private long aplicadoServidorNs;
+    private boolean hayAplicado;
+
+    // =========================================================
+    // Registro
+    // =========================================================
+
+    public void registrarEntrada(int bytes) {
+        paquetesEntrada++;
+        bytesEntrada += bytes;
+    }
+
+    public void registrarDecodificacion(long ns) {
+        decodificados++;
+        decodificacionNs += ns;
+    }
+
+    public void registrarSalida(int bytes) {
+        paquetesSalida.incrementAndGet();
+        bytesSalida.addAndGet(bytes);
+    }
+
+    /** Llegó un snapshot completo en el instante local ahora. */
+    public void registrarSnapshot(long ahora) {
+        if (ultimoSnapshotNs != 0) {
+            intervalos[(int) snapshots & (INTERVALOS - 1)] = (ahora - ultimoSnapshotNs) / 1e6f;
+            snapshots++;
+        }
+        ultimoSnapshotNs = ahora;
+    }
+
+    /** Hilo de render: cuántos eventos sacó de la cola el último despacho. */
+    public void registrarDespacho(int eventos) {
+        eventosFrame = eventos;
+    }
+
+    /** Hilo de render: se aplicó un estado que el server mandó en servidorNs (su reloj). */
+    public void registrarAplicado(long servidorNs) {
+        aplicadoServidorNs = servidorNs;
+        hayAplicado = true;
+    }
+
+    /** Sesión nueva: los intervalos no se miden a través del corte. */
+    public void reiniciarSnapshots() {
+        ultimoSnapshotNs = 0;
+    }
+
+    public void setMidiendo(boolean midiendo) { this.midiendo = midiendo; }
+    public boolean isMidiendo() { return midiendo; }
+
+    // =========================================================
+    // Lectura
+    // =========================================================
+
+    public long getPaquetesEntrada() { return paquetesEntrada; }
+    public long getBytesEntrada() { return bytesEntrada; }
+    public long getPaquetesSalida() { return paquetesSalida.get(); }
+    public long getBytesSalida() { return bytesSalida.get(); }
+    public long getDecodificados() { return decodificados; }
+    public long getDecodificacionNs() { return decodificacionNs; }
+
+    /** Cantidad de intervalos registrados desde el arranque (el anillo guarda los últimos). */
+    public long getSnapshots() { return snapshots; }
+
+    /** Intervalo número n (n &lt; getSnapshots(), de los últimos INTERVALOS), en ms. */
+    public float getIntervalo(long n) { return intervalos[(int) n & (INTERVALOS - 1)]; }
+
+    public int getEventosFrame() { return eventosFrame; }
+    public boolean hayAplicado() { return hayAplicado; }
+    public long getAplicadoServidorNs() { return aplicadoServidorNs; }
+}
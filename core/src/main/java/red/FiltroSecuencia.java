@@ -0,0 +1,110 @@
+package red;
+
+import java.util.Arrays;
+
+/**
+ * Descarta snapshots viejos o duplicados usando el tick del server.
+ *
+ * Cada flujo (tipo de mensaje + jugador) recuerda el último tick aceptado; lo que
+ * llegue con un tick menor o igual se descarta. Los ticks son u32 y se comparan con
+ * aritmética de números de serie, así que el wrap-around no rompe nada.
+ * Los mensajes sin tick (server viejo) pasan siempre.
+ *
+ * {@link #aceptar} lo llama solo el hilo de red; {@link #contarCoalescido} solo el
+ * de render. Los getters se pueden leer desde cualquiera.
+ */
+public final class FiltroSecuencia {
+
+    /** Ids de jugador (entidad) posibles: alcanza para partidas de 64 (el id viaja en un u8). */
+    public static final int MAX_IDS = 64;
+
+    /** Índices de flujo: Movimiento y Snapshot son uno solo, el resto es por jugador. */
+    private static final int FLUJO_MOVIMIENTO = 0;
+    private static final int FLUJO_GAS = 1;
+    private static final int FLUJO_DINERO = 1 + MAX_IDS;
+    private static final int FLUJO_VIDA = 1 + 2 * MAX_IDS;
+    private static final int FLUJO_SNAPSHOT = 1 + 3 * MAX_IDS;
+    public static final int FLUJOS = 2 + 3 * MAX_IDS;
+
+    private final long[] ultimo = new long[FLUJOS];
+
+    // ===== Métricas =====
+    private volatile long aceptados;
+    private volatile long duplicados;
+    private volatile long reordenados;
+    private volatile long coalescidos;
+
+    public FiltroSecuencia() {
+        reiniciar();
+    }
+
+    /** Olvida los ticks vistos (nueva sesión / reset de partida). */
+    public void reiniciar() {
+        Arrays.fill(ultimo, ReceptorMensajes.SIN_TICK);
+    }
+
+    /**
+     * @param tipo Protocolo.MOVIMIENTO, GAS, DINERO, VIDA o SNAPSHOT
+     * @return true si el snapshot es más nuevo que el último aplicado
+     */
+    public boolean aceptar(byte tipo, int id, long tick) {
+        int flujo = flujo(tipo, id);
+        if (tick == ReceptorMensajes.SIN_TICK || flujo < 0) {
+            aceptados++;
+            return true;
+        }
+
+        long previo = ultimo[flujo];
+        if (previo != ReceptorMensajes.SIN_TICK) {
+            int diff = (int) (tick - previo);
+            if (diff == 0) {
+                duplicados++;
+                return false;
+            }
+            if (diff < 0) {
+                reordenados++;
+                return false;
+            }
+        }
+
+        ultimo[flujo] = tick;
+        aceptados++;
+        return true;
+    }
+
+    /** El consumidor pisó un snapshot pendiente con uno más nuevo en el mismo frame. */
+    public void contarCoalescido() {
+        coalescidos++;
+    }
+
+    /** Índice de flujo de un snapshot, o -1 si el tipo/id no se filtra. */
+    public static int flujo(byte tipo, int id) {
+        if (tipo == Protocolo.MOVIMIENTO) return FLUJO_MOVIMIENTO;
+        if (tipo == Protocolo.SNAPSHOT) return FLUJO_SNAPSHOT;
+        if (id < 0 || id >= MAX_IDS) return -1;
+        switch (tipo) {
+            case Protocolo.GAS:    return FLUJO_GAS + id;
+            case Protocolo.DINERO: return FLUJO_DINERO + id;
+            case Protocolo.VIDA:   return FLUJO_VIDA + id;
+            default:               return -1;
+        }
+    }
+
+    // =========================================================
+    // Métricas
+    // =========================================================
+
+    public long getAceptados() { return aceptados; }
+
+    /** Llegaron con el mismo tick que el último aplicado. */
+    public long getDuplicados() { return duplicados; }
+
+    /** Llegaron después de uno más nuevo (UDP los desordenó). */
+    public long getReordenados() { return reordenados; }
+
+    /** Total descartado por viejo (duplicados + reordenados). */
+    public long getDescartados() { return duplicados + reordenados; }
+
+    /** Aceptados pero pisados por otro más nuevo antes de llegar a aplicarse. */
+    public long getCoalescidos() { return coalescidos; }
+}
@@ -0,0 +1,103 @@
+package red;
+
+import com.motorepartidor.fisica.ModeloConduccion;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Flujo de entradas cliente -> server: el estado de las teclas (no los eventos) tomado
+ * en cada tick fijo, con número de secuencia.
+ *
+ * Cada paquete ENTRADA lleva la entrada más nueva y repite hasta {@link #getRedundancia()}
+ * anteriores que el server todavía no confirmó, así una pérdida se recupera con el
+ * paquete siguiente sin retransmitir nada. Como viaja el estado, un keyUp perdido ya
+ * no deja la moto acelerando para siempre.
+ *
+ * Lo usa solo el hilo de render (registrar, confirmar y escribir bajo el lock de salida).
+ */
+public final class FlujoEntradas {
+
+    // ===== Bits de teclas (los de movimiento son los de ModeloConduccion) =====
+    public static final int W = ModeloConduccion.ACELERAR;
+    public static final int A = ModeloConduccion.IZQUIERDA;
+    public static final int S = ModeloConduccion.FRENAR;
+    public static final int D = ModeloConduccion.DERECHA;
+    public static final int G = 1 << 4; // cargar nafta
+    public static final int E = 1 << 5; // tomar / entregar pedido
+
+    public static final int REDUNDANCIA_DEFECTO = 8; // ~133 ms a 60 Hz
+    public static final int REDUNDANCIA_MAXIMA = 32;
+
+    /** -Dmotorepartidor.redundancia=N cambia cuántas entradas viejas se repiten. */
+    public static final String PROP_REDUNDANCIA = "motorepartidor.redundancia";
+
+    private static final int CAPACIDAD = 64; // potencia de 2, > REDUNDANCIA_MAXIMA
+
+    private final int redundancia;
+    private final byte[] teclas = new byte[CAPACIDAD];
+    private int ultima = 0;      // última secuencia registrada
+    private int confirmada = 0;  // última que el server dijo haber aplicado
+    private boolean hayEntradas = false;
+
+    // ===== Métricas =====
+    private volatile long paquetes;
+    private volatile long entradasEnviadas; // contando repeticiones
+    private volatile long bytes;
+
+    public FlujoEntradas() {
+        this(Integer.getInteger(PROP_REDUNDANCIA, REDUNDANCIA_DEFECTO));
+    }
+
+    public FlujoEntradas(int redundancia) {
+        this.redundancia = Math.max(0, Math.min(REDUNDANCIA_MAXIMA, redundancia));
+    }
+
+    public void reiniciar() {
+        hayEntradas = false;
+        ultima = confirmada = 0;
+    }
+
+    /** Entrada del tick `secuencia` (consecutivas, de a una). */
+    public void registrar(int secuencia, int mascara) {
+        if (!hayEntradas) confirmada = secuencia - 1;
+        hayEntradas = true;
+        ultima = secuencia;
+        teclas[secuencia & (CAPACIDAD - 1)] = (byte) mascara;
+    }
+
+    /** El server aplicó hasta `secuencia` (u32): esas ya no hace falta repetirlas. */
+    public void confirmar(long secuencia) {
+        int s = (int) secuencia;
+        if (hayEntradas && s - confirmada > 0 && s - ultima <= 0) confirmada = s;
+    }
+
+    /** @return false si no hay nada para mandar */
+    public boolean escribir(ByteBuffer out, int playerId) {
+        if (!hayEntradas) return false;
+        int cantidad = 1 + Math.min(redundancia, Math.max(0, ultima - confirmada - 1));
+        CodecBinario.escribirEntrada(out, playerId, ultima, cantidad);
+        for (int k = 0; k < cantidad; k++) out.put(teclas[(ultima - k) & (CAPACIDAD - 1)]);
+
+        paquetes++;
+        entradasEnviadas += cantidad;
+        bytes += out.position();
+        return true;
+    }
+
+    // =========================================================
+    // Métricas
+    // =========================================================
+
+    public int getRedundancia() { return redundancia; }
+    public long getPaquetes() { return paquetes; }
+    public long getBytes() { return bytes; }
+
+    /** Entradas por paquete en promedio (1 = sin repeticiones). */
+    public float getProfundidadMedia() {
+        long p = paquetes;
+        return p == 0 ? 0f : (float) entradasEnviadas / p;
+    }
+
+    /** Entradas todavía sin confirmar. */
+    public int getPendientes() { return hayEntradas ? ultima - confirmada : 0; }
+}
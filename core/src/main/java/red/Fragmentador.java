@@ -0,0 +1,70 @@
+package red;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Parte un frame binario más largo que el MTU en FRAGMENTO que entran en un datagrama
+ * cada uno, para que los junte un {@link Reensamblador} del otro lado.
+ *
+ * Sin alocar: {@link #partir} anota el frame y {@link #fragmento} arma el i-ésimo en un
+ * buffer propio que se pisa en cada llamada. Uso:
+ * <pre>
+ *   int n = fragmentador.partir(frame);
+ *   for (int i = 0; i &lt; n; i++) enviar(fragmentador.fragmento(i));
+ * </pre>
+ * Cada frame partido lleva un número de mensaje nuevo (u16, da la vuelta). Un solo hilo.
+ */
+public final class Fragmentador {
+
+    private final int mtu;
+    private final int carga;
+    private final ByteBuffer fragmento;
+
+    private ByteBuffer frame;
+    private int inicio, largo, total, mensaje;
+    private int proximoMensaje;
+
+    /** @param mtu datagrama más largo que puede salir (ej. {@link Protocolo#MTU}) */
+    public Fragmentador(int mtu) {
+        if (mtu <= CodecBinario.CABECERA_FRAGMENTO) throw new IllegalArgumentException("mtu " + mtu);
+        this.mtu = mtu;
+        this.carga = mtu - CodecBinario.CABECERA_FRAGMENTO;
+        this.fragmento = ByteBuffer.allocateDirect(mtu).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Prepara [position, limit) de frame para mandarlo partido (el frame no se toca hasta
+     * el último {@link #fragmento}).
+     * @return cuántos fragmentos hay que mandar, o 0 si no entra en un
+     *         {@link Reensamblador#MAX_MENSAJE}
+     */
+    public int partir(ByteBuffer frame) {
+        this.frame = frame;
+        inicio = frame.position();
+        largo = frame.remaining();
+        total = (largo + carga - 1) / carga;
+        if (largo > Reensamblador.MAX_MENSAJE || total > Reensamblador.MAX_FRAGMENTOS) return 0;
+        mensaje = proximoMensaje;
+        proximoMensaje = (proximoMensaje + 1) & 0xFFFF;
+        return total;
+    }
+
+    /** El fragmento i del último frame partido, listo para enviar ([position, limit)). */
+    public ByteBuffer fragmento(int i) {
+        int offset = i * carga;
+        int n = Math.min(carga, largo - offset);
+        fragmento.clear();
+        CodecBinario.escribirFragmento(fragmento, mensaje, i, total, offset);
+
+        int limite = frame.limit();
+        frame.limit(inicio + offset + n).position(inicio + offset);
+        fragmento.put(frame);
+        frame.limit(limite).position(inicio);
+
+        fragmento.flip();
+        return fragmento;
+    }
+
+    public int getMtu() { return mtu; }
+}
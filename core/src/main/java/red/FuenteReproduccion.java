@@ -0,0 +1,15 @@
+package red;
+
+/**
+ * De dónde saca sus mensajes un {@link hiloCliente} sin red: una captura de datagramas
+ * ({@link ReproductorCaptura}) o una partida grabada ({@link ReproductorPartida}).
+ */
+public interface FuenteReproduccion {
+
+    /**
+     * Mete en el cliente lo que toca mostrar ahora. Lo llama
+     * {@link hiloCliente#despacharEventos()} (hilo de render) antes de vaciar la cola.
+     * @return cantidad de mensajes inyectados
+     */
+    int alimentar(hiloCliente cliente);
+}
@@ -0,0 +1,124 @@
+package red;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Graba cada datagrama recibido, con su hora de llegada, en un archivo de captura que
+ * después se puede reproducir con {@link ReproductorCaptura}.
+ *
+ * Formato (little endian):
+ * - cabecera de {@link #CABECERA} bytes: magia "MRCP", versión, 3 reservados y el
+ *   System.nanoTime() del primer datagrama (i64);
+ * - un registro por datagrama: nanos desde el anterior (varint), largo (varint) y los
+ *   bytes tal cual llegaron.
+ * Con los varint un registro suma 3-5 bytes a su datagrama.
+ *
+ * Escribe en un buffer directo y lo vuelca al archivo cuando se llena (o al cerrar), así
+ * que el hilo de red casi nunca toca el disco. Si falla la escritura se deja de grabar
+ * sin molestar a la red.
+ */
+public final class GrabadorCaptura implements Closeable {
+
+    public static final int MAGIA = 'M' | 'R' << 8 | 'C' << 16 | 'P' << 24;
+    public static final byte VERSION = 1;
+    public static final int CABECERA = 16;
+    public static final String EXTENSION = ".mrc";
+
+    private static final int TAM_BUFFER = 64 * 1024;
+    private static final int MAX_VARINT = 10;
+
+    private final File archivo;
+    private final FileChannel canal;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(TAM_BUFFER).order(ByteOrder.LITTLE_ENDIAN);
+    private boolean conCabecera = false;
+    private boolean abierto = true;
+    private long anteriorNs;
+
+    private long registros;
+    private long bytes;
+
+    public GrabadorCaptura(File archivo) throws IOException {
+        this.archivo = archivo;
+        File dir = archivo.getAbsoluteFile().getParentFile();
+        if (dir != null && !dir.isDirectory() && !dir.mkdirs()) throw new IOException("no se pudo crear " + dir);
+        canal = FileChannel.open(archivo.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    /** Agrega un datagrama ([position, limit) de datos, que no se modifica). */
+    public synchronized void grabar(long nanos, ByteBuffer datos) {
+        if (!abierto) return;
+        int largo = datos.remaining();
+        if (!conCabecera) {
+            buffer.putInt(MAGIA).put(VERSION).put((byte) 0).putShort((short) 0).putLong(nanos);
+            anteriorNs = nanos;
+            conCabecera = true;
+        }
+        if (buffer.remaining() < 2 * MAX_VARINT + largo && !volcar()) return;
+        if (buffer.remaining() < 2 * MAX_VARINT + largo) return; // más grande que el buffer: no pasa con UDP
+
+        escribirVarint(buffer, Math.max(0L, nanos - anteriorNs));
+        escribirVarint(buffer, largo);
+        int p = datos.position();
+        buffer.put(datos);
+        datos.position(p);
+        anteriorNs = nanos;
+        registros++;
+        bytes += largo;
+    }
+
+    /** Escribe lo acumulado; false si no se pudo (y ya no se graba más). */
+    private boolean volcar() {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) canal.write(buffer);
+            buffer.clear();
+            return true;
+        } catch (IOException e) {
+            System.err.println("[captura] se deja de grabar " + archivo + ": " + e.getMessage());
+            cerrarCanal();
+            return false;
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (!abierto) return;
+        volcar();
+        cerrarCanal();
+    }
+
+    private void cerrarCanal() {
+        abierto = false;
+        try { canal.close(); } catch (IOException ignored) {}
+    }
+
+    static void escribirVarint(ByteBuffer b, long v) {
+        while ((v & ~0x7FL) != 0) {
+            b.put((byte) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        b.put((byte) v);
+    }
+
+    static long leerVarint(ByteBuffer b) {
+        long v = 0;
+        for (int corrimiento = 0; corrimiento < 64; corrimiento += 7) {
+            byte x = b.get();
+            v |= (long) (x & 0x7F) << corrimiento;
+            if (x >= 0) return v;
+        }
+        throw new IllegalStateException("varint demasiado largo");
+    }
+
+    public File getArchivo() { return archivo; }
+    public synchronized long getRegistros() { return registros; }
+    /** Bytes de datagramas grabados (sin la cabecera de cada registro). */
+    public synchronized long getBytes() { return bytes; }
+}
@@ -0,0 +1,446 @@
+package red;
+
+import com.badlogic.gdx.math.Rectangle;
+import com.motorepartidor.GameController;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+
+/**
+ * Graba la partida para verla después ({@link ReproductorPartida}): se pone entre el
+ * cliente y GameScreen como GameController, pasa todo de largo y va anotando el estado
+ * autoritativo que llega (posición, ángulo, velocidad, nafta, plata, vida, hints y
+ * pedidos de cada jugador).
+ *
+ * No guarda cada snapshot: cada {@link #PERIODO_MS} escribe un cuadro con lo que cambió
+ * desde el anterior (deltas de enteros cuantizados, en varint) y cada
+ * {@link #INTERVALO_KEYFRAME_MS} un keyframe con el estado completo. Al cerrar agrega un
+ * índice con el offset del keyframe de cada intervalo, así que ir a cualquier keyframe es
+ * una lectura del índice. 10 minutos de partida a 2 jugadores son unos 200 KB.
+ *
+ * Formato (little endian):
+ * - cabecera de {@link #CABECERA} bytes: magia "MRPA", versión, id local, 2 reservados,
+ *   intervalo de keyframes (ms, u32), período (ms, u32), offset del índice (i64, 0 si no
+ *   se cerró bien), duración (ms, u32), ganador (i32, -1 = sin terminar);
+ * - KEYFRAME: tipo, tiempo absoluto (varint ms), cantidad de ids y por id: presente y, si
+ *   está, todos sus campos;
+ * - DELTA: tipo, ms desde el registro anterior (varint) y por cada jugador que cambió:
+ *   id, campos (varint, bits de Snapshot más PEDIDO) y esos campos, o id y 0 si dejó de
+ *   estar (salió del área de interés); {@link #FIN_CUADRO} cierra la lista;
+ * - índice: cantidad (u32) y el offset de cada keyframe (u32). Un intervalo sin datos
+ *   apunta al keyframe anterior.
+ *
+ * Escribe en el hilo de render: al buffer siempre, al archivo una vez por keyframe (si
+ * el juego se cierra de golpe se pierden como mucho un par de segundos; el índice se
+ * rearma al leer).
+ */
+public final class GrabadorPartida implements GameController, Closeable {
+
+    /** -Dmotorepartidor.partidas=dir donde se guardan (por defecto "partidas"); "no" apaga. */
+    public static final String PROP_PARTIDAS = "motorepartidor.partidas";
+    public static final String DIR_DEFECTO = "partidas";
+    public static final String EXTENSION = ".mrp";
+
+    public static final int MAGIA = 'M' | 'R' << 8 | 'P' << 16 | 'A' << 24;
+    public static final byte VERSION = 1;
+    public static final int CABECERA = 32;
+    public static final int SIN_GANADOR = -1;
+
+    public static final byte KEYFRAME = 1;
+    public static final byte DELTA = 2;
+    public static final int FIN_CUADRO = 0xFF;
+
+    public static final int PERIODO_MS = 50;
+    public static final int INTERVALO_KEYFRAME_MS = 2000;
+
+    private static final int TAM_BUFFER = 16 * 1024;
+    /** Lo más que puede ocupar un registro (keyframe con todos los ids y sus pedidos). */
+    private static final int MAX_REGISTRO = CuadroPartida.MAX_JUGADORES * 80 + 16;
+
+    private final GameController destino;
+    private final hiloCliente cliente;
+    private final File archivo;
+    private final FileChannel canal;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(TAM_BUFFER).order(ByteOrder.LITTLE_ENDIAN);
+    private long volcados = CABECERA;
+    private boolean abierto = true;
+
+    // ===== Estado =====
+    private final CuadroPartida actual = new CuadroPartida();
+    private final CuadroPartida escrito = new CuadroPartida();
+    private long inicioNs;
+    /** Llegada (System.nanoTime) de la última posición: el reloj de la grabación. */
+    private long ultimoNs;
+    private boolean empezado;
+    private boolean hayCambios;
+    private int ganador = SIN_GANADOR;
+
+    // ===== Índice de keyframes (uno por intervalo) =====
+    private int[] indice = new int[64];
+    private int ultimoIntervalo = -1;
+
+    // ===== Métricas =====
+    private long cuadros;
+    private long keyframes;
+
+    public GrabadorPartida(GameController destino, hiloCliente cliente, File archivo) throws IOException {
+        this.destino = destino;
+        this.cliente = cliente;
+        this.archivo = archivo;
+        File dir = archivo.getAbsoluteFile().getParentFile();
+        if (dir != null && !dir.isDirectory() && !dir.mkdirs()) throw new IOException("no se pudo crear " + dir);
+        canal = FileChannel.open(archivo.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING);
+        escribirCabecera(0L);
+    }
+
+    /**
+     * Un grabador alrededor de destino en el directorio de las propiedades, o null si
+     * está apagado o no se pudo abrir (la partida se juega igual).
+     */
+    public static GrabadorPartida desdePropiedades(GameController destino, hiloCliente cliente) {
+        File dir = directorio();
+        if (dir == null) return null;
+        String fecha = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+        File f = new File(dir, "partida-" + fecha + EXTENSION);
+        try {
+            return new GrabadorPartida(destino, cliente, f);
+        } catch (IOException e) {
+            System.err.println("[partida] no se graba: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /** Directorio de las partidas grabadas, o null si se apagó la grabación. */
+    public static File directorio() {
+        String d = System.getProperty(PROP_PARTIDAS, DIR_DEFECTO);
+        return d.isEmpty() || "no".equalsIgnoreCase(d) ? null : new File(d);
+    }
+
+    /** La partida grabada más nueva, o null si no hay. */
+    public static File ultima() {
+        File dir = directorio();
+        File[] fs = dir == null ? null : dir.listFiles((d, n) -> n.endsWith(EXTENSION));
+        if (fs == null || fs.length == 0) return null;
+        Arrays.sort(fs, (f1, f2) -> Long.compare(f2.lastModified(), f1.lastModified()));
+        return fs[0];
+    }
+
+    // =========================================================
+    // Estado recibido
+    // =========================================================
+
+    private static boolean enRango(int id) {
+        return id >= 0 && id < CuadroPartida.MAX_JUGADORES;
+    }
+
+    /** Solo jugadores con posición: los campos sueltos de uno que no está no se graban. */
+    private boolean presente(int id) {
+        return enRango(id) && actual.presente[id];
+    }
+
+    private void posicion(int id, float x, float y, float angulo, long nanos) {
+        ultimoNs = nanos;
+        actual.presente[id] = true;
+        actual.setPosicion(id, x, y);
+        actual.setAngulo(id, angulo);
+    }
+
+    /**
+     * Anota que cambió algo y, si ya pasó el período, escribe el cuadro. El tiempo es el
+     * de llegada de la última posición (los campos sueltos van con ella).
+     */
+    private void cambio() {
+        if (!abierto) return;
+        if (!empezado) {
+            empezado = true;
+            inicioNs = ultimoNs;
+        }
+        long t = Math.max(escrito.tiempoMs, (ultimoNs - inicioNs) / 1_000_000L);
+        if (cuadros == 0 || t - escrito.tiempoMs >= PERIODO_MS) escribir(t);
+        else hayCambios = true;
+    }
+
+    // =========================================================
+    // Escritura
+    // =========================================================
+
+    private void escribir(long t) {
+        int intervalo = (int) (t / INTERVALO_KEYFRAME_MS);
+        if (intervalo > ultimoIntervalo) {
+            if (!volcar()) return;
+            int offset = (int) volcados;
+            if (intervalo >= indice.length) indice = Arrays.copyOf(indice, Math.max(indice.length * 2, intervalo + 1));
+            // intervalos sin datos: el keyframe anterior (o este, si no hubo ninguno)
+            int relleno = ultimoIntervalo >= 0 ? indice[ultimoIntervalo] : offset;
+            for (int i = ultimoIntervalo + 1; i < intervalo; i++) indice[i] = relleno;
+            indice[intervalo] = offset;
+            ultimoIntervalo = intervalo;
+            escribirKeyframe(t);
+            keyframes++;
+        } else {
+            if (buffer.remaining() < MAX_REGISTRO && !volcar()) return;
+            escribirDelta(t);
+        }
+        escrito.copiarDe(actual);
+        escrito.tiempoMs = t;
+        hayCambios = false;
+        cuadros++;
+    }
+
+    private void escribirKeyframe(long t) {
+        int n = 0;
+        for (int id = 0; id < CuadroPartida.MAX_JUGADORES; id++) if (actual.presente[id]) n = id + 1;
+        buffer.put(KEYFRAME);
+        GrabadorCaptura.escribirVarint(buffer, t);
+        buffer.put((byte) n);
+        for (int id = 0; id < n; id++) {
+            buffer.put((byte) (actual.presente[id] ? 1 : 0));
+            if (!actual.presente[id]) continue;
+            escribirZigzag(buffer, actual.x[id]);
+            escribirZigzag(buffer, actual.y[id]);
+            GrabadorCaptura.escribirVarint(buffer, actual.angulo[id]);
+            escribirZigzag(buffer, actual.velocidad[id]);
+            escribirZigzag(buffer, actual.gas[id]);
+            escribirZigzag(buffer, actual.dinero[id]);
+            escribirZigzag(buffer, actual.vida[id]);
+            escribirZigzag(buffer, actual.hint[id]);
+            buffer.put((byte) (actual.gasHint[id] ? 1 : 0));
+            escribirPedido(id);
+        }
+    }
+
+    private void escribirDelta(long t) {
+        buffer.put(DELTA);
+        GrabadorCaptura.escribirVarint(buffer, t - escrito.tiempoMs);
+        for (int id = 0; id < CuadroPartida.MAX_JUGADORES; id++) {
+            if (!actual.presente[id]) {
+                if (escrito.presente[id]) buffer.put((byte) id).put((byte) 0); // se fue
+                continue;
+            }
+            int c = actual.diferencias(escrito, id);
+            if (c == 0) continue;
+            buffer.put((byte) id);
+            GrabadorCaptura.escribirVarint(buffer, c);
+            if ((c & Snapshot.POSICION) != 0) {
+                escribirZigzag(buffer, actual.x[id] - escrito.x[id]);
+                escribirZigzag(buffer, actual.y[id] - escrito.y[id]);
+            }
+            if ((c & Snapshot.ANGULO) != 0) {
+                // el camino corto: de 359° a 1° son +2°, no -358°
+                int d = Math.floorMod(actual.angulo[id] - escrito.angulo[id] + CuadroPartida.VUELTA / 2,
+                    CuadroPartida.VUELTA) - CuadroPartida.VUELTA / 2;
+                escribirZigzag(buffer, d);
+            }
+            if ((c & Snapshot.VELOCIDAD) != 0) escribirZigzag(buffer, actual.velocidad[id] - escrito.velocidad[id]);
+            if ((c & Snapshot.GAS) != 0) escribirZigzag(buffer, actual.gas[id] - escrito.gas[id]);
+            if ((c & Snapshot.DINERO) != 0) escribirZigzag(buffer, actual.dinero[id]);
+            if ((c & Snapshot.VIDA) != 0) escribirZigzag(buffer, actual.vida[id]);
+            if ((c & Snapshot.HINT) != 0) escribirZigzag(buffer, actual.hint[id]);
+            if ((c & Snapshot.GAS_HINT) != 0) buffer.put((byte) (actual.gasHint[id] ? 1 : 0));
+            if ((c & CuadroPartida.PEDIDO) != 0) escribirPedido(id);
+        }
+        buffer.put((byte) FIN_CUADRO);
+    }
+
+    private void escribirPedido(int id) {
+        buffer.put((byte) (actual.conPedido[id] ? 1 : 0));
+        if (!actual.conPedido[id]) return;
+        buffer.putFloat(actual.pedidoX[id]).putFloat(actual.pedidoY[id])
+            .putFloat(actual.pedidoAncho[id]).putFloat(actual.pedidoAlto[id]);
+        buffer.put((byte) (actual.peligroso[id] ? 1 : 0));
+        escribirZigzag(buffer, actual.recompensa[id]);
+    }
+
+    static void escribirZigzag(ByteBuffer b, int v) {
+        GrabadorCaptura.escribirVarint(b, ((v << 1) ^ (v >> 31)) & 0xFFFFFFFFL);
+    }
+
+    static int leerZigzag(ByteBuffer b) {
+        int v = (int) GrabadorCaptura.leerVarint(b);
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    private void escribirCabecera(long offsetIndice) throws IOException {
+        ByteBuffer c = ByteBuffer.allocate(CABECERA).order(ByteOrder.LITTLE_ENDIAN);
+        c.putInt(MAGIA).put(VERSION).put((byte) cliente.getPlayerId()).putShort((short) 0);
+        c.putInt(INTERVALO_KEYFRAME_MS).putInt(PERIODO_MS);
+        c.putLong(offsetIndice);
+        c.putInt((int) escrito.tiempoMs).putInt(ganador);
+        c.flip();
+        while (c.hasRemaining()) canal.write(c, c.position());
+    }
+
+    /** Pasa el buffer al archivo; false si falló (y ya no se graba más). */
+    private boolean volcar() {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) volcados += canal.write(buffer, volcados);
+            buffer.clear();
+            return true;
+        } catch (IOException e) {
+            System.err.println("[partida] se deja de grabar " + archivo + ": " + e.getMessage());
+            cerrarCanal();
+            return false;
+        }
+    }
+
+    /** Escribe lo pendiente, el índice y la cabecera final. Se puede llamar más de una vez. */
+    @Override
+    public void close() {
+        if (!abierto) return;
+        if (hayCambios) escribir(Math.max(escrito.tiempoMs + 1, (ultimoNs - inicioNs) / 1_000_000L));
+        if (!volcar()) return;
+        try {
+            long offsetIndice = volcados;
+            int n = ultimoIntervalo + 1;
+            ByteBuffer b = ByteBuffer.allocate(4 + 4 * n).order(ByteOrder.LITTLE_ENDIAN);
+            b.putInt(n);
+            for (int i = 0; i < n; i++) b.putInt(indice[i]);
+            b.flip();
+            while (b.hasRemaining()) canal.write(b, offsetIndice + b.position());
+            escribirCabecera(offsetIndice);
+        } catch (IOException e) {
+            System.err.println("[partida] no se pudo cerrar " + archivo + ": " + e.getMessage());
+        }
+        cerrarCanal();
+    }
+
+    private void cerrarCanal() {
+        abierto = false;
+        try { canal.close(); } catch (IOException ignored) {}
+    }
+
+    public File getArchivo() { return archivo; }
+    public long getCuadros() { return cuadros; }
+    public long getKeyframes() { return keyframes; }
+    /** Bytes en el archivo más los que esperan en el buffer. */
+    public long getBytes() { return volcados + buffer.position(); }
+
+    // =========================================================
+    // GameController: anota y pasa al destino
+    // =========================================================
+
+    @Override
+    public void aplicarSnapshot(Snapshot s) {
+        for (int id = 0; id < CuadroPartida.MAX_JUGADORES; id++) {
+            if (!s.presente[id]) {
+                actual.presente[id] = false; // salió del área de interés
+                continue;
+            }
+            posicion(id, s.x[id], s.y[id], s.angulo[id], s.nanos);
+            actual.setVelocidad(id, s.velocidad[id]);
+            actual.setGas(id, s.gas[id]);
+            actual.dinero[id] = s.dinero[id];
+            actual.vida[id] = s.vida[id];
+            actual.hint[id] = s.hint[id];
+            actual.gasHint[id] = s.gasHint[id];
+        }
+        cambio();
+        destino.aplicarSnapshot(s);
+    }
+
+    @Override
+    public void actualizarPosicion(int id, float x, float y, float angulo, long tiempoNanos,
+                                   long entradaConfirmada, float velocidad) {
+        if (!enRango(id)) return;
+        posicion(id, x, y, angulo, tiempoNanos);
+        // el Movimiento solo trae la velocidad del local, y solo si confirma entradas
+        if (entradaConfirmada != ReceptorMensajes.SIN_TICK) actual.setVelocidad(id, velocidad);
+        cambio();
+        destino.actualizarPosicion(id, x, y, angulo, tiempoNanos, entradaConfirmada, velocidad);
+    }
+
+    @Override
+    public void registrarArribo(long tiempoNanos) {
+        destino.registrarArribo(tiempoNanos); // la grabación no guarda tiempos de llegada
+    }
+
+    @Override
+    public void actualizarGas(float gas, int id) {
+        if (presente(id)) {
+            actual.setGas(id, gas);
+            cambio();
+        }
+        destino.actualizarGas(gas, id);
+    }
+
+    @Override
+    public void actualizarDinero(int dinero, int id) {
+        if (presente(id)) {
+            actual.dinero[id] = dinero;
+            cambio();
+        }
+        destino.actualizarDinero(dinero, id);
+    }
+
+    @Override
+    public void actualizarVida(int vida, int id) {
+        if (presente(id)) {
+            actual.vida[id] = vida;
+            cambio();
+        }
+        destino.actualizarVida(vida, id);
+    }
+
+    @Override
+    public void actualizarDelivery(Rectangle target, boolean dangerous, int reward, int id) {
+        if (presente(id)) {
+            if (target != null) actual.setPedido(id, target.x, target.y, target.width, target.height, dangerous, reward);
+            else actual.conPedido[id] = false;
+            cambio();
+        }
+        destino.actualizarDelivery(target, dangerous, reward, id);
+    }
+
+    @Override
+    public void actualizarHint(int id, int tipo) {
+        if (presente(id)) {
+            actual.hint[id] = tipo;
+            cambio();
+        }
+        destino.actualizarHint(id, tipo);
+    }
+
+    @Override
+    public void actualizarGasHint(int idJugador, boolean enGas) {
+        if (presente(idJugador)) {
+            actual.gasHint[idJugador] = enGas;
+            cambio();
+        }
+        destino.actualizarGasHint(idJugador, enGas);
+    }
+
+    @Override
+    public void onGameOver(int winnerIndex) {
+        ganador = winnerIndex;
+        close();
+        destino.onGameOver(winnerIndex);
+    }
+
+    @Override
+    public void onOpponentLeft() {
+        close();
+        destino.onOpponentLeft();
+    }
+
+    @Override
+    public void onConnectionLost() {
+        close();
+        destino.onConnectionLost();
+    }
+
+    @Override public void enviarInput(int tecla) { destino.enviarInput(tecla); }
+    @Override public void onReset() { destino.onReset(); }
+    @Override public void onConnected(int playerId) { destino.onConnected(playerId); }
+    @Override public void onStartMatch() { destino.onStartMatch(); }
+    @Override public void onReanudada() { destino.onReanudada(); }
+}
@@ -0,0 +1,126 @@
+package red;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Lee un archivo de {@link GrabadorCaptura} mapeado en memoria, registro por registro,
+ * sin copiar: {@link #getDatos()} es una vista sobre el mapa que se reutiliza.
+ *
+ * Al abrir recorre el archivo una vez para contar registros y duración. Si la captura
+ * quedó cortada (el juego se cerró mientras grababa) se lee hasta el último registro
+ * completo.
+ */
+public final class LectorCaptura implements Closeable {
+
+    private final File archivo;
+    private final FileChannel canal;
+    private final MappedByteBuffer mapa;
+    private final ByteBuffer cursor;
+    private final ByteBuffer datos;
+    /** Fin del último registro completo. */
+    private final int fin;
+    private final long registros;
+    private final long duracionNs;
+
+    private long nanos;
+    private long leidos;
+
+    public LectorCaptura(File archivo) throws IOException {
+        this.archivo = archivo;
+        canal = FileChannel.open(archivo.toPath(), StandardOpenOption.READ);
+        try {
+            long tam = canal.size();
+            if (tam > Integer.MAX_VALUE) throw new IOException("captura demasiado grande: " + archivo);
+            mapa = canal.map(FileChannel.MapMode.READ_ONLY, 0, tam);
+            mapa.order(ByteOrder.LITTLE_ENDIAN);
+            if (tam < GrabadorCaptura.CABECERA || mapa.getInt(0) != GrabadorCaptura.MAGIA) {
+                throw new IOException("no es una captura: " + archivo);
+            }
+            if (mapa.get(4) != GrabadorCaptura.VERSION) {
+                throw new IOException("versión de captura " + mapa.get(4) + " no soportada: " + archivo);
+            }
+        } catch (IOException | RuntimeException e) {
+            canal.close();
+            throw e;
+        }
+        cursor = mapa.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        datos = mapa.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+
+        // una pasada para saber cuántos hay y hasta dónde están completos
+        cursor.position(GrabadorCaptura.CABECERA);
+        long n = 0, t = 0;
+        int ultimo = cursor.position();
+        while (saltear()) {
+            n++;
+            t = nanos;
+            ultimo = cursor.position();
+        }
+        fin = ultimo;
+        registros = n;
+        duracionNs = t;
+        rebobinar();
+    }
+
+    /** Vuelve al primer registro. */
+    public void rebobinar() {
+        cursor.limit(cursor.capacity()).position(GrabadorCaptura.CABECERA);
+        datos.limit(0);
+        nanos = 0;
+        leidos = 0;
+    }
+
+    /** Avanza al próximo registro; false al final de la captura. */
+    public boolean siguiente() {
+        if (cursor.position() >= fin || !saltear()) return false;
+        leidos++;
+        return true;
+    }
+
+    /** Lee un registro dejando datos apuntando a sus bytes; false si no está completo. */
+    private boolean saltear() {
+        int p = cursor.position();
+        try {
+            long delta = GrabadorCaptura.leerVarint(cursor);
+            long largo = GrabadorCaptura.leerVarint(cursor);
+            if (largo > cursor.remaining()) throw new IllegalStateException();
+            int inicio = cursor.position();
+            datos.limit(inicio + (int) largo).position(inicio);
+            cursor.position(inicio + (int) largo);
+            nanos += delta;
+            return true;
+        } catch (RuntimeException e) {
+            // registro cortado (o basura al final): ahí termina
+            cursor.position(p);
+            return false;
+        }
+    }
+
+    /** Nanos del registro actual desde el primero de la captura. */
+    public long getNanos() { return nanos; }
+
+    /**
+     * Bytes del registro actual en [position, limit). Es la misma vista para todos los
+     * registros: vale hasta el próximo {@link #siguiente()}.
+     */
+    public ByteBuffer getDatos() { return datos; }
+
+    /** System.nanoTime() del primer datagrama, en la máquina que grabó. */
+    public long getInicioNanos() { return mapa.getLong(8); }
+
+    public long getRegistros() { return registros; }
+    public long getLeidos() { return leidos; }
+    public long getDuracionNs() { return duracionNs; }
+    public File getArchivo() { return archivo; }
+
+    @Override
+    public void close() throws IOException {
+        canal.close(); // el mapa lo libera el GC
+    }
+}
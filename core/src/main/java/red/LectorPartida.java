@@ -0,0 +1,213 @@
+package red;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Lee una partida de {@link GrabadorPartida} mapeada en memoria. {@link #leer} aplica el
+ * próximo registro sobre un {@link CuadroPartida} (un keyframe lo pisa entero, un delta
+ * lo modifica) y {@link #buscar} salta a un keyframe por el índice, sin recorrer nada.
+ *
+ * Si la partida no se cerró bien (sin índice, o con el final cortado) al abrir se recorre
+ * una vez para rearmar el índice, hasta el último registro completo.
+ */
+public final class LectorPartida implements Closeable {
+
+    private final File archivo;
+    private final FileChannel canal;
+    private final MappedByteBuffer mapa;
+    private final ByteBuffer cursor;
+
+    private final int localId;
+    private final int intervaloMs;
+    private final int ganador;
+    private int[] indice;
+    private int keyframes;
+    /** Fin del último registro (donde empieza el índice). */
+    private int fin;
+    private long duracionMs;
+    private final boolean reparada;
+
+    public LectorPartida(File archivo) throws IOException {
+        this.archivo = archivo;
+        canal = FileChannel.open(archivo.toPath(), StandardOpenOption.READ);
+        try {
+            long tam = canal.size();
+            if (tam > Integer.MAX_VALUE) throw new IOException("partida demasiado grande: " + archivo);
+            mapa = canal.map(FileChannel.MapMode.READ_ONLY, 0, tam);
+            mapa.order(ByteOrder.LITTLE_ENDIAN);
+            if (tam < GrabadorPartida.CABECERA || mapa.getInt(0) != GrabadorPartida.MAGIA) {
+                throw new IOException("no es una partida grabada: " + archivo);
+            }
+            if (mapa.get(4) != GrabadorPartida.VERSION) {
+                throw new IOException("versión de partida " + mapa.get(4) + " no soportada: " + archivo);
+            }
+        } catch (IOException | RuntimeException e) {
+            canal.close();
+            throw e;
+        }
+        cursor = mapa.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+
+        localId = mapa.get(5);
+        intervaloMs = Math.max(1, mapa.getInt(8));
+        long offsetIndice = mapa.getLong(16);
+        ganador = mapa.getInt(28);
+        reparada = !leerIndice(offsetIndice);
+        if (reparada) reconstruirIndice();
+        else duracionMs = mapa.getInt(24) & 0xFFFFFFFFL;
+    }
+
+    /** El índice que dejó el grabador al cerrar; false si no hay o no cierra. */
+    private boolean leerIndice(long offset) {
+        if (offset < GrabadorPartida.CABECERA || offset + 4 > mapa.capacity()) return false;
+        int n = mapa.getInt((int) offset);
+        if (n < 0 || offset + 4 + 4L * n != mapa.capacity()) return false;
+        indice = new int[Math.max(1, n)];
+        for (int i = 0; i < n; i++) indice[i] = mapa.getInt((int) offset + 4 + 4 * i);
+        keyframes = n;
+        fin = (int) offset;
+        return true;
+    }
+
+    /** Recorre todo, anota los keyframes y corta en el primer registro incompleto. */
+    private void reconstruirIndice() {
+        indice = new int[64];
+        keyframes = 0;
+        fin = mapa.capacity();
+        CuadroPartida c = new CuadroPartida();
+        cursor.position(GrabadorPartida.CABECERA);
+        int ultimo = cursor.position();
+        long duracion = 0;
+        while (true) {
+            int p = cursor.position();
+            boolean keyframe = p < fin && cursor.get(p) == GrabadorPartida.KEYFRAME;
+            if (!leer(c)) break;
+            ultimo = cursor.position();
+            duracion = c.tiempoMs;
+            if (!keyframe) continue;
+            int intervalo = (int) (c.tiempoMs / intervaloMs);
+            if (intervalo < keyframes) continue; // no pasa con un grabador sano
+            if (intervalo >= indice.length) indice = Arrays.copyOf(indice, Math.max(indice.length * 2, intervalo + 1));
+            int relleno = keyframes > 0 ? indice[keyframes - 1] : p;
+            for (int i = keyframes; i < intervalo; i++) indice[i] = relleno;
+            indice[intervalo] = p;
+            keyframes = intervalo + 1;
+        }
+        fin = ultimo;
+        duracionMs = duracion;
+    }
+
+    /**
+     * Aplica el próximo registro sobre c (que tiene que tener el estado anterior, salvo
+     * que el registro sea un keyframe).
+     * @return false al final de la partida (si el último registro estaba cortado, c
+     *         puede quedar a medio aplicar: no usarlo)
+     */
+    public boolean leer(CuadroPartida c) {
+        int p = cursor.position();
+        if (p >= fin) return false;
+        try {
+            byte tipo = cursor.get();
+            if (tipo == GrabadorPartida.KEYFRAME) leerKeyframe(c);
+            else if (tipo == GrabadorPartida.DELTA) leerDelta(c);
+            else throw new IllegalStateException("registro " + tipo);
+            return true;
+        } catch (RuntimeException e) {
+            cursor.position(p);
+            return false;
+        }
+    }
+
+    private void leerKeyframe(CuadroPartida c) {
+        long t = GrabadorCaptura.leerVarint(cursor);
+        int n = cursor.get() & 0xFF;
+        c.limpiar();
+        c.tiempoMs = t;
+        for (int id = 0; id < n; id++) {
+            if (cursor.get() == 0) continue;
+            c.presente[id] = true;
+            c.x[id] = GrabadorPartida.leerZigzag(cursor);
+            c.y[id] = GrabadorPartida.leerZigzag(cursor);
+            c.angulo[id] = (int) GrabadorCaptura.leerVarint(cursor);
+            c.velocidad[id] = GrabadorPartida.leerZigzag(cursor);
+            c.gas[id] = GrabadorPartida.leerZigzag(cursor);
+            c.dinero[id] = GrabadorPartida.leerZigzag(cursor);
+            c.vida[id] = GrabadorPartida.leerZigzag(cursor);
+            c.hint[id] = GrabadorPartida.leerZigzag(cursor);
+            c.gasHint[id] = cursor.get() != 0;
+            leerPedido(c, id);
+        }
+    }
+
+    private void leerDelta(CuadroPartida c) {
+        c.tiempoMs += GrabadorCaptura.leerVarint(cursor);
+        int id;
+        while ((id = cursor.get() & 0xFF) != GrabadorPartida.FIN_CUADRO) {
+            int campos = (int) GrabadorCaptura.leerVarint(cursor);
+            c.presente[id] = campos != 0;
+            if ((campos & Snapshot.POSICION) != 0) {
+                c.x[id] += GrabadorPartida.leerZigzag(cursor);
+                c.y[id] += GrabadorPartida.leerZigzag(cursor);
+            }
+            if ((campos & Snapshot.ANGULO) != 0) {
+                c.angulo[id] = Math.floorMod(c.angulo[id] + GrabadorPartida.leerZigzag(cursor), CuadroPartida.VUELTA);
+            }
+            if ((campos & Snapshot.VELOCIDAD) != 0) c.velocidad[id] += GrabadorPartida.leerZigzag(cursor);
+            if ((campos & Snapshot.GAS) != 0) c.gas[id] += GrabadorPartida.leerZigzag(cursor);
+            if ((campos & Snapshot.DINERO) != 0) c.dinero[id] = GrabadorPartida.leerZigzag(cursor);
+            if ((campos & Snapshot.VIDA) != 0) c.vida[id] = GrabadorPartida.leerZigzag(cursor);
+            if ((campos & Snapshot.HINT) != 0) c.hint[id] = GrabadorPartida.leerZigzag(cursor);
+            if ((campos & Snapshot.GAS_HINT) != 0) c.gasHint[id] = cursor.get() != 0;
+            if ((campos & CuadroPartida.PEDIDO) != 0) leerPedido(c, id);
+        }
+    }
+
+    private void leerPedido(CuadroPartida c, int id) {
+        if (cursor.get() == 0) {
+            c.conPedido[id] = false;
+            return;
+        }
+        float px = cursor.getFloat(), py = cursor.getFloat(), ancho = cursor.getFloat(), alto = cursor.getFloat();
+        boolean peligro = cursor.get() != 0;
+        c.setPedido(id, px, py, ancho, alto, peligro, GrabadorPartida.leerZigzag(cursor));
+    }
+
+    /**
+     * Carga en c el keyframe k (recortado a los que hay) y deja el cursor después de él.
+     * @return false si la partida no tiene ningún keyframe
+     */
+    public boolean buscar(int k, CuadroPartida c) {
+        if (keyframes == 0) return false;
+        cursor.position(indice[Math.max(0, Math.min(k, keyframes - 1))]);
+        return leer(c);
+    }
+
+    /** Keyframe del intervalo que contiene ms. */
+    public int keyframeDe(long ms) {
+        return (int) Math.max(0, Math.min(ms / intervaloMs, keyframes - 1));
+    }
+
+    /** Id del jugador que grabó (el de la cámara y el HUD). */
+    public int getLocalId() { return localId; }
+    public int getIntervaloMs() { return intervaloMs; }
+    public int getKeyframes() { return keyframes; }
+    public long getDuracionMs() { return duracionMs; }
+    /** Ganador (como lo manda el server) o {@link GrabadorPartida#SIN_GANADOR}. */
+    public int getGanador() { return ganador; }
+    /** true si no se cerró bien y el índice se rearmó al abrir. */
+    public boolean isReparada() { return reparada; }
+    public long getBytes() { return mapa.capacity(); }
+    public File getArchivo() { return archivo; }
+
+    @Override
+    public void close() throws IOException {
+        canal.close();
+    }
+}
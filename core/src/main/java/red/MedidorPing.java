@@ -0,0 +1,182 @@
+package red;
+
+import java.util.Arrays;
+
+/**
+ * RTT, jitter y pérdida medidos con el heartbeat: cada Ping lleva una secuencia y el
+ * nanoTime de envío, y el Pong devuelve los dos tal cual.
+ *
+ * - RTT: últimas {@link #MUESTRAS} muestras, percentiles a pedido.
+ * - Jitter: estimador de RFC 3550 (J += (|D| - J) / 16) con D = diferencia entre RTTs
+ *   consecutivos, en ms.
+ * - Pérdida: un ping sin Pong después de {@link #PLAZO_PONG_NS} cuenta como perdido
+ *   (si el Pong llega más tarde se corrige). Porcentaje sobre los últimos
+ *   {@link #VENTANA_PERDIDA} pings ya resueltos.
+ *
+ * Un server de texto viejo contesta "Pong" sin eco: se le asigna al último ping sin
+ * respuesta, así igual hay una medida (aproximada).
+ *
+ * Lo escribe el hilo de red y lo lee cualquiera: métodos synchronized (4 pings/s).
+ */
+public final class MedidorPing {
+
+    public static final int MUESTRAS = 128;
+    public static final int VENTANA_PERDIDA = 40;   // 10 s a 4 pings/s
+    public static final long PLAZO_PONG_NS = 1_000_000_000L;
+    private static final int MIN_PERDIDOS_SEGUIDOS = 3;
+
+    private static final int CAPACIDAD = 64; // potencia de 2, > VENTANA_PERDIDA
+    private static final byte PENDIENTE = 0, RESPONDIDO = 1, PERDIDO = 2;
+
+    private final long intervaloNs;
+
+    // ===== Pings por secuencia =====
+    private final long[] enviadoNs = new long[CAPACIDAD];
+    private final byte[] estado = new byte[CAPACIDAD];
+    private int ultima = -1;      // última secuencia enviada
+    private int primera = 0;      // primera de la sesión
+
+    // ===== RTT =====
+    private final float[] rtt = new float[MUESTRAS];   // ms
+    private final float[] ordenados = new float[MUESTRAS];
+    private int cantRtt = 0, proxRtt = 0;
+    private float rttUltimo = -1f;
+    private float jitter = 0f;
+
+    // ===== Totales =====
+    private long enviados, respondidos, tardios, duplicados;
+
+    /** @param intervaloNs cada cuánto se manda un ping (para la regla de vida) */
+    public MedidorPing(long intervaloNs) {
+        this.intervaloNs = intervaloNs;
+    }
+
+    public synchronized void reiniciar() {
+        ultima = -1;
+        primera = 0;
+        cantRtt = proxRtt = 0;
+        rttUltimo = -1f;
+        jitter = 0f;
+    }
+
+    /** Próxima secuencia a usar (u32 en un int). */
+    public synchronized int proximaSecuencia() {
+        return ultima + 1;
+    }
+
+    public synchronized void registrarEnvio(int secuencia, long ahora) {
+        if (ultima == -1) primera = secuencia;
+        ultima = secuencia;
+        int i = secuencia & (CAPACIDAD - 1);
+        enviadoNs[i] = ahora;
+        estado[i] = PENDIENTE;
+        enviados++;
+    }
+
+    /**
+     * Pong recibido.
+     * @param secuencia eco de la secuencia (u32), o {@link ReceptorMensajes#SIN_TICK} si el server no la manda
+     * @param marca     eco del nanoTime de envío
+     * @return true si respondió a un ping nuestro que no tenía respuesta (muestra válida)
+     */
+    public synchronized boolean registrarPong(long secuencia, long marca, long ahora) {
+        if (ultima == -1) return false;
+        int seq;
+        if (secuencia == ReceptorMensajes.SIN_TICK) {
+            // server viejo: el último sin respuesta
+            seq = ultima;
+            while (ultima - seq < CAPACIDAD - 1 && seq - primera >= 0
+                && estado[seq & (CAPACIDAD - 1)] == RESPONDIDO) seq--;
+            marca = enviadoNs[seq & (CAPACIDAD - 1)];
+        } else {
+            seq = (int) secuencia;
+        }
+        int atras = ultima - seq;
+        if (atras < 0 || atras >= CAPACIDAD || seq - primera < 0) return false;
+        int i = seq & (CAPACIDAD - 1);
+        if (enviadoNs[i] != marca) return false; // eco que no es nuestro (o de un ping pisado)
+        if (estado[i] == RESPONDIDO) { duplicados++; return false; }
+        if (estado[i] == PERDIDO) tardios++;
+        estado[i] = RESPONDIDO;
+        respondidos++;
+
+        float muestra = (ahora - marca) / 1e6f;
+        if (rttUltimo >= 0f) jitter += (Math.abs(muestra - rttUltimo) - jitter) / 16f;
+        rttUltimo = muestra;
+        rtt[proxRtt] = muestra;
+        proxRtt = (proxRtt + 1) % MUESTRAS;
+        if (cantRtt < MUESTRAS) cantRtt++;
+        return true;
+    }
+
+    /** Marca como perdidos los pings que ya vencieron sin Pong. */
+    private void resolver(long ahora) {
+        if (ultima == -1) return;
+        for (int k = 0; k < CAPACIDAD && ultima - k - primera >= 0; k++) {
+            int i = (ultima - k) & (CAPACIDAD - 1);
+            if (estado[i] == PENDIENTE && ahora - enviadoNs[i] > PLAZO_PONG_NS) estado[i] = PERDIDO;
+        }
+    }
+
+    // =========================================================
+    // Estadísticas
+    // =========================================================
+
+    /** Percentil p (0..100) del RTT en ms sobre las últimas muestras, o -1 sin muestras. */
+    public synchronized float getRttPercentil(float p) {
+        if (cantRtt == 0) return -1f;
+        System.arraycopy(rtt, 0, ordenados, 0, cantRtt);
+        Arrays.sort(ordenados, 0, cantRtt);
+        int k = Math.round(p / 100f * (cantRtt - 1));
+        return ordenados[Math.max(0, Math.min(cantRtt - 1, k))];
+    }
+
+    public float getRttP50() { return getRttPercentil(50f); }
+    public float getRttP95() { return getRttPercentil(95f); }
+    public float getRttP99() { return getRttPercentil(99f); }
+
+    public synchronized float getRttUltimo() { return rttUltimo; }
+
+    /** Jitter (RFC 3550) en ms. */
+    public synchronized float getJitter() { return jitter; }
+
+    /** Porcentaje de pings perdidos entre los últimos VENTANA_PERDIDA resueltos. */
+    public synchronized float getPerdida(long ahora) {
+        resolver(ahora);
+        int resueltos = 0, perdidos = 0;
+        for (int k = 0; k < CAPACIDAD && resueltos < VENTANA_PERDIDA && ultima - k - primera >= 0 && ultima != -1; k++) {
+            byte e = estado[(ultima - k) & (CAPACIDAD - 1)];
+            if (e == PENDIENTE) continue;
+            resueltos++;
+            if (e == PERDIDO) perdidos++;
+        }
+        return resueltos == 0 ? 0f : 100f * perdidos / resueltos;
+    }
+
+    /**
+     * ¿Sigue vivo el server? Se decide por la ventana de pérdida: muerto si los últimos
+     * pings resueltos se perdieron todos seguidos y son suficientes para cubrir timeoutMs
+     * (contando el plazo del último). Sin pings resueltos todavía, vivo.
+     */
+    public synchronized boolean isVivo(long timeoutMs, long ahora) {
+        resolver(ahora);
+        long cubrir = Math.max(0L, timeoutMs * 1_000_000L - PLAZO_PONG_NS);
+        int necesarios = (int) Math.min(CAPACIDAD - 1,
+            Math.max(MIN_PERDIDOS_SEGUIDOS, (cubrir + intervaloNs - 1) / intervaloNs));
+        int seguidos = 0;
+        for (int k = 0; k < CAPACIDAD && ultima != -1 && ultima - k - primera >= 0; k++) {
+            byte e = estado[(ultima - k) & (CAPACIDAD - 1)];
+            if (e == PENDIENTE) continue;
+            if (e == RESPONDIDO) return true;
+            if (++seguidos >= necesarios) return false;
+        }
+        return true;
+    }
+
+    public synchronized long getEnviados() { return enviados; }
+    public synchronized long getRespondidos() { return respondidos; }
+
+    /** Pongs que llegaron después de dar el ping por perdido. */
+    public synchronized long getTardios() { return tardios; }
+    public synchronized long getDuplicados() { return duplicados; }
+}
@@ -0,0 +1,152 @@
+package red;
+
+/**
+ * Constantes del protocolo cliente/servidor.
+ *
+ * El formato histórico es texto plano separado por ':' (ej. "Gas:87.5:1").
+ * El formato binario arranca con un byte mágico que además codifica la versión
+ * (0xB0 | version), seguido del byte de tipo y campos de largo fijo en little-endian.
+ * Como el byte mágico nunca es ASCII imprimible, cada datagrama se puede clasificar
+ * sin ambigüedad y el cliente entiende los dos formatos a la vez.
+ *
+ * Negociación: el cliente manda "Conexion" como siempre. Un server nuevo contesta
+ * "OK:&lt;version&gt;"; el cliente confirma con "Binario:&lt;version&gt;" y desde ahí ambos
+ * usan frames binarios. Un server viejo contesta "OK" a secas y todo sigue en texto.
+ * El OK puede traer además el tamaño del mapa en px ("OK:v:ancho:alto"); con eso el
+ * cliente pide posiciones cuantizadas sumando capacidades ("Binario:v:caps", ver
+ * {@link #CAPACIDAD_CUANTIZADO}). Los que no conocen esos campos los ignoran.
+ *
+ * Descubrimiento: antes de elegir server el cliente manda "Sondeo" (no registra a nadie)
+ * a todas las interfaces; los servers contestan "Servidor" con el eco para medir el RTT
+ * (ver {@link DescubrimientoServidores}).
+ *
+ * Entradas: en binario el cliente no manda INPUT (eventos de tecla) sino ENTRADA, el
+ * estado de W/A/S/D/G/E por tick fijo con secuencia y las últimas entradas sin confirmar
+ * repetidas (ver {@link FlujoEntradas}). G y E se disparan en el flanco (0 -> 1). En cada
+ * Movimiento/SNAPSHOT el server le devuelve a ese cliente la última secuencia aplicada
+ * y su velocidad, que es lo que usa la predicción para reconciliar.
+ * En texto sigue el INPUT de siempre.
+ *
+ * Snapshots: en binario el server puede reemplazar Movimiento/Gas/Dinero/Vida/Hint/GasHint
+ * por un único SNAPSHOT por tick con solo los campos que cambiaron desde la última
+ * baseline que el cliente confirmó con SNAPSHOT_ACK (ver {@link ReconstructorSnapshots}).
+ * A un cliente con {@link #CAPACIDAD_CUANTIZADO} le llega SNAPSHOT_CUANTIZADO: lo mismo
+ * con posición y ángulo en punto fijo (ver {@link Cuantizacion}).
+ *
+ * Eventos críticos: en binario Comienza, Delivery, DeliveryFin, GameOver, Reset,
+ * OpponentLeft y Disconnect viajan dentro de un sobre FIABLE (secuencia, ack y el frame
+ * de siempre adentro) y se retransmiten hasta que el otro lado los confirma; se entregan
+ * una sola vez y en orden (ver {@link CanalFiable}). Los snapshots no pasan por ahí.
+ * Para un server que manda alguno de esos eventos suelto, el cliente lo acepta igual.
+ * OK e ID van siempre en texto y sueltos (todavía no se negoció binario): si se pierden,
+ * el cliente repite la Conexion cada medio segundo y el server los vuelve a mandar.
+ *
+ * Fragmentos: un frame binario que no entra en {@link #MTU} (ej. un snapshot con muchos
+ * jugadores) viaja partido en varios FRAGMENTO con el mismo número de mensaje; el cliente
+ * los junta y procesa el frame armado como si hubiera llegado entero (ver
+ * {@link Reensamblador}). Lo que entra en un datagrama nunca se parte.
+ *
+ * Tasa de snapshots: el cliente dice cuántos estados por segundo quiere en el handshake
+ * ("Binario:v:caps:hz") y después, cuando cambia de opinión, con PEDIDO_TASA por el
+ * canal confiable (ver {@link SelectorTasa}). El server contesta siempre con TASA (también
+ * confiable): la que aplicó, que nunca pasa de la suya, y la máxima que puede dar. Un
+ * cliente que nunca recibió TASA tiene un server viejo y no vuelve a pedir.
+ *
+ * Área de interés: el cliente binario manda AREA (suelto, se repite) con el rectángulo
+ * de su cámara más un margen, en px del mundo, cada vez que se mueve. Desde ahí el server
+ * le manda en el SNAPSHOT solo los jugadores que caen adentro (el suyo siempre): uno que
+ * entra viene con todos los campos y uno que sale viene una vez con campos = 0
+ * ({@link Snapshot#SALE}) y deja de venir. Al que nunca mandó AREA le llegan todos.
+ *
+ * Espectadores: en vez de "Conexion" el cliente manda "Espectador:v:caps:hz" (se repite
+ * hasta la respuesta) y el server contesta "Mirando:v:ancho:alto" sin pasar por el lobby
+ * ni por el "Binario": una sola vuelta y ya es binario. Desde ahí le llegan los eventos
+ * y los SNAPSHOT de todos los jugadores de una partida, pero no maneja ninguna moto: no
+ * manda ENTRADA y en los PING y acks va {@link #ID_ESPECTADOR}. Solo binario: un server
+ * viejo no contesta.
+ *
+ * Reanudar: el ID trae además un token de sesión ("ID:slot:token"). Si se corta la red en
+ * plena partida el server no cierra la sesión de un cliente binario de una: la deja
+ * suspendida (la moto frena) hasta {@code Trabajador.SUSPENDIDA_NS}. El cliente manda
+ * "Reanudar:token:v:caps:hz:n" con backoff exponencial, desde la dirección que tenga ahora
+ * (puede haber cambiado); el server mueve la sesión a esa dirección, reinicia el canal y
+ * las entradas y contesta "Reanudada:v:slot", y después el SNAPSHOT completo más los
+ * pedidos activos. El jugador sigue con su moto, su plata y su pedido. n = cuántos
+ * Reanudada vio ya el cliente: un reintento del mismo corte solo repite la respuesta.
+ */
+public final class Protocolo {
+
+    private Protocolo() {}
+
+    // ===== Handshake (siempre en texto) =====
+    public static final String CONEXION = "Conexion";
+    public static final String OK = "OK";
+    public static final String BINARIO = "Binario";
+    /** Bit de capacidades en "Binario:v:caps": entiende SNAPSHOT_CUANTIZADO. */
+    public static final int CAPACIDAD_CUANTIZADO = 1;
+    /** Snapshots por segundo que se pueden pedir como mínimo (el máximo lo pone el server). */
+    public static final int TASA_MINIMA = 10;
+    public static final String ESPECTADOR = "Espectador"; // Espectador:v:caps:hz
+    public static final String MIRANDO = "Mirando";       // Mirando:v:ancho:alto
+    /** Id de un espectador en lo que manda (u8, fuera del rango de jugadores). */
+    public static final int ID_ESPECTADOR = 255;
+    public static final String REANUDAR = "Reanudar";   // Reanudar:token:v:caps:hz:n
+    public static final String REANUDADA = "Reanudada"; // Reanudada:v:slot
+
+    // ===== Descubrimiento en la LAN (texto, no registra al cliente) =====
+    public static final String SONDEO = "Sondeo";     // Sondeo:seq:marca
+    public static final String SERVIDOR = "Servidor"; // Servidor:seq:marca[:version[:jugadores]]
+
+    // ===== Framing binario =====
+    public static final int VERSION = 1;
+    public static final int MAGIA_BASE = 0xB0;
+    public static final int HEADER = 2; // magia+version, tipo
+    /**
+     * Datagrama más largo que se manda sin partir. 1200 pasa por cualquier camino sin
+     * fragmentación IP (IPv6 garantiza 1280 con cabeceras); la LAN casi siempre aguanta 1500.
+     */
+    public static final int MTU = 1200;
+
+    // ===== Tipos server -> cliente =====
+    public static final byte ID           = 1;
+    public static final byte COMIENZA     = 2;
+    public static final byte MOVIMIENTO   = 3;
+    public static final byte GAS          = 4;
+    public static final byte DINERO       = 5;
+    public static final byte VIDA         = 6;
+    public static final byte DELIVERY     = 7;
+    public static final byte DELIVERY_FIN = 8;
+    public static final byte HINT         = 9;
+    public static final byte GAS_HINT     = 10;
+    public static final byte GAME_OVER    = 11;
+    public static final byte RESET        = 12;
+    public static final byte OPPONENT_LEFT = 13;
+    public static final byte PONG         = 14;
+    public static final byte SNAPSHOT     = 15;
+    public static final byte FRAGMENTO    = 16;
+    public static final byte SNAPSHOT_CUANTIZADO = 17;
+    public static final byte TASA         = 18;
+
+    // ===== Tipos cliente -> server =====
+    public static final byte INPUT        = 64;
+    public static final byte PING         = 65;
+    public static final byte DISCONNECT   = 66;
+    public static final byte ENTRADA      = 67;
+    public static final byte SNAPSHOT_ACK = 68;
+    public static final byte PEDIDO_TASA  = 69;
+    public static final byte AREA         = 70;
+
+    // ===== Canal confiable (en los dos sentidos) =====
+    public static final byte FIABLE       = 32;
+    public static final byte FIABLE_ACK   = 33;
+
+    public static byte magia(int version) {
+        return (byte) (MAGIA_BASE | (version & 0x0F));
+    }
+
+    /** Devuelve la versión si b es un byte mágico binario, o -1 si es texto. */
+    public static int versionDeMagia(byte b) {
+        int v = b & 0xFF;
+        return (v & 0xF0) == MAGIA_BASE ? (v & 0x0F) : -1;
+    }
+}
@@ -0,0 +1,83 @@
+package red;
+
+/**
+ * Lado server del {@link FlujoEntradas}: de cada paquete ENTRADA (la más nueva primero y
+ * las anteriores repetidas) saca solo las entradas que todavía no había visto, en orden.
+ *
+ * Cuenta cuántas llegaron recién en una repetición (el paquete que las traía como más
+ * nueva se perdió o llegó tarde) y cuántas no se pudieron recuperar (hueco más largo
+ * que la redundancia). Un receptor por cliente; no es thread-safe.
+ */
+public final class ReceptorEntradas {
+
+    private boolean hayEntradas = false;
+    private int ultima;
+
+    // ===== Salida del último paquete (de la más vieja a la más nueva) =====
+    private final int[] secuencias = new int[FlujoEntradas.REDUNDANCIA_MAXIMA + 1];
+    private final int[] teclas = new int[FlujoEntradas.REDUNDANCIA_MAXIMA + 1];
+    private int nuevas;
+
+    // ===== Métricas =====
+    private volatile long recibidas;
+    private volatile long recuperadas;
+    private volatile long perdidas;
+    private volatile long paquetesViejos;
+
+    public void reiniciar() {
+        hayEntradas = false;
+        nuevas = 0;
+    }
+
+    /**
+     * @param secuencia  secuencia de la entrada más nueva del paquete
+     * @param mascaras   teclas, la más nueva primero
+     * @return cuántas entradas nuevas quedaron en {@link #getSecuencia}/{@link #getTeclas}
+     */
+    public int aceptar(int secuencia, byte[] mascaras, int cantidad) {
+        nuevas = 0;
+        cantidad = Math.min(cantidad, secuencias.length);
+        if (cantidad <= 0) return 0;
+
+        int desde; // índice dentro del paquete de la más vieja que sirve
+        if (!hayEntradas) {
+            desde = cantidad - 1;
+        } else {
+            int faltan = secuencia - ultima;
+            if (faltan <= 0) {
+                paquetesViejos++;
+                return 0;
+            }
+            if (faltan > cantidad) perdidas += faltan - cantidad;
+            desde = Math.min(faltan, cantidad) - 1;
+        }
+
+        for (int k = desde; k >= 0; k--) {
+            secuencias[nuevas] = secuencia - k;
+            teclas[nuevas] = mascaras[k] & 0xFF;
+            nuevas++;
+            if (k > 0 && hayEntradas) recuperadas++;
+        }
+        recibidas += nuevas;
+        ultima = secuencia;
+        hayEntradas = true;
+        return nuevas;
+    }
+
+    public int getSecuencia(int i) { return secuencias[i]; }
+    public int getTeclas(int i) { return teclas[i]; }
+
+    /** Última secuencia aplicada: la que se devuelve como confirmación. */
+    public int getUltima() { return ultima; }
+
+    public long getRecibidas() { return recibidas; }
+
+    /** Entradas que llegaron solo gracias a la redundancia. */
+    public long getRecuperadas() { return recuperadas; }
+
+    /** Entradas que no llegaron ni repetidas. */
+    public long getPerdidas() { return perdidas; }
+
+    /** Paquetes que no traían nada nuevo (duplicados o desordenados). */
+    public long getPaquetesViejos() { return paquetesViejos; }
+}
@@ -0,0 +1,82 @@
+package red;
+
+/**
+ * Destino de los mensajes ya decodificados (texto o binario).
+ * Solo primitivos: los codecs no crean objetos de juego, eso lo decide quien recibe.
+ *
+ * Los snapshots (Movimiento, Gas, Dinero, Vida) traen el tick del server como u32
+ * en un long, o {@link #SIN_TICK} si el server no lo manda (formato viejo).
+ * Movimiento puede traer además la última ENTRADA que el server le aplicó a este
+ * cliente (también u32, o SIN_TICK) y la velocidad de su moto.
+ */
+public interface ReceptorMensajes {
+
+    long SIN_TICK = -1L;
+    /** Tiempo del server ausente (los nanoTime pueden ser negativos: no sirve -1). */
+    long SIN_TIEMPO = Long.MIN_VALUE;
+
+    /**
+     * Respuesta al handshake. versionBinaria = 0 si el server solo habla texto;
+     * anchoMapa/altoMapa en px, o 0 si el server no los manda (no cuantiza).
+     */
+    void onOk(int versionBinaria, int anchoMapa, int altoMapa);
+
+    /**
+     * Respuesta al handshake de espectador: ya es binario (en esa versión) y no hay ID;
+     * el mapa como en {@link #onOk}.
+     */
+    void onMirando(int versionBinaria, int anchoMapa, int altoMapa);
+
+    /**
+     * Respuesta a un Sondeo de descubrimiento: eco de secuencia y marca, versión binaria
+     * que ofrece (0 = solo texto) y jugadores conectados (-1 si no lo dice).
+     */
+    void onServidor(long secuencia, long marca, int versionBinaria, int jugadores);
+
+    void onId(int playerId);
+
+    /** Token de sesión que vino con el ID (para reanudar si se corta la red). Antes del onId. */
+    void onSesion(long token);
+
+    /** Respuesta a un Reanudar: el server volvió a tomar la sesión de ese jugador. */
+    void onReanudada(int versionBinaria, int playerId);
+    void onComienza();
+
+    void onMovimiento(float x1, float y1, float x2, float y2, float ang1, float ang2, long tick,
+                      long entrada, float velocidad);
+
+    void onGas(int id, float gas, long tick);
+    void onDinero(int id, int dinero, long tick);
+    void onVida(int id, int vida, long tick);
+
+    void onDelivery(int id, float x, float y, float w, float h, boolean peligroso, int recompensa);
+    void onDeliveryFin(int id);
+
+    void onHint(int id, int tipo);
+    void onGasHint(int id, boolean enGas);
+
+    void onGameOver(int ganador);
+    void onReset();
+    void onOpponentLeft();
+
+    /**
+     * Eco del Ping: secuencia (u32) y nanoTime de envío tal como los mandó el cliente,
+     * o SIN_TICK y 0 si el server no los devuelve (formato viejo). recibido/respondido
+     * son los nanoTime del server al recibir el Ping y al mandar el Pong, o SIN_TIEMPO.
+     */
+    void onPong(long secuencia, long marca, long recibido, long respondido);
+
+    /** Snapshots por segundo que el server aplicó a este cliente y los que puede dar como mucho. */
+    void onTasa(int aplicada, int maxima);
+
+    /**
+     * SNAPSHOT agrupado (solo binario): onSnapshot, un onSnapshotJugador por jugador que
+     * cambió (o salió del área de interés: campos = {@link Snapshot#SALE}) y onSnapshotFin.
+     * Los campos que no están en la máscara llegan en 0.
+     * @param baseline tick de referencia del delta, o SIN_TICK si es completo
+     */
+    void onSnapshot(long tick, long baseline, long entrada);
+    void onSnapshotJugador(int id, int campos, float x, float y, float ang, float vel, float gas,
+                           int dinero, int vida, int hint, boolean gasHint);
+    void onSnapshotFin(long tick);
+}
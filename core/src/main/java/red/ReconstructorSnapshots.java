@@ -0,0 +1,122 @@
+package red;
+
+import java.util.Arrays;
+
+/**
+ * Arma snapshots completos a partir de los frames SNAPSHOT delta (hilo de red).
+ *
+ * Guarda los últimos {@link #HISTORIAL} estados reconstruidos indexados por tick. Cada
+ * frame nombra su baseline (un tick que el cliente confirmó) y trae solo los campos que
+ * cambiaron desde ahí; si la baseline ya no está en el historial el frame no se puede
+ * armar y se descarta: como el ack no avanza, el server termina mandando otro contra
+ * una baseline más nueva o uno completo.
+ *
+ * Un frame desordenado que llega {@link #HISTORIAL} ticks o más atrás del último también
+ * se descarta: su lugar en el historial ya es de un tick más nuevo y lo pisaría.
+ */
+public final class ReconstructorSnapshots {
+
+    public static final int HISTORIAL = 64; // potencia de 2
+
+    private final Snapshot[] historial = new Snapshot[HISTORIAL];
+    private Snapshot actual;
+    private long ultimoRecibido = ReceptorMensajes.SIN_TICK;
+
+    // ===== Métricas =====
+    private volatile long completos;
+    private volatile long deltas;
+    private volatile long sinBaseline;
+    private volatile long viejos;
+
+    public ReconstructorSnapshots() {
+        for (int i = 0; i < HISTORIAL; i++) historial[i] = new Snapshot();
+    }
+
+    /** Olvida baselines (nueva sesión / reset de partida). */
+    public void reiniciar() {
+        for (Snapshot s : historial) s.limpiar();
+        actual = null;
+        ultimoRecibido = ReceptorMensajes.SIN_TICK;
+    }
+
+    /**
+     * Empieza un frame.
+     * @param baseline tick de referencia, o SIN_TICK si el frame es completo
+     * @return false si la baseline no está (el resto del frame se ignora)
+     */
+    public boolean empezar(long tick, long baseline, long entrada) {
+        if (ultimoRecibido != ReceptorMensajes.SIN_TICK && (int) (tick - ultimoRecibido) <= -HISTORIAL) {
+            viejos++;
+            actual = null;
+            return false;
+        }
+
+        Snapshot base = null;
+        if (baseline != ReceptorMensajes.SIN_TICK) {
+            base = buscar(baseline);
+            if (base == null) {
+                sinBaseline++;
+                actual = null;
+                return false;
+            }
+        }
+
+        actual = historial[(int) tick & (HISTORIAL - 1)];
+        if (base == null) {
+            actual.limpiar();
+            completos++;
+        } else {
+            if (base != actual) actual.copiarDe(base);
+            deltas++;
+        }
+        Arrays.fill(actual.cambios, 0);
+        actual.tick = ReceptorMensajes.SIN_TICK; // no sirve de baseline hasta terminar
+        actual.entrada = entrada;
+        return true;
+    }
+
+    public void jugador(int id, int campos, float x, float y, float ang, float vel, float gas,
+                        int dinero, int vida, int hint, boolean gasHint) {
+        if (actual == null || id < 0 || id >= Snapshot.MAX_JUGADORES) return;
+        Snapshot s = actual;
+        s.cambios[id] = campos;
+        s.presente[id] = campos != Snapshot.SALE;
+        if ((campos & Snapshot.POSICION) != 0) { s.x[id] = x; s.y[id] = y; }
+        if ((campos & Snapshot.ANGULO) != 0) s.angulo[id] = ang;
+        if ((campos & Snapshot.VELOCIDAD) != 0) s.velocidad[id] = vel;
+        if ((campos & Snapshot.GAS) != 0) s.gas[id] = gas;
+        if ((campos & Snapshot.DINERO) != 0) s.dinero[id] = dinero;
+        if ((campos & Snapshot.VIDA) != 0) s.vida[id] = vida;
+        if ((campos & Snapshot.HINT) != 0) s.hint[id] = hint;
+        if ((campos & Snapshot.GAS_HINT) != 0) s.gasHint[id] = gasHint;
+    }
+
+    /** Cierra el frame: queda como baseline posible. @return el estado completo, o null */
+    public Snapshot terminar(long tick) {
+        Snapshot s = actual;
+        actual = null;
+        if (s == null) return null;
+        s.tick = tick;
+        if (ultimoRecibido == ReceptorMensajes.SIN_TICK || (int) (tick - ultimoRecibido) > 0) {
+            ultimoRecibido = tick;
+        }
+        return s;
+    }
+
+    private Snapshot buscar(long tick) {
+        Snapshot s = historial[(int) tick & (HISTORIAL - 1)];
+        return s.tick == tick ? s : null;
+    }
+
+    /** Tick más nuevo armado: es lo que se confirma al server. */
+    public long getUltimoRecibido() { return ultimoRecibido; }
+
+    public long getCompletos() { return completos; }
+    public long getDeltas() { return deltas; }
+
+    /** Frames descartados porque su baseline ya no estaba. */
+    public long getSinBaseline() { return sinBaseline; }
+
+    /** Frames descartados por llegar más viejos que todo el historial. */
+    public long getViejos() { return viejos; }
+}
@@ -0,0 +1,211 @@
+package red;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Junta los FRAGMENTO de un mensaje partido (ver {@link Fragmentador}) y devuelve el
+ * frame completo cuando llegó el último pedazo, en cualquier orden.
+ *
+ * Hay {@link #RANURAS} mensajes en armado a la vez, cada uno con su buffer de
+ * {@link #MAX_MENSAJE} bytes reservado de entrada: recibir no aloca nada. Un mensaje
+ * que no se completa en {@link #VENCIMIENTO_NS} se descarta (lo que le faltaba cuenta
+ * como fragmentos perdidos); si llega uno nuevo con todas las ranuras ocupadas se pisa
+ * el más viejo. Los fragmentos de un mensaje ya armado o vencido se ignoran.
+ *
+ * Lo usa un solo hilo (el de red); las métricas se pueden leer desde cualquiera.
+ */
+public final class Reensamblador {
+
+    /** Frame más largo que se puede armar (el offset de FRAGMENTO es u16). */
+    public static final int MAX_MENSAJE = 16 * 1024;
+    /** Fragmentos por mensaje como mucho (bits de la máscara de llegados). */
+    public static final int MAX_FRAGMENTOS = 64;
+    public static final int RANURAS = 8;
+    /** Un snapshot que tarda más que esto en completarse ya no sirve. */
+    public static final long VENCIMIENTO_NS = 500_000_000L;
+    /** Mensajes cerrados que se recuerdan para ignorar fragmentos repetidos o tardíos. */
+    private static final int CERRADOS = 32;
+
+    private static final class Ranura {
+        final byte[] datos = new byte[MAX_MENSAJE];
+        final ByteBuffer vista = ByteBuffer.wrap(datos).order(ByteOrder.LITTLE_ENDIAN);
+        boolean usada;
+        int mensaje;
+        int total;
+        long llegados; // bit i = llegó el fragmento i
+        int cantidad;
+        int largo;
+        long primeroNs;
+    }
+
+    private final Ranura[] ranuras = new Ranura[RANURAS];
+    private final int[] cerrados = new int[CERRADOS];
+    private int proxCerrado;
+
+    // ===== Métricas (las escribe el hilo de red) =====
+    private volatile long fragmentos, repetidos, descartados;
+    private volatile long mensajes, vencidos, fragmentosPerdidos;
+    private volatile long latenciaTotalNs, latenciaMaxNs, ultimaLatenciaNs;
+
+    public Reensamblador() {
+        for (int i = 0; i < RANURAS; i++) ranuras[i] = new Ranura();
+        reiniciar();
+    }
+
+    /** Olvida lo que estaba en armado (sesión nueva: los números de mensaje arrancan de nuevo). */
+    public void reiniciar() {
+        for (Ranura r : ranuras) r.usada = false;
+        for (int i = 0; i < CERRADOS; i++) cerrados[i] = -1;
+        proxCerrado = 0;
+    }
+
+    /**
+     * Agrega el FRAGMENTO en [position, limit) de f (sin tocar su estado).
+     * @return el frame completo si este era el que faltaba (válido hasta la próxima
+     *         llamada), o null
+     */
+    public ByteBuffer recibir(ByteBuffer f, long ahora) {
+        vencer(ahora);
+
+        int p = f.position();
+        int len = f.limit() - p;
+        if (len <= CodecBinario.CABECERA_FRAGMENTO) {
+            descartados++;
+            return null;
+        }
+        f.order(ByteOrder.LITTLE_ENDIAN);
+        int mensaje = f.getShort(p + 2) & 0xFFFF;
+        int indice = f.get(p + 4) & 0xFF;
+        int total = f.get(p + 5) & 0xFF;
+        int offset = f.getShort(p + 6) & 0xFFFF;
+        int carga = len - CodecBinario.CABECERA_FRAGMENTO;
+        if (total == 0 || total > MAX_FRAGMENTOS || indice >= total || offset + carga > MAX_MENSAJE) {
+            descartados++;
+            return null;
+        }
+        if (cerrado(mensaje)) {
+            repetidos++;
+            return null;
+        }
+
+        Ranura r = buscar(mensaje, total, ahora);
+        if (r == null) {
+            descartados++;
+            return null;
+        }
+        long bit = 1L << indice;
+        if ((r.llegados & bit) != 0) {
+            repetidos++;
+            return null;
+        }
+        f.position(p + CodecBinario.CABECERA_FRAGMENTO);
+        f.get(r.datos, offset, carga);
+        f.position(p);
+        r.llegados |= bit;
+        r.cantidad++;
+        if (indice == total - 1) r.largo = offset + carga;
+        fragmentos++;
+        if (r.cantidad < total) return null;
+
+        long latencia = ahora - r.primeroNs;
+        ultimaLatenciaNs = latencia;
+        latenciaTotalNs += latencia;
+        if (latencia > latenciaMaxNs) latenciaMaxNs = latencia;
+        mensajes++;
+        cerrar(r);
+        r.vista.limit(r.largo).position(0);
+        return r.vista;
+    }
+
+    /**
+     * La ranura de ese mensaje, o una nueva (libre, o la más vieja si no hay); null si ya
+     * hay uno con ese número y otro total (fragmento que no cierra con los demás).
+     */
+    private Ranura buscar(int mensaje, int total, long ahora) {
+        Ranura libre = null, vieja = null;
+        for (Ranura r : ranuras) {
+            if (!r.usada) {
+                if (libre == null) libre = r;
+                continue;
+            }
+            if (r.mensaje == mensaje) return r.total == total ? r : null;
+            if (vieja == null || r.primeroNs - vieja.primeroNs < 0) vieja = r;
+        }
+        Ranura r = libre;
+        if (r == null) {
+            perder(vieja);
+            r = vieja;
+        }
+        r.usada = true;
+        r.mensaje = mensaje;
+        r.total = total;
+        r.llegados = 0;
+        r.cantidad = 0;
+        r.largo = 0;
+        r.primeroNs = ahora;
+        return r;
+    }
+
+    /** Descarta los mensajes que llevan más de {@link #VENCIMIENTO_NS} incompletos. */
+    public void vencer(long ahora) {
+        for (Ranura r : ranuras) {
+            if (r.usada && ahora - r.primeroNs > VENCIMIENTO_NS) perder(r);
+        }
+    }
+
+    private void perder(Ranura r) {
+        vencidos++;
+        fragmentosPerdidos += r.total - r.cantidad;
+        cerrar(r);
+    }
+
+    private void cerrar(Ranura r) {
+        r.usada = false;
+        cerrados[proxCerrado] = r.mensaje;
+        proxCerrado = (proxCerrado + 1) % CERRADOS;
+    }
+
+    private boolean cerrado(int mensaje) {
+        for (int c : cerrados) if (c == mensaje) return true;
+        return false;
+    }
+
+    // =========================================================
+    // Métricas
+    // =========================================================
+
+    /** Fragmentos útiles recibidos (sin repetidos ni descartados). */
+    public long getFragmentos() { return fragmentos; }
+    public long getRepetidos() { return repetidos; }
+    /** FRAGMENTO mal formados o que no entran en {@link #MAX_MENSAJE}. */
+    public long getDescartados() { return descartados; }
+    /** Mensajes armados completos. */
+    public long getMensajes() { return mensajes; }
+    /** Mensajes que vencieron (o se pisaron) sin completarse. */
+    public long getVencidos() { return vencidos; }
+    /** Los que les faltaban a los mensajes vencidos (un mensaje del que no llegó nada no se ve). */
+    public long getFragmentosPerdidos() { return fragmentosPerdidos; }
+
+    /** Fracción de fragmentos perdidos (0..1) sobre los que se esperaban. */
+    public float getPerdida() {
+        long esperados = fragmentos + fragmentosPerdidos;
+        return esperados == 0 ? 0f : (float) fragmentosPerdidos / esperados;
+    }
+
+    /** Del primer fragmento en llegar al último, en ms. */
+    public float getLatenciaPromedioMs() {
+        long n = mensajes;
+        return n == 0 ? 0f : latenciaTotalNs / 1e6f / n;
+    }
+
+    public float getLatenciaMaxMs() { return latenciaMaxNs / 1e6f; }
+    public float getUltimaLatenciaMs() { return ultimaLatenciaNs / 1e6f; }
+
+    /** Mensajes en armado ahora. */
+    public int getEnCurso() {
+        int n = 0;
+        for (Ranura r : ranuras) if (r.usada) n++;
+        return n;
+    }
+}
@@ -0,0 +1,185 @@
+package red;
+
+/**
+ * Reloj del server estimado estilo NTP sobre el heartbeat, sin mensajes extra.
+ *
+ * Cada Pong trae los cuatro tiempos: t0 (envío del Ping, reloj local), t1 y t2
+ * (recepción y respuesta en el server, reloj del server) y t3 (recepción local).
+ * offset = ((t1 - t0) + (t2 - t3)) / 2 y demora = (t3 - t0) - (t2 - t1).
+ *
+ * Filtro por RTT mínimo: de cada bloque de {@link #BLOQUE} muestras se queda solo la
+ * de menor demora (la que menos cola se comió, así que la más simétrica). Con esos
+ * puntos (tiempo local, offset) se ajusta una recta por mínimos cuadrados: la pendiente
+ * es la deriva entre los dos relojes.
+ *
+ * {@link #serverTimeNanos()} nunca va para atrás: los cambios de estimación se aplican
+ * de a poco (slew, hasta {@link #SLEW} del tiempo transcurrido) salvo el primero o un
+ * salto enorme, y aun así se devuelve el máximo con el último valor dado.
+ *
+ * Lo alimenta el hilo de red y lo lee el de render: métodos synchronized.
+ */
+public final class RelojServidor {
+
+    public static final int BLOQUE = 8;          // 2 s de pings a 4/s
+    public static final int PUNTOS = 32;         // ~1 min de historia para la deriva
+    public static final float SLEW = 0.05f;      // 50 ms por segundo como mucho
+    private static final long SALTO_NS = 250_000_000L;
+    private static final double DERIVA_MAX = 500e-6; // ±500 ppm
+    private static final long SPAN_MIN_DERIVA_NS = 10_000_000_000L;
+
+    // ===== Bloque actual (mínima demora) =====
+    private int enBloque = 0;
+    private long mejorDemora;
+    private long mejorT;
+    private long mejorOffset;
+
+    // ===== Puntos filtrados =====
+    private final long[] ptT = new long[PUNTOS];
+    private final long[] ptOffset = new long[PUNTOS];
+    private int cantPuntos = 0, proxPunto = 0;
+
+    // ===== Modelo: offset(t) = base + deriva * (t - tBase) =====
+    private boolean sincronizado = false;
+    private long tBase;
+    private long offsetBase;
+    private double deriva;
+    private long demoraMinima = Long.MAX_VALUE;
+
+    // ===== Lo que se le da al render (monótono) =====
+    private long offsetAplicado;
+    private long ultimoLocal;
+    private long ultimoDevuelto = Long.MIN_VALUE;
+
+    // ===== Métricas =====
+    private long muestras;
+    private long ultimaDemora = -1;
+
+    public synchronized void reiniciar() {
+        enBloque = 0;
+        cantPuntos = proxPunto = 0;
+        sincronizado = false;
+        deriva = 0;
+        demoraMinima = Long.MAX_VALUE;
+        ultimoDevuelto = Long.MIN_VALUE;
+    }
+
+    /** Un Pong con los cuatro tiempos (t0, t3 locales; t1, t2 del server). */
+    public synchronized void muestra(long t0, long t1, long t2, long t3) {
+        long demora = (t3 - t0) - (t2 - t1);
+        if (demora < 0) demora = 0; // el server tardó "menos que nada": redondeos
+        long offset = ((t1 - t0) + (t2 - t3)) / 2;
+        muestras++;
+        ultimaDemora = demora;
+
+        if (!sincronizado) {
+            // primera muestra: arrancamos con algo aunque sea ruidoso
+            sincronizado = true;
+            tBase = t3;
+            offsetBase = offset;
+            offsetAplicado = offset;
+            ultimoLocal = t3;
+        }
+
+        if (enBloque == 0 || demora < mejorDemora) {
+            mejorDemora = demora;
+            mejorT = t0 + (t3 - t0) / 2;
+            mejorOffset = offset;
+        }
+        if (demora < demoraMinima) demoraMinima = demora;
+        if (++enBloque < BLOQUE && cantPuntos > 0) return;
+
+        // cierra el bloque (el primero se cierra en la primera muestra para arrancar rápido)
+        enBloque = 0;
+        ptT[proxPunto] = mejorT;
+        ptOffset[proxPunto] = mejorOffset;
+        proxPunto = (proxPunto + 1) % PUNTOS;
+        if (cantPuntos < PUNTOS) cantPuntos++;
+        ajustar();
+    }
+
+    /** Mínimos cuadrados sobre los puntos filtrados (centrados para no perder precisión). */
+    private void ajustar() {
+        long t0 = ptT[(proxPunto - 1 + PUNTOS) % PUNTOS];
+        double mt = 0, mo = 0;
+        for (int i = 0; i < cantPuntos; i++) { mt += ptT[i] - t0; mo += ptOffset[i] - ptOffset[0]; }
+        mt /= cantPuntos;
+        mo /= cantPuntos;
+
+        double num = 0, den = 0, tMin = Double.MAX_VALUE, tMax = -Double.MAX_VALUE;
+        for (int i = 0; i < cantPuntos; i++) {
+            double dt = ptT[i] - t0 - mt;
+            double dofs = ptOffset[i] - ptOffset[0] - mo;
+            num += dt * dofs;
+            den += dt * dt;
+            tMin = Math.min(tMin, ptT[i] - t0);
+            tMax = Math.max(tMax, ptT[i] - t0);
+        }
+        deriva = den > 0 && tMax - tMin >= SPAN_MIN_DERIVA_NS
+            ? Math.max(-DERIVA_MAX, Math.min(DERIVA_MAX, num / den))
+            : 0;
+        tBase = t0 + (long) mt;
+        offsetBase = ptOffset[0] + (long) mo;
+    }
+
+    private long offsetModelo(long t) {
+        return offsetBase + (long) (deriva * (t - tBase));
+    }
+
+    // =========================================================
+    // Lectura
+    // =========================================================
+
+    /** Hora del server ahora, en su System.nanoTime (monótona). Sin sincronizar: la local. */
+    public long serverTimeNanos() {
+        return serverTimeNanos(System.nanoTime());
+    }
+
+    public synchronized long serverTimeNanos(long local) {
+        if (!sincronizado) return local;
+        long objetivo = offsetModelo(local);
+        long transcurrido = Math.max(0L, local - ultimoLocal);
+        long dif = objetivo - offsetAplicado;
+        if (Math.abs(dif) > SALTO_NS) {
+            offsetAplicado = objetivo; // teletransporte (cambio de server, suspensión)
+        } else {
+            long paso = (long) (transcurrido * SLEW);
+            offsetAplicado += Math.max(-paso, Math.min(paso, dif));
+        }
+        ultimoLocal = Math.max(ultimoLocal, local);
+
+        long t = local + offsetAplicado;
+        if (t - ultimoDevuelto < 0 && ultimoDevuelto != Long.MIN_VALUE) t = ultimoDevuelto;
+        ultimoDevuelto = t;
+        return t;
+    }
+
+    /** Pasa un instante local (ej. recepción de un paquete) al reloj del server, sin slew. */
+    public synchronized long aServidor(long local) {
+        return sincronizado ? local + offsetModelo(local) : local;
+    }
+
+    /**
+     * Cuándo mandó el server (en su reloj) algo que llegó en el instante local dado:
+     * la recepción pasada al server menos media demora mínima.
+     */
+    public synchronized long envioEstimado(long localRecepcion) {
+        if (!sincronizado) return localRecepcion;
+        return localRecepcion + offsetModelo(localRecepcion) - demoraMinima / 2;
+    }
+
+    public synchronized boolean isSincronizado() { return sincronizado; }
+
+    /** Offset estimado (server - local) en ms. */
+    public synchronized float getOffsetMs() { return sincronizado ? offsetModelo(System.nanoTime()) / 1e6f : 0f; }
+
+    /** Deriva del reloj del server respecto del local, en ppm. */
+    public synchronized float getDerivaPpm() { return (float) (deriva * 1e6); }
+
+    /** Menor demora de ida y vuelta vista (la que define la precisión), en ms. */
+    public synchronized float getDemoraMinimaMs() {
+        return demoraMinima == Long.MAX_VALUE ? -1f : demoraMinima / 1e6f;
+    }
+
+    public synchronized float getUltimaDemoraMs() { return ultimaDemora < 0 ? -1f : ultimaDemora / 1e6f; }
+    public synchronized long getMuestras() { return muestras; }
+}
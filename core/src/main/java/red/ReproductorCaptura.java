@@ -0,0 +1,162 @@
+package red;
+
+import com.motorepartidor.GameController;
+import com.motorepartidor.fisica.ModeloConduccion;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+
+/**
+ * Pasa una captura de {@link GrabadorCaptura} por un {@link hiloCliente} sin red: cada
+ * datagrama entra por el mismo parser, filtros y colas que en vivo y termina en el
+ * GameController de siempre (ej. GameScreen), así que sirve para perfilar el render con
+ * un tráfico real y repetible.
+ *
+ * Los datagramas se inyectan desde {@link hiloCliente#despacharEventos()} (el hilo de
+ * render), según el modo:
+ * - TIEMPO_REAL: respeta los tiempos grabados, multiplicados por la velocidad;
+ * - POR_FRAME: cada despacho avanza un tick (× velocidad) de captura, sin mirar el
+ *   reloj: dos corridas ven exactamente los mismos datagramas en los mismos frames;
+ * - MAXIMA: todo lo que se pueda, de a {@link #LOTE_MAXIMO} datagramas por despacho.
+ *
+ * Con -Dmotorepartidor.reproducir=archivo el juego arranca directo en GameScreen con la
+ * captura (ver Main); -Dmotorepartidor.reproducir.velocidad=N y
+ * -Dmotorepartidor.reproducir.modo=tiempo_real|por_frame|maxima la ajustan.
+ */
+public final class ReproductorCaptura implements FuenteReproduccion, Closeable {
+
+    public static final String PROP_REPRODUCIR = "motorepartidor.reproducir";
+    public static final String PROP_VELOCIDAD = "motorepartidor.reproducir.velocidad";
+    public static final String PROP_MODO = "motorepartidor.reproducir.modo";
+
+    /** Datagramas por despacho en MAXIMA: que los eventos no desborden la cola red → render. */
+    public static final int LOTE_MAXIMO = 64;
+
+    public enum Modo { TIEMPO_REAL, POR_FRAME, MAXIMA }
+
+    private final LectorCaptura lector;
+    private final Modo modo;
+    private final float velocidad;
+    /** Origen de los datagramas (el server "real" no importa: no se le manda nada). */
+    private final InetAddress origen = InetAddress.getLoopbackAddress();
+
+    private boolean empezado;
+    private long inicioNs;
+    private long avanceNs;
+    private boolean hayPendiente;
+    private boolean terminado;
+
+    // ===== Métricas =====
+    private long datagramas;
+    private long bytes;
+    private long procesoNs;
+
+    public ReproductorCaptura(File archivo, Modo modo, float velocidad) throws IOException {
+        if (!(velocidad > 0f)) throw new IllegalArgumentException("velocidad: " + velocidad);
+        this.lector = new LectorCaptura(archivo);
+        this.modo = modo;
+        this.velocidad = velocidad;
+    }
+
+    /** Con las propiedades de sistema, o null si no se pidió reproducir nada. */
+    public static ReproductorCaptura desdePropiedades() throws IOException {
+        String ruta = System.getProperty(PROP_REPRODUCIR);
+        if (ruta == null || ruta.isEmpty()) return null;
+        String m = System.getProperty(PROP_MODO, Modo.TIEMPO_REAL.name());
+        float v = Float.parseFloat(System.getProperty(PROP_VELOCIDAD, "1"));
+        return new ReproductorCaptura(new File(ruta), Modo.valueOf(m.toUpperCase()), v);
+    }
+
+    /** Un cliente que toma sus datagramas de esta captura (no hace falta start()). */
+    public hiloCliente crearCliente() {
+        return new hiloCliente(this);
+    }
+
+    /** Pasa por el parser del cliente los datagramas que tocan ahora. */
+    @Override
+    public int alimentar(hiloCliente cliente) {
+        if (terminado) return 0;
+        long ahora = System.nanoTime();
+        if (!empezado) {
+            empezado = true;
+            inicioNs = ahora;
+        }
+
+        long hasta;
+        int lote = Integer.MAX_VALUE;
+        switch (modo) {
+            case TIEMPO_REAL:
+                hasta = (long) ((ahora - inicioNs) * (double) velocidad);
+                break;
+            case POR_FRAME:
+                avanceNs += (long) (ModeloConduccion.TICK_NS * (double) velocidad);
+                hasta = avanceNs;
+                break;
+            default:
+                hasta = Long.MAX_VALUE;
+                lote = LOTE_MAXIMO;
+                break;
+        }
+
+        int n = 0;
+        while (n < lote) {
+            if (!hayPendiente) {
+                if (!lector.siguiente()) {
+                    terminado = true;
+                    break;
+                }
+                hayPendiente = true;
+            }
+            if (lector.getNanos() > hasta) break;
+            hayPendiente = false;
+            bytes += lector.getDatos().remaining();
+            cliente.procesarMensaje(origen, lector.getDatos());
+            n++;
+        }
+        datagramas += n;
+        procesoNs += System.nanoTime() - ahora;
+        return n;
+    }
+
+    /**
+     * Corre toda la captura contra un controller, despachando sin parar (sin pantalla ni
+     * hilo de red), y devuelve los datagramas procesados. Para benchmarks sin GameScreen:
+     * en POR_FRAME o MAXIMA no espera nunca; en TIEMPO_REAL tarda lo que dura la captura.
+     */
+    public long reproducirTodo(GameController controller) {
+        hiloCliente cliente = crearCliente();
+        cliente.setGameController(controller);
+        while (!terminado) cliente.despacharEventos();
+        cliente.terminarCliente();
+        return datagramas;
+    }
+
+    /** Vuelve al principio (el cliente conserva su estado: usar uno nuevo). */
+    public void rebobinar() {
+        lector.rebobinar();
+        empezado = hayPendiente = terminado = false;
+        avanceNs = 0;
+    }
+
+    public boolean isTerminado() { return terminado; }
+    public Modo getModo() { return modo; }
+    public float getVelocidad() { return velocidad; }
+    public LectorCaptura getLector() { return lector; }
+    public long getDatagramas() { return datagramas; }
+    public long getBytes() { return bytes; }
+    /** Nanos pasados inyectando (parser, filtros y colas; sin los callbacks). */
+    public long getProcesoNs() { return procesoNs; }
+
+    /** Fracción de la captura ya reproducida [0, 1]. */
+    public float getProgreso() {
+        long total = lector.getRegistros();
+        return total == 0 ? 1f : (float) lector.getLeidos() / total;
+    }
+
+    @Override
+    public void close() throws IOException {
+        lector.close();
+    }
+}
@@ -0,0 +1,206 @@
+package red;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Muestra una partida grabada ({@link GrabadorPartida}) a través de un {@link hiloCliente}
+ * sin red: en cada despacho arma un snapshot completo con el estado en el tiempo de
+ * reproducción y lo mete por el receptor del cliente, así que GameScreen (o cualquier
+ * GameController) lo dibuja como si viniera del server.
+ *
+ * Entre dos cuadros grabados interpola posición, ángulo, velocidad y nafta, para que se
+ * vea fluido a cualquier velocidad (0.25x a 8x) aunque se haya grabado a 20 Hz. Ir a
+ * otro momento carga el keyframe de ese intervalo por el índice (un Reset y el estado
+ * completo), sin leer lo anterior.
+ *
+ * Todo se usa desde el hilo de render (controles incluidos).
+ */
+public final class ReproductorPartida implements FuenteReproduccion, Closeable {
+
+    /** -Dmotorepartidor.partida=archivo arranca el juego mostrando esa partida. */
+    public static final String PROP_PARTIDA = "motorepartidor.partida";
+
+    public static final float VELOCIDAD_MINIMA = 0.25f;
+    public static final float VELOCIDAD_MAXIMA = 8f;
+    /** Más que esto entre dos cuadros es un respawn o un reset: salta, no interpola. */
+    static final float SALTO = 200f;
+
+    private final LectorPartida lector;
+    /** Estado en el último cuadro ya pasado (a) y en el próximo (b). */
+    private final CuadroPartida a = new CuadroPartida();
+    private final CuadroPartida b = new CuadroPartida();
+    /** Pedidos que ya se le mostraron al controller. */
+    private final CuadroPartida mostrado = new CuadroPartida();
+    private boolean hayB;
+
+    private boolean empezado;
+    private boolean pausado;
+    private boolean terminado;
+    private int keyframePedido = -1;
+    private double tiempoMs;
+    private float velocidad = 1f;
+    private long ultimoNs;
+    private long tick;
+
+    public ReproductorPartida(File archivo) throws IOException {
+        this.lector = new LectorPartida(archivo);
+    }
+
+    /** La de -Dmotorepartidor.partida, o null si no se pidió. */
+    public static ReproductorPartida desdePropiedades() throws IOException {
+        String ruta = System.getProperty(PROP_PARTIDA);
+        return ruta == null || ruta.isEmpty() ? null : new ReproductorPartida(new File(ruta));
+    }
+
+    /** Un cliente que muestra esta partida (no hace falta start()). */
+    public hiloCliente crearCliente() {
+        return new hiloCliente(this);
+    }
+
+    @Override
+    public int alimentar(hiloCliente cliente) {
+        ReceptorMensajes r = cliente.getReceptor();
+        long ahora = System.nanoTime();
+        int n = 0;
+
+        if (!empezado) {
+            empezado = true;
+            r.onId(lector.getLocalId());
+            r.onComienza();
+            cargar(keyframePedido >= 0 ? keyframePedido : 0);
+            n += 2;
+        } else if (keyframePedido >= 0) {
+            // el Reset limpia filtros, interpolación y pedidos; después va el estado completo
+            r.onReset();
+            mostrado.limpiar();
+            cargar(keyframePedido);
+            n++;
+        } else if (!pausado && !terminado) {
+            tiempoMs += (ahora - ultimoNs) / 1e6 * velocidad;
+            avanzar();
+        }
+        keyframePedido = -1;
+        ultimoNs = ahora;
+
+        n += emitirPedidos(r);
+        emitirSnapshot(r);
+        return n + 1;
+    }
+
+    private void cargar(int k) {
+        terminado = !lector.buscar(k, a);
+        tiempoMs = a.tiempoMs;
+        b.copiarDe(a);
+        hayB = !terminado && lector.leer(b);
+    }
+
+    private void avanzar() {
+        while (hayB && tiempoMs >= b.tiempoMs) {
+            a.copiarDe(b);
+            hayB = lector.leer(b);
+        }
+        if (!hayB && tiempoMs >= a.tiempoMs) {
+            tiempoMs = a.tiempoMs;
+            terminado = true;
+        }
+    }
+
+    private int emitirPedidos(ReceptorMensajes r) {
+        int n = 0;
+        for (int id = 0; id < CuadroPartida.MAX_JUGADORES; id++) {
+            if (!a.presente[id] || a.mismoPedido(mostrado, id)) continue;
+            if (a.conPedido[id]) {
+                r.onDelivery(id, a.pedidoX[id], a.pedidoY[id], a.pedidoAncho[id], a.pedidoAlto[id],
+                    a.peligroso[id], a.recompensa[id]);
+            } else {
+                r.onDeliveryFin(id);
+            }
+            n++;
+        }
+        if (n > 0) mostrado.copiarDe(a);
+        return n;
+    }
+
+    private void emitirSnapshot(ReceptorMensajes r) {
+        float f = 0f;
+        if (hayB && b.tiempoMs > a.tiempoMs) {
+            f = (float) Math.max(0.0, Math.min(1.0, (tiempoMs - a.tiempoMs) / (b.tiempoMs - a.tiempoMs)));
+        }
+        tick++;
+        r.onSnapshot(tick, ReceptorMensajes.SIN_TICK, ReceptorMensajes.SIN_TICK);
+        for (int id = 0; id < CuadroPartida.MAX_JUGADORES; id++) {
+            if (!a.presente[id]) continue;
+            float x = a.getX(id), y = a.getY(id), ang = a.getAngulo(id), vel = a.getVelocidad(id), gas = a.getGas(id);
+            if (f > 0f && b.presente[id]) {
+                float dx = b.getX(id) - x, dy = b.getY(id) - y;
+                if (dx * dx + dy * dy < SALTO * SALTO) {
+                    x += dx * f;
+                    y += dy * f;
+                    float da = ((b.getAngulo(id) - ang) % 360f + 540f) % 360f - 180f; // el camino corto
+                    ang = (ang + da * f + 360f) % 360f;
+                    vel += (b.getVelocidad(id) - vel) * f;
+                    gas += (b.getGas(id) - gas) * f;
+                }
+            }
+            r.onSnapshotJugador(id, Snapshot.TODOS, x, y, ang, vel, gas, a.dinero[id], a.vida[id], a.hint[id],
+                a.gasHint[id]);
+        }
+        r.onSnapshotFin(tick);
+    }
+
+    // =========================================================
+    // Controles
+    // =========================================================
+
+    public boolean isPausado() { return pausado; }
+
+    public void setPausado(boolean pausado) { this.pausado = pausado; }
+
+    /** Play/pausa; al final vuelve a empezar. */
+    public void alternarPausa() {
+        if (terminado) {
+            buscarKeyframe(0);
+            pausado = false;
+        } else {
+            pausado = !pausado;
+        }
+    }
+
+    public float getVelocidad() { return velocidad; }
+
+    public void setVelocidad(float v) {
+        velocidad = Math.max(VELOCIDAD_MINIMA, Math.min(VELOCIDAD_MAXIMA, v));
+    }
+
+    /** Va al keyframe k (recortado a los que hay); se aplica en el próximo despacho. */
+    public void buscarKeyframe(int k) {
+        keyframePedido = Math.max(0, Math.min(k, lector.getKeyframes() - 1));
+        tiempoMs = (double) keyframePedido * lector.getIntervaloMs(); // para la barra hasta que cargue
+    }
+
+    /** Al keyframe del intervalo que contiene ms. */
+    public void buscar(long ms) {
+        buscarKeyframe(lector.keyframeDe(ms));
+    }
+
+    /** n keyframes para adelante (o atrás, negativo) desde el actual. */
+    public void saltar(int n) {
+        buscarKeyframe(getKeyframeActual() + n);
+    }
+
+    public int getKeyframeActual() {
+        return keyframePedido >= 0 ? keyframePedido : lector.keyframeDe((long) tiempoMs);
+    }
+
+    public long getTiempoMs() { return (long) tiempoMs; }
+    public long getDuracionMs() { return lector.getDuracionMs(); }
+    public boolean isTerminado() { return terminado; }
+    public LectorPartida getLector() { return lector; }
+
+    @Override
+    public void close() throws IOException {
+        lector.close();
+    }
+}
@@ -0,0 +1,190 @@
+package red;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Elige cuántos snapshots por segundo pedirle al server según cómo anda este cliente.
+ *
+ * - Frames: los snapshots se aplican una vez por frame (los que llegan juntos se
+ *   coalescen), así que más snapshots que frames es tráfico tirado. Se pide la tasa más
+ *   alta de {@link #TASAS} que el frame rate medido sostiene.
+ * - Pérdida de pings arriba de {@link #PERDIDA_ENTRA}%: el enlace está saturado o es un
+ *   Wi-Fi malo; se baja a {@link #TECHO_PERDIDA} para no empeorarlo.
+ * - RTT arriba de {@link #RTT_ENTRA_MS}: la interpolación ya va atrasada; con
+ *   {@link #TECHO_RTT} alcanza.
+ *
+ * Histéresis en dos niveles para que no oscile: cada condición entra y sale con umbrales
+ * distintos (ej. la pérdida entra en 5% y sale en 2%, los frames suben con un 95% de la
+ * tasa y bajan recién con un 80%), y un cambio tiene que sostenerse {@link #BAJAR_NS}
+ * para bajar o {@link #SUBIR_NS} para subir. Se sube de a un escalón; se baja de una.
+ *
+ * Hilos: {@link #registrarFrame} desde el de render; el resto desde el de red. Las
+ * lecturas para la vista de debug se pueden hacer desde cualquiera.
+ */
+public final class SelectorTasa {
+
+    /** Dividen justo los 60 ticks del server: un snapshot cada 6, 4, 3, 2 o 1 ticks. */
+    static final int[] TASAS = {10, 15, 20, 30, 60};
+
+    // ===== Histéresis =====
+    static final float MARGEN_SUBIR_FPS = 0.95f;
+    static final float MARGEN_BAJAR_FPS = 0.8f;
+    static final float PERDIDA_ENTRA = 5f, PERDIDA_SALE = 2f; // %
+    static final float RTT_ENTRA_MS = 150f, RTT_SALE_MS = 100f;
+    static final int TECHO_PERDIDA = 20;
+    static final int TECHO_RTT = 30;
+    static final long SUBIR_NS = TimeUnit.SECONDS.toNanos(3);
+    static final long BAJAR_NS = TimeUnit.SECONDS.toNanos(1);
+
+    // ===== Medición de frames =====
+    /** Un frame más largo que esto es una pausa (ventana arrastrada, carga), no cuenta. */
+    static final long FRAME_MAX_NS = 250_000_000L;
+    /** Sin frames hace este rato (menú, ventana minimizada) el frame rate no se sabe. */
+    static final long SIN_FRAMES_NS = 1_000_000_000L;
+    static final float SUAVIZADO_FRAME = 0.05f;
+    static final float SUAVIZADO_BYTES = 0.1f;
+    /** IPv4 + UDP por datagrama, para estimar lo que se ahorra en el cable. */
+    static final int CABECERAS_UDP = 28;
+
+    // ===== Hilo de render =====
+    private volatile long ultimoFrameNs;
+    private volatile float frameNs; // promedio exponencial
+
+    // ===== Hilo de red =====
+    private volatile int pedida;
+    private volatile int aplicada, maxima;
+    private volatile boolean limiteFps, limitePerdida, limiteRtt;
+    private volatile float bytesSnapshot;
+    private volatile long cambios;
+    private int direccion;   // -1 / 1 mientras el objetivo está abajo / arriba de la pedida
+    private long desdeNs;
+
+    /** Sesión nueva: no se sabe qué da el server (el frame rate se conserva). */
+    public void reiniciar() {
+        pedida = aplicada = maxima = 0;
+        limiteFps = limitePerdida = limiteRtt = false;
+        bytesSnapshot = 0f;
+        direccion = 0;
+    }
+
+    /** Una vez por frame (hilo de render). */
+    public void registrarFrame(long ahora) {
+        long antes = ultimoFrameNs;
+        ultimoFrameNs = ahora;
+        long dt = ahora - antes;
+        if (antes == 0 || dt <= 0 || dt > FRAME_MAX_NS) return;
+        float f = frameNs;
+        frameNs = f == 0f ? dt : f + SUAVIZADO_FRAME * (dt - f);
+    }
+
+    /** Largo de cada snapshot recibido (frame completo, ya armado si vino partido). */
+    public void registrarSnapshot(int bytes) {
+        float b = bytesSnapshot;
+        bytesSnapshot = b == 0f ? bytes : b + SUAVIZADO_BYTES * (bytes - b);
+    }
+
+    /** Tasa para el handshake: solo con el frame rate, todavía no hay pings. */
+    public int inicial(long ahora) {
+        pedida = 0;
+        direccion = 0;
+        pedida = objetivo(ahora, 0f, -1f);
+        return pedida;
+    }
+
+    /** TASA del server: lo que aplicó y lo máximo que da. */
+    public void confirmar(int aplicada, int maxima) {
+        this.aplicada = aplicada;
+        this.maxima = maxima;
+    }
+
+    /**
+     * Recalcula con las últimas mediciones (cada ping alcanza).
+     * @param perdida % de pings perdidos
+     * @param rttMs RTT típico, o negativo si todavía no hay
+     * @return true si cambió la pedida y hay que mandar PEDIDO_TASA
+     */
+    public boolean evaluar(long ahora, float perdida, float rttMs) {
+        if (maxima == 0) return false; // server viejo (o todavía no contestó): no entiende PEDIDO_TASA
+        int o = objetivo(ahora, perdida, rttMs);
+        int d = Integer.compare(o, pedida);
+        if (d != direccion) {
+            direccion = d;
+            desdeNs = ahora;
+        }
+        if (d == 0 || ahora - desdeNs < (d > 0 ? SUBIR_NS : BAJAR_NS)) return false;
+
+        pedida = d > 0 ? siguiente(pedida, o) : o;
+        cambios++;
+        direccion = 0; // el próximo escalón espera de nuevo
+        return true;
+    }
+
+    private int objetivo(long ahora, float perdida, float rttMs) {
+        if (limitePerdida ? perdida < PERDIDA_SALE : perdida > PERDIDA_ENTRA) limitePerdida = !limitePerdida;
+        if (limiteRtt ? rttMs < RTT_SALE_MS : rttMs > RTT_ENTRA_MS) limiteRtt = !limiteRtt;
+
+        int techo = maxima > 0 ? maxima : TASAS[TASAS.length - 1];
+        if (limitePerdida) techo = Math.min(techo, TECHO_PERDIDA);
+        if (limiteRtt) techo = Math.min(techo, TECHO_RTT);
+
+        float fps = getFps(ahora);
+        int o = TASAS[0];
+        boolean porFps = false;
+        for (int t : TASAS) {
+            if (t > techo) break;
+            // la que ya se tiene se sostiene con menos frames de los que hacen falta para llegar
+            if (fps > 0f && fps < t * (t <= pedida ? MARGEN_BAJAR_FPS : MARGEN_SUBIR_FPS)) {
+                porFps = true;
+                break;
+            }
+            o = t;
+        }
+        limiteFps = porFps;
+        return Math.min(o, techo);
+    }
+
+    private static int siguiente(int actual, int tope) {
+        for (int t : TASAS) if (t > actual) return Math.min(t, tope);
+        return tope;
+    }
+
+    // =========================================================
+    // Lecturas (vista de debug)
+    // =========================================================
+
+    /** Frames por segundo medidos, o 0 si no hay frames recientes. */
+    public float getFps(long ahora) {
+        float f = frameNs;
+        if (f == 0f || ahora - ultimoFrameNs > SIN_FRAMES_NS) return 0f;
+        return 1e9f / f;
+    }
+
+    /** La última que se le pidió al server (0 antes del handshake). */
+    public int getPedida() { return pedida; }
+    /** La que el server confirmó que manda, o 0 si no contestó (server viejo). */
+    public int getAplicada() { return aplicada; }
+    /** La máxima del server, o 0 si no se sabe. */
+    public int getMaxima() { return maxima; }
+    public long getCambios() { return cambios; }
+
+    /** Qué está frenando la tasa ahora. */
+    public boolean isLimiteFps() { return limiteFps; }
+    public boolean isLimitePerdida() { return limitePerdida; }
+    public boolean isLimiteRtt() { return limiteRtt; }
+
+    /** Largo típico de un snapshot recibido, en bytes. */
+    public float getBytesSnapshot() { return bytesSnapshot; }
+
+    /** Lo que no baja por segundo (snapshot típico más cabeceras) respecto de pedir la máxima. */
+    public float getAhorroBytesPorSegundo() {
+        int a = aplicada, m = maxima;
+        if (a <= 0 || m <= a) return 0f;
+        return (bytesSnapshot + CABECERAS_UDP) * (m - a);
+    }
+
+    /** Fracción (0..1) de snapshots que no se mandan respecto de la máxima. */
+    public float getAhorro() {
+        int a = aplicada, m = maxima;
+        return a <= 0 || m <= a ? 0f : 1f - (float) a / m;
+    }
+}
@@ -0,0 +1,104 @@
+package red;
+
+import java.util.Arrays;
+
+/**
+ * Estado completo de todos los jugadores en un tick del server, en arrays indexados
+ * por id. Es lo que se reconstruye a partir de un SNAPSHOT delta y lo que recibe
+ * {@link com.motorepartidor.GameController#aplicarSnapshot}.
+ *
+ * Se preasigna y se reutiliza: quien lo recibe copia lo que necesite.
+ */
+public final class Snapshot {
+
+    public static final int MAX_JUGADORES = FiltroSecuencia.MAX_IDS;
+
+    // ===== Campos (bitmask por jugador en el frame SNAPSHOT) =====
+    public static final int POSICION  = 1;
+    public static final int ANGULO    = 1 << 1;
+    public static final int VELOCIDAD = 1 << 2;
+    public static final int GAS       = 1 << 3;
+    public static final int DINERO    = 1 << 4;
+    public static final int VIDA      = 1 << 5;
+    public static final int HINT      = 1 << 6;
+    public static final int GAS_HINT  = 1 << 7;
+    public static final int TODOS     = 0xFF;
+    /**
+     * Campos = 0 en el frame: el jugador salió del área de interés del cliente y deja de
+     * venir hasta que vuelva a entrar (con todos sus campos). Sin cambios no se manda nada,
+     * así que no se confunde.
+     */
+    public static final int SALE      = 0;
+
+    public long tick = ReceptorMensajes.SIN_TICK;
+    /** Última ENTRADA del destinatario aplicada por el server (u32), o SIN_TICK. */
+    public long entrada = ReceptorMensajes.SIN_TICK;
+    public long nanos; // System.nanoTime() de recepción
+    /** Cuándo lo mandó el server, en su reloj (estimado; ver {@link RelojServidor}). */
+    public long servidorNanos;
+
+    /** Jugadores que el server mandó (desde el último completo) y no sacó con {@link #SALE}. */
+    public final boolean[] presente = new boolean[MAX_JUGADORES];
+    /** Campos que vinieron en el frame (cambiaron respecto de la baseline). */
+    public final int[] cambios = new int[MAX_JUGADORES];
+
+    public final float[] x = new float[MAX_JUGADORES];
+    public final float[] y = new float[MAX_JUGADORES];
+    public final float[] angulo = new float[MAX_JUGADORES];
+    public final float[] velocidad = new float[MAX_JUGADORES];
+    public final float[] gas = new float[MAX_JUGADORES];
+    public final int[] dinero = new int[MAX_JUGADORES];
+    public final int[] vida = new int[MAX_JUGADORES];
+    public final int[] hint = new int[MAX_JUGADORES];
+    public final boolean[] gasHint = new boolean[MAX_JUGADORES];
+
+    /** Campos del jugador id que difieren de base (base null o sin ese jugador = todos). */
+    public int diferencias(Snapshot base, int id) {
+        if (base == null || !base.presente[id]) return TODOS;
+        int c = 0;
+        if (x[id] != base.x[id] || y[id] != base.y[id]) c |= POSICION;
+        if (angulo[id] != base.angulo[id]) c |= ANGULO;
+        if (velocidad[id] != base.velocidad[id]) c |= VELOCIDAD;
+        if (gas[id] != base.gas[id]) c |= GAS;
+        if (dinero[id] != base.dinero[id]) c |= DINERO;
+        if (vida[id] != base.vida[id]) c |= VIDA;
+        if (hint[id] != base.hint[id]) c |= HINT;
+        if (gasHint[id] != base.gasHint[id]) c |= GAS_HINT;
+        return c;
+    }
+
+    public void limpiar() {
+        tick = ReceptorMensajes.SIN_TICK;
+        entrada = ReceptorMensajes.SIN_TICK;
+        Arrays.fill(presente, false);
+        Arrays.fill(cambios, 0);
+    }
+
+    public void copiarDe(Snapshot o) {
+        copiarEstado(o);
+        System.arraycopy(o.cambios, 0, cambios, 0, MAX_JUGADORES);
+    }
+
+    /** Para coalescer: pisa con uno más nuevo sin perder qué campos cambiaron en el medio. */
+    public void combinarCon(Snapshot nuevo) {
+        copiarEstado(nuevo);
+        for (int i = 0; i < MAX_JUGADORES; i++) cambios[i] |= nuevo.cambios[i];
+    }
+
+    private void copiarEstado(Snapshot o) {
+        tick = o.tick;
+        entrada = o.entrada;
+        nanos = o.nanos;
+        servidorNanos = o.servidorNanos;
+        System.arraycopy(o.presente, 0, presente, 0, MAX_JUGADORES);
+        System.arraycopy(o.x, 0, x, 0, MAX_JUGADORES);
+        System.arraycopy(o.y, 0, y, 0, MAX_JUGADORES);
+        System.arraycopy(o.angulo, 0, angulo, 0, MAX_JUGADORES);
+        System.arraycopy(o.velocidad, 0, velocidad, 0, MAX_JUGADORES);
+        System.arraycopy(o.gas, 0, gas, 0, MAX_JUGADORES);
+        System.arraycopy(o.dinero, 0, dinero, 0, MAX_JUGADORES);
+        System.arraycopy(o.vida, 0, vida, 0, MAX_JUGADORES);
+        System.arraycopy(o.hint, 0, hint, 0, MAX_JUGADORES);
+        System.arraycopy(o.gasHint, 0, gasHint, 0, MAX_JUGADORES);
+    }
+}
@@ -0,0 +1,37 @@
+package red;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+
+/**
+ * Socket UDP visto por {@link hiloCliente}. Hay dos implementaciones:
+ * {@link TransporteNio} (DatagramChannel no bloqueante + Selector, la de siempre)
+ * y {@link TransporteBloqueante} (DatagramSocket clásico, queda como respaldo).
+ */
+public interface Transporte {
+
+    /**
+     * Buffer donde {@link #recibir(long)} deja el último datagrama, con
+     * position = 0 y limit = largo. Se reutiliza en cada llamada.
+     */
+    ByteBuffer entrada();
+
+    /**
+     * Espera hasta timeoutMs por un datagrama. Con timeoutMs &lt;= 0 no bloquea
+     * (sirve para drenar lo pendiente).
+     * @return la dirección del remitente, o null si no llegó nada.
+     */
+    InetAddress recibir(long timeoutMs) throws IOException;
+
+    /** Envía [position, limit) de datos. Se puede llamar desde cualquier hilo. */
+    void enviar(ByteBuffer datos, InetSocketAddress destino) throws IOException;
+
+    /** Despierta a un hilo bloqueado en recibir (si la implementación lo permite). */
+    void despertar();
+
+    boolean isCerrado();
+
+    void cerrar();
+}
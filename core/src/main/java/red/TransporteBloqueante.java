@@ -0,0 +1,83 @@
+package red;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+
+/**
+ * Transporte sobre DatagramSocket bloqueante. Procesa un datagrama por
+ * despertada y usa SO_TIMEOUT para poder atender los temporizadores.
+ */
+public class TransporteBloqueante implements Transporte {
+
+    private final DatagramSocket socket;
+
+    private final byte[] datos;
+    private final DatagramPacket paquete;
+    private final ByteBuffer entrada;
+    private int timeoutActual = -1;
+
+    public TransporteBloqueante(int tamBuffer) throws SocketException {
+        socket = new DatagramSocket();
+        socket.setBroadcast(true);
+
+        datos = new byte[tamBuffer];
+        paquete = new DatagramPacket(datos, datos.length);
+        entrada = ByteBuffer.wrap(datos);
+    }
+
+    @Override
+    public ByteBuffer entrada() {
+        return entrada;
+    }
+
+    @Override
+    public InetAddress recibir(long timeoutMs) throws IOException {
+        // un socket bloqueante no puede "mirar sin esperar": no drena
+        if (timeoutMs <= 0) return null;
+
+        int t = (int) Math.min(Integer.MAX_VALUE, timeoutMs);
+        if (t != timeoutActual) {
+            socket.setSoTimeout(t);
+            timeoutActual = t;
+        }
+
+        // receive() achica la longitud al tamaño del último datagrama: hay que restaurarla
+        paquete.setLength(datos.length);
+        try {
+            socket.receive(paquete);
+        } catch (SocketTimeoutException e) {
+            return null;
+        }
+
+        entrada.limit(paquete.getLength()).position(0);
+        return paquete.getAddress();
+    }
+
+    @Override
+    public void enviar(ByteBuffer buf, InetSocketAddress destino) throws IOException {
+        DatagramPacket dp = new DatagramPacket(buf.array(), buf.arrayOffset() + buf.position(),
+            buf.remaining(), destino);
+        socket.send(dp);
+    }
+
+    @Override
+    public void despertar() {
+        // nada: el SO_TIMEOUT acota la espera
+    }
+
+    @Override
+    public boolean isCerrado() {
+        return socket.isClosed();
+    }
+
+    @Override
+    public void cerrar() {
+        socket.close();
+    }
+}
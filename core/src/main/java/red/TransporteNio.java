@@ -0,0 +1,87 @@
+package red;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+
+/**
+ * Transporte sobre DatagramChannel no bloqueante con Selector y buffer directo.
+ * Cada despertada del selector permite drenar todos los datagramas pendientes
+ * (llamando a {@link #recibir(long)} con 0 hasta que devuelva null).
+ */
+public class TransporteNio implements Transporte {
+
+    private final DatagramChannel canal;
+    private final Selector selector;
+    private final ByteBuffer entrada;
+
+    public TransporteNio(int tamBuffer) throws IOException {
+        canal = DatagramChannel.open();
+        canal.configureBlocking(false);
+        canal.setOption(StandardSocketOptions.SO_BROADCAST, true);
+        canal.bind(null);
+
+        selector = Selector.open();
+        canal.register(selector, SelectionKey.OP_READ);
+
+        entrada = ByteBuffer.allocateDirect(tamBuffer);
+    }
+
+    @Override
+    public ByteBuffer entrada() {
+        return entrada;
+    }
+
+    @Override
+    public InetAddress recibir(long timeoutMs) throws IOException {
+        InetAddress origen = leer();
+        if (origen != null || timeoutMs <= 0) return origen;
+
+        try {
+            selector.select(timeoutMs);
+            selector.selectedKeys().clear();
+        } catch (ClosedSelectorException e) {
+            // cerrar() desde otro hilo mientras esperábamos
+            throw new ClosedChannelException();
+        }
+        return leer();
+    }
+
+    private InetAddress leer() throws IOException {
+        entrada.clear();
+        SocketAddress origen = canal.receive(entrada);
+        if (origen == null) return null;
+
+        entrada.flip();
+        return ((InetSocketAddress) origen).getAddress();
+    }
+
+    @Override
+    public void enviar(ByteBuffer datos, InetSocketAddress destino) throws IOException {
+        canal.send(datos, destino);
+    }
+
+    @Override
+    public void despertar() {
+        selector.wakeup();
+    }
+
+    @Override
+    public boolean isCerrado() {
+        return !canal.isOpen();
+    }
+
+    @Override
+    public void cerrar() {
+        try { selector.close(); } catch (IOException ignored) {}
+        try { canal.close(); } catch (IOException ignored) {}
+    }
+}
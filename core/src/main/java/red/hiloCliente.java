@@ -1,68 +1,211 @@
 package red;
 
-import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.math.Vector2;
 import com.motorepartidor.GameController;
 
+import java.io.File;
 import java.io.IOException;
 import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class hiloCliente extends Thread {
 
     // ===== Config =====
     private static final int PORT = 6767;
     private static final String BROADCAST_IP = "255.255.255.255";
-    private static final int SOCKET_TIMEOUT_MS = 1000; // receive timeout
-    private long lastPingSentMs = 0;
-    private static final long PING_INTERVAL_MS = 1000;
+    /**
+     * Más que cualquier datagrama del server (parte todo lo que pasa de Protocolo.MTU): uno
+     * que llena el buffer vino más largo y el socket lo cortó, así que no se procesa.
+     */
+    public static final int TAM_BUFFER = 2048;
+    private static final long PING_INTERVAL_MS = 250; // 4/s: suficientes muestras de RTT y pérdida
+    private static final long HANDSHAKE_RETRY_MS = 500;
+    private static final long SONDEO_RETRY_MS = 250;
+    private static final long ESPERA_MAX_MS = 1000; // para chequear fin aunque no haya timers
+    private static final long DESCONEXION_MAX_MS = 300; // espera del ack del Disconnect
+    private static final int CAPACIDAD_EVENTOS = 4096;
+    private static final int CAPACIDAD_SNAPSHOTS = 16;
+    /** Intentando reanudar sin respuesta durante esto se da por perdida la sesión. */
+    public static final long REANUDAR_MAX_MS = 20_000;
+    private static final long REANUDAR_ESPERA_MIN_MS = 100; // se duplica en cada intento
+    private static final long REANUDAR_ESPERA_MAX_MS = 2000;
+    /** Marca en la cola de eventos (no viaja): el server volvió a tomar la sesión. */
+    private static final byte EVENTO_REANUDADA = 127;
+
+    /** -Dmotorepartidor.transporte=bloqueante vuelve al DatagramSocket clásico. */
+    public static final String PROP_TRANSPORTE = "motorepartidor.transporte";
+    /** -Dmotorepartidor.captura=dir graba todo lo recibido en dir/captura-*.mrc. */
+    public static final String PROP_CAPTURA = "motorepartidor.captura";
 
     // ===== UDP =====
-    private DatagramSocket conexion;
-    private InetAddress ipServer;
+    private final Transporte transporte;
+    private volatile InetAddress ipServer;
+    private volatile InetSocketAddress destino;
     private final int port = PORT;
+    private volatile InetAddress remitente;
+
+    // ===== Protocolo =====
+    private volatile boolean binario = false;          // negociado en el handshake
+    private final ReceptorMensajes receptor = new Despachador();
+    private final CodecTexto codecTexto = new CodecTexto();
+    private Cuantizacion cuantizacion;                 // del mapa que mandó el server en el OK (hilo de red)
+    private final ByteBuffer salida = ByteBuffer.allocate(64);
+
+    // ===== Mensajes partidos en FRAGMENTO (y datagramas que no entraron en el buffer) =====
+    private final Reensamblador reensamblador = new Reensamblador();
+    private final SelectorTasa selectorTasa = new SelectorTasa();
+    private volatile long truncados = 0;
+
+    // ===== Contadores para el gráfico de red (F3) =====
+    private final EstadisticasRed estadisticas = new EstadisticasRed();
+
+    // ===== Temporizadores (System.nanoTime) =====
+    private long proximoPingNs = 0;
+    private volatile boolean buscando = false;
+    private volatile long proximoHandshakeNs = 0;
+    private volatile boolean sondeando = false;
+    private volatile long proximoSondeoNs = 0;
 
     // ===== Estado de hilo =====
     private volatile boolean fin = false;
 
+    // ===== Descubrimiento de servers (Sondeo/Servidor) =====
+    private final DescubrimientoServidores descubrimiento = new DescubrimientoServidores();
+
     // ===== Estado de sesión =====
     private volatile int playerId = -1;
-    private volatile long lastPongMs = System.currentTimeMillis();
+    /** Token del ID para reanudar, o 0 (server viejo, espectador). */
+    private volatile long token;
+    /** Se conecta a mirar (ver {@link #setEspectador}): playerId queda en ID_ESPECTADOR. */
+    private volatile boolean espectador = false;
+    private final MedidorPing medidorPing = new MedidorPing(TimeUnit.MILLISECONDS.toNanos(PING_INTERVAL_MS));
+    private final RelojServidor reloj = new RelojServidor();
+
+    // ===== Reanudar (ver Protocolo): intentos con backoff hasta el Reanudada =====
+    private volatile boolean reanudando = false;
+    private volatile long reanudarDesdeNs;
+    private volatile long proximoReanudarNs;
+    private long esperaReanudarMs; // la fija reanudar() antes de prender reanudando
+    private volatile long reanudaciones, intentosReanudar, ultimaReanudacionNs;
 
     // ===== Callbacks hacia pantallas =====
     private volatile GameController gameController;
+    private final ColaEventos eventos = new ColaEventos(CAPACIDAD_EVENTOS);
+
+    // ===== Snapshots: filtro por tick (red) y coalescido por frame (render) =====
+    private final FiltroSecuencia filtro = new FiltroSecuencia();
+    private final ColaEventos.Evento[] pendientes = new ColaEventos.Evento[FiltroSecuencia.FLUJOS];
+    private final boolean[] hayPendiente = new boolean[FiltroSecuencia.FLUJOS];
+    private int cantPendientes = 0;
+
+    // ===== Snapshots agrupados: se arman en red y viajan por su propia cola =====
+    // (en ColaEventos va una marca SNAPSHOT para respetar el orden con el resto)
+    private final ReconstructorSnapshots reconstructor = new ReconstructorSnapshots();
+    private final ColaSpsc<Snapshot> colaSnapshots = new ColaSpsc<>(CAPACIDAD_SNAPSHOTS, Snapshot::new);
+    private final Snapshot snapshotPendiente = new Snapshot();
+    private boolean armandoSnapshot = false;
+    private volatile long snapshotsSinLugar = 0;
+
+    // ===== Entradas por tick (binario) =====
+    private final FlujoEntradas entradas = new FlujoEntradas();
+
+    // ===== Área de interés (binario, hilo de render) =====
+    /** Px que se tiene que mover algún borde para reenviar el AREA. */
+    private static final int PASO_AREA = 32;
+    /** Quieto se reenvía igual cada tanto: va suelto y se puede perder. */
+    private static final long REFRESCO_AREA_NS = 500_000_000L;
+    private int areaMinX, areaMinY, areaMaxX, areaMaxY;
+    private long areaEnviadaNs;
+    private volatile long areasEnviadas;
+
+    // ===== Eventos críticos (binario): retransmitidos hasta el ack, en orden =====
+    private final CanalFiable canal = new CanalFiable();
+    private final CanalFiable.Salida salidaFiable = this::enviarBuffer;
+    private final ByteBuffer salidaCritica = ByteBuffer.allocate(16);
+
+    // ===== Captura (grabar lo recibido) y reproducción (sin red) =====
+    private static final AtomicInteger capturas = new AtomicInteger();
+    private volatile GrabadorCaptura grabador;
+    private final FuenteReproduccion reproductor;
+
+    // ===== Cierre de la JVM =====
+    /** Avisa al server si la JVM se cierra con el cliente conectado; se saca al terminar. */
+    private final Thread alCerrarJvm = new Thread(() -> {
+        if (fin) return; // ya se desconectó
+        System.out.println("Cierre detectado por la JVM, intentando desconectar...");
+        desconectar();
+    });
 
     public hiloCliente() {
-        crearSocket();
+        this(!"bloqueante".equalsIgnoreCase(System.getProperty(PROP_TRANSPORTE)));
+    }
+
+    public hiloCliente(boolean nio) {
+        this(crearSocket(nio));
+    }
+
+    /**
+     * Con un transporte armado afuera (ej. uno que cuenta paquetes o pierde a propósito).
+     * Su buffer de entrada tiene que aguantar {@link #TAM_BUFFER}.
+     */
+    public hiloCliente(Transporte transporte) {
+        this(transporte, null);
+        String dir = System.getProperty(PROP_CAPTURA);
+        if (dir != null && transporte != null) grabarCaptura(nuevaCaptura(new File(dir)));
+    }
+
+    /** Sin red: los mensajes salen de una captura o de una partida grabada. */
+    hiloCliente(FuenteReproduccion reproductor) {
+        this(null, reproductor);
+    }
+
+    private hiloCliente(Transporte transporte, FuenteReproduccion reproductor) {
+        this.transporte = transporte;
+        this.reproductor = reproductor;
+        for (int i = 0; i < pendientes.length; i++) pendientes[i] = new ColaEventos.Evento();
         resetLocalState();
 
         this.setDaemon(true);
-        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
-            System.out.println("Cierre detectado por la JVM, intentando desconectar...");
-            desconectar();
-        }));
+        Runtime.getRuntime().addShutdownHook(alCerrarJvm);
     }
 
-    private void crearSocket() {
+    private static Transporte crearSocket(boolean nio) {
         try {
-            conexion = new DatagramSocket();
-            conexion.setSoTimeout(SOCKET_TIMEOUT_MS);
-            conexion.setBroadcast(true);
-        } catch (SocketException e) {
+            return nio ? new TransporteNio(TAM_BUFFER) : new TransporteBloqueante(TAM_BUFFER);
+        } catch (IOException e) {
             e.printStackTrace();
+            return null;
         }
     }
 
     /** Limpia el estado para poder reconectar como si fuera la primera vez. */
     public void resetLocalState() {
         try {
-            ipServer = InetAddress.getByName(BROADCAST_IP);
+            setServer(InetAddress.getByName(BROADCAST_IP));
         } catch (UnknownHostException e) {
             // extremadamente raro
             e.printStackTrace();
         }
         playerId = -1;
-        lastPongMs = System.currentTimeMillis();
+        token = 0;
+        reanudando = false;
+        binario = false;
+        buscando = false;
+        sondeando = false;
+        canal.reiniciar();
+        medidorPing.reiniciar();
+        reloj.reiniciar();
+    }
+
+    private void setServer(InetAddress ip) {
+        ipServer = ip;
+        destino = ip == null ? null : new InetSocketAddress(ip, port);
     }
 
     // =========================================================
@@ -71,35 +214,149 @@ public class hiloCliente extends Thread {
 
     @Override
     public void run() {
+        if (transporte == null) return;
+
         while (!fin) {
+            long now = System.nanoTime();
+            long espera = atenderTemporizadores(now);
 
-            long now = System.currentTimeMillis();
-            if (playerId != -1 && now - lastPingSentMs >= PING_INTERVAL_MS) {
+            try {
+                // Espera hasta el próximo timer; al despertar drena todo lo pendiente
+                InetAddress origen = transporte.recibir(espera);
+                while (origen != null && !fin) {
+                    ByteBuffer entrada = transporte.entrada();
+                    if (entrada.remaining() >= entrada.capacity()) {
+                        truncados++; // cortado: decodificarlo daría cualquier cosa
+                    } else {
+                        GrabadorCaptura g = grabador;
+                        if (g != null) g.grabar(System.nanoTime(), entrada);
+                        estadisticas.registrarEntrada(entrada.remaining());
+                        if (estadisticas.isMidiendo()) {
+                            long t0 = System.nanoTime();
+                            procesarMensaje(origen, entrada);
+                            estadisticas.registrarDecodificacion(System.nanoTime() - t0);
+                        } else {
+                            procesarMensaje(origen, entrada);
+                        }
+                    }
+                    origen = transporte.recibir(0);
+                }
+            } catch (IOException e) {
+                if (!fin) e.printStackTrace();
+            }
+        }
+    }
+
+    /** Dispara los timers vencidos y devuelve cuántos ms se puede dormir hasta el próximo. */
+    private long atenderTemporizadores(long now) {
+        long proximo = now + TimeUnit.MILLISECONDS.toNanos(ESPERA_MAX_MS);
+
+        if (playerId != -1) {
+            if (now - proximoPingNs >= 0) {
                 enviarPing();
-                lastPingSentMs = now;
+                proximoPingNs = now + TimeUnit.MILLISECONDS.toNanos(PING_INTERVAL_MS);
+                // de paso se revisa la tasa de snapshots (sale con el canal de abajo)
+                if (binario && selectorTasa.evaluar(now, medidorPing.getPerdida(now), medidorPing.getRttP50())) {
+                    enviarPedidoTasa();
+                }
             }
+            proximo = Math.min(proximo, proximoPingNs);
+        }
 
-            byte[] data = new byte[1024];
-            DatagramPacket dp = new DatagramPacket(data, data.length);
+        if (binario && !reanudando) {
+            proximo = Math.min(proximo, canal.atender(now, salidaFiable));
+            reensamblador.vencer(now);
+        }
 
-            try {
-                conexion.receive(dp);
-                procesarMensaje(dp);
-            } catch (SocketTimeoutException ignored) {
-                // normal: permite que el hilo "respire" y fin se pueda chequear
-            } catch (IOException e) {
-                if (!fin) e.printStackTrace();
+        if (reanudando) {
+            if (now - reanudarDesdeNs > TimeUnit.MILLISECONDS.toNanos(REANUDAR_MAX_MS)) {
+                reanudando = false; // se da por perdida: isServerAlive sigue en false
+            } else {
+                if (now - proximoReanudarNs >= 0) {
+                    enviarReanudar();
+                    proximoReanudarNs = now + TimeUnit.MILLISECONDS.toNanos(esperaReanudarMs);
+                    esperaReanudarMs = Math.min(esperaReanudarMs * 2, REANUDAR_ESPERA_MAX_MS);
+                }
+                proximo = Math.min(proximo, proximoReanudarNs);
+            }
+        }
+
+        if (buscando) {
+            if (now - proximoHandshakeNs >= 0) {
+                enviarHandshake();
+                proximoHandshakeNs = now + TimeUnit.MILLISECONDS.toNanos(HANDSHAKE_RETRY_MS);
+            }
+            proximo = Math.min(proximo, proximoHandshakeNs);
+        }
+
+        if (sondeando) {
+            if (now - proximoSondeoNs >= 0) {
+                enviarSondeos(now);
+                proximoSondeoNs = now + TimeUnit.MILLISECONDS.toNanos(SONDEO_RETRY_MS);
             }
+            proximo = Math.min(proximo, proximoSondeoNs);
         }
+
+        // redondeo hacia arriba para no despertar un pelo antes del vencimiento
+        return Math.max(1, TimeUnit.NANOSECONDS.toMillis(proximo - now + 999_999));
     }
 
     /** Cierra el socket y termina el hilo. */
     public void terminarCliente() {
         fin = true;
         try {
-            if (conexion != null && !conexion.isClosed()) conexion.close();
+            if (transporte != null && !transporte.isCerrado()) transporte.cerrar();
         } catch (Exception ignored) {}
         interrupt();
+        detenerCaptura();
+        try {
+            // que no se junten hooks de clientes viejos (reconexiones, enjambre de bots)
+            Runtime.getRuntime().removeShutdownHook(alCerrarJvm);
+        } catch (IllegalStateException ignored) {
+            // la JVM ya se está cerrando (puede ser este mismo hook)
+        }
+    }
+
+    // =========================================================
+    // Captura
+    // =========================================================
+
+    /** dir/captura-fecha-N.mrc (N por si se abren varios clientes en el mismo segundo). */
+    private static File nuevaCaptura(File dir) {
+        String fecha = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+        return new File(dir, "captura-" + fecha + "-" + capturas.incrementAndGet() + GrabadorCaptura.EXTENSION);
+    }
+
+    /**
+     * Empieza a grabar cada datagrama recibido (con su hora) en archivo; si ya había una
+     * captura abierta la cierra. Se puede llamar con el hilo corriendo.
+     * @return false si no se pudo abrir el archivo
+     */
+    public boolean grabarCaptura(File archivo) {
+        GrabadorCaptura nuevo;
+        try {
+            nuevo = new GrabadorCaptura(archivo);
+        } catch (IOException e) {
+            System.err.println("[captura] no se pudo abrir " + archivo + ": " + e.getMessage());
+            return false;
+        }
+        GrabadorCaptura viejo = grabador;
+        grabador = nuevo;
+        if (viejo != null) viejo.close();
+        System.out.println("[captura] grabando en " + archivo);
+        return true;
+    }
+
+    /** Cierra la captura en curso (si hay); lo ya recibido queda en el archivo. */
+    public void detenerCaptura() {
+        GrabadorCaptura g = grabador;
+        grabador = null;
+        if (g != null) g.close();
+    }
+
+    /** Captura en curso (datagramas, bytes), o null. */
+    public GrabadorCaptura getGrabador() {
+        return grabador;
     }
 
     /**
@@ -109,8 +366,34 @@ public class hiloCliente extends Thread {
     public void desconectar() {
         try {
             if (playerId >= 0) {
-                // UDP: repetimos para aumentar probabilidad de llegada
-                for (int i = 0; i < 3; i++) enviarMensaje("Disconnect:" + playerId);
+                if (binario && isAlive()) {
+                    // por el canal confiable: el hilo de red lo reintenta hasta el ack
+                    boolean encolado;
+                    synchronized (salidaCritica) {
+                        salidaCritica.clear();
+                        CodecBinario.escribirDisconnect(salidaCritica, playerId);
+                        salidaCritica.flip();
+                        encolado = canal.enviar(salidaCritica);
+                    }
+                    if (encolado) {
+                        transporte.despertar();
+                        canal.esperarConfirmacion(DESCONEXION_MAX_MS);
+                    } else {
+                        // ventana llena: no hay ack que esperar, va suelto y repetido como en texto
+                        for (int i = 0; i < 3; i++) {
+                            synchronized (salida) {
+                                salida.clear();
+                                CodecBinario.escribirDisconnect(salida, playerId);
+                                enviarSalida();
+                            }
+                        }
+                    }
+                } else {
+                    // texto (o sin hilo de red): repetimos para aumentar probabilidad de llegada
+                    for (int i = 0; i < 3; i++) {
+                        enviarMensaje("Disconnect:" + playerId);
+                    }
+                }
             }
         } catch (Exception ignored) {}
 
@@ -123,288 +406,783 @@ public class hiloCliente extends Thread {
     // =========================================================
 
     public void enviarMensaje(String msg) {
-        if (conexion == null || conexion.isClosed()) return;
-        if (ipServer == null) return;
+        enviarBuffer(ByteBuffer.wrap(msg.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /** Envía lo escrito en {@link #salida} (frame binario). Llamar con el lock de salida. */
+    private void enviarSalida() {
+        salida.flip();
+        enviarBuffer(salida);
+    }
 
-        byte[] data = msg.getBytes();
-        DatagramPacket dp = new DatagramPacket(data, data.length, ipServer, port);
+    private void enviarBuffer(ByteBuffer datos) {
+        enviarBuffer(datos, destino);
+    }
+
+    private void enviarBuffer(ByteBuffer datos, InetSocketAddress dst) {
+        if (transporte == null || transporte.isCerrado()) return;
+        if (dst == null) return;
 
         try {
-            conexion.send(dp);
+            int bytes = datos.remaining();
+            transporte.enviar(datos, dst);
+            estadisticas.registrarSalida(bytes);
         } catch (IOException e) {
             // si se cortó el socket o algo raro
             if (!fin) e.printStackTrace();
         }
     }
 
-    /** Primer ping/handshake: se manda a broadcast (si no hay server, no pasa nada). */
+    /**
+     * Primer ping/handshake: se manda a broadcast (si no hay server, no pasa nada).
+     * El hilo de red lo reintenta solo cada HANDSHAKE_RETRY_MS hasta recibir el ID.
+     */
     public void establecerConexion() {
-        enviarMensaje("Conexion");
+        if (playerId != -1) return;
+        enviarHandshake();
+        proximoHandshakeNs = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(HANDSHAKE_RETRY_MS);
+        buscando = true;
+        if (transporte != null) transporte.despertar();
         System.out.println("Estableciendo conexion...");
     }
 
-    /** Alias más “genérico” si querés usarlo desde BuscarServidorScreen. */
+    /**
+     * "Conexion", o de espectador "Espectador:v:caps:hz": ya dice todo lo que el jugador
+     * negocia después del OK (siempre pide cuantizado; el mapa viene en la respuesta).
+     */
+    private void enviarHandshake() {
+        if (!espectador) {
+            enviarMensaje(Protocolo.CONEXION);
+            return;
+        }
+        selectorTasa.reiniciar(); // sesión nueva (como en el OK del jugador)
+        enviarMensaje(Protocolo.ESPECTADOR + ":" + Protocolo.VERSION + ":" + Protocolo.CAPACIDAD_CUANTIZADO
+            + ":" + selectorTasa.inicial(System.nanoTime()));
+    }
+
+    /**
+     * Conectarse a mirar en vez de jugar: el server lo suma a una partida sin ocupar lugar,
+     * le manda todo y no espera entradas. Antes de {@link #establecerConexion} o {@link #conectarA}.
+     */
+    public void setEspectador(boolean espectador) {
+        if (playerId == -1) this.espectador = espectador;
+    }
+
+    /**
+     * Se cortó la red en plena partida: manda Reanudar con el token del ID, primero a los
+     * 100 ms y duplicando hasta 2 s entre intentos, hasta el Reanudada o
+     * {@link #REANUDAR_MAX_MS}. Mientras tanto no sale nada más que eso y los pings. Lo que
+     * llega al volver es un snapshot completo (evento Reanudada antes). Hilo de render.
+     * @return false si no se puede (server viejo sin token, texto, espectador)
+     */
+    public boolean reanudar() {
+        if (reanudando) return true;
+        if (token == 0 || !binario || playerId == -1 || espectador || transporte == null) return false;
+        esperaReanudarMs = REANUDAR_ESPERA_MIN_MS;
+        long ahora = System.nanoTime();
+        reanudarDesdeNs = ahora;
+        proximoReanudarNs = ahora;
+        reanudando = true;
+        transporte.despertar();
+        return true;
+    }
+
+    /**
+     * "Reanudar:token:v:caps:hz:n": lo mismo que el Binario (con la tasa que ya venía
+     * pidiendo) más los Reanudada que ya se vieron, para que el server reconozca un reintento.
+     */
+    private void enviarReanudar() {
+        int hz = selectorTasa.getPedida() > 0 ? selectorTasa.getPedida() : selectorTasa.inicial(System.nanoTime());
+        int capacidades = cuantizacion != null ? Protocolo.CAPACIDAD_CUANTIZADO : 0;
+        enviarMensaje(Protocolo.REANUDAR + ":" + token + ":" + Protocolo.VERSION + ":" + capacidades
+            + ":" + hz + ":" + reanudaciones);
+        intentosReanudar++;
+    }
+
+    /** Deja de reintentar el handshake y los sondeos (ej. la búsqueda llegó a su timeout). */
+    public void detenerBusqueda() {
+        buscando = false;
+        sondeando = false;
+    }
+
+    /**
+     * Empieza a sondear la LAN (todas las interfaces a la vez) sin registrarse en ningún
+     * server. Los que contestan quedan en {@link #getDescubrimiento()} ordenados por RTT;
+     * después se elige uno con {@link #conectarA}.
+     */
+    public void buscarServidores() {
+        if (playerId != -1) return;
+        try {
+            setServer(InetAddress.getByName(BROADCAST_IP));
+        } catch (UnknownHostException e) {
+            e.printStackTrace();
+        }
+        descubrimiento.empezar(System.nanoTime());
+        proximoSondeoNs = System.nanoTime();
+        sondeando = true;
+        if (transporte != null) transporte.despertar();
+    }
+
+    /** Handshake directo (unicast) con un server conocido: sin broadcast. */
+    public void conectarA(InetAddress ip) {
+        if (playerId != -1 || ip == null) return;
+        sondeando = false;
+        setServer(ip);
+        establecerConexion();
+    }
 
+    /** Una ronda: el mismo Sondeo (secuencia y marca) a todos los destinos. */
+    private void enviarSondeos(long ahora) {
+        byte[] msg = (Protocolo.SONDEO + ":" + descubrimiento.proximaRonda() + ":" + ahora)
+            .getBytes(StandardCharsets.UTF_8);
+        for (InetAddress ip : descubrimiento.getDestinos()) {
+            enviarBuffer(ByteBuffer.wrap(msg), new InetSocketAddress(ip, port));
+        }
+    }
 
+    /** Evento de tecla (keycode, negativo = soltada). Solo en texto: en binario van las ENTRADA. */
     public void enviarInput(int keycode) {
         if (playerId == -1) return; // todavía no tengo ID
+        if (binario) return;
         enviarMensaje("Input:" + playerId + ":" + keycode);
     }
 
+    /** Estado de teclas (bits de FlujoEntradas) del tick `secuencia`. Hilo de render. */
+    public void registrarEntrada(int secuencia, int teclas) {
+        entradas.registrar(secuencia, teclas);
+    }
+
+    /**
+     * Manda la última entrada registrada más las anteriores sin confirmar (una vez por
+     * frame alcanza). Solo binario: un server de texto sigue con los Input de siempre.
+     */
+    public void enviarEntradas() {
+        if (playerId == -1 || !binario || reanudando) return;
+        synchronized (salida) {
+            salida.clear();
+            if (!entradas.escribir(salida, playerId)) return;
+            canal.escribirAck(salida); // de paso confirma los eventos críticos
+            enviarSalida();
+        }
+    }
+
+    /**
+     * Rectángulo (px del mundo) que le interesa a la cámara: desde que le llega, el server
+     * manda solo los jugadores que caen adentro. Se puede llamar en cada frame; sale si algún
+     * borde se movió {@link #PASO_AREA} px o cada {@link #REFRESCO_AREA_NS}. Hilo de render.
+     */
+    public void reportarArea(int minX, int minY, int maxX, int maxY) {
+        if (playerId == -1 || !binario || reanudando) return;
+        long ahora = System.nanoTime();
+        boolean movida = Math.abs(minX - areaMinX) >= PASO_AREA || Math.abs(minY - areaMinY) >= PASO_AREA
+            || Math.abs(maxX - areaMaxX) >= PASO_AREA || Math.abs(maxY - areaMaxY) >= PASO_AREA;
+        if (!movida && ahora - areaEnviadaNs < REFRESCO_AREA_NS) return;
+        areaMinX = minX;
+        areaMinY = minY;
+        areaMaxX = maxX;
+        areaMaxY = maxY;
+        areaEnviadaNs = ahora;
+        synchronized (salida) {
+            salida.clear();
+            CodecBinario.escribirArea(salida, playerId, minX, minY, maxX, maxY);
+            enviarSalida();
+        }
+        areasEnviadas++;
+    }
+
+    /** Confirma al server el último snapshot armado: desde ahí puede mandar deltas. */
+    private void enviarAckSnapshot(long tick) {
+        if (playerId == -1 || !binario || reanudando) return;
+        synchronized (salida) {
+            salida.clear();
+            CodecBinario.escribirSnapshotAck(salida, playerId, tick);
+            enviarSalida();
+        }
+    }
+
+    /** La tasa que eligió el {@link SelectorTasa}, por el canal confiable. */
+    private void enviarPedidoTasa() {
+        synchronized (salidaCritica) {
+            salidaCritica.clear();
+            CodecBinario.escribirPedidoTasa(salidaCritica, playerId, selectorTasa.getPedida());
+            salidaCritica.flip();
+            canal.enviar(salidaCritica);
+        }
+    }
+
     public void enviarPing() {
         if (playerId == -1) return;
-        enviarMensaje("Ping:" + playerId);
+        int seq = medidorPing.proximaSecuencia();
+        long marca = System.nanoTime();
+        medidorPing.registrarEnvio(seq, marca);
+        if (binario) {
+            synchronized (salida) {
+                salida.clear();
+                CodecBinario.escribirPing(salida, playerId, seq, marca);
+                enviarSalida();
+            }
+        } else {
+            enviarMensaje("Ping:" + playerId + ":" + (seq & 0xFFFFFFFFL) + ":" + marca);
+        }
     }
 
     // =========================================================
     // Recepción / Parser
     // =========================================================
 
-    private void procesarMensaje(DatagramPacket dp) {
-        //  usar SOLO los bytes reales
-        String msg = new String(dp.getData(), 0, dp.getLength()).trim();
-        if (msg.isEmpty()) return;
+    /** Hilo de red (o el de render al reproducir una captura). */
+    void procesarMensaje(InetAddress origen, ByteBuffer entrada) {
+        //  el transporte deja SOLO los bytes reales en [position, limit)
+        remitente = origen;
 
-        String[] partes = msg.split(":");
-        String head = partes[0];
+        try {
+            if (!CodecBinario.esBinario(entrada)) {
+                codecTexto.decodificar(entrada, receptor);
+                return;
+            }
+            // reanudando, lo binario es de antes del corte o se adelantó al Reanudada: el
+            // canal lo retransmite y el snapshot vuelve completo
+            if (reanudando) return;
+            switch (CodecBinario.tipo(entrada)) {
+                case Protocolo.FIABLE:
+                    canal.recibir(entrada, receptor, System.nanoTime());
+                    break;
+                case Protocolo.FIABLE_ACK:
+                    canal.recibirAckSuelto(entrada, System.nanoTime());
+                    break;
+                case Protocolo.FRAGMENTO:
+                    // armado se procesa como si hubiera llegado entero (no puede ser otro FRAGMENTO)
+                    ByteBuffer armado = reensamblador.recibir(entrada, System.nanoTime());
+                    if (armado != null && CodecBinario.tipo(armado) != Protocolo.FRAGMENTO) {
+                        procesarMensaje(origen, armado);
+                    }
+                    break;
+                case Protocolo.SNAPSHOT:
+                case Protocolo.SNAPSHOT_CUANTIZADO:
+                    selectorTasa.registrarSnapshot(entrada.remaining());
+                    CodecBinario.decodificar(entrada, receptor, cuantizacion);
+                    break;
+                default:
+                    CodecBinario.decodificar(entrada, receptor, cuantizacion);
+                    break;
+            }
+        } catch (RuntimeException e) {
+            // mensaje mal formado: se descarta sin matar el hilo
+        }
+    }
 
-        // Pong puede llegar muy seguido: lo procesamos rápido
-        if ("Pong".equals(head)) {
-            lastPongMs = System.currentTimeMillis();
-            return;
+    /** Donde terminan los mensajes decodificados (una partida grabada los inyecta directo). */
+    ReceptorMensajes getReceptor() {
+        return receptor;
+    }
+
+    /** Traduce los mensajes decodificados a callbacks en el hilo de LibGDX. */
+    private final class Despachador implements ReceptorMensajes {
+
+        @Override
+        public void onOk(int versionBinaria, int anchoMapa, int altoMapa) {
+            // Handshake OK: fijamos IP real del server para dejar de usar broadcast
+            setServer(remitente);
+            canal.reiniciar(); // sesión nueva: las secuencias del canal arrancan de 0
+            reensamblador.reiniciar();
+            selectorTasa.reiniciar();
+
+            // Con el tamaño del mapa se pueden recibir posiciones cuantizadas: se pide
+            cuantizacion = anchoMapa > 0 && altoMapa > 0 ? new Cuantizacion(anchoMapa, altoMapa) : null;
+
+            // Si el server ofrece binario, confirmamos la versión que ambos entendemos
+            // (con las capacidades y la tasa de snapshots que queremos de entrada)
+            if (versionBinaria > 0) {
+                int version = Math.min(versionBinaria, Protocolo.VERSION);
+                int capacidades = cuantizacion != null ? Protocolo.CAPACIDAD_CUANTIZADO : 0;
+                enviarMensaje(Protocolo.BINARIO + ":" + version + ":" + capacidades
+                    + ":" + selectorTasa.inicial(System.nanoTime()));
+                binario = version == Protocolo.VERSION;
+            }
         }
 
-        // Handshake OK: fijamos IP real del server para dejar de usar broadcast
-        if ("OK".equals(msg)) {
-            ipServer = dp.getAddress();
-            // (Opcional) podrías notificar UI si querés un callback tipo "server encontrado"
-            return;
+        @Override
+        public void onMirando(int versionBinaria, int anchoMapa, int altoMapa) {
+            // OK, Binario e ID en uno: el server ya lo tiene como binario
+            if (!espectador || playerId != -1 || versionBinaria != Protocolo.VERSION) return;
+            setServer(remitente);
+            canal.reiniciar();
+            reensamblador.reiniciar();
+            cuantizacion = anchoMapa > 0 && altoMapa > 0 ? new Cuantizacion(anchoMapa, altoMapa) : null;
+            binario = true;
+            onId(Protocolo.ID_ESPECTADOR);
         }
 
-        // Switch clásico (Java 8)
-        switch (head) {
-            case "ID": {
-                if (partes.length >= 2) {
-                    playerId = Integer.parseInt(partes[1]);
-                    Gdx.app.postRunnable(() -> {
-                        if (gameController != null) gameController.onConnected(playerId);
-                    });
-                }
-                break;
+        @Override
+        public void onServidor(long secuencia, long marca, int versionBinaria, int jugadores) {
+            descubrimiento.respuesta(remitente, marca, versionBinaria, jugadores, System.nanoTime());
+        }
+
+        @Override
+        public void onPong(long secuencia, long marca, long recibido, long respondido) {
+            long ahora = System.nanoTime();
+            // solo pongs propios y frescos: un duplicado o uno sin eco no dice nada del reloj
+            boolean valido = medidorPing.registrarPong(secuencia, marca, ahora);
+            if (valido && secuencia != SIN_TICK && recibido != SIN_TIEMPO) {
+                reloj.muestra(marca, recibido, respondido, ahora);
             }
+        }
 
-            case "Comienza": {
-                Gdx.app.postRunnable(() -> {
-                    if (gameController != null) gameController.onStartMatch();
-                });
-                break;
+        @Override
+        public void onTasa(int aplicada, int maxima) {
+            selectorTasa.confirmar(aplicada, maxima);
+        }
+
+        @Override
+        public void onSesion(long token) {
+            hiloCliente.this.token = token;
+        }
+
+        @Override
+        public void onReanudada(int versionBinaria, int id) {
+            // solo la respuesta a un Reanudar en curso (la de un reintento llega tarde)
+            if (!reanudando || id != playerId || versionBinaria != Protocolo.VERSION) return;
+            setServer(remitente);
+            // el server arrancó todo esto de cero: sin baselines, canal desde 0
+            canal.reiniciar();
+            reensamblador.reiniciar();
+            reconstructor.reiniciar();
+            estadisticas.reiniciarSnapshots();
+            medidorPing.reiniciar(); // antes de soltar reanudando: que no se vea muerto en el medio
+            ultimaReanudacionNs = System.nanoTime() - reanudarDesdeNs;
+            reanudaciones++;
+            reanudando = false;
+            encolar(EVENTO_REANUDADA, id);
+        }
+
+        @Override
+        public void onId(int id) {
+            playerId = id;
+            buscando = false;
+            filtro.reiniciar();
+            reconstructor.reiniciar();
+            estadisticas.reiniciarSnapshots();
+            encolar(Protocolo.ID, id);
+        }
+
+        @Override
+        public void onComienza() {
+            encolar(Protocolo.COMIENZA, 0);
+        }
+
+        @Override
+        public void onMovimiento(float x1, float y1, float x2, float y2, float ang1, float ang2, long tick,
+                                 long entrada, float velocidad) {
+            if (!filtro.aceptar(Protocolo.MOVIMIENTO, 0, tick)) return;
+
+            ColaEventos.Evento e = eventos.reservar();
+            if (e == null) return;
+            e.tipo = Protocolo.MOVIMIENTO;
+            e.nanos = System.nanoTime();
+            e.f0 = x1; e.f1 = y1;
+            e.f2 = x2; e.f3 = y2;
+            e.f4 = ang1; e.f5 = ang2;
+            e.secuencia = entrada;
+            e.f6 = velocidad;
+            eventos.publicar();
+        }
+
+        @Override
+        public void onGas(int id, float gas, long tick) {
+            if (!filtro.aceptar(Protocolo.GAS, id, tick)) return;
+
+            ColaEventos.Evento e = eventos.reservar();
+            if (e == null) return;
+            e.tipo = Protocolo.GAS;
+            e.id = id;
+            e.f0 = gas;
+            eventos.publicar();
+        }
+
+        @Override
+        public void onDinero(int id, int dinero, long tick) {
+            if (filtro.aceptar(Protocolo.DINERO, id, tick)) encolar(Protocolo.DINERO, id, dinero);
+        }
+
+        @Override
+        public void onVida(int id, int vida, long tick) {
+            if (filtro.aceptar(Protocolo.VIDA, id, tick)) encolar(Protocolo.VIDA, id, vida);
+        }
+
+        @Override
+        public void onDelivery(int id, float x, float y, float w, float h, boolean peligroso, int recompensa) {
+            ColaEventos.Evento e = eventos.reservar();
+            if (e == null) return;
+            e.tipo = Protocolo.DELIVERY;
+            e.id = id;
+            e.f0 = x; e.f1 = y; e.f2 = w; e.f3 = h;
+            e.flag = peligroso;
+            e.entero = recompensa;
+            eventos.publicar();
+        }
+
+        @Override public void onDeliveryFin(int id) { encolar(Protocolo.DELIVERY_FIN, id); }
+        @Override public void onHint(int id, int tipo) { encolar(Protocolo.HINT, id, tipo); }
+
+        @Override
+        public void onGasHint(int id, boolean enGas) {
+            encolar(Protocolo.GAS_HINT, id, enGas ? 1 : 0);
+        }
+
+        @Override public void onGameOver(int ganador) { encolar(Protocolo.GAME_OVER, ganador); }
+        @Override
+        public void onReset() {
+            // el server puede reiniciar su contador de ticks con la partida
+            filtro.reiniciar();
+            reconstructor.reiniciar();
+            encolar(Protocolo.RESET, 0);
+        }
+        @Override public void onOpponentLeft() { encolar(Protocolo.OPPONENT_LEFT, 0); }
+
+        @Override
+        public void onSnapshot(long tick, long baseline, long entrada) {
+            armandoSnapshot = reconstructor.empezar(tick, baseline, entrada);
+        }
+
+        @Override
+        public void onSnapshotJugador(int id, int campos, float x, float y, float ang, float vel, float gas,
+                                      int dinero, int vida, int hint, boolean gasHint) {
+            if (armandoSnapshot) reconstructor.jugador(id, campos, x, y, ang, vel, gas, dinero, vida, hint, gasHint);
+        }
+
+        @Override
+        public void onSnapshotFin(long tick) {
+            if (!armandoSnapshot) return;
+            armandoSnapshot = false;
+            Snapshot completo = reconstructor.terminar(tick);
+            // aunque llegue desordenado sirve de baseline: se confirma igual
+            enviarAckSnapshot(reconstructor.getUltimoRecibido());
+            if (completo == null || !filtro.aceptar(Protocolo.SNAPSHOT, 0, tick)) return;
+
+            // primero la marca (si no hay lugar no se publica nada) y después el estado
+            ColaEventos.Evento e = eventos.reservar();
+            Snapshot s = e == null ? null : colaSnapshots.reservar();
+            if (s == null) {
+                snapshotsSinLugar++; // el render no da abasto: el filtro ya lo había aceptado
+                return;
             }
+            s.copiarDe(completo);
+            s.nanos = System.nanoTime();
+            s.servidorNanos = reloj.envioEstimado(s.nanos);
+            colaSnapshots.publicar();
+            estadisticas.registrarSnapshot(s.nanos);
+
+            e.tipo = Protocolo.SNAPSHOT;
+            e.id = 0;
+            eventos.publicar();
+        }
 
-            case "Movimiento": {
-                // Movimiento:pos1:pos2:ang1:ang2
-                if (partes.length >= 5) moverPersonaje(partes[1], partes[2], partes[3], partes[4]);
-                break;
+        private void encolar(byte tipo, int id) {
+            encolar(tipo, id, 0);
+        }
+
+        private void encolar(byte tipo, int id, int entero) {
+            ColaEventos.Evento e = eventos.reservar();
+            if (e == null) return;
+            e.tipo = tipo;
+            e.id = id;
+            e.entero = entero;
+            eventos.publicar();
+        }
+    }
+
+    // =========================================================
+    // Hilo de LibGDX: consumo de eventos
+    // =========================================================
+
+    /**
+     * Aplica al GameController actual todos los eventos que llegaron desde el último
+     * frame. Se llama una vez por frame desde el hilo de render, antes de actualizar
+     * el estado de los jugadores.
+     *
+     * Los snapshots se coalescen: si en el mismo frame llegaron varios del mismo flujo
+     * (ej. tres Movimiento) solo se aplica el más nuevo. Los pendientes se vuelcan antes
+     * de cualquier evento que no sea snapshot para respetar el orden (ej. Reset).
+     * Si el cliente es una reproducción, antes inyecta los mensajes que tocan.
+     * @return cantidad de eventos leídos de la cola
+     */
+    public int despacharEventos() {
+        selectorTasa.registrarFrame(System.nanoTime());
+        if (reproductor != null) reproductor.alimentar(this);
+        GameController gc = gameController;
+        int n = 0;
+
+        ColaEventos.Evento e;
+        while ((e = eventos.siguiente()) != null) {
+            int flujo = FiltroSecuencia.flujo(e.tipo, e.id);
+            if (flujo >= 0) {
+                if (e.tipo == Protocolo.SNAPSHOT) tomarSnapshot(hayPendiente[flujo]);
+                if (hayPendiente[flujo]) filtro.contarCoalescido();
+                else cantPendientes++;
+                hayPendiente[flujo] = true;
+                pendientes[flujo].copiarDe(e);
+            } else {
+                volcarPendientes(gc);
+                if (gc != null) aplicar(gc, e);
             }
+            eventos.liberar();
+            n++;
+        }
+        volcarPendientes(gc);
+        estadisticas.registrarDespacho(n);
+        return n;
+    }
+
+    /** Saca de su cola el estado de la marca SNAPSHOT (coalescido con el pendiente, si hay). */
+    private void tomarSnapshot(boolean combinar) {
+        Snapshot s = colaSnapshots.siguiente();
+        if (s == null) return; // no pasa: la marca se publica después del estado
+        if (combinar) snapshotPendiente.combinarCon(s);
+        else snapshotPendiente.copiarDe(s);
+        colaSnapshots.liberar();
+    }
 
-            case "Gas": {
-                // Gas:valor:id
-                if (partes.length >= 3) actualizarGas(partes[1], partes[2]);
+    private void volcarPendientes(GameController gc) {
+        if (cantPendientes == 0) return;
+        for (int i = 0; i < pendientes.length; i++) {
+            if (!hayPendiente[i]) continue;
+            hayPendiente[i] = false;
+            if (gc != null) aplicar(gc, pendientes[i]);
+        }
+        cantPendientes = 0;
+    }
+
+    private void aplicar(GameController gc, ColaEventos.Evento e) {
+        switch (e.tipo) {
+            case Protocolo.ID:
+                entradas.reiniciar();
+                gc.onConnected(e.id);
                 break;
-            }
 
-            case "Dinero": {
-                // Dinero:valor:id
-                if (partes.length >= 3) actualizarDinero(partes[1], partes[2]);
+            case Protocolo.COMIENZA:
+                gc.onStartMatch();
                 break;
-            }
 
-            case "Vida": {
-                // Vida:valor:id
-                if (partes.length >= 3) actualizarVida(partes[1], partes[2]);
+            case EVENTO_REANUDADA:
+                // el server también olvidó las entradas: la secuencia sigue pero sin pendientes
+                entradas.reiniciar();
+                gc.onReanudada();
                 break;
-            }
 
-            case "Delivery": {
-                // Delivery:x,y,w,h:dangerous:reward:id
-                if (partes.length >= 5) actualizarDeliveryDesdeMensaje(partes);
+            case Protocolo.MOVIMIENTO:
+                if (e.secuencia != ReceptorMensajes.SIN_TICK) entradas.confirmar(e.secuencia);
+                // el Movimiento (texto) trae a los jugadores 0 y 1: una llegada y una llamada
+                // por entidad, la entrada confirmada solo para la local
+                gc.registrarArribo(e.nanos);
+                gc.actualizarPosicion(0, e.f0, e.f1, e.f4, e.nanos,
+                    playerId == 0 ? e.secuencia : ReceptorMensajes.SIN_TICK, playerId == 0 ? e.f6 : 0f);
+                gc.actualizarPosicion(1, e.f2, e.f3, e.f5, e.nanos,
+                    playerId == 1 ? e.secuencia : ReceptorMensajes.SIN_TICK, playerId == 1 ? e.f6 : 0f);
                 break;
-            }
 
-            case "DeliveryFin": {
-                if (partes.length >= 2) terminarDelivery(partes[1]);
+            case Protocolo.GAS:
+                gc.actualizarGas(e.f0, e.id);
                 break;
-            }
 
-            case "Hint": {
-                // Hint:id:tipo
-                if (partes.length >= 3) chequearHint(partes[1], partes[2]);
+            case Protocolo.DINERO:
+                gc.actualizarDinero(e.entero, e.id);
                 break;
-            }
 
-            case "GasHint": {
-                // GasHint:id:0|1
-                if (partes.length >= 3) {
-                    int id = Integer.parseInt(partes[1]);
-                    boolean enGas = "1".equals(partes[2]);
-                    Gdx.app.postRunnable(() -> {
-                        if (gameController != null) gameController.actualizarGasHint(id, enGas);
-                    });
-                }
+            case Protocolo.VIDA:
+                gc.actualizarVida(e.entero, e.id);
                 break;
-            }
 
-            case "GameOver": {
-                if (partes.length >= 2) onGameover(partes[1]);
+            case Protocolo.DELIVERY:
+                // el controller se guarda el rectángulo: uno nuevo por pedido (evento raro)
+                gc.actualizarDelivery(new Rectangle(e.f0, e.f1, e.f2, e.f3), e.flag, e.entero, e.id);
                 break;
-            }
 
-            case "Reset": {
-                resetear();
+            case Protocolo.DELIVERY_FIN:
+                gc.actualizarDelivery(null, false, 0, e.id);
                 break;
-            }
 
-            case "OpponentLeft": {
-                Gdx.app.postRunnable(() -> {
-                    if (gameController != null) gameController.onOpponentLeft();
-                });
+            case Protocolo.HINT:
+                gc.actualizarHint(e.id, e.entero);
+                break;
+
+            case Protocolo.GAS_HINT:
+                gc.actualizarGasHint(e.id, e.entero == 1);
+                break;
+
+            case Protocolo.GAME_OVER:
+                gc.onGameOver(e.id);
+                break;
+
+            case Protocolo.RESET:
+                gc.onReset();
+                break;
+
+            case Protocolo.OPPONENT_LEFT:
+                gc.onOpponentLeft();
+                break;
+
+            case Protocolo.SNAPSHOT:
+                if (snapshotPendiente.entrada != ReceptorMensajes.SIN_TICK) entradas.confirmar(snapshotPendiente.entrada);
+                gc.aplicarSnapshot(snapshotPendiente);
+                estadisticas.registrarAplicado(snapshotPendiente.servidorNanos);
                 break;
-            }
 
             default:
-                // ignorar mensajes desconocidos
                 break;
         }
     }
 
-    // =========================================================
-    // Helpers → callbacks en el hilo de LibGDX
-    // =========================================================
+    /** Cola red → render (profundidad, descartes) para métricas. */
+    public ColaEventos getEventos() {
+        return eventos;
+    }
 
-    private void moverPersonaje(String pos1, String pos2, String angulo1, String angulo2) {
-        Vector2 posicion1 = stringToVector2(pos1);
-        Vector2 posicion2 = stringToVector2(pos2);
-        float ang1 = Float.parseFloat(angulo1);
-        float ang2 = Float.parseFloat(angulo2);
+    /** Tráfico, decodificación, tiempo entre snapshots y edad del estado (gráfico de F3). */
+    public EstadisticasRed getEstadisticas() {
+        return estadisticas;
+    }
+
+    /** Snapshots descartados por viejos / duplicados y coalescidos por frame. */
+    public FiltroSecuencia getFiltroSnapshots() {
+        return filtro;
+    }
 
-        Gdx.app.postRunnable(() -> {
-            if (gameController != null)
-                gameController.actualizarPosicion(posicion1, posicion2, ang1, ang2);
-        });
+    /** Entradas enviadas: paquetes, bytes, profundidad de redundancia. */
+    public FlujoEntradas getEntradas() {
+        return entradas;
     }
 
-    private void actualizarGas(String gas, String id) {
-        int idPlayer = Integer.parseInt(id);
-        float playerGas = Float.parseFloat(gas);
+    /** Canal confiable: enviados, retransmitidos, entregados, duplicados, RTO. */
+    public CanalFiable getCanalFiable() {
+        return canal;
+    }
 
-        Gdx.app.postRunnable(() -> {
-            if (gameController != null)
-                gameController.actualizarGas(playerGas, idPlayer);
-        });
+    /** Snapshots agrupados: completos, deltas y descartados por falta de baseline. */
+    public ReconstructorSnapshots getReconstructor() {
+        return reconstructor;
+    }
+
+    // =========================================================
+    // Estado / utilidades
+    // =========================================================
+
+    public boolean isConnected() {
+        return playerId != -1;
     }
 
-    private void actualizarDinero(String dinero, String id) {
-        int dineroPlayer = Integer.parseInt(dinero);
-        int idPlayer = Integer.parseInt(id);
+    public int getPlayerId() {
+        return playerId;
+    }
 
-        Gdx.app.postRunnable(() -> {
-            if (gameController != null)
-                gameController.actualizarDinero(dineroPlayer, idPlayer);
-        });
+    /** true si los mensajes salen de una captura o una partida grabada y no de la red. */
+    public boolean isReproduccion() {
+        return reproductor != null;
     }
 
-    private void actualizarVida(String vida, String id) {
-        int vidaPlayer = Integer.parseInt(vida);
-        int idPlayer = Integer.parseInt(id);
+    /** Lo que se está reproduciendo, o null si es un cliente de red. */
+    public FuenteReproduccion getReproductor() {
+        return reproductor;
+    }
 
-        Gdx.app.postRunnable(() -> {
-            if (gameController != null)
-                gameController.actualizarVida(vidaPlayer, idPlayer);
-        });
+    /** true si se conectó (o se va a conectar) a mirar: no maneja ninguna moto. */
+    public boolean isEspectador() {
+        return espectador;
     }
 
-    private void chequearHint(String id, String tipo) {
-        int idPlayer = Integer.parseInt(id);
-        int tipoHint = Integer.parseInt(tipo);
+    /** true mientras se manda Reanudar (ver {@link #reanudar()}). */
+    public boolean isReanudando() {
+        return reanudando;
+    }
 
-        Gdx.app.postRunnable(() -> {
-            if (gameController != null)
-                gameController.actualizarHint(idPlayer, tipoHint);
-        });
+    /** Ms desde que empezó el intento en curso, o 0. */
+    public long getReanudandoMs() {
+        return reanudando ? TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - reanudarDesdeNs) : 0L;
     }
 
-    private void resetear() {
-        Gdx.app.postRunnable(() -> {
-            if (gameController != null) gameController.onReset();
-        });
+    /** Reanudaciones que funcionaron y Reanudar mandados (reintentos incluidos). */
+    public long getReanudaciones() { return reanudaciones; }
+    public long getIntentosReanudar() { return intentosReanudar; }
+
+    /** Tiempo hasta reanudar la última vez: del primer Reanudar al Reanudada, en ns (0 si nunca). */
+    public long getUltimaReanudacionNs() { return ultimaReanudacionNs; }
+
+    /** true si el handshake acordó el protocolo binario. */
+    public boolean isBinario() {
+        return binario;
     }
 
-    private void onGameover(String winnerIndex) {
-        int winner = Integer.parseInt(winnerIndex);
+    public void setGameController(GameController gameController) {
+        this.gameController = gameController;
+    }
 
-        Gdx.app.postRunnable(() -> {
-            if (gameController != null) gameController.onGameOver(winner);
-        });
+    /**
+     * false si se perdieron seguidos los pings que cubren timeoutMs (ver
+     * {@link MedidorPing#isVivo}); un Pong suelto tardío ya no alcanza para decidir.
+     */
+    public boolean isServerAlive(long timeoutMs) {
+        return medidorPing.isVivo(timeoutMs, System.nanoTime());
     }
 
-    private void terminarDelivery(String id) {
-        int idJugador = Integer.parseInt(id);
+    /**
+     * Hora actual del server (su System.nanoTime), estimada con el heartbeat. Monótona;
+     * mientras no hay sincronización devuelve la local.
+     */
+    public long serverTimeNanos() {
+        return reloj.serverTimeNanos();
+    }
 
-        Gdx.app.postRunnable(() -> {
-            if (gameController != null)
-                gameController.actualizarDelivery(null, false, 0, idJugador);
-        });
+    /** Offset, deriva y demora mínima de la sincronización de reloj. */
+    public RelojServidor getReloj() {
+        return reloj;
     }
 
-    private void actualizarDeliveryDesdeMensaje(String[] partes) {
-        // Delivery:x,y,w,h:dangerous:reward:id
-        String[] rectParts = partes[1].split(",");
-        float x = Float.parseFloat(rectParts[0]);
-        float y = Float.parseFloat(rectParts[1]);
-        float w = Float.parseFloat(rectParts[2]);
-        float h = Float.parseFloat(rectParts[3]);
+    /** Servers que contestaron el último {@link #buscarServidores()}, por RTT. */
+    public DescubrimientoServidores getDescubrimiento() {
+        return descubrimiento;
+    }
 
-        boolean dangerous = "1".equals(partes[2]);
-        int reward = Integer.parseInt(partes[3]);
-        int idJugador = Integer.parseInt(partes[4]);
+    /** IP del server actual (null o broadcast mientras no hay handshake). */
+    public InetAddress getServidor() {
+        return ipServer;
+    }
 
-        Rectangle target = new Rectangle(x, y, w, h);
+    /** RTT (percentiles), jitter y pérdida del heartbeat. */
+    public MedidorPing getMedidorPing() {
+        return medidorPing;
+    }
 
-        Gdx.app.postRunnable(() -> {
-            if (gameController != null)
-                gameController.actualizarDelivery(target, dangerous, reward, idJugador);
-        });
+    /** Cuantización de posiciones que se negoció con el server, o null (floats). */
+    public Cuantizacion getCuantizacion() {
+        return cuantizacion;
     }
 
-    // =========================================================
-    // Estado / utilidades
-    // =========================================================
+    /** Fragmentos recibidos, perdidos y cuánto tardan en completarse los mensajes partidos. */
+    public Reensamblador getReensamblador() {
+        return reensamblador;
+    }
 
-    public boolean isConnected() {
-        return playerId != -1;
+    /** AREA mandados (ver {@link #reportarArea}). */
+    public long getAreasEnviadas() {
+        return areasEnviadas;
     }
 
-    public int getPlayerId() {
-        return playerId;
+    /** Tasa de snapshots pedida y negociada (y lo que ahorra). */
+    public SelectorTasa getSelectorTasa() {
+        return selectorTasa;
     }
 
-    public void setGameController(GameController gameController) {
-        this.gameController = gameController;
+    /** Datagramas que no entraron en {@link #TAM_BUFFER} y se tiraron. */
+    public long getTruncados() {
+        return truncados;
     }
 
-    /** true si recibimos Pong dentro del timeout */
-    public boolean isServerAlive(long timeoutMs) {
-        return (System.currentTimeMillis() - lastPongMs) <= timeoutMs;
+    /** Snapshots aceptados que se tiraron porque la cola hacia el render estaba llena. */
+    public long getSnapshotsSinLugar() {
+        return snapshotsSinLugar;
     }
 
     public static Vector2 stringToVector2(String s) {
-        s = s.replace("Vector2", "")
-            .replace("(", "")
-            .replace(")", "")
-            .trim();
-
-        String[] parts = s.split(",");
-        float x = Float.parseFloat(parts[0]);
-        float y = Float.parseFloat(parts[1]);
-        return new Vector2(x, y);
+        float[] xy = CodecTexto.parseVector(s);
+        return new Vector2(xy[0], xy[1]);
     }
 }
@@ -0,0 +1,166 @@
+package com.motorepartidor.entities.components;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BufferInterpolacionTest {
+
+    private static final long MS = 1_000_000L;
+
+    // ===== Traza fija: un snapshot cada 50 ms, llega 20 ms después con jitter =====
+    private static final long PERIODO = 50 * MS;
+    private static final long LATENCIA = 20 * MS;
+    private static final int[] JITTER_MS = {
+        3, -4, 12, -9, 0, 7, -13, 5, 15, -2, -11, 8, 1, -6, 14, -15, 4, 9, -7, 2,
+        -3, 11, -10, 6, 0, -12, 13, -1, 7, -8, 10, -5, 3, -14, 9, -4, 12, 0, -9, 5,
+        -6, 15, -2, 8, -11, 1, 4, -13, 6, -3,
+    };
+    /** Ráfaga perdida: 300 ms sin snapshots. */
+    private static final int PERDIDOS_DESDE = 30, PERDIDOS_HASTA = 35;
+
+    private static final float VEL_X = 200f, VEL_Y = -100f, Y0 = 300f; // px/s
+    private static final float ANG0 = 150f, VEL_ANG = 60f;              // °/s: cruza ±180 a los 0,5 s
+
+    private static float xEn(double s) { return (float) (VEL_X * s); }
+    private static float yEn(double s) { return (float) (Y0 + VEL_Y * s); }
+
+    /** Ángulo como lo manda el server, en (-180, 180]. */
+    private static float angEn(double s) {
+        double a = (ANG0 + VEL_ANG * s) % 360d;
+        if (a > 180d) a -= 360d;
+        return (float) a;
+    }
+
+    private static long llegada(int i) {
+        return i * PERIODO + LATENCIA + JITTER_MS[i] * MS;
+    }
+
+    private static boolean perdido(int i) {
+        return i >= PERDIDOS_DESDE && i <= PERDIDOS_HASTA;
+    }
+
+    // =========================================================
+    // Casos puntuales
+    // =========================================================
+
+    @Test
+    public void interpolaEntreDosSnapshots() {
+        BufferInterpolacion b = new BufferInterpolacion(8);
+        b.agregar(0, 0f, 0f, 0f);
+        b.agregar(100 * MS, 10f, 20f, 90f);
+
+        assertTrue(b.muestrear(25 * MS));
+        assertEquals(2.5f, b.getX(), 1e-4f);
+        assertEquals(5f, b.getY(), 1e-4f);
+        assertEquals(22.5f, b.getAngulo(), 1e-4f);
+
+        // antes del primero: el primero tal cual
+        b.muestrear(-10 * MS);
+        assertEquals(0f, b.getX(), 0f);
+    }
+
+    @Test
+    public void anguloPorElArcoMasCorto() {
+        assertEquals(2f, BufferInterpolacion.diferenciaAngulo(359f, 1f), 1e-4f);
+        assertEquals(-2f, BufferInterpolacion.diferenciaAngulo(1f, 359f), 1e-4f);
+        assertEquals(20f, BufferInterpolacion.diferenciaAngulo(170f, -170f), 1e-4f);
+        assertEquals(-20f, BufferInterpolacion.diferenciaAngulo(-170f, 170f), 1e-4f);
+
+        BufferInterpolacion b = new BufferInterpolacion(8);
+        b.agregar(0, 0f, 0f, 170f);
+        b.agregar(100 * MS, 0f, 0f, -170f);
+        b.muestrear(25 * MS);
+        assertEquals(175f, b.getAngulo(), 1e-3f);
+        b.muestrear(50 * MS);
+        assertEquals(180f, b.getAngulo(), 1e-3f);
+        b.muestrear(75 * MS);
+        assertEquals(185f, b.getAngulo(), 1e-3f); // siempre en [0, 360)
+
+        b.limpiar();
+        b.agregar(0, 0f, 0f, 359f);
+        b.agregar(100 * MS, 0f, 0f, 1f);
+        b.muestrear(75 * MS);
+        assertEquals(0.5f, b.getAngulo(), 1e-3f);
+    }
+
+    @Test
+    public void extrapolaHastaElTope() {
+        BufferInterpolacion b = new BufferInterpolacion(8);
+        b.agregar(0, 0f, 0f, 10f);
+        b.agregar(50 * MS, 10f, -5f, 20f); // 200 px/s, -100 px/s, 200 °/s
+
+        b.muestrear(100 * MS);
+        assertEquals(20f, b.getX(), 1e-4f);
+        assertEquals(-10f, b.getY(), 1e-4f);
+        assertEquals(30f, b.getAngulo(), 1e-4f);
+
+        float tope = 10f + 200f * BufferInterpolacion.MAX_EXTRAPOLACION_NS / 1e9f;
+        b.muestrear(50 * MS + BufferInterpolacion.MAX_EXTRAPOLACION_NS);
+        assertEquals(tope, b.getX(), 1e-3f);
+        b.muestrear(5_000 * MS);
+        assertEquals(tope, b.getX(), 1e-3f);
+    }
+
+    // =========================================================
+    // Traza con jitter y pérdida
+    // =========================================================
+
+    /**
+     * Frames a 60 Hz sobre la traza, con el retardo que da EstimadorRetardo. Lo dibujado
+     * tiene que estar cerca de donde estaba la moto (menos la latencia media), girar por
+     * el lado corto al cruzar ±180 y, en la ráfaga perdida, frenarse en el tope.
+     */
+    @Test
+    public void trazaConJitter() {
+        BufferInterpolacion b = new BufferInterpolacion(32);
+        EstimadorRetardo e = new EstimadorRetardo(50 * MS, 300 * MS);
+        long frame = 16_666_667L;
+
+        int siguiente = 0;
+        long ultimoArribo = -1;
+        int ultimoIndice = -1;
+        float maxErrorPos = 0, maxErrorAng = 0, congelado = Float.NaN;
+        int muestreados = 0, congelados = 0;
+
+        for (long t = 0; siguiente < JITTER_MS.length; t += frame) {
+            while (siguiente < JITTER_MS.length && llegada(siguiente) <= t) {
+                int i = siguiente++;
+                if (perdido(i)) continue;
+                double s = i * PERIODO / 1e9;
+                e.registrarArribo(llegada(i));
+                b.agregar(llegada(i), xEn(s), yEn(s), angEn(s));
+                ultimoArribo = llegada(i);
+                ultimoIndice = i;
+            }
+            e.actualizar(frame / 1e9f);
+            long render = t - e.getRetardoNs();
+            if (!b.muestrear(render) || t < 500 * MS) continue;
+
+            long pasado = render - ultimoArribo;
+            if (pasado > 0 && ultimoIndice == PERDIDOS_DESDE - 1) {
+                // en la ráfaga: se extrapola y, pasado el tope, queda quieta
+                if (pasado >= BufferInterpolacion.MAX_EXTRAPOLACION_NS) {
+                    if (Float.isNaN(congelado)) congelado = b.getX();
+                    assertEquals("quieta en el tope", congelado, b.getX(), 0f);
+                    congelados++;
+                }
+                continue;
+            }
+            if (pasado > 0) continue;
+
+            double s = (render - LATENCIA) / 1e9;
+            maxErrorPos = Math.max(maxErrorPos, Math.abs(b.getX() - xEn(s)));
+            maxErrorPos = Math.max(maxErrorPos, Math.abs(b.getY() - yEn(s)));
+            maxErrorAng = Math.max(maxErrorAng, Math.abs(BufferInterpolacion.diferenciaAngulo(angEn(s), b.getAngulo())));
+            muestreados++;
+        }
+
+        assertTrue("frames comparados: " + muestreados, muestreados > 100);
+        assertTrue("frames en el tope: " + congelados, congelados > 0);
+        // jitter de hasta 15 ms a 200 px/s: 3 px
+        assertTrue("error de posición " + maxErrorPos, maxErrorPos <= 3.1f);
+        assertTrue("error de ángulo " + maxErrorAng, maxErrorAng <= 1f);
+    }
+}
@@ -0,0 +1,155 @@
+package com.motorepartidor.entities.components;
+
+import com.badlogic.gdx.math.Rectangle;
+import com.motorepartidor.GameController;
+import org.junit.Test;
+import red.GrabadorCaptura;
+import red.ReproductorCaptura;
+import red.Snapshot;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class EstimadorRetardoTest {
+
+    private static final long MS = 1_000_000L;
+    private static final long MINIMO = 50 * MS, MAXIMO = 300 * MS;
+    private static final long PERIODO = 50 * MS;
+    private static final long FRAME = 16_666_667L;
+    private static final float DELTA = FRAME / 1e9f;
+
+    /** Desvío de cada llegada en ms (se repite). */
+    private static final int[] JITTER_MS = {
+        3, -4, 12, -9, 0, 7, -13, 5, 15, -2, -11, 8, 1, -6, 14, -15, 4, 9, -7, 2,
+    };
+
+    private long t;
+    private int snapshot;
+    private final EstimadorRetardo e = new EstimadorRetardo(MINIMO, MAXIMO);
+
+    /**
+     * Corre la cantidad de segundos a 60 Hz con un snapshot cada 50 ms, con o sin jitter.
+     * Cada frame revisa que el retardo no pegue saltos ni se salga de [mínimo, máximo].
+     */
+    private void correr(double segundos, boolean jitter) {
+        long fin = t + (long) (segundos * 1e9);
+        long proxima = snapshot * PERIODO + (jitter ? JITTER_MS[snapshot % JITTER_MS.length] * MS : 0);
+        for (; t < fin; t += FRAME) {
+            while (proxima <= t) {
+                e.registrarArribo(proxima);
+                snapshot++;
+                proxima = snapshot * PERIODO + (jitter ? JITTER_MS[snapshot % JITTER_MS.length] * MS : 0);
+            }
+            long antes = e.getRetardoNs();
+            e.actualizar(DELTA);
+            long despues = e.getRetardoNs();
+            assertTrue("salto de " + (despues - antes) + " ns", Math.abs(despues - antes) <= antes * 0.5 * DELTA + 1);
+            assertTrue(despues >= MINIMO && despues <= MAXIMO);
+        }
+    }
+
+    @Test
+    public void sinJitterQuedaEnElMinimo() {
+        correr(5, false);
+        assertEquals(PERIODO, e.getIntervaloNs(), MS);
+        assertEquals(0L, e.getJitterNs());
+        assertEquals(MINIMO, e.getRetardoNs());
+    }
+
+    /** Sube rápido cuando aparece el jitter y baja despacio cuando se va. */
+    @Test
+    public void seAdaptaAlJitter() {
+        correr(5, false);
+
+        correr(1, true);
+        long rapido = e.getRetardoNs();
+        assertTrue("sube en el primer segundo: " + rapido, rapido > MINIMO + 5 * MS);
+
+        correr(9, true);
+        long jitter = e.getJitterNs();
+        assertTrue("jitter medido " + jitter, jitter > 5 * MS && jitter < 15 * MS);
+        assertEquals("alcanza el objetivo", e.getObjetivoNs(), e.getRetardoNs(), 3 * MS);
+        assertEquals(e.getIntervaloNs() + 3 * jitter, e.getObjetivoNs(), MS);
+        long alto = e.getRetardoNs();
+
+        correr(1, false);
+        assertTrue("baja despacio", e.getRetardoNs() > MINIMO && e.getRetardoNs() > alto - 10 * MS);
+
+        correr(15, false);
+        assertEquals("vuelve al mínimo", MINIMO, e.getRetardoNs());
+    }
+
+    @Test
+    public void noPasaDelMaximo() {
+        // snapshots cada 400 ms: el objetivo pasa el máximo
+        for (int i = 0; i < 50; i++) {
+            e.registrarArribo(i * 400 * MS);
+            for (int f = 0; f < 24; f++) e.actualizar(DELTA);
+        }
+        assertEquals(MAXIMO, e.getObjetivoNs());
+        assertEquals(MAXIMO, e.getRetardoNs());
+
+        e.reiniciar();
+        assertEquals(MINIMO, e.getRetardoNs());
+        assertEquals(0L, e.getIntervaloNs());
+    }
+
+    /**
+     * Movimientos de texto (dos entidades por datagrama) por el cliente real, con el
+     * estimador conectado como en GameScreen: una llegada por datagrama, así que el
+     * intervalo es el de envío y no la mitad.
+     */
+    @Test
+    public void movimientoDeTextoEsUnaLlegada() throws IOException {
+        final int cantidad = 40;
+        final long periodo = 10 * MS;
+        File archivo = File.createTempFile("movimientos", GrabadorCaptura.EXTENSION);
+        try {
+            try (GrabadorCaptura g = new GrabadorCaptura(archivo)) {
+                for (int i = 0; i < cantidad; i++) {
+                    String m = "Movimiento:(" + i + ",0):(0," + i + "):0.0:90.0:" + (i + 1);
+                    g.grabar(i * periodo, ByteBuffer.wrap(m.getBytes(StandardCharsets.US_ASCII)));
+                }
+            }
+            Remotos remotos = new Remotos();
+            try (ReproductorCaptura r = new ReproductorCaptura(archivo, ReproductorCaptura.Modo.TIEMPO_REAL, 1f)) {
+                r.reproducirTodo(remotos);
+            }
+            assertEquals(cantidad, remotos.arribos);
+            assertEquals(2 * cantidad, remotos.posiciones);
+            assertEquals(periodo, e.getIntervaloNs(), 4 * MS);
+        } finally {
+            assertTrue(archivo.delete());
+        }
+    }
+
+    /** Lo que hace GameScreen con el estimador; el resto no importa. */
+    private final class Remotos implements GameController {
+        int arribos, posiciones;
+
+        @Override public void registrarArribo(long tiempoNanos) { arribos++; e.registrarArribo(tiempoNanos); }
+        @Override
+        public void actualizarPosicion(int id, float x, float y, float angulo, long tiempoNanos,
+                                       long entradaConfirmada, float velocidad) { posiciones++; }
+        @Override public void aplicarSnapshot(Snapshot s) { e.registrarArribo(s.nanos); }
+        @Override public void enviarInput(int tecla) {}
+        @Override public void actualizarGas(float gas, int id) {}
+        @Override public void actualizarDinero(int dinero, int id) {}
+        @Override public void actualizarVida(int vida, int id) {}
+        @Override public void actualizarDelivery(Rectangle target, boolean dangerous, int reward, int id) {}
+        @Override public void actualizarHint(int id, int tipo) {}
+        @Override public void onGameOver(int winnerIndex) {}
+        @Override public void onReset() {}
+        @Override public void onConnected(int playerId) {}
+        @Override public void onStartMatch() {}
+        @Override public void onConnectionLost() {}
+        @Override public void onReanudada() {}
+        @Override public void onOpponentLeft() {}
+        @Override public void actualizarGasHint(int idJugador, boolean enGas) {}
+    }
+}
@@ -0,0 +1,144 @@
+package com.motorepartidor.entities.components;
+
+import com.motorepartidor.fisica.EstadoMoto;
+import com.motorepartidor.fisica.MapaColisiones;
+import com.motorepartidor.fisica.ModeloConduccion;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Rebobinado y re-simulación: lo que queda después de reconciliar tiene que ser lo mismo
+ * que simular desde el estado del server con las entradas que todavía no confirmó.
+ */
+public class PrediccionLocalTest {
+
+    private static final float X0 = 1000f, Y0 = 1000f;
+    private static final int ENTRADAS = 40, CONFIRMADA = 25;
+
+    private MapaColisiones mapa;
+    private PrediccionLocal p;
+
+    /** Acelera todo el tiempo y dobla a la izquierda 3 de cada 10 ticks. */
+    private static int teclas(int seq) {
+        return ModeloConduccion.ACELERAR | (seq % 10 < 3 ? ModeloConduccion.IZQUIERDA : 0);
+    }
+
+    /** Lo que haría el server: las entradas (desde, hasta] sobre e. */
+    private EstadoMoto simular(EstadoMoto e, int desde, int hasta) {
+        for (int s = desde + 1; s <= hasta; s++) ModeloConduccion.paso(e, teclas(s), true, mapa);
+        return e;
+    }
+
+    @Before
+    public void preparar() {
+        // una pared de frente: parte de las entradas chocan y se deslizan
+        mapa = new MapaColisiones(2000f, 2000f);
+        mapa.agregar(900f, 1085f, 300f, 20f);
+        mapa.construir();
+
+        p = new PrediccionLocal(mapa);
+        p.reiniciar(X0, Y0, 0f);
+        p.reconciliar(0, X0, Y0, 0f, 0f, true); // el server confirma la salida: activa
+        for (int s = 1; s <= ENTRADAS; s++) {
+            assertEquals(1, p.avanzar(ModeloConduccion.DT, teclas(s), true));
+        }
+        assertEquals(ENTRADAS, p.getSecuencia());
+        assertEquals(ENTRADAS, p.getPendientes());
+    }
+
+    @Test
+    public void sinCorreccionQuedaDondeEstaba() {
+        EstadoMoto server = simular(new EstadoMoto().set(X0, Y0, 0f, 0f), 0, CONFIRMADA);
+        float x = p.getX(), y = p.getY(), ang = p.getAngulo();
+
+        p.reconciliar(CONFIRMADA, server.x, server.y, server.angulo, server.velocidad, true);
+        assertEquals(x, p.getX(), 0f);
+        assertEquals(y, p.getY(), 0f);
+        assertEquals(ang, p.getAngulo(), 0f);
+        assertEquals(0f, p.getOffsetPendiente(), 0f);
+        assertEquals(0f, p.getErrorUltimo(), 0f);
+        assertEquals(0, p.getCorrecciones());
+    }
+
+    @Test
+    public void reSimulaDesdeElEstadoDelServer() {
+        EstadoMoto predicho = simular(new EstadoMoto().set(X0, Y0, 0f, 0f), 0, CONFIRMADA);
+        // el server lo vio un poco corrido (otro jugador lo empujó, lo que sea)
+        EstadoMoto server = new EstadoMoto().set(predicho.x + 2.5f, predicho.y - 1.5f, predicho.angulo + 4f,
+            predicho.velocidad - 10f);
+        EstadoMoto esperado = simular(new EstadoMoto().copiarDe(server), CONFIRMADA, ENTRADAS);
+
+        float antesX = p.getX(), antesY = p.getY();
+        long resimulados = p.getTicksResimulados();
+        p.reconciliar(CONFIRMADA, server.x, server.y, server.angulo, server.velocidad, true);
+
+        // las confirmadas se descartan: solo quedan (25, 40]
+        assertEquals(ENTRADAS - CONFIRMADA, p.getPendientes());
+        assertEquals(ENTRADAS - CONFIRMADA, p.getTicksResimulados() - resimulados);
+        assertEquals(1, p.getCorrecciones());
+        assertEquals((float) Math.hypot(2.5, 1.5), p.getErrorUltimo(), 1e-4f);
+
+        // en pantalla no salta: la diferencia con lo re-simulado queda como offset
+        assertEquals(antesX, p.getX(), 1e-3f);
+        assertEquals(antesY, p.getY(), 1e-3f);
+        assertEquals((float) Math.hypot(antesX - esperado.x, antesY - esperado.y), p.getOffsetPendiente(), 1e-3f);
+        assertEquals(esperado.velocidad, p.getVelocidad(), 0f);
+
+        // un segundo sin teclas: el offset se consume y queda exactamente la simulación
+        for (int f = 0; f < 60; f++) {
+            p.avanzar(ModeloConduccion.DT, 0, true);
+            ModeloConduccion.paso(esperado, 0, true, mapa);
+        }
+        assertEquals(0f, p.getOffsetPendiente(), 0f);
+        assertEquals(esperado.x, p.getX(), 0f);
+        assertEquals(esperado.y, p.getY(), 0f);
+        assertEquals(ModeloConduccion.normalizar(esperado.angulo), p.getAngulo(), 0f);
+    }
+
+    @Test
+    public void confirmacionViejaSeIgnora() {
+        EstadoMoto server = simular(new EstadoMoto().set(X0, Y0, 0f, 0f), 0, CONFIRMADA);
+        p.reconciliar(CONFIRMADA, server.x, server.y, server.angulo, server.velocidad, true);
+        float x = p.getX(), y = p.getY();
+        long reconciliaciones = p.getReconciliaciones();
+
+        // llega tarde uno de antes, y encima mal: no rebobina a las entradas ya descartadas
+        p.reconciliar(CONFIRMADA - 5, X0, Y0, 90f, 0f, true);
+        assertEquals(reconciliaciones, p.getReconciliaciones());
+        assertEquals(ENTRADAS - CONFIRMADA, p.getPendientes());
+        assertEquals(x, p.getX(), 0f);
+        assertEquals(y, p.getY(), 0f);
+
+        // y el que confirma todo deja nada pendiente
+        EstadoMoto fin = simular(server, CONFIRMADA, ENTRADAS);
+        p.reconciliar(ENTRADAS, fin.x, fin.y, fin.angulo, fin.velocidad, true);
+        assertEquals(0, p.getPendientes());
+    }
+
+    @Test
+    public void correccionEnormeSaltaSinSuavizar() {
+        // respawn: el server lo pone en otro lado del mapa
+        EstadoMoto server = new EstadoMoto().set(300f, 400f, 270f, 0f);
+        EstadoMoto esperado = simular(new EstadoMoto().copiarDe(server), CONFIRMADA, ENTRADAS);
+
+        p.reconciliar(CONFIRMADA, server.x, server.y, server.angulo, server.velocidad, true);
+        assertEquals(0f, p.getOffsetPendiente(), 0f);
+        assertEquals(esperado.x, p.getX(), 0f);
+        assertEquals(esperado.y, p.getY(), 0f);
+        assertEquals(ModeloConduccion.normalizar(esperado.angulo), p.getAngulo(), 0f);
+        assertTrue(p.getErrorUltimo() > 500f);
+    }
+
+    @Test
+    public void confirmacionFueraDelHistorialNoRebobina() {
+        // el server habla de una secuencia que no tenemos (sesión nueva): se toma tal cual
+        p.reconciliar(ENTRADAS + 1_000, 500f, 600f, 45f, 30f, true);
+        assertEquals(500f, p.getX(), 0f);
+        assertEquals(600f, p.getY(), 0f);
+        assertEquals(45f, p.getAngulo(), 0f);
+        assertEquals(0f, p.getOffsetPendiente(), 0f);
+    }
+}
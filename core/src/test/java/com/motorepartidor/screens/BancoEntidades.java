@@ -0,0 +1,254 @@
+package com.motorepartidor.screens;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.Graphics;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.TextureData;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.math.Vector2;
+import com.motorepartidor.entities.Jugador;
+import com.motorepartidor.entities.RegistroEntidades;
+import red.Snapshot;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.util.Random;
+
+/**
+ * Costo de aplicar un snapshot y de un frame (cull + interpolar + animar) con 2, 16 y
+ * 64 motos, repitiendo lo que hacen GameScreen.aplicarSnapshot y render con los remotos.
+ * Snapshots a 30 Hz, frames a 60, tres minutos por corrida; se queda con la mejor de 5
+ * (más una de calentamiento) y avisa si alguno de los dos caminos crea objetos. Dos
+ * escenarios: todas las motos en pantalla y repartidas por el mapa.
+ *
+ * Sin ventana: GL, Graphics y el Batch son Proxy que no hacen nada, y las texturas tienen
+ * datos de mentira del tamaño del sprite. Se dibuja igual cada frame pero fuera de la
+ * medición: el Proxy encajona los argumentos de cada draw, un Batch de verdad no.
+ *
+ * ./gradlew core:banco -Pclase=com.motorepartidor.screens.BancoEntidades
+ */
+public final class BancoEntidades {
+
+    private static final int[] CANTIDADES = {2, 16, 64};
+    private static final int CORRIDAS = 5;
+    private static final int FRAMES = 3 * 60 * 60;
+    private static final long FRAME_NS = 16_666_667L;
+    private static final long RETARDO_NS = 100_000_000L;
+
+    // ===== Como en GameScreen =====
+    private static final int SPRITE_ANCHO = 18, SPRITE_ALTO = 36;
+    private static final float ANCHO_MAPA = 400 * 16, ALTO_MAPA = 225 * 16;
+    /** Lo que ve la cámara en px del mundo (ExtendViewport 20x15 a 16:9, UNIT_SCALE 1/64). */
+    private static final float VISTA_ANCHO = 1707f, VISTA_ALTO = 960f;
+
+    private static long dibujados;
+
+    // ===== Estado de una corrida (lo mismo que tiene GameScreen) =====
+    private final RegistroEntidades registro = new RegistroEntidades();
+    private final Jugador[] jugadores = new Jugador[RegistroEntidades.CAPACIDAD];
+    private final int[] visibles = new int[RegistroEntidades.CAPACIDAD];
+    private final Texture[] texturas;
+    private final Batch batch;
+    private final int localId = 0;
+
+    private BancoEntidades(Texture[] texturas, Batch batch) {
+        this.texturas = texturas;
+        this.batch = batch;
+    }
+
+    /** GameScreen.aplicarSnapshot + alta + aplicarPosicion, con el local sin predicción. */
+    private void aplicar(Snapshot s) {
+        for (int id = 0; id < Snapshot.MAX_JUGADORES; id++) {
+            if (!s.presente[id]) {
+                registro.quitar(id);
+                continue;
+            }
+            if (registro.agregar(id)) {
+                Jugador j = jugadores[id];
+                if (j == null) {
+                    j = new Jugador(texturas[id % texturas.length], SPRITE_ANCHO, SPRITE_ALTO, new Vector2(s.x[id], s.y[id]));
+                    jugadores[id] = j;
+                }
+                j.limpiarSnapshots();
+                j.setPosicion(s.x[id], s.y[id]);
+                j.setAngulo(s.angulo[id]);
+            }
+            registro.gas[id] = s.gas[id];
+            registro.x[id] = s.x[id];
+            registro.y[id] = s.y[id];
+            registro.angulo[id] = s.angulo[id];
+            if (id == localId) {
+                jugadores[id].setPosicion(s.x[id], s.y[id]);
+                jugadores[id].setAngulo(s.angulo[id]);
+            } else {
+                jugadores[id].agregarSnapshot(s.nanos, s.x[id], s.y[id], s.angulo[id]);
+            }
+            registro.velocidad[id] = s.velocidad[id];
+            registro.dinero[id] = s.dinero[id];
+            registro.vida[id] = s.vida[id];
+            registro.hint[id] = s.hint[id];
+            registro.enGas[id] = s.gasHint[id];
+        }
+    }
+
+    /** La parte de GameScreen.render que depende de las motos, menos dibujar. @return remotos visibles */
+    private int frame(long tiempoRender, float delta, boolean cull) {
+        Jugador local = jugadores[localId];
+        local.update(delta);
+        float cx = local.getPosicion().x, cy = local.getPosicion().y;
+        float mx = VISTA_ANCHO / 2f + GameScreen.MARGEN_VISIBLE, my = VISTA_ALTO / 2f + GameScreen.MARGEN_VISIBLE;
+
+        int n;
+        if (cull) {
+            n = registro.visibles(cx - mx, cy - my, cx + mx, cy + my, visibles);
+        } else {
+            n = registro.getCantidad();
+            for (int i = 0; i < n; i++) visibles[i] = registro.getId(i);
+        }
+        for (int i = 0; i < n; i++) {
+            if (visibles[i] == localId) {
+                visibles[i] = visibles[--n];
+                break;
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            Jugador j = jugadores[visibles[i]];
+            j.interpolar(tiempoRender);
+            j.update(delta);
+        }
+        return n;
+    }
+
+    /** Los remotos que dejó el último {@link #frame} y el local arriba. */
+    private void dibujar(int n) {
+        batch.begin();
+        for (int i = 0; i < n; i++) jugadores[visibles[i]].dibujar(batch);
+        jugadores[localId].dibujar(batch);
+        batch.end();
+    }
+
+    public static void main(String[] args) {
+        Gdx.gl = Gdx.gl20 = nada(GL20.class, null);
+        Gdx.graphics = nada(Graphics.class, null);
+        Batch batch = nada(Batch.class, (p, m, a) -> {
+            if (m.getName().equals("draw")) dibujados++;
+            return null;
+        });
+        Texture[] texturas = {textura(), textura()};
+
+        com.sun.management.ThreadMXBean mx =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long hilo = Thread.currentThread().getId();
+        mx.getThreadAllocatedBytes(hilo);
+
+        for (boolean juntos : new boolean[]{true, false}) {
+            System.out.println(juntos ? "todas en pantalla:" : "repartidas por el mapa:");
+            System.out.printf("%4s %14s %14s %14s %12s%n", "N", "snapshot us", "frame us", "sin cull us", "visibles");
+            for (int n : CANTIDADES) {
+                double snapshot = Double.MAX_VALUE, conCull = Double.MAX_VALUE, sinCull = Double.MAX_VALUE;
+                double remotos = 0;
+                for (int corrida = 0; corrida <= CORRIDAS; corrida++) {
+                    BancoEntidades b = new BancoEntidades(texturas, batch);
+                    Random r = new Random(n);
+                    float x0 = juntos ? 1300 : 0, x1 = juntos ? 2100 : ANCHO_MAPA;
+                    float y0 = juntos ? 150 : 0, y1 = juntos ? 750 : ALTO_MAPA;
+                    float[] px = new float[n], py = new float[n], vx = new float[n], vy = new float[n];
+                    for (int i = 0; i < n; i++) {
+                        px[i] = juntos ? 1500 + r.nextFloat() * 450 : r.nextFloat() * ANCHO_MAPA;
+                        py[i] = juntos ? 350 + r.nextFloat() * 200 : r.nextFloat() * ALTO_MAPA;
+                        vx[i] = (r.nextFloat() - 0.5f) * 400;
+                        vy[i] = (r.nextFloat() - 0.5f) * 400;
+                    }
+
+                    Snapshot s = new Snapshot();
+                    long ahora = 0, nsSnapshot = 0, nsCull = 0, nsSinCull = 0, vistos = 0, bytes = 0;
+                    for (int f = 0; f < FRAMES; f++) {
+                        ahora += FRAME_NS;
+                        if (f % 2 == 0) {
+                            s.limpiar();
+                            s.nanos = ahora;
+                            for (int i = 0; i < n; i++) {
+                                px[i] += vx[i] / 30f;
+                                py[i] += vy[i] / 30f;
+                                if (px[i] < x0 || px[i] > x1) vx[i] = -vx[i];
+                                if (py[i] < y0 || py[i] > y1) vy[i] = -vy[i];
+                                s.presente[i] = true;
+                                s.x[i] = px[i];
+                                s.y[i] = py[i];
+                                s.angulo[i] = f % 360;
+                                s.gas[i] = 50;
+                                s.vida[i] = 100;
+                            }
+                            long m0 = mx.getThreadAllocatedBytes(hilo);
+                            long t0 = System.nanoTime();
+                            b.aplicar(s);
+                            nsSnapshot += System.nanoTime() - t0;
+                            if (f > 0) bytes += mx.getThreadAllocatedBytes(hilo) - m0; // el primero crea los Jugador
+                        }
+                        long render = ahora - RETARDO_NS;
+                        long m0 = mx.getThreadAllocatedBytes(hilo);
+                        long t0 = System.nanoTime();
+                        int visto = b.frame(render, 1f / 60f, true);
+                        long t1 = System.nanoTime();
+                        bytes += mx.getThreadAllocatedBytes(hilo) - m0;
+                        b.dibujar(visto);
+                        vistos += visto;
+                        long t2 = System.nanoTime();
+                        int todos = b.frame(render, 1f / 60f, false);
+                        nsSinCull += System.nanoTime() - t2;
+                        b.dibujar(todos);
+                        nsCull += t1 - t0;
+                    }
+                    if (corrida == 0) continue;
+                    snapshot = Math.min(snapshot, nsSnapshot / 1e3 / (FRAMES / 2));
+                    conCull = Math.min(conCull, nsCull / 1e3 / FRAMES);
+                    sinCull = Math.min(sinCull, nsSinCull / 1e3 / FRAMES);
+                    remotos = (double) vistos / FRAMES;
+                    if (bytes > 0) System.out.println("  ojo: N=" + n + " creó " + bytes + " B");
+                }
+                System.out.printf("%4d %14.2f %14.2f %14.2f %12.1f%n", n, snapshot, conCull, sinCull, remotos);
+            }
+        }
+        System.out.println("draw totales: " + dibujados);
+    }
+
+    // =========================================================
+    // Sin ventana
+    // =========================================================
+
+    /** Implementación que no hace nada (0, false o null), salvo lo que atienda `h`. */
+    @SuppressWarnings("unchecked")
+    private static <T> T nada(Class<T> tipo, InvocationHandler h) {
+        return (T) Proxy.newProxyInstance(tipo.getClassLoader(), new Class<?>[]{tipo}, (p, m, a) -> {
+            Object r = h == null ? null : h.invoke(p, m, a);
+            return r != null ? r : cero(m.getReturnType());
+        });
+    }
+
+    private static Object cero(Class<?> c) {
+        if (c == boolean.class) return false;
+        if (c == int.class) return 0;
+        if (c == long.class) return 0L;
+        if (c == float.class) return 0f;
+        if (c == double.class) return 0d;
+        if (c == short.class) return (short) 0;
+        if (c == byte.class) return (byte) 0;
+        if (c == char.class) return (char) 0;
+        return null;
+    }
+
+    /** Textura "Custom" de un cuadro del sprite: nada que subir a la GPU. */
+    private static Texture textura() {
+        return new Texture(nada(TextureData.class, (p, m, a) -> {
+            switch (m.getName()) {
+                case "getType": return TextureData.TextureDataType.Custom;
+                case "getWidth": return SPRITE_ANCHO;
+                case "getHeight": return SPRITE_ALTO;
+                case "isPrepared": return true;
+                default: return null;
+            }
+        }));
+    }
+}
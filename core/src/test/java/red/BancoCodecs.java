@@ -0,0 +1,143 @@
+package red;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Tamaño y tiempo de decodificación de cada mensaje del server en texto y en binario,
+ * más un SNAPSHOT de dos motos (float y cuantizado) contra lo mismo en texto.
+ * Los mensajes de texto son los que arma Partida para un cliente viejo.
+ *
+ * ./gradlew core:banco -Pclase=red.BancoCodecs [-Pargs=iteraciones]
+ */
+public final class BancoCodecs {
+
+    private static final int RONDAS = 5;
+
+    /** El mismo estado que el SNAPSHOT de dos motos en los siete mensajes de texto. */
+    private static String estadoTexto;
+
+    private static final class Caso {
+        final String nombre;
+        final ByteBuffer texto, binario;
+
+        Caso(String nombre, String texto, ByteBuffer binario) {
+            this.nombre = nombre;
+            this.texto = texto == null ? null : ByteBuffer.wrap(texto.getBytes(StandardCharsets.US_ASCII));
+            binario.flip();
+            this.binario = binario;
+        }
+    }
+
+    public static void main(String[] args) {
+        int iteraciones = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        Cuantizacion q = new Cuantizacion(3200f, 3200f);
+        Caso[] casos = casos(q);
+
+        System.out.printf("%-22s %8s %8s %12s %12s%n", "mensaje", "texto B", "bin B", "texto ns", "bin ns");
+        for (Caso c : casos) {
+            int bt = c.texto == null ? 0 : c.texto.remaining();
+            int bb = c.binario.remaining();
+            double nt = c.texto == null ? 0 : medirTexto(c.texto, iteraciones);
+            double nb = medirBinario(c.binario, q, iteraciones);
+            System.out.printf("%-22s %8s %8d %12s %12.1f%n", c.nombre,
+                c.texto == null ? "-" : String.valueOf(bt), bb, c.texto == null ? "-" : String.format("%.1f", nt), nb);
+        }
+        System.out.printf("estado de dos motos por tick: texto %d B en 7 datagramas, SNAPSHOT %d B, cuantizado %d B%n",
+            estadoTexto.length(), casos[casos.length - 2].binario.remaining(), casos[casos.length - 1].binario.remaining());
+
+        // flujo mezclado: los mensajes en orden, uno atrás del otro
+        double mt = 0, mb = 0;
+        int conTexto = 0;
+        for (Caso c : casos) {
+            if (c.texto != null) {
+                mt += medirTexto(c.texto, iteraciones / casos.length);
+                conTexto++;
+            }
+            mb += medirBinario(c.binario, q, iteraciones / casos.length);
+        }
+        System.out.printf("promedio por mensaje: texto %.1f ns, binario %.1f ns%n", mt / conTexto, mb / casos.length);
+    }
+
+    private static Caso[] casos(Cuantizacion q) {
+        Snapshot s = new Snapshot();
+        for (int i = 0; i < 2; i++) {
+            s.x[i] = 1234.5678f + i * 101.25f;
+            s.y[i] = 876.54321f - i * 33.5f;
+            s.angulo[i] = -137.81f + i * 90f;
+            s.velocidad[i] = 212.3f;
+            s.gas[i] = 87.53f;
+            s.dinero[i] = 1450;
+            s.vida[i] = 75;
+            s.hint[i] = 1;
+        }
+        long tick = 123456;
+        String movimiento = "Movimiento:(" + s.x[0] + "," + s.y[0] + "):(" + s.x[1] + "," + s.y[1] + "):"
+            + s.angulo[0] + ":" + s.angulo[1] + ":" + tick;
+        estadoTexto = movimiento + "Gas:" + s.gas[0] + ":0:" + tick + "Gas:" + s.gas[1] + ":1:" + tick
+            + "Dinero:" + s.dinero[0] + ":0:" + tick + "Dinero:" + s.dinero[1] + ":1:" + tick
+            + "Vida:" + s.vida[0] + ":0:" + tick + "Vida:" + s.vida[1] + ":1:" + tick;
+
+        return new Caso[]{
+            new Caso("Movimiento", movimiento, conBuffer(b -> CodecBinario.escribirMovimiento(b,
+                s.x[0], s.y[0], s.x[1], s.y[1], s.angulo[0], s.angulo[1], tick))),
+            new Caso("Gas", "Gas:" + s.gas[0] + ":0:" + tick, conBuffer(b -> CodecBinario.escribirGas(b, 0, s.gas[0], tick))),
+            new Caso("Dinero", "Dinero:" + s.dinero[0] + ":0:" + tick, conBuffer(b -> CodecBinario.escribirDinero(b, 0, s.dinero[0], tick))),
+            new Caso("Vida", "Vida:" + s.vida[0] + ":0:" + tick, conBuffer(b -> CodecBinario.escribirVida(b, 0, s.vida[0], tick))),
+            new Caso("Delivery", "Delivery:1200.0,640.0,64.0,64.0:1:350:0",
+                conBuffer(b -> CodecBinario.escribirDelivery(b, 0, 1200f, 640f, 64f, 64f, true, 350))),
+            new Caso("Hint", "Hint:0:1", conBuffer(b -> CodecBinario.escribirHint(b, 0, 1))),
+            new Caso("GasHint", "GasHint:0:1", conBuffer(b -> CodecBinario.escribirGasHint(b, 0, true))),
+            new Caso("Pong", "Pong:42:" + 918273645546372L + ":" + 918273645600000L + ":" + 918273645610000L,
+                conBuffer(b -> CodecBinario.escribirPong(b, 42, 918273645546372L, 918273645600000L, 918273645610000L))),
+            // SNAPSHOT completo de dos motos: en texto no existe, es Movimiento + Gas/Dinero/Vida
+            // por moto (ver estadoTexto)
+            new Caso("SNAPSHOT 2 motos", null, conBuffer(b -> snapshot(b, s, tick, null))),
+            new Caso("SNAPSHOT cuantizado", null, conBuffer(b -> snapshot(b, s, tick, q))),
+        };
+    }
+
+    private static void snapshot(ByteBuffer b, Snapshot s, long tick, Cuantizacion q) {
+        if (q == null) CodecBinario.escribirSnapshot(b, tick, ReceptorMensajes.SIN_TICK, tick - 3, 2);
+        else CodecBinario.escribirSnapshotCuantizado(b, tick, ReceptorMensajes.SIN_TICK, tick - 3, 2);
+        for (int i = 0; i < 2; i++) CodecBinario.escribirSnapshotJugador(b, s, i, Snapshot.TODOS, q);
+    }
+
+    private interface Escritor {
+        void escribir(ByteBuffer b);
+    }
+
+    private static ByteBuffer conBuffer(Escritor e) {
+        ByteBuffer b = ByteBuffer.allocate(512).order(ByteOrder.LITTLE_ENDIAN);
+        e.escribir(b);
+        return b;
+    }
+
+    private static double medirTexto(ByteBuffer datos, int iteraciones) {
+        CodecTexto codec = new CodecTexto();
+        ReceptorVacio r = new ReceptorVacio();
+        double mejor = Double.MAX_VALUE;
+        for (int ronda = 0; ronda < RONDAS; ronda++) {
+            long t0 = System.nanoTime();
+            for (int i = 0; i < iteraciones; i++) codec.decodificar(datos, r);
+            mejor = Math.min(mejor, (System.nanoTime() - t0) / (double) iteraciones);
+        }
+        if (r.mensajes == 0) throw new IllegalStateException("no decodificó nada");
+        return mejor;
+    }
+
+    private static double medirBinario(ByteBuffer datos, Cuantizacion q, int iteraciones) {
+        ReceptorVacio r = new ReceptorVacio();
+        double mejor = Double.MAX_VALUE;
+        for (int ronda = 0; ronda < RONDAS; ronda++) {
+            long t0 = System.nanoTime();
+            for (int i = 0; i < iteraciones; i++) CodecBinario.decodificar(datos, r, q);
+            mejor = Math.min(mejor, (System.nanoTime() - t0) / (double) iteraciones);
+        }
+        if (r.mensajes == 0) throw new IllegalStateException("no decodificó nada");
+        return mejor;
+    }
+
+    private BancoCodecs() {}
+}
@@ -0,0 +1,142 @@
+package red;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+
+/**
+ * ColaEventos contra el camino viejo (un Runnable por mensaje a Gdx.app.postRunnable) con
+ * un productor a ritmo fijo, como el hilo de red, y un consumidor a 60 Hz, como el render.
+ *
+ * postRunnable está imitado como lo hace el backend LWJGL3: lista sincronizada que el
+ * render copia y vacía una vez por frame. Por evento mide el costo y los bytes en el
+ * productor y la espera hasta aplicarse; por frame, lo que tarda en vaciar.
+ * La primera pasada es calentamiento.
+ *
+ * ./gradlew core:banco -Pclase=red.BancoCola [-Pargs="segundos"]
+ */
+public final class BancoCola {
+
+    private static final int[] TASAS = {1_000, 10_000};
+    private static final long FRAME_MS = 16;
+
+    private static volatile float sumidero;
+
+    // ===== postRunnable (Lwjgl3Application) =====
+    private static final ArrayList<Runnable> runnables = new ArrayList<>();
+    private static final ArrayList<Runnable> ejecutados = new ArrayList<>();
+
+    private static void postRunnable(Runnable r) {
+        synchronized (runnables) {
+            runnables.add(r);
+        }
+    }
+
+    private static void ejecutarRunnables() {
+        synchronized (runnables) {
+            ejecutados.clear();
+            ejecutados.addAll(runnables);
+            runnables.clear();
+        }
+        for (int i = 0; i < ejecutados.size(); i++) ejecutados.get(i).run();
+    }
+
+    // ===== Resultado de una corrida =====
+    private static final class Medida {
+        long eventos, productorNs, productorBytes;
+        long aplicados, esperaNs, esperaMaxNs;
+        long frames, vaciadoNs, vaciadoMaxNs;
+
+        void aplicado(long publicado) {
+            long espera = System.nanoTime() - publicado;
+            aplicados++;
+            esperaNs += espera;
+            if (espera > esperaMaxNs) esperaMaxNs = espera;
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int segundos = args.length > 0 ? Integer.parseInt(args[0]) : 2;
+
+        System.out.printf("%8s %-13s %10s %8s %12s %12s %12s %12s%n", "ev/s", "camino",
+            "prod ns/ev", "B/ev", "espera ms", "espera max", "vaciar us", "vaciar max");
+        for (int pasada = 0; pasada < 2; pasada++) {
+            for (int tasa : TASAS) {
+                for (int modo = 0; modo < 2; modo++) {
+                    Medida m = correr(modo == 1, tasa, segundos);
+                    if (pasada == 0) continue;
+                    System.out.printf("%8d %-13s %10.0f %8.1f %12.2f %12.2f %12.1f %12.1f%n", tasa,
+                        modo == 1 ? "ColaEventos" : "postRunnable",
+                        m.productorNs / (double) m.eventos, m.productorBytes / (double) m.eventos,
+                        m.esperaNs / 1e6 / m.aplicados, m.esperaMaxNs / 1e6,
+                        m.vaciadoNs / 1e3 / m.frames, m.vaciadoMaxNs / 1e3);
+                }
+            }
+        }
+    }
+
+    private static Medida correr(boolean cola, int tasa, int segundos) throws InterruptedException {
+        com.sun.management.ThreadMXBean mx =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        ColaEventos eventos = new ColaEventos(4096);
+        Medida m = new Medida();
+        m.eventos = (long) tasa * segundos;
+
+        Thread productor = new Thread(() -> {
+            long id = Thread.currentThread().getId();
+            mx.getThreadAllocatedBytes(id);
+            long bytes = mx.getThreadAllocatedBytes(id);
+            long periodo = 1_000_000_000L / tasa;
+            long inicio = System.nanoTime();
+            long ns = 0;
+            for (long i = 0; i < m.eventos; i++) {
+                while (System.nanoTime() - inicio < i * periodo) {
+                    // a ritmo, como los datagramas
+                }
+                long t0 = System.nanoTime();
+                float x = i, y = i * 2;
+                if (cola) {
+                    ColaEventos.Evento e = eventos.reservar();
+                    if (e != null) {
+                        e.tipo = 3;
+                        e.f0 = x;
+                        e.f1 = y;
+                        e.nanos = t0;
+                        eventos.publicar();
+                    }
+                } else {
+                    postRunnable(() -> {
+                        sumidero += x + y;
+                        m.aplicado(t0);
+                    });
+                }
+                ns += System.nanoTime() - t0;
+            }
+            m.productorNs = ns;
+            m.productorBytes = mx.getThreadAllocatedBytes(id) - bytes;
+        }, "productor");
+        productor.start();
+
+        boolean vivo = true;
+        while (vivo) {
+            vivo = productor.isAlive();
+            long t0 = System.nanoTime();
+            if (cola) {
+                ColaEventos.Evento e;
+                while ((e = eventos.siguiente()) != null) {
+                    sumidero += e.f0 + e.f1;
+                    m.aplicado(e.nanos);
+                    eventos.liberar();
+                }
+            } else {
+                ejecutarRunnables();
+            }
+            long d = System.nanoTime() - t0;
+            m.frames++;
+            m.vaciadoNs += d;
+            if (d > m.vaciadoMaxNs) m.vaciadoMaxNs = d;
+            if (vivo) Thread.sleep(FRAME_MS);
+        }
+        productor.join();
+        return m;
+    }
+}
@@ -0,0 +1,162 @@
+package red;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Dos CanalFiable (server → cliente) sobre una red simulada que pierde, duplica y
+ * reordena. Cada mensaje lleva su número como recompensa de un Delivery: lo que sale por
+ * {@link CanalFiable.Entrega} tiene que ser 0, 1, 2... sin huecos ni repetidos.
+ */
+public class CanalFiableTest {
+
+    private static final long MS = 1_000_000L;
+
+    // ===== Red simulada =====
+    private static final class Paquete {
+        final long llega;
+        final long orden;
+        final byte[] datos;
+        final boolean alCliente;
+
+        Paquete(long llega, long orden, byte[] datos, boolean alCliente) {
+            this.llega = llega;
+            this.orden = orden;
+            this.datos = datos;
+            this.alCliente = alCliente;
+        }
+    }
+
+    private static final class Red {
+        final PriorityQueue<Paquete> enCamino = new PriorityQueue<>(
+            (a, b) -> a.llega != b.llega ? Long.compare(a.llega, b.llega) : Long.compare(a.orden, b.orden));
+        final Random azar;
+        final double perdida, duplicado;
+        long ahora, orden, mandados;
+
+        Red(long semilla, double perdida, double duplicado) {
+            this.azar = new Random(semilla);
+            this.perdida = perdida;
+            this.duplicado = duplicado;
+        }
+
+        void mandar(ByteBuffer sobre, boolean alCliente) {
+            byte[] datos = new byte[sobre.remaining()];
+            sobre.get(datos);
+            int copias = azar.nextDouble() < duplicado ? 2 : 1;
+            for (int c = 0; c < copias; c++) {
+                mandados++;
+                if (azar.nextDouble() < perdida) continue;
+                // 20-80 ms: dos sobres seguidos suelen llegar cambiados
+                enCamino.add(new Paquete(ahora + (20 + azar.nextInt(61)) * MS, orden++, datos, alCliente));
+            }
+        }
+    }
+
+    /** Junta lo entregado: el número que viaja como recompensa del Delivery. */
+    private static final class Recibidos extends ReceptorVacio implements CanalFiable.Entrega {
+        final ArrayList<Integer> numeros = new ArrayList<>();
+
+        @Override
+        public void entregar(ByteBuffer frame) {
+            if (!CodecBinario.decodificar(frame, this)) fail("frame interno mal formado");
+        }
+
+        @Override
+        public void onDelivery(int id, float x, float y, float w, float h, boolean peligroso, int recompensa) {
+            numeros.add(recompensa);
+        }
+    }
+
+    /**
+     * El server manda `mensajes` Delivery numerados tan rápido como la ventana deja.
+     * @return lo que le llegó al cliente, en el orden en que se entregó
+     */
+    private static Recibidos simular(long semilla, double perdida, double duplicado, int mensajes) {
+        CanalFiable server = new CanalFiable(), cliente = new CanalFiable();
+        Red red = new Red(semilla, perdida, duplicado);
+        Recibidos recibidos = new Recibidos();
+        Recibidos alServer = new Recibidos();
+        CanalFiable.Salida aCliente = s -> red.mandar(s, true);
+        CanalFiable.Salida aServer = s -> red.mandar(s, false);
+        ByteBuffer frame = ByteBuffer.allocate(64).order(ByteOrder.LITTLE_ENDIAN);
+
+        int encolados = 0;
+        long limite = 3_600_000L * MS; // una hora simulada
+        for (red.ahora = 0; red.ahora < limite; red.ahora += MS) {
+            while (encolados < mensajes) {
+                frame.clear();
+                CodecBinario.escribirDelivery(frame, 0, 1f, 2f, 3f, 4f, false, encolados);
+                frame.flip();
+                if (!server.enviar(frame)) break; // ventana llena
+                encolados++;
+            }
+            server.atender(red.ahora, aCliente);
+            cliente.atender(red.ahora, aServer);
+
+            while (!red.enCamino.isEmpty() && red.enCamino.peek().llega <= red.ahora) {
+                Paquete p = red.enCamino.poll();
+                ByteBuffer b = ByteBuffer.wrap(p.datos);
+                CanalFiable destino = p.alCliente ? cliente : server;
+                if (b.get(1) == Protocolo.FIABLE) {
+                    CanalFiable.Entrega entrega = p.alCliente ? recibidos : alServer;
+                    assertTrue(destino.recibir(b, entrega, red.ahora));
+                } else {
+                    assertTrue(destino.recibirAckSuelto(b, red.ahora));
+                }
+            }
+            if (encolados == mensajes && server.getEnVuelo() == 0) break;
+        }
+        assertEquals("todo confirmado", 0, server.getEnVuelo());
+        assertEquals("el cliente no mandó nada confiable", 0, alServer.numeros.size());
+        assertEquals(mensajes, server.getEnviados());
+        if (perdida > 0) {
+            // que la red simulada de verdad haya hecho de las suyas
+            assertTrue(server.getRetransmitidos() > 0);
+            assertTrue(cliente.getDuplicados() > 0);
+            assertTrue(cliente.getAdelantados() > 0);
+        }
+        return recibidos;
+    }
+
+    private static void unaVezYEnOrden(Recibidos r, int mensajes) {
+        assertEquals("entregados", mensajes, r.numeros.size());
+        for (int i = 0; i < mensajes; i++) {
+            if (r.numeros.get(i) != i) fail("en la posición " + i + " llegó " + r.numeros.get(i));
+        }
+    }
+
+    @Test
+    public void sinPerdidaLlegaTodo() {
+        Recibidos r = simular(1, 0, 0, 500);
+        unaVezYEnOrden(r, 500);
+    }
+
+    @Test
+    public void perdidaDuplicadosYDesorden() {
+        for (long semilla = 1; semilla <= 5; semilla++) {
+            unaVezYEnOrden(simular(semilla, 0.2, 0.05, 3_000), 3_000);
+        }
+    }
+
+    @Test
+    public void perdidaAlta() {
+        unaVezYEnOrden(simular(7, 0.5, 0.1, 1_000), 1_000);
+    }
+
+    /** Más de 65536 mensajes: la secuencia u16 da la vuelta dos veces. */
+    @Test
+    public void secuenciaDaLaVuelta() {
+        int mensajes = 2 * 65_536 + 1_000;
+        unaVezYEnOrden(simular(11, 0.1, 0.05, mensajes), mensajes);
+    }
+}
@@ -0,0 +1,144 @@
+package red;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CodecTextoTest {
+
+    /** Guarda el último Gas para comparar el número leído. */
+    private static final class UltimoGas extends ReceptorVacio {
+        float gas;
+        @Override public void onGas(int id, float gas, long tick) { this.gas = gas; }
+    }
+
+    private static ByteBuffer ascii(String s) {
+        return ByteBuffer.wrap(s.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    // =========================================================
+    // Sin basura en el camino caliente
+    // =========================================================
+
+    @Test
+    public void decodificarNoCreaObjetos() {
+        java.lang.management.ThreadMXBean base = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(base instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean mx = (com.sun.management.ThreadMXBean) base;
+        Assume.assumeTrue(mx.isThreadAllocatedMemorySupported() && mx.isThreadAllocatedMemoryEnabled());
+
+        // como los arma Partida para un cliente de texto
+        ByteBuffer[] mensajes = {
+            ascii("Movimiento:(1234.5677,876.5432):(1335.8177,843.0432):-137.81:-47.81:123456"),
+            ascii("Movimiento:Vector2(12.5,-3.25E-4):Vector2(0.0,1.0E7):90.0:180.0:4294967295:77:212.3"),
+            ascii("Gas:87.53:0:123456"),
+            ascii("Dinero:1450:1:123456"),
+            ascii("Vida:75:0:123456"),
+            ascii("Pong:42:918273645546372:918273645600000:918273645610000"),
+        };
+        CodecTexto codec = new CodecTexto();
+        ReceptorVacio r = new ReceptorVacio();
+        long id = Thread.currentThread().getId();
+
+        for (int i = 0; i < 200_000; i++) {
+            for (ByteBuffer m : mensajes) codec.decodificar(m, r);
+        }
+        mx.getThreadAllocatedBytes(id); // la primera llamada crea lo suyo
+
+        long antes = mx.getThreadAllocatedBytes(id);
+        for (int i = 0; i < 100_000; i++) {
+            for (ByteBuffer m : mensajes) codec.decodificar(m, r);
+        }
+        long creados = mx.getThreadAllocatedBytes(id) - antes;
+
+        assertEquals("mensajes decodificados", 300_000L * mensajes.length, r.mensajes);
+        assertEquals("bytes creados en 600k mensajes", 0L, creados);
+    }
+
+    // =========================================================
+    // numero() == Float.parseFloat
+    // =========================================================
+
+    private final CodecTexto codec = new CodecTexto();
+    private final UltimoGas gas = new UltimoGas();
+
+    private void comoParseFloat(String numero) {
+        float esperado = Float.parseFloat(numero);
+        if (!codec.decodificar(ascii("Gas:" + numero + ":0"), gas)) fail("no decodificó " + numero);
+        if (Float.floatToRawIntBits(esperado) != Float.floatToRawIntBits(gas.gas)) {
+            fail(numero + ": parseFloat " + esperado + " pero numero() " + gas.gas);
+        }
+    }
+
+    @Test
+    public void casosBorde() {
+        String[] casos = {
+            "0", "0.0", "-0.0", "+1", "1.", ".5", "-.5", "1.0", "0.1", "0.3", "1.5E-4", "1.5e-4", "2E3",
+            "1.4E-45", "7.0E-46", "7.1E-46", "1.17549435E-38", "1.1754942E-38", "3.4028235E38",
+            "3.4028236E38", "1.0E39", "1.0E-50", "16777216", "16777217", "16777218", "16777219",
+            "33554433", "0.33333334", "1.0000001", "9007199254740993", "9007199254740992.5",
+            "123456789012345678901234567890", "0.000000000000000000000000000001",
+            "1.00000005960464477539062", "1.00000005960464477539063", "1.0000000596046448",
+            "1.000000059604644775390625", "1.0000000596046447",
+            "NaN", "Infinity", "-Infinity",
+        };
+        for (String c : casos) comoParseFloat(c);
+    }
+
+    @Test
+    public void floatToStringIdaYVuelta() {
+        Random r = new Random(2);
+        for (int i = 0; i < 200_000; i++) {
+            float f = Float.intBitsToFloat(r.nextInt());
+            if (Float.isNaN(f)) continue;
+            comoParseFloat(Float.toString(f));
+            comoParseFloat(Double.toString(f)); // 17 cifras: mantisa larga
+            comoParseFloat(Double.toString(r.nextDouble() * Math.pow(10, r.nextInt(60) - 30)));
+        }
+    }
+
+    /**
+     * Justo entre dos float (y un pelo arriba o abajo): donde el paso por double puede
+     * redondear dos veces distinto que parseFloat.
+     */
+    @Test
+    public void puntosMedios() {
+        Random r = new Random(3);
+        MathContext[] cifras = {new MathContext(9), new MathContext(12), new MathContext(15),
+            new MathContext(16), new MathContext(17), new MathContext(18), new MathContext(25)};
+        for (int i = 0; i < 50_000; i++) {
+            float f = Math.abs(Float.intBitsToFloat(r.nextInt()));
+            if (Float.isNaN(f) || Float.isInfinite(f) || f == Float.MAX_VALUE) continue;
+            BigDecimal medio = new BigDecimal(f).add(new BigDecimal(Math.nextUp(f))).divide(BigDecimal.valueOf(2));
+            comoParseFloat(medio.toString());
+            for (MathContext mc : cifras) comoParseFloat(medio.round(mc).toString());
+            BigDecimal pelo = medio.ulp().scaleByPowerOfTen(1);
+            comoParseFloat(medio.add(pelo).toString());
+            comoParseFloat(medio.subtract(pelo).toString());
+        }
+    }
+
+    @Test
+    public void enterosYLargos() {
+        ReceptorVacio r = new ReceptorVacio();
+        assertTrue(codec.decodificar(ascii("Dinero:-2147483648:0:4294967295"), r));
+        assertTrue(codec.decodificar(ascii("Pong:1:-9223372036854775807:0:1"), r));
+        assertEquals(2L, r.mensajes);
+        try {
+            codec.decodificar(ascii("Dinero:2147483648:0"), r);
+            fail("entero fuera de rango");
+        } catch (NumberFormatException esperado) {
+            // el hilo de red lo descarta como mal formado
+        }
+    }
+}
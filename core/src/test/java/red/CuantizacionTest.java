@@ -0,0 +1,138 @@
+package red;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Barrido de posiciones por todo el mapa y de ángulos por toda la vuelta (con el corte
+ * de ±180 que usa el server): lo que se ve después de cuantizar no se tiene que correr
+ * ni medio pixel de pantalla.
+ */
+public class CuantizacionTest {
+
+    // ===== Como en GameScreen: Map.tmx de 400x225 tiles de 16 px, ExtendViewport(20, 15) =====
+    private static final float ANCHO = 400 * 16, ALTO = 225 * 16;
+    private static final float UNIT_SCALE = 1f / 64f;
+    private static final float VIRTUAL_WIDTH = 20f, VIRTUAL_HEIGHT = 15f;
+    private static final int SPRITE_ANCHO = 18, SPRITE_ALTO = 36;
+
+    /** Px de pantalla por px de juego en una ventana de 3840x2160 (el peor caso que probamos). */
+    private static final float PX_RENDER = Math.min(3840 / VIRTUAL_WIDTH, 2160 / VIRTUAL_HEIGHT) * UNIT_SCALE;
+
+    private final Cuantizacion q = new Cuantizacion(ANCHO, ALTO);
+
+    /** b - a por el arco más corto, en grados. */
+    private static double diferencia(double a, double b) {
+        return ((b - a) % 360d + 540d) % 360d - 180d;
+    }
+
+    @Test
+    public void posicionDentroDeMedioPaso() {
+        // medio paso, más el redondeo del float en esa coordenada
+        float mitadX = q.getPasoX() / 2f, mitadY = q.getPasoY() / 2f;
+        for (int i = 0; i <= 4_000; i++) {
+            float x = ANCHO * i / 4_000f + (i % 7) * 0.013f;
+            if (x > ANCHO) x = ANCHO;
+            float dx = q.decodificarX(q.codificarX(x)) - x;
+            if (Math.abs(dx) > mitadX + Math.ulp(x)) fail("x " + x + ": error " + dx);
+
+            float y = ALTO * i / 4_000f + (i % 5) * 0.017f;
+            if (y > ALTO) y = ALTO;
+            float dy = q.decodificarY(q.codificarY(y)) - y;
+            if (Math.abs(dy) > mitadY + Math.ulp(y)) fail("y " + y + ": error " + dy);
+        }
+        // bordes exactos y lo de afuera recortado
+        assertEquals(0f, q.decodificarX(q.codificarX(0f)), 0f);
+        assertEquals(ANCHO, q.decodificarX(q.codificarX(ANCHO)), ANCHO * 1e-6f);
+        assertEquals(ALTO, q.decodificarY(q.codificarY(ALTO)), ALTO * 1e-6f);
+        assertEquals(0f, q.decodificarX(q.codificarX(-50f)), 0f);
+        assertEquals(ANCHO, q.decodificarX(q.codificarX(ANCHO + 50f)), ANCHO * 1e-6f);
+        assertEquals(0f, q.decodificarY(q.codificarY(-1e9f)), 0f);
+        assertEquals(ALTO, q.decodificarY(q.codificarY(1e9f)), ALTO * 1e-6f);
+    }
+
+    @Test
+    public void anguloPorTodaLaVuelta() {
+        double mitad = Cuantizacion.getPasoAngulo() / 2d + 1e-4;
+        for (int i = -72_000; i <= 72_000; i++) {
+            float ang = i / 100f; // -720..720 de a 0.01°
+            float vuelta = Cuantizacion.decodificarAngulo(Cuantizacion.codificarAngulo(ang));
+            assertTrue("fuera de [0, 360): " + vuelta, vuelta >= 0f && vuelta < 360f);
+            double d = diferencia(ang, vuelta);
+            if (Math.abs(d) > mitad) fail(ang + "° vuelve como " + vuelta + "°");
+        }
+
+        // el corte de ±180: los dos lados quedan pegados
+        assertEquals(Cuantizacion.codificarAngulo(180f), Cuantizacion.codificarAngulo(-180f));
+        float[] cerca = {179.99f, -179.99f, 180.01f, -180.01f, Math.nextUp(180f), Math.nextDown(-180f),
+            359.99f, -0.01f, 0f, -0f, 360f};
+        for (float ang : cerca) {
+            float vuelta = Cuantizacion.decodificarAngulo(Cuantizacion.codificarAngulo(ang));
+            assertTrue(ang + "° vuelve como " + vuelta + "°", Math.abs(diferencia(ang, vuelta)) <= mitad);
+        }
+    }
+
+    /**
+     * Ida y vuelta por SNAPSHOT_CUANTIZADO: las cuatro esquinas del sprite rotado (como lo
+     * dibuja PlayerRenderer, alrededor del centro) no se mueven medio pixel de pantalla.
+     */
+    @Test
+    public void esquinasDelSpriteMenosDeMedioPixel() {
+        ByteBuffer out = ByteBuffer.allocate(64).order(ByteOrder.LITTLE_ENDIAN);
+        Snapshot s = new Snapshot();
+        float[] leido = new float[3];
+        ReceptorVacio captura = new ReceptorVacio() {
+            @Override
+            public void onSnapshotJugador(int id, int campos, float x, float y, float ang, float vel, float gas,
+                                          int dinero, int vida, int hint, boolean gasHint) {
+                leido[0] = x;
+                leido[1] = y;
+                leido[2] = ang;
+            }
+        };
+
+        double peor = 0;
+        int n = 0;
+        for (int ix = 0; ix <= 160; ix++) {
+            for (int iy = 0; iy <= 90; iy++) {
+                for (int ia = -36; ia <= 36; ia++) {
+                    float x = Math.max(0f, Math.min(ANCHO, ix * 40f + ia * 0.0071f));
+                    float y = Math.min(ALTO, iy * 40f + ix * 0.0043f);
+                    float ang = ia * 5f + iy * 0.0137f; // -180..180 y un poco más
+                    s.x[0] = x;
+                    s.y[0] = y;
+                    s.angulo[0] = ang;
+                    out.clear();
+                    CodecBinario.escribirSnapshotCuantizado(out, n, ReceptorMensajes.SIN_TICK, ReceptorMensajes.SIN_TICK, 1);
+                    CodecBinario.escribirSnapshotJugador(out, s, 0, Snapshot.POSICION | Snapshot.ANGULO, q);
+                    out.flip();
+                    assertTrue(CodecBinario.decodificar(out, captura, q));
+                    peor = Math.max(peor, errorEsquinas(x, y, ang, leido[0], leido[1], leido[2]));
+                    n++;
+                }
+            }
+        }
+        assertTrue("peor esquina " + peor * PX_RENDER + " px de pantalla", peor * PX_RENDER < 0.5);
+    }
+
+    /** Mayor distancia entre las esquinas del sprite en las dos poses, en px de juego. */
+    private static double errorEsquinas(float x0, float y0, float a0, float x1, float y1, float a1) {
+        double r0 = Math.toRadians(a0), r1 = Math.toRadians(a1);
+        double c0 = Math.cos(r0), s0 = Math.sin(r0), c1 = Math.cos(r1), s1 = Math.sin(r1);
+        double peor = 0;
+        for (int k = 0; k < 4; k++) {
+            double ox = ((k & 1) == 0 ? -SPRITE_ANCHO : SPRITE_ANCHO) / 2d;
+            double oy = ((k & 2) == 0 ? -SPRITE_ALTO : SPRITE_ALTO) / 2d;
+            double dx = (x1 + ox * c1 - oy * s1) - (x0 + ox * c0 - oy * s0);
+            double dy = (y1 + ox * s1 + oy * c1) - (y0 + ox * s0 + oy * c0);
+            peor = Math.max(peor, Math.hypot(dx, dy));
+        }
+        return peor;
+    }
+}
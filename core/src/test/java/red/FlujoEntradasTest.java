@@ -0,0 +1,142 @@
+package red;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * FlujoEntradas (cliente) contra ReceptorEntradas (server) con pérdida: cada entrada
+ * que el server aplica tiene que ser la que se registró con esa secuencia, en orden y
+ * una sola vez; los huecos son justo las que cuenta como perdidas, y con la redundancia
+ * por defecto no queda ninguno.
+ */
+public class FlujoEntradasTest {
+
+    private static final int TICKS = 60 * 60; // un minuto a 60 Hz
+    private static final int RETARDO_ACK = 3; // ticks hasta que vuelve la confirmación (~50 ms)
+
+    private final ByteBuffer paquete = ByteBuffer.allocate(64).order(ByteOrder.LITTLE_ENDIAN);
+    private final byte[] mascaras = new byte[FlujoEntradas.REDUNDANCIA_MAXIMA + 1];
+
+    /** Lo que hace CodecCliente con una ENTRADA: u8 id, u32 secuencia, u8 cantidad, teclas. */
+    private int aceptar(ReceptorEntradas server) {
+        assertEquals(Protocolo.ENTRADA, paquete.get(1));
+        int cantidad = paquete.get(7) & 0xFF;
+        for (int i = 0; i < cantidad; i++) mascaras[i] = paquete.get(8 + i);
+        return server.aceptar(paquete.getInt(3), mascaras, cantidad);
+    }
+
+    /** Teclas que "aprieta" el jugador: cambian cada tanto, como en una partida. */
+    private static int[] teclas(long semilla) {
+        Random r = new Random(semilla);
+        int[] t = new int[TICKS + 1];
+        for (int s = 1; s <= TICKS; s++) {
+            t[s] = r.nextInt(8) == 0 ? r.nextInt(64) : t[s - 1];
+        }
+        return t;
+    }
+
+    /**
+     * Un minuto de entradas, cada paquete se pierde con probabilidad `perdida` y las
+     * confirmaciones también.
+     * @return el receptor, después de comprobar que lo aplicado es lo registrado y que los
+     *         huecos son las perdidas que cuenta
+     */
+    private ReceptorEntradas simular(long semilla, double perdida, int redundancia) {
+        int[] t = teclas(semilla);
+        Random red = new Random(semilla * 31);
+        FlujoEntradas cliente = new FlujoEntradas(redundancia);
+        ReceptorEntradas server = new ReceptorEntradas();
+        ArrayDeque<long[]> acks = new ArrayDeque<>(); // {tick en que llega, secuencia}
+
+        int aplicada = 0;
+        long huecos = 0;
+        for (int s = 1; s <= TICKS; s++) {
+            while (!acks.isEmpty() && acks.peek()[0] <= s) cliente.confirmar(acks.poll()[1]);
+
+            cliente.registrar(s, t[s]);
+            paquete.clear();
+            assertTrue(cliente.escribir(paquete, 0));
+            if (red.nextDouble() < perdida) continue;
+
+            int nuevas = aceptar(server);
+            for (int i = 0; i < nuevas; i++) {
+                int seq = server.getSecuencia(i);
+                if (seq - aplicada <= 0) fail("después de " + aplicada + " vino " + seq);
+                huecos += seq - aplicada - 1;
+                assertEquals("teclas de " + seq, t[seq], server.getTeclas(i));
+                aplicada = seq;
+            }
+            if (red.nextDouble() >= perdida) acks.add(new long[]{s + RETARDO_ACK, server.getUltima()});
+        }
+        assertEquals(server.getUltima(), aplicada);
+        assertEquals(huecos, server.getPerdidas());
+        assertEquals(aplicada - huecos, server.getRecibidas());
+        return server;
+    }
+
+    @Test
+    public void sinPerdidaUnaEntradaPorPaquete() {
+        ReceptorEntradas server = new ReceptorEntradas();
+        FlujoEntradas cliente = new FlujoEntradas(8);
+        for (int s = 1; s <= 100; s++) {
+            cliente.registrar(s, s & 0x3F);
+            paquete.clear();
+            cliente.escribir(paquete, 0);
+            assertEquals(1, aceptar(server));
+            cliente.confirmar(server.getUltima()); // ack al instante: nada que repetir
+        }
+        assertEquals(1f, cliente.getProfundidadMedia(), 0f);
+        assertEquals(0, cliente.getPendientes());
+        assertEquals(0, server.getRecuperadas());
+    }
+
+    @Test
+    public void laRedundanciaRecuperaLasPerdidas() {
+        for (double perdida : new double[]{0.05, 0.1, 0.2}) {
+            ReceptorEntradas server = simular(7, perdida, FlujoEntradas.REDUNDANCIA_DEFECTO);
+            assertEquals("perdidas con " + perdida, 0, server.getPerdidas());
+            assertTrue(server.getRecuperadas() > 0);
+        }
+    }
+
+    @Test
+    public void sinRedundanciaSePierden() {
+        ReceptorEntradas server = simular(7, 0.1, 0);
+        assertTrue(server.getPerdidas() > 0);
+        assertEquals(0, server.getRecuperadas());
+    }
+
+    @Test
+    public void huecoMasLargoQueLaRedundancia() {
+        FlujoEntradas cliente = new FlujoEntradas(2);
+        ReceptorEntradas server = new ReceptorEntradas();
+        cliente.registrar(1, 1);
+        paquete.clear();
+        cliente.escribir(paquete, 0);
+        assertEquals(1, aceptar(server));
+
+        // 2..6 se pierden y no vuelve ningún ack: el 7 trae 5 y 6 repetidas
+        for (int s = 2; s <= 7; s++) {
+            cliente.registrar(s, s);
+            paquete.clear();
+            cliente.escribir(paquete, 0);
+        }
+        assertEquals(3, aceptar(server));
+        assertEquals(5, server.getSecuencia(0));
+        assertEquals(7, server.getSecuencia(2));
+        assertEquals(3, server.getPerdidas()); // 2, 3 y 4
+        assertEquals(2, server.getRecuperadas());
+
+        // el mismo paquete otra vez (duplicado): nada nuevo
+        assertEquals(0, aceptar(server));
+        assertEquals(1, server.getPaquetesViejos());
+    }
+}
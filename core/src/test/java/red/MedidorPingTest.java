@@ -0,0 +1,157 @@
+package red;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MedidorPingTest {
+
+    private static final long MS = 1_000_000L;
+    private static final long INTERVALO = 250 * MS; // 4 pings/s, como hiloCliente
+
+    private final MedidorPing m = new MedidorPing(INTERVALO);
+    private long ahora = 10_000 * MS;
+
+    /** Manda un ping y, si rttMs >= 0, lo contesta rttMs después. @return la secuencia */
+    private int ping(double rttMs) {
+        int seq = m.proximaSecuencia();
+        long marca = ahora;
+        m.registrarEnvio(seq, marca);
+        if (rttMs >= 0) assertTrue(m.registrarPong(seq & 0xFFFFFFFFL, marca, marca + (long) (rttMs * MS)));
+        ahora += INTERVALO;
+        return seq;
+    }
+
+    // =========================================================
+    // RTT y jitter
+    // =========================================================
+
+    @Test
+    public void jitterComoRfc3550() {
+        // RTTs que alternan 40 y 50 ms: |D| = 10 siempre, J_n = 10 (1 - (15/16)^(n-1))
+        for (int i = 0; i < 30; i++) ping(i % 2 == 0 ? 40 : 50);
+        assertEquals(10 * (1 - Math.pow(15 / 16d, 29)), m.getJitter(), 1e-3);
+        for (int i = 0; i < 300; i++) ping(i % 2 == 0 ? 40 : 50);
+        assertEquals(10f, m.getJitter(), 1e-3f);
+
+        // RTT fijo: el jitter decae con la misma constante
+        float antes = m.getJitter();
+        for (int i = 0; i < 16; i++) ping(45);
+        assertEquals(antes * Math.pow(15 / 16d, 15) + (5 - antes) / 16d * Math.pow(15 / 16d, 15),
+            m.getJitter(), 1e-3);
+        assertEquals(45f, m.getRttUltimo(), 1e-3f);
+    }
+
+    @Test
+    public void percentilesSobreLasUltimasMuestras() {
+        assertEquals(-1f, m.getRttP50(), 0f);
+        for (int i = 1; i <= 100; i++) ping(i);
+        assertEquals(51f, m.getRttP50(), 1e-3f); // índice round(0.5 * 99) = 50
+        assertEquals(95f, m.getRttP95(), 1e-3f);
+        assertEquals(99f, m.getRttP99(), 1e-3f);
+        assertEquals(1f, m.getRttPercentil(0f), 1e-3f);
+        assertEquals(100f, m.getRttPercentil(100f), 1e-3f);
+
+        // se queda con las últimas MUESTRAS: 128 más a 200 ms pisan todo
+        for (int i = 0; i < MedidorPing.MUESTRAS; i++) ping(200);
+        assertEquals(200f, m.getRttPercentil(0f), 1e-3f);
+    }
+
+    // =========================================================
+    // Pérdida
+    // =========================================================
+
+    @Test
+    public void perdidaSobreLaVentana() {
+        // uno de cada 5 sin Pong: 20% sobre los últimos 40 resueltos
+        for (int i = 0; i < 100; i++) ping(i % 5 == 4 ? -1 : 30);
+        ahora += 2_000 * MS; // que venzan los últimos
+        assertEquals(20f, m.getPerdida(ahora), 1e-3f);
+
+        // 40 respondidos seguidos: lo perdido sale de la ventana
+        for (int i = 0; i < MedidorPing.VENTANA_PERDIDA; i++) ping(30);
+        assertEquals(0f, m.getPerdida(ahora), 0f);
+    }
+
+    @Test
+    public void pendientesNoCuentanYUnPongTardioCorrige() {
+        for (int i = 0; i < 10; i++) ping(30);
+        long marca = ahora;
+        int seq = ping(-1);
+        // todavía dentro del plazo: pendiente, no perdido
+        assertEquals(0f, m.getPerdida(marca + 900 * MS), 0f);
+        // vencido: 1 de 11
+        assertEquals(100f / 11, m.getPerdida(marca + 1_100 * MS), 1e-3f);
+        // llega el Pong tarde: ya no es perdido
+        assertTrue(m.registrarPong(seq & 0xFFFFFFFFL, marca, marca + 1_200 * MS));
+        assertEquals(1, m.getTardios());
+        assertEquals(0f, m.getPerdida(marca + 1_300 * MS), 0f);
+    }
+
+    @Test
+    public void pongsQueNoSonNuestros() {
+        long marca = ahora;
+        int seq = ping(30);
+        // duplicado
+        assertFalse(m.registrarPong(seq & 0xFFFFFFFFL, marca, ahora));
+        assertEquals(1, m.getDuplicados());
+        // eco con otra marca, o de una secuencia que no mandamos
+        int otro = ping(-1);
+        assertFalse(m.registrarPong(otro & 0xFFFFFFFFL, marca + 1, ahora));
+        assertFalse(m.registrarPong((otro + 5) & 0xFFFFFFFFL, marca, ahora));
+        assertEquals(1, m.getRespondidos());
+    }
+
+    @Test
+    public void serverViejoSinEco() {
+        ping(-1);
+        long marca = ahora;
+        ping(-1);
+        // "Pong" pelado: va al último sin respuesta
+        assertTrue(m.registrarPong(ReceptorMensajes.SIN_TICK, 0, marca + 40 * MS));
+        assertEquals(40f, m.getRttUltimo(), 1e-3f);
+        // el siguiente al de antes
+        assertTrue(m.registrarPong(ReceptorMensajes.SIN_TICK, 0, marca + 40 * MS));
+        assertEquals(290f, m.getRttUltimo(), 1e-3f);
+    }
+
+    // =========================================================
+    // Vida del server
+    // =========================================================
+
+    @Test
+    public void muertoCuandoLasPerdidasCubrenElTimeout() {
+        long timeoutMs = 3_500;
+        for (int i = 0; i < 20; i++) ping(30);
+        long ultimoPong = ahora - INTERVALO + 30 * MS;
+
+        // el server se cae: se sigue mandando pero no contesta nadie
+        long muerto = -1;
+        for (int i = 0; i < 40 && muerto < 0; i++) {
+            ping(-1);
+            for (long t = ahora - INTERVALO; t < ahora; t += 10 * MS) {
+                if (!m.isVivo(timeoutMs, t)) {
+                    muerto = t;
+                    break;
+                }
+            }
+        }
+        assertTrue("nunca lo dio por muerto", muerto > 0);
+        // (3,5 s - 1 s de plazo) / 250 ms = 10 pings perdidos seguidos: ni antes de tiempo ni mucho después
+        double s = (muerto - ultimoPong) / 1e9;
+        assertTrue("muerto a los " + s + " s", s > 3.0 && s <= 3.5);
+
+        // un Pong y vuelve a estar vivo
+        ping(30);
+        assertTrue(m.isVivo(timeoutMs, ahora));
+    }
+
+    @Test
+    public void unaPerdidaSueltaNoLoMata() {
+        for (int i = 0; i < 200; i++) ping(i % 3 == 0 ? -1 : 30); // 33% de pérdida
+        ahora += 2_000 * MS;
+        assertTrue(m.isVivo(3_500, ahora));
+    }
+}
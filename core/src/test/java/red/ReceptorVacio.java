@@ -0,0 +1,54 @@
+package red;
+
+/**
+ * Receptor que no hace nada más que contar: base para tests y bancos de los codecs.
+ * suma junta algo de cada mensaje para que el JIT no pueda tirar la decodificación.
+ */
+class ReceptorVacio implements ReceptorMensajes {
+
+    long mensajes;
+    double suma;
+
+    @Override public void onOk(int versionBinaria, int anchoMapa, int altoMapa) { mensajes++; }
+    @Override public void onMirando(int versionBinaria, int anchoMapa, int altoMapa) { mensajes++; }
+    @Override public void onServidor(long secuencia, long marca, int versionBinaria, int jugadores) { mensajes++; }
+    @Override public void onId(int playerId) { mensajes++; suma += playerId; }
+    @Override public void onSesion(long token) { suma += token; }
+    @Override public void onReanudada(int versionBinaria, int playerId) { mensajes++; }
+    @Override public void onComienza() { mensajes++; }
+
+    @Override
+    public void onMovimiento(float x1, float y1, float x2, float y2, float ang1, float ang2, long tick,
+                             long entrada, float velocidad) {
+        mensajes++;
+        suma += x1 + y1 + x2 + y2 + ang1 + ang2 + tick;
+    }
+
+    @Override public void onGas(int id, float gas, long tick) { mensajes++; suma += gas; }
+    @Override public void onDinero(int id, int dinero, long tick) { mensajes++; suma += dinero; }
+    @Override public void onVida(int id, int vida, long tick) { mensajes++; suma += vida; }
+
+    @Override
+    public void onDelivery(int id, float x, float y, float w, float h, boolean peligroso, int recompensa) {
+        mensajes++;
+        suma += x + y + w + h + recompensa;
+    }
+
+    @Override public void onDeliveryFin(int id) { mensajes++; }
+    @Override public void onHint(int id, int tipo) { mensajes++; suma += tipo; }
+    @Override public void onGasHint(int id, boolean enGas) { mensajes++; }
+    @Override public void onGameOver(int ganador) { mensajes++; }
+    @Override public void onReset() { mensajes++; }
+    @Override public void onOpponentLeft() { mensajes++; }
+    @Override public void onPong(long secuencia, long marca, long recibido, long respondido) { mensajes++; suma += marca; }
+    @Override public void onTasa(int aplicada, int maxima) { mensajes++; }
+    @Override public void onSnapshot(long tick, long baseline, long entrada) { suma += tick; }
+
+    @Override
+    public void onSnapshotJugador(int id, int campos, float x, float y, float ang, float vel, float gas,
+                                 int dinero, int vida, int hint, boolean gasHint) {
+        suma += x + y + ang + gas + dinero + vida;
+    }
+
+    @Override public void onSnapshotFin(long tick) { mensajes++; }
+}
@@ -0,0 +1,64 @@
+package red;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ReconstructorSnapshotsTest {
+
+    private final ReconstructorSnapshots r = new ReconstructorSnapshots();
+
+    private Snapshot completo(long tick, float x) {
+        assertTrue(r.empezar(tick, ReceptorMensajes.SIN_TICK, ReceptorMensajes.SIN_TICK));
+        r.jugador(0, Snapshot.POSICION, x, 0f, 0f, 0f, 0f, 0, 0, 0, false);
+        return r.terminar(tick);
+    }
+
+    @Test
+    public void deltaSobreBaseline() {
+        completo(10, 5f);
+        assertTrue(r.empezar(11, 10, ReceptorMensajes.SIN_TICK));
+        r.jugador(1, Snapshot.POSICION, 7f, 0f, 0f, 0f, 0f, 0, 0, 0, false);
+        Snapshot s = r.terminar(11);
+        assertEquals(5f, s.x[0], 0f);
+        assertEquals(7f, s.x[1], 0f);
+        assertEquals(0, s.cambios[0]);
+
+        assertFalse("baseline que nunca llegó", r.empezar(12, 3, ReceptorMensajes.SIN_TICK));
+        assertEquals(1L, r.getSinBaseline());
+    }
+
+    /** Un frame desordenado de hace 64+ ticks no pisa el lugar de uno nuevo. */
+    @Test
+    public void frameMasViejoQueElHistorialSeDescarta() {
+        for (long t = 100; t <= 170; t++) completo(t, t);
+
+        long viejo = 170 - ReconstructorSnapshots.HISTORIAL; // mismo lugar que 170
+        assertFalse(r.empezar(viejo, ReceptorMensajes.SIN_TICK, ReceptorMensajes.SIN_TICK));
+        r.jugador(0, Snapshot.POSICION, -1f, 0f, 0f, 0f, 0f, 0, 0, 0, false);
+        assertNull(r.terminar(viejo));
+        assertEquals(1L, r.getViejos());
+        assertEquals(170L, r.getUltimoRecibido());
+
+        // 170 sigue sirviendo de baseline
+        assertTrue(r.empezar(171, 170, ReceptorMensajes.SIN_TICK));
+        assertEquals(170f, r.terminar(171).x[0], 0f);
+
+        // uno desordenado dentro del historial sí se arma
+        assertNotNull(completo(171 - ReconstructorSnapshots.HISTORIAL + 1, 1f));
+        assertEquals(171L, r.getUltimoRecibido());
+    }
+
+    @Test
+    public void tickDaLaVuelta() {
+        completo(0xFFFFFFFEL, 1f);
+        assertNotNull(completo(1L, 2f)); // después del wrap de u32
+        assertEquals(1L, r.getUltimoRecibido());
+        assertFalse(r.empezar(0xFFFFFFFFL - 70, ReceptorMensajes.SIN_TICK, ReceptorMensajes.SIN_TICK));
+        assertEquals(1L, r.getViejos());
+    }
+}
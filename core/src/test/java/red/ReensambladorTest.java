@@ -0,0 +1,215 @@
+package red;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class ReensambladorTest {
+
+    private static final long MS = 1_000_000L;
+    private static final int MTU = 100;
+
+    private final Reensamblador r = new Reensamblador();
+    private final Fragmentador f = new Fragmentador(MTU);
+
+    /** Frame de `largo` bytes con contenido reconocible (la semilla cambia el patrón). */
+    private static byte[] frame(int largo, int semilla) {
+        byte[] b = new byte[largo];
+        new Random(semilla).nextBytes(b);
+        return b;
+    }
+
+    /** Los fragmentos de un frame, copiados (el Fragmentador pisa su buffer). */
+    private List<byte[]> partir(byte[] frame) {
+        int n = f.partir(ByteBuffer.wrap(frame));
+        List<byte[]> l = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            ByteBuffer b = f.fragmento(i);
+            byte[] copia = new byte[b.remaining()];
+            b.get(copia);
+            l.add(copia);
+        }
+        return l;
+    }
+
+    private ByteBuffer recibir(byte[] fragmento, long ahora) {
+        ByteBuffer b = ByteBuffer.wrap(fragmento);
+        ByteBuffer armado = r.recibir(b, ahora);
+        // no le toca la posición ni el límite al que llama
+        assertEquals(0, b.position());
+        assertEquals(fragmento.length, b.limit());
+        return armado;
+    }
+
+    private static byte[] bytes(ByteBuffer b) {
+        byte[] out = new byte[b.remaining()];
+        b.duplicate().get(out);
+        return out;
+    }
+
+    /** FRAGMENTO armado a mano, con cualquier cabecera. */
+    private static byte[] fragmento(int mensaje, int indice, int total, int offset, int carga) {
+        ByteBuffer b = ByteBuffer.allocate(CodecBinario.CABECERA_FRAGMENTO + carga).order(ByteOrder.LITTLE_ENDIAN);
+        CodecBinario.escribirFragmento(b, mensaje, indice, total, offset);
+        return b.array();
+    }
+
+    // =========================================================
+    // Armado
+    // =========================================================
+
+    @Test
+    public void desordenadoArmaElFrameOriginal() {
+        Random azar = new Random(3);
+        for (int largo : new int[]{MTU, 1_000, 5_555}) {
+            byte[] original = frame(largo, largo);
+            List<byte[]> partes = partir(original);
+            Collections.shuffle(partes, azar);
+
+            for (int i = 0; i < partes.size() - 1; i++) assertNull(recibir(partes.get(i), i * MS));
+            ByteBuffer armado = recibir(partes.get(partes.size() - 1), partes.size() * MS);
+            assertNotNull("largo " + largo, armado);
+            assertArrayEquals(original, bytes(armado));
+        }
+        assertEquals(3, r.getMensajes());
+        assertEquals(0, r.getEnCurso());
+        assertEquals(0, r.getRepetidos());
+    }
+
+    @Test
+    public void variosMensajesEntreverados() {
+        byte[] a = frame(700, 1), b = frame(900, 2);
+        List<byte[]> pa = partir(a), pb = partir(b);
+        ByteBuffer armadoA = null, armadoB = null;
+        for (int i = 0; i < Math.max(pa.size(), pb.size()); i++) {
+            if (i < pb.size()) {
+                ByteBuffer x = recibir(pb.get(pb.size() - 1 - i), i * MS);
+                if (x != null) armadoB = ByteBuffer.wrap(bytes(x));
+            }
+            if (i < pa.size()) {
+                ByteBuffer x = recibir(pa.get(i), i * MS);
+                if (x != null) armadoA = ByteBuffer.wrap(bytes(x));
+            }
+        }
+        assertArrayEquals(a, bytes(armadoA));
+        assertArrayEquals(b, bytes(armadoB));
+    }
+
+    @Test
+    public void repetidosSeIgnoran() {
+        byte[] original = frame(450, 7);
+        List<byte[]> partes = partir(original);
+        assertNull(recibir(partes.get(0), 0));
+        assertNull(recibir(partes.get(0), MS));
+        assertEquals(1, r.getRepetidos());
+
+        ByteBuffer armado = null;
+        for (int i = 1; i < partes.size(); i++) armado = recibir(partes.get(i), 2 * MS);
+        assertArrayEquals(original, bytes(armado));
+
+        // ya armado: una copia tardía no abre otro mensaje
+        assertNull(recibir(partes.get(2), 3 * MS));
+        assertEquals(2, r.getRepetidos());
+        assertEquals(0, r.getEnCurso());
+        assertEquals(1, r.getMensajes());
+    }
+
+    // =========================================================
+    // Pérdida y vencimiento
+    // =========================================================
+
+    @Test
+    public void faltaUnoYVence() {
+        List<byte[]> partes = partir(frame(800, 9));
+        for (int i = 0; i < partes.size(); i++) {
+            if (i != 4) assertNull(recibir(partes.get(i), i * MS));
+        }
+        assertEquals(1, r.getEnCurso());
+
+        r.vencer(Reensamblador.VENCIMIENTO_NS); // justo en el límite: todavía no
+        assertEquals(1, r.getEnCurso());
+        r.vencer(Reensamblador.VENCIMIENTO_NS + 1);
+        assertEquals(0, r.getEnCurso());
+        assertEquals(1, r.getVencidos());
+        assertEquals(1, r.getFragmentosPerdidos());
+        assertEquals(1f / partes.size(), r.getPerdida(), 1e-6f);
+
+        // el que faltaba llega tarde: no arma nada ni abre una ranura
+        assertNull(recibir(partes.get(4), Reensamblador.VENCIMIENTO_NS + 2));
+        assertEquals(0, r.getEnCurso());
+        assertEquals(0, r.getMensajes());
+    }
+
+    @Test
+    public void conTodasLasRanurasOcupadasSePisaLaMasVieja() {
+        List<List<byte[]>> mensajes = new ArrayList<>();
+        for (int m = 0; m <= Reensamblador.RANURAS; m++) {
+            List<byte[]> partes = partir(frame(300, 100 + m));
+            mensajes.add(partes);
+            assertNull(recibir(partes.get(0), m * MS));
+        }
+        // el 0 (el más viejo) dejó su lugar al último
+        assertEquals(Reensamblador.RANURAS, r.getEnCurso());
+        assertEquals(1, r.getVencidos());
+        assertEquals(mensajes.get(0).size() - 1, r.getFragmentosPerdidos());
+
+        // lo que le faltaba al 0 ya no sirve; los demás se completan
+        for (int i = 1; i < mensajes.get(0).size(); i++) assertNull(recibir(mensajes.get(0).get(i), 20 * MS));
+        for (int m = 1; m <= Reensamblador.RANURAS; m++) {
+            List<byte[]> partes = mensajes.get(m);
+            ByteBuffer armado = null;
+            for (int i = 1; i < partes.size(); i++) armado = recibir(partes.get(i), 20 * MS);
+            assertArrayEquals(frame(300, 100 + m), bytes(armado));
+        }
+        assertEquals(Reensamblador.RANURAS, r.getMensajes());
+        assertEquals(0, r.getEnCurso());
+    }
+
+    // =========================================================
+    // Fragmentos mal formados
+    // =========================================================
+
+    @Test
+    public void cabecerasFueraDeRangoSeDescartan() {
+        byte[][] malos = {
+            fragmento(1, 0, 0, 0, 10),                                           // total 0
+            fragmento(2, 0, Reensamblador.MAX_FRAGMENTOS + 1, 0, 10),            // demasiados
+            fragmento(3, 5, 5, 0, 10),                                           // índice = total
+            fragmento(4, 200, 3, 0, 10),                                         // índice > total
+            fragmento(5, 0, 2, Reensamblador.MAX_MENSAJE - 5, 10),               // se pasa del buffer
+            fragmento(6, 0, 2, 0xFFFF, 1),                                       // offset al tope
+            fragmento(7, 0, 2, 0, 0),                                            // sin carga
+            new byte[]{Protocolo.magia(Protocolo.VERSION), Protocolo.FRAGMENTO, 1}, // truncado
+        };
+        for (byte[] m : malos) assertNull(recibir(m, 0));
+        assertEquals(malos.length, r.getDescartados());
+        assertEquals(0, r.getEnCurso());
+        assertEquals(0, r.getFragmentos());
+
+        // justo en el borde sí entra
+        assertNull(recibir(fragmento(8, 0, 2, Reensamblador.MAX_MENSAJE - 10, 10), 0));
+        assertEquals(1, r.getEnCurso());
+    }
+
+    @Test
+    public void mismoMensajeConOtroTotal() {
+        assertNull(recibir(fragmento(9, 0, 3, 0, 10), 0));
+        // no cierra con lo que ya había de ese mensaje
+        assertNull(recibir(fragmento(9, 1, 4, 10, 10), 0));
+        assertEquals(1, r.getDescartados());
+        assertNull(recibir(fragmento(9, 1, 3, 10, 10), 0));
+        ByteBuffer armado = recibir(fragmento(9, 2, 3, 20, 5), 0);
+        assertNotNull(armado);
+        assertEquals(25, armado.remaining());
+    }
+}
@@ -0,0 +1,171 @@
+package red;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * RelojServidor contra un reloj de server de mentira: corrido un offset fijo, con deriva
+ * y con demoras de ida y vuelta que tienen cola. Los pings salen a 4/s como en hiloCliente.
+ */
+public class RelojServidorTest {
+
+    private static final long MS = 1_000_000L, S = 1_000_000_000L;
+    private static final long INTERVALO = 250 * MS;
+    private static final long INICIO = 1_000 * S;          // nanoTime local al empezar
+    private static final long OFFSET = 7_321 * S + 123_456; // el server arrancó en otro momento
+    private static final long BASE = 10 * MS;              // demora mínima por tramo
+    private static final long ATENCION = 100_000;          // lo que tarda el server en contestar
+
+    /** El reloj del server en el instante local t. */
+    private final class Server {
+        final double deriva; // ppm / 1e6
+        long salto;          // el server se corre de golpe (otro server, suspensión)
+
+        Server(double ppm) {
+            this.deriva = ppm * 1e-6;
+        }
+
+        long en(long local) {
+            return local + OFFSET + salto + (long) (deriva * (local - INICIO));
+        }
+    }
+
+    /**
+     * Pings durante `segundos`, cada tramo con BASE + cola exponencial de media `colaMs`.
+     * Entre Pong y Pong llama a `frame` a 60 fps (el render, con su propio reloj).
+     */
+    private void correr(RelojServidor r, Server srv, long semilla, double colaMs, int segundos, Frame frame) {
+        correr(r, srv, semilla, colaMs, INICIO, segundos, frame);
+    }
+
+    private void correr(RelojServidor r, Server srv, long semilla, double colaMs, long desde, int segundos,
+                        Frame frame) {
+        Random azar = new Random(semilla);
+        long render = desde;
+        for (long t0 = desde; t0 < desde + segundos * S; t0 += INTERVALO) {
+            long ida = BASE + (long) (-Math.log(1 - azar.nextDouble()) * colaMs * MS);
+            long vuelta = BASE + (long) (-Math.log(1 - azar.nextDouble()) * colaMs * MS);
+            long llega = t0 + ida, sale = llega + ATENCION;
+            long t3 = sale + vuelta;
+            for (; frame != null && render < t3; render += 16_666_667L) frame.en(render);
+            r.muestra(t0, srv.en(llega), srv.en(sale), t3);
+        }
+    }
+
+    private interface Frame {
+        void en(long local);
+    }
+
+    @Test
+    public void sinColaNiDerivaEsExacto() {
+        RelojServidor r = new RelojServidor();
+        Server srv = new Server(0);
+        assertFalse(r.isSincronizado());
+        assertEquals(INICIO, r.serverTimeNanos(INICIO)); // sin muestras: la hora local
+
+        correr(r, srv, 1, 0, 5, null);
+        assertTrue(r.isSincronizado());
+        long t = INICIO + 5 * S;
+        // demoras simétricas: el offset sale exacto (salvo el ns de la división)
+        assertEquals(srv.en(t), r.aServidor(t), 1);
+        assertEquals(2 * BASE / 1e6, r.getDemoraMinimaMs(), 1e-3);
+        // lo que llegó en t salió del server una demora de ida antes
+        assertEquals(srv.en(t - BASE), r.envioEstimado(t), 1);
+        assertEquals(0f, r.getDerivaPpm(), 0f);
+    }
+
+    @Test
+    public void estimaLaDeriva() {
+        for (double ppm : new double[]{-250, 100, 400}) {
+            RelojServidor r = new RelojServidor();
+            Server srv = new Server(ppm);
+            correr(r, srv, 3, 0, 5, null);
+            assertEquals("antes de 10 s de puntos no se estima", 0f, r.getDerivaPpm(), 0f);
+
+            r = new RelojServidor();
+            correr(r, srv, 3, 5, 120, null);
+            assertEquals("deriva " + ppm, ppm, r.getDerivaPpm(), 15);
+        }
+    }
+
+    @Test
+    public void derivaAcotada() {
+        RelojServidor r = new RelojServidor();
+        correr(r, new Server(2_000), 5, 0, 60, null);
+        assertEquals(500f, r.getDerivaPpm(), 1e-3f);
+    }
+
+    /** Lo que ve el render: error chico pese a la cola y nunca para atrás. */
+    @Test
+    public void conColaYDerivaElErrorQuedaAcotado() {
+        for (double cola : new double[]{5, 30}) {
+            RelojServidor r = new RelojServidor();
+            Server srv = new Server(100);
+            double[] error = new double[3]; // suma, máximo, frames
+            long[] anterior = {Long.MIN_VALUE};
+            correr(r, srv, 11, cola, 180, local -> {
+                long t = r.serverTimeNanos(local);
+                assertTrue("fue para atrás", t - anterior[0] >= 0 || anterior[0] == Long.MIN_VALUE);
+                anterior[0] = t;
+                if (local < INICIO + 30 * S) return;
+                double e = Math.abs(t - srv.en(local)) / 1e6;
+                error[0] += e;
+                error[1] = Math.max(error[1], e);
+                error[2]++;
+            });
+            double medio = error[0] / error[2];
+            // el error de una muestra es la mitad de la diferencia entre las colas de ida y de vuelta
+            assertTrue("cola " + cola + ": error medio " + medio + " ms", medio < cola / 3);
+            assertTrue("cola " + cola + ": error máximo " + error[1] + " ms", error[1] < cola / 2 + 2);
+            assertEquals(100, r.getDerivaPpm(), 25);
+        }
+    }
+
+    @Test
+    public void cambiosChicosDeApocoYSaltosDeGolpe() {
+        RelojServidor r = new RelojServidor();
+        Server srv = new Server(0);
+        correr(r, srv, 1, 0, 10, null);
+        long desde = INICIO + 10 * S;
+        assertEquals(srv.en(desde), r.serverTimeNanos(desde), 1);
+
+        // se corre 100 ms: se absorbe a SLEW del tiempo como mucho, sin ir para atrás
+        srv.salto = 100 * MS;
+        long[] anterior = {desde, r.serverTimeNanos(desde)};
+        Frame deApoco = local -> {
+            long t = r.serverTimeNanos(local);
+            long avance = t - anterior[1], transcurrido = local - anterior[0];
+            assertTrue("fue para atrás", avance >= 0);
+            assertTrue("corrigió de golpe", Math.abs(avance - transcurrido) <= RelojServidor.SLEW * transcurrido + 1);
+            anterior[0] = local;
+            anterior[1] = t;
+        };
+        correr(r, srv, 1, 0, desde, 90, deApoco);
+        desde += 90 * S;
+        // los puntos viejos ya salieron de la recta
+        assertEquals(srv.en(desde), r.serverTimeNanos(desde), MS);
+
+        // 10 s: en cuanto el primer bloque corre la recta más de 250 ms, salta en un frame
+        // (de a SLEW serían menos de 1 ms por frame)
+        srv.salto += 10 * S;
+        long[] mayor = {0};
+        anterior[0] = desde;
+        anterior[1] = r.serverTimeNanos(desde);
+        correr(r, srv, 1, 0, desde, 3, local -> {
+            long t = r.serverTimeNanos(local);
+            mayor[0] = Math.max(mayor[0], (t - anterior[1]) - (local - anterior[0]));
+            anterior[0] = local;
+            anterior[1] = t;
+        });
+        assertTrue("saltó " + mayor[0] / 1e6 + " ms", mayor[0] > 250 * MS);
+        desde += 3 * S;
+        correr(r, srv, 1, 0, desde, 90, null);
+        desde += 90 * S;
+        assertEquals(0, (r.serverTimeNanos(desde) - srv.en(desde)) / 1e6, 1);
+    }
+}
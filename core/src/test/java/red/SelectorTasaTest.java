@@ -0,0 +1,198 @@
+package red;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * SelectorTasa como lo maneja hiloCliente: frames desde el render, una evaluación por
+ * ping (4/s) y el server que confirma enseguida lo pedido, con máximo 60.
+ */
+public class SelectorTasaTest {
+
+    private static final long MS = 1_000_000L;
+    private static final long PING = 250 * MS;
+
+    /** Pérdida (%) y RTT (ms) en el instante t (ms desde el handshake). */
+    private interface Red {
+        float perdida(long t);
+        float rtt(long t);
+    }
+
+    private static final Red BUENA = new Red() {
+        public float perdida(long t) { return 0f; }
+        public float rtt(long t) { return 40f; }
+    };
+
+    private final SelectorTasa s = new SelectorTasa();
+    private final Random azar = new Random(5);
+    private long ahora = 1_000 * MS;
+    private long proximoFrame = ahora;
+
+    /** Frames a `fps` con ±`jitterMs` hasta `hasta`. */
+    private void frames(float fps, float jitterMs, long hasta) {
+        while (proximoFrame <= hasta) {
+            s.registrarFrame(proximoFrame);
+            double dt = 1e9 / fps + (azar.nextDouble() * 2 - 1) * jitterMs * MS;
+            proximoFrame += (long) Math.max(MS, dt);
+        }
+    }
+
+    /** 2 s de frames y el handshake. @return la tasa inicial */
+    private int conectar(float fps, float jitterMs, int maxima) {
+        frames(fps, jitterMs, ahora + 2_000 * MS);
+        ahora += 2_000 * MS;
+        int inicial = s.inicial(ahora);
+        s.confirmar(Math.min(inicial, maxima), maxima);
+        return inicial;
+    }
+
+    /**
+     * Juega `segundos` con la red dada.
+     * @return el instante (ms desde el inicio de esta llamada) de cada cambio, que tienen que ser `esperadas`
+     */
+    private long[] jugar(float fps, float jitterMs, int segundos, Red red, int... esperadas) {
+        long inicio = ahora;
+        long[] cuando = new long[esperadas.length];
+        int k = 0;
+        for (long fin = ahora + segundos * 1_000L * MS; ahora < fin; ahora += PING) {
+            frames(fps, jitterMs, ahora);
+            long t = (ahora - inicio) / MS;
+            if (s.evaluar(ahora, red.perdida(t), red.rtt(t))) {
+                assertTrue("cambio de más a " + s.getPedida() + " a los " + t + " ms", k < esperadas.length);
+                assertEquals("cambio " + k, esperadas[k], s.getPedida());
+                cuando[k++] = t;
+                s.confirmar(s.getPedida(), s.getMaxima());
+            }
+        }
+        assertEquals("cambios", esperadas.length, k);
+        return cuando;
+    }
+
+    // =========================================================
+    // Frame rate
+    // =========================================================
+
+    @Test
+    public void framesAltosPidenLaMaxima() {
+        assertEquals(60, conectar(144, 1, 60));
+        jugar(144, 1, 30, BUENA);
+    }
+
+    @Test
+    public void sesentaConJitterDeVsyncSeQuedaEnSesenta() {
+        assertEquals(60, conectar(60, 3, 60));
+        jugar(60, 3, 30, BUENA);
+        assertFalse(s.isLimiteFps());
+    }
+
+    @Test
+    public void cuarentaYCincoPideTreintaSinOscilar() {
+        assertEquals(30, conectar(45, 5, 60)); // 40-50 fps
+        jugar(45, 5, 60, BUENA);
+        assertTrue(s.isLimiteFps());
+        assertEquals(0, s.getCambios());
+    }
+
+    @Test
+    public void veinteFpsPideVeinte() {
+        assertEquals(20, conectar(20, 2, 60));
+        jugar(20, 2, 10, BUENA);
+    }
+
+    @Test
+    public void bajanLosFramesYDespuesVuelven() {
+        conectar(60, 1, 60);
+        // el promedio de frames baja en ~1 s: a 1 s todavía da para 30, el segundo escalón
+        // espera otro segundo sostenido
+        long[] t = jugar(20, 1, 10, BUENA, 30, 20);
+        assertEquals(1_000, t[0], PING / MS);
+        assertTrue("20 a los " + t[1] + " ms", t[1] <= 3_000);
+        // se sube de a un escalón, 3 s cada uno
+        t = jugar(60, 1, 15, BUENA, 30, 60);
+        assertTrue("30 a los " + t[0] + " ms", t[0] >= 3_000 && t[0] <= 5_000);
+        assertEquals(3_000, t[1] - t[0], PING / MS);
+    }
+
+    // =========================================================
+    // Pérdida y RTT
+    // =========================================================
+
+    @Test
+    public void perdidaBajaAVeinteYSubeDeAUnEscalon() {
+        conectar(60, 1, 60);
+        // 8% durante 10 s, después 1%
+        Red red = new Red() {
+            public float perdida(long t) { return t < 10_000 ? 8f : 1f; }
+            public float rtt(long t) { return 40f; }
+        };
+        long[] t = jugar(60, 1, 20, red, 20, 30, 60);
+        assertEquals("baja con 1 s sostenido", 1_000, t[0], PING / MS);
+        assertEquals("sube 3 s después de que se va la pérdida", 13_000, t[1], PING / MS);
+        assertEquals(3_000, t[2] - t[1], PING / MS);
+    }
+
+    @Test
+    public void perdidaQueOscilaEntreLosUmbralesNoOscila() {
+        conectar(60, 1, 60);
+        // 3% y 6% de a 2 s: entra con 5% y sale recién con 2%
+        Red red = new Red() {
+            public float perdida(long t) { return (t / 2_000) % 2 == 0 ? 6f : 3f; }
+            public float rtt(long t) { return 40f; }
+        };
+        jugar(60, 1, 60, red, 20);
+        assertTrue(s.isLimitePerdida());
+    }
+
+    @Test
+    public void rttAltoPideTreinta() {
+        conectar(60, 1, 60);
+        Red red = new Red() {
+            public float perdida(long t) { return 0f; }
+            public float rtt(long t) { return t < 10_000 ? 180f : t < 20_000 ? 120f : 90f; }
+        };
+        // 120 ms está entre los umbrales: sigue en 30 hasta bajar de 100
+        long[] t = jugar(60, 1, 30, red, 30, 60);
+        assertEquals(1_000, t[0], PING / MS);
+        assertEquals(23_000, t[1], PING / MS);
+        assertFalse(s.isLimiteRtt());
+    }
+
+    // =========================================================
+    // Server
+    // =========================================================
+
+    @Test
+    public void nuncaPasaLaMaximaDelServer() {
+        assertEquals(60, conectar(144, 1, 30)); // el handshake todavía no la sabe
+        // la primera evaluación baja a lo que da el server... y ahí se queda
+        jugar(144, 1, 10, BUENA, 30);
+        assertEquals(30, s.getAplicada());
+    }
+
+    @Test
+    public void serverViejoNoSeRenegocia() {
+        frames(20, 1, ahora + 2_000 * MS);
+        ahora += 2_000 * MS;
+        s.inicial(ahora); // nunca llega TASA: maxima queda en 0
+        for (int i = 0; i < 40; i++) {
+            ahora += PING;
+            assertFalse(s.evaluar(ahora, 50f, 300f));
+        }
+        assertEquals(0, s.getCambios());
+    }
+
+    @Test
+    public void ahorroRespectoDeLaMaxima() {
+        s.registrarSnapshot(100);
+        s.confirmar(20, 60);
+        assertEquals(2f / 3f, s.getAhorro(), 1e-6f);
+        assertEquals((100 + SelectorTasa.CABECERAS_UDP) * 40f, s.getAhorroBytesPorSegundo(), 1e-3f);
+        s.confirmar(60, 60);
+        assertEquals(0f, s.getAhorro(), 0f);
+    }
+}
@@ -0,0 +1,153 @@
+package com.motorepartidor.server;
+
+import red.CodecBinario;
+import red.FlujoEntradas;
+import red.Protocolo;
+import red.ReceptorMensajes;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Lado server de los codecs: decodifica lo que manda el cliente, en texto
+ * ("Conexion", "Espectador:v[:caps[:hz]]", "Binario:v[:caps[:hz]]", "Reanudar:token:v:caps:hz:n",
+ * "Sondeo:seq:marca", "Ping:id[:seq:marca]", "Input:id:keycode",
+ * "Disconnect:id") o en binario (INPUT, PING, DISCONNECT, ENTRADA, SNAPSHOT_ACK,
+ * PEDIDO_TASA, AREA y los sobres FIABLE / FIABLE_ACK; layout en {@link CodecBinario}).
+ *
+ * El texto se parte con String: es el formato viejo y lo que pasa por ahí en una partida
+ * binaria es solo el handshake. No es thread-safe (buffer de teclas): uno por hilo.
+ */
+public final class CodecCliente {
+
+    private final byte[] mascaras = new byte[FlujoEntradas.REDUNDANCIA_MAXIMA + 1];
+
+    /** @return false si el mensaje está truncado, mal formado o no se conoce. */
+    public boolean decodificar(ByteBuffer buf, ReceptorCliente r) {
+        try {
+            return CodecBinario.esBinario(buf) ? binario(buf, r) : texto(buf, r);
+        } catch (RuntimeException e) {
+            return false; // número mal escrito, campo que falta...
+        }
+    }
+
+    // =========================================================
+    // Texto
+    // =========================================================
+
+    private boolean texto(ByteBuffer buf, ReceptorCliente r) {
+        byte[] raw = new byte[buf.remaining()];
+        buf.duplicate().get(raw);
+        String[] c = new String(raw, StandardCharsets.UTF_8).trim().split(":");
+
+        switch (c[0]) {
+            case Protocolo.CONEXION:
+                r.onConexion();
+                return true;
+            case Protocolo.ESPECTADOR:
+                if (c.length < 2) return false;
+                r.onEspectador(Integer.parseInt(c[1]), c.length >= 3 ? Integer.parseInt(c[2]) : 0,
+                    c.length >= 4 ? Integer.parseInt(c[3]) : 0);
+                return true;
+            case Protocolo.BINARIO:
+                if (c.length < 2) return false;
+                r.onBinario(Integer.parseInt(c[1]), c.length >= 3 ? Integer.parseInt(c[2]) : 0,
+                    c.length >= 4 ? Integer.parseInt(c[3]) : 0);
+                return true;
+            case Protocolo.REANUDAR:
+                if (c.length < 6) return false;
+                r.onReanudar(Long.parseLong(c[1]), Integer.parseInt(c[2]), Integer.parseInt(c[3]),
+                    Integer.parseInt(c[4]), Integer.parseInt(c[5]));
+                return true;
+            case Protocolo.SONDEO:
+                if (c.length < 3) return false;
+                r.onSondeo(Long.parseLong(c[1]), Long.parseLong(c[2]));
+                return true;
+            case "Ping":
+                if (c.length < 2) return false;
+                if (c.length >= 4) r.onPing(Integer.parseInt(c[1]), Long.parseLong(c[2]), Long.parseLong(c[3]), false);
+                else r.onPing(Integer.parseInt(c[1]), ReceptorMensajes.SIN_TICK, 0L, false);
+                return true;
+            case "Input":
+                if (c.length < 3) return false;
+                r.onInput(Integer.parseInt(c[1]), Integer.parseInt(c[2]));
+                return true;
+            case "Disconnect":
+                r.onDisconnect(c.length >= 2 ? Integer.parseInt(c[1]) : -1);
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    // =========================================================
+    // Binario
+    // =========================================================
+
+    private boolean binario(ByteBuffer buf, ReceptorCliente r) {
+        buf.order(ByteOrder.LITTLE_ENDIAN);
+        int p = buf.position();
+        int len = buf.limit() - p;
+        int tipo = CodecBinario.tipo(buf);
+        int o = p + Protocolo.HEADER;
+
+        switch (tipo) {
+            case Protocolo.INPUT:
+                if (len < 2 + 3) return false;
+                r.onInput(buf.get(o) & 0xFF, buf.getShort(o + 1));
+                return true;
+
+            case Protocolo.PING:
+                if (len >= 2 + 13) r.onPing(buf.get(o) & 0xFF, buf.getInt(o + 1) & 0xFFFFFFFFL, buf.getLong(o + 5), true);
+                else if (len >= 2 + 1) r.onPing(buf.get(o) & 0xFF, ReceptorMensajes.SIN_TICK, 0L, true);
+                else return false;
+                return true;
+
+            case Protocolo.DISCONNECT:
+                if (len < 2 + 1) return false;
+                r.onDisconnect(buf.get(o) & 0xFF);
+                return true;
+
+            case Protocolo.ENTRADA: {
+                if (len < 2 + 6) return false;
+                int cantidad = buf.get(o + 5) & 0xFF;
+                if (cantidad == 0 || cantidad > mascaras.length || len < 2 + 6 + cantidad) return false;
+                for (int i = 0; i < cantidad; i++) mascaras[i] = buf.get(o + 6 + i);
+                int k = o + 6 + cantidad;
+                boolean conAck = p + len >= k + 6;
+                r.onEntrada(buf.get(o) & 0xFF, buf.getInt(o + 1), mascaras, cantidad,
+                    conAck, conAck ? buf.getShort(k) & 0xFFFF : 0, conAck ? buf.getInt(k + 2) : 0);
+                return true;
+            }
+
+            case Protocolo.SNAPSHOT_ACK:
+                if (len < 2 + 5) return false;
+                r.onSnapshotAck(buf.get(o) & 0xFF, buf.getInt(o + 1) & 0xFFFFFFFFL);
+                return true;
+
+            case Protocolo.PEDIDO_TASA:
+                if (len < 2 + 2) return false;
+                r.onPedidoTasa(buf.get(o) & 0xFF, buf.get(o + 1) & 0xFF);
+                return true;
+
+            case Protocolo.AREA:
+                if (len < 2 + 9) return false;
+                r.onArea(buf.get(o) & 0xFF, buf.getShort(o + 1) & 0xFFFF, buf.getShort(o + 3) & 0xFFFF,
+                    buf.getShort(o + 5) & 0xFFFF, buf.getShort(o + 7) & 0xFFFF);
+                return true;
+
+            case Protocolo.FIABLE:
+                if (len < CodecBinario.CABECERA_FIABLE + Protocolo.HEADER) return false;
+                r.onFiable(buf);
+                return true;
+
+            case Protocolo.FIABLE_ACK:
+                r.onFiableAck(buf);
+                return true;
+
+            default:
+                return false;
+        }
+    }
+}
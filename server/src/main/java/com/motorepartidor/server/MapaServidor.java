@@ -0,0 +1,157 @@
+package com.motorepartidor.server;
+
+import com.motorepartidor.fisica.MapaColisiones;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import red.Cuantizacion;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.File;
+import java.util.Arrays;
+
+/**
+ * Lo que el server necesita de map/Map.tmx, leído directo del XML (sin Gdx ni OpenGL):
+ * paredes ("colisiones"), surtidores ("Gasolina"), el "dealer" y los puntos de "entregas".
+ *
+ * Los rectángulos quedan igual que los arma TmxMapLoader en el cliente (y hacia arriba,
+ * y = alto - y - h, en float) y con los mismos objetos, así la predicción del cliente y
+ * la simulación del server chocan contra exactamente las mismas paredes.
+ *
+ * Es inmutable salvo {@link #crearColisiones()}, que arma una instancia nueva por hilo
+ * (MapaColisiones no es thread-safe).
+ */
+public final class MapaServidor {
+
+    public static final String CAPA_GASOLINA = "Gasolina";
+    public static final String CAPA_DEALER = "dealer";
+    public static final String CAPA_ENTREGAS = "entregas";
+
+    /** Rectángulos de una capa, en arrays paralelos. */
+    public static final class Zonas {
+        final float[] x, y, w, h;
+        final int cantidad;
+
+        Zonas(float[] datos, int cantidad) {
+            this.cantidad = cantidad;
+            x = new float[cantidad];
+            y = new float[cantidad];
+            w = new float[cantidad];
+            h = new float[cantidad];
+            for (int i = 0; i < cantidad; i++) {
+                x[i] = datos[i * 4];
+                y[i] = datos[i * 4 + 1];
+                w[i] = datos[i * 4 + 2];
+                h[i] = datos[i * 4 + 3];
+            }
+        }
+
+        /** ¿El punto cae en la zona i agrandada `margen` px para cada lado? */
+        public boolean contiene(int i, float px, float py, float margen) {
+            return px >= x[i] - margen && px <= x[i] + w[i] + margen
+                && py >= y[i] - margen && py <= y[i] + h[i] + margen;
+        }
+
+        /** Primera zona que contiene el punto, o -1. */
+        public int buscar(float px, float py, float margen) {
+            for (int i = 0; i < cantidad; i++) if (contiene(i, px, py, margen)) return i;
+            return -1;
+        }
+
+        public int getCantidad() { return cantidad; }
+        public float getCentroX(int i) { return x[i] + w[i] / 2f; }
+        public float getCentroY(int i) { return y[i] + h[i] / 2f; }
+    }
+
+    private final float ancho, alto;
+    private final Zonas paredes, gasolina, dealer, entregas;
+    private final Cuantizacion cuantizacion;
+
+    private MapaServidor(float ancho, float alto, Zonas paredes, Zonas gasolina, Zonas dealer, Zonas entregas) {
+        this.ancho = ancho;
+        this.alto = alto;
+        this.paredes = paredes;
+        this.gasolina = gasolina;
+        this.dealer = dealer;
+        this.entregas = entregas;
+        this.cuantizacion = new Cuantizacion(ancho, alto);
+    }
+
+    public static MapaServidor cargar(File tmx) throws Exception {
+        DocumentBuilderFactory f = DocumentBuilderFactory.newInstance();
+        f.setNamespaceAware(false);
+        // el .tmx no usa DTD: no seguir referencias externas
+        f.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
+        Document doc = f.newDocumentBuilder().parse(tmx);
+        Element mapa = doc.getDocumentElement();
+
+        float ancho = entero(mapa, "width") * entero(mapa, "tilewidth");
+        float alto = entero(mapa, "height") * entero(mapa, "tileheight");
+
+        Zonas paredes = capa(mapa, MapaColisiones.CAPA, alto);
+        Zonas gasolina = capa(mapa, CAPA_GASOLINA, alto);
+        Zonas dealer = capa(mapa, CAPA_DEALER, alto);
+        Zonas entregas = capa(mapa, CAPA_ENTREGAS, alto);
+        if (dealer.cantidad == 0 || entregas.cantidad == 0) {
+            throw new IllegalArgumentException("el mapa no tiene capa de dealer o de entregas: " + tmx);
+        }
+        return new MapaServidor(ancho, alto, paredes, gasolina, dealer, entregas);
+    }
+
+    /** Objetos rectangulares de la capa (solo hijos directos de &lt;map&gt;, no los de tilesets). */
+    private static Zonas capa(Element mapa, String nombre, float alto) {
+        float[] datos = new float[64];
+        int n = 0;
+        for (Node g = mapa.getFirstChild(); g != null; g = g.getNextSibling()) {
+            if (!(g instanceof Element) || !"objectgroup".equals(g.getNodeName())) continue;
+            if (!nombre.equals(((Element) g).getAttribute("name"))) continue;
+
+            NodeList objetos = ((Element) g).getElementsByTagName("object");
+            for (int i = 0; i < objetos.getLength(); i++) {
+                Element o = (Element) objetos.item(i);
+                // elipses, polígonos y puntos no son RectangleMapObject: el cliente los ignora
+                if (o.getElementsByTagName("ellipse").getLength() > 0
+                    || o.getElementsByTagName("polygon").getLength() > 0
+                    || o.getElementsByTagName("polyline").getLength() > 0
+                    || o.getElementsByTagName("point").getLength() > 0
+                    || o.getElementsByTagName("text").getLength() > 0) continue;
+
+                float x = decimal(o, "x"), y = decimal(o, "y");
+                float w = decimal(o, "width"), h = decimal(o, "height");
+                if (n * 4 + 4 > datos.length) datos = Arrays.copyOf(datos, datos.length * 2);
+                datos[n * 4] = x;
+                datos[n * 4 + 1] = (alto - y) - h; // mismo orden de operaciones que TmxMapLoader
+                datos[n * 4 + 2] = w;
+                datos[n * 4 + 3] = h;
+                n++;
+            }
+        }
+        return new Zonas(datos, n);
+    }
+
+    private static int entero(Element e, String attr) {
+        return Integer.parseInt(e.getAttribute(attr));
+    }
+
+    private static float decimal(Element e, String attr) {
+        String v = e.getAttribute(attr);
+        return v.isEmpty() ? 0f : Float.parseFloat(v);
+    }
+
+    /** Paredes listas para {@link com.motorepartidor.fisica.ModeloConduccion}; una por hilo. */
+    public MapaColisiones crearColisiones() {
+        MapaColisiones m = new MapaColisiones(ancho, alto);
+        for (int i = 0; i < paredes.cantidad; i++) m.agregar(paredes.x[i], paredes.y[i], paredes.w[i], paredes.h[i]);
+        return m.construir();
+    }
+
+    public float getAncho() { return ancho; }
+    public float getAlto() { return alto; }
+    /** Posiciones en punto fijo sobre este mapa (para SNAPSHOT_CUANTIZADO). */
+    public Cuantizacion getCuantizacion() { return cuantizacion; }
+    public Zonas getParedes() { return paredes; }
+    public Zonas getGasolina() { return gasolina; }
+    public Zonas getDealer() { return dealer; }
+    public Zonas getEntregas() { return entregas; }
+}
@@ -0,0 +1,205 @@
+package com.motorepartidor.server;
+
+import java.util.Arrays;
+
+/**
+ * Tiempos de un trabajador en la ventana de reporte actual:
+ * - trabajo de cada tick (drenar la cola, simular, mandar), en ns;
+ * - costo de cada partida en cada tick (su simulación más sus snapshots y eventos);
+ * - atraso del tick respecto del horario fijo y ticks salteados por venir muy atrasado;
+ * - paquetes y bytes que salieron, y cuántos frames salieron partidos en FRAGMENTO;
+ * - cuántas veces un cliente cambió su tasa de snapshots;
+ * - de las motos ajenas, cuántas quedaron afuera de los snapshots por el área de interés;
+ * - sesiones que quedaron suspendidas por falta de contacto y cuántas se reanudaron.
+ *
+ * Guarda las últimas {@link #MUESTRAS} de cada tipo (los promedios son exactos). Lo
+ * escribe el trabajador y lo vacía el reporte con {@link #volcarEn}: synchronized
+ * (sin competencia salvo una vez por ventana).
+ */
+final class Metricas {
+
+    static final int MUESTRAS = 4096;
+
+    private final long[] ticks = new long[MUESTRAS];
+    private int cantTicks, proxTick;
+    private long sumaTicks, nTicks, tickMax;
+
+    private final long[] partidas = new long[MUESTRAS];
+    private int cantPartidas, proxPartida;
+    private long sumaPartidas, nPartidas;
+
+    private long atrasoMax, saltos;
+    private long paquetes, bytes;
+    private long fragmentados, fragmentos;
+    private long cambiosTasa;
+    private long motosArea, motosFuera;
+    private long suspendidas, reanudadas;
+
+    synchronized void registrarTick(long ns, long atraso) {
+        ticks[proxTick] = ns;
+        proxTick = (proxTick + 1) & (MUESTRAS - 1);
+        if (cantTicks < MUESTRAS) cantTicks++;
+        sumaTicks += ns;
+        nTicks++;
+        if (ns > tickMax) tickMax = ns;
+        if (atraso > atrasoMax) atrasoMax = atraso;
+    }
+
+    synchronized void registrarPartida(long ns) {
+        partidas[proxPartida] = ns;
+        proxPartida = (proxPartida + 1) & (MUESTRAS - 1);
+        if (cantPartidas < MUESTRAS) cantPartidas++;
+        sumaPartidas += ns;
+        nPartidas++;
+    }
+
+    synchronized void registrarSalto() { saltos++; }
+
+    synchronized void registrarEnvio(int largo) {
+        paquetes++;
+        bytes += largo;
+    }
+
+    /** Un frame que salió partido en n fragmentos (los paquetes ya los contó registrarEnvio). */
+    synchronized void registrarFragmentado(int n) {
+        fragmentados++;
+        fragmentos += n;
+    }
+
+    synchronized void registrarCambioTasa() { cambiosTasa++; }
+
+    /** Un snapshot a un cliente con AREA: de `ajenas` motos ajenas, `mandadas` iban. */
+    synchronized void registrarArea(int mandadas, int ajenas) {
+        motosArea += ajenas;
+        motosFuera += ajenas - mandadas;
+    }
+
+    synchronized void registrarSuspendida() { suspendidas++; }
+    synchronized void registrarReanudada() { reanudadas++; }
+
+    /** Suma la ventana a `r` y arranca una nueva. */
+    synchronized void volcarEn(Resumen r) {
+        r.ticks = agregar(r.ticks, r.cantTicks, ticks, cantTicks);
+        r.cantTicks += cantTicks;
+        r.sumaTicks += sumaTicks;
+        r.nTicks += nTicks;
+        r.tickMax = Math.max(r.tickMax, tickMax);
+        r.partidas = agregar(r.partidas, r.cantPartidas, partidas, cantPartidas);
+        r.cantPartidas += cantPartidas;
+        r.sumaPartidas += sumaPartidas;
+        r.nPartidas += nPartidas;
+        r.atrasoMax = Math.max(r.atrasoMax, atrasoMax);
+        r.saltos += saltos;
+        r.paquetesSalida += paquetes;
+        r.bytesSalida += bytes;
+        r.fragmentados += fragmentados;
+        r.fragmentos += fragmentos;
+        r.cambiosTasa += cambiosTasa;
+        r.motosArea += motosArea;
+        r.motosFuera += motosFuera;
+        r.suspendidas += suspendidas;
+        r.reanudadas += reanudadas;
+
+        cantTicks = proxTick = 0;
+        sumaTicks = nTicks = tickMax = 0;
+        cantPartidas = proxPartida = 0;
+        sumaPartidas = nPartidas = 0;
+        atrasoMax = saltos = 0;
+        paquetes = bytes = 0;
+        fragmentados = fragmentos = 0;
+        cambiosTasa = 0;
+        motosArea = motosFuera = 0;
+        suspendidas = reanudadas = 0;
+    }
+
+    private static long[] agregar(long[] dst, int usados, long[] src, int n) {
+        if (dst.length < usados + n) dst = Arrays.copyOf(dst, Math.max(usados + n, dst.length * 2));
+        System.arraycopy(src, 0, dst, usados, n);
+        return dst;
+    }
+
+    /** Una ventana de todos los trabajadores juntos (más lo que mide el receptor). */
+    static final class Resumen {
+        long[] ticks = new long[0];
+        int cantTicks;
+        long sumaTicks, nTicks, tickMax;
+        long[] partidas = new long[0];
+        int cantPartidas;
+        long sumaPartidas, nPartidas;
+        long atrasoMax, saltos;
+        long paquetesSalida, bytesSalida;
+        long fragmentados, fragmentos;
+        long cambiosTasa;
+        long motosArea, motosFuera;
+        long suspendidas, reanudadas;
+        long paquetesEntrada, bytesEntrada, descartados;
+        int cantidadPartidas, jugadores, espectadores;
+        long ns; // largo de la ventana
+
+        private boolean ordenado;
+
+        private void ordenar() {
+            if (ordenado) return;
+            Arrays.sort(ticks, 0, cantTicks);
+            Arrays.sort(partidas, 0, cantPartidas);
+            ordenado = true;
+        }
+
+        private static long percentil(long[] v, int n, float p) {
+            if (n == 0) return 0;
+            return v[Math.max(0, Math.min(n - 1, Math.round(p / 100f * (n - 1))))];
+        }
+
+        /** Trabajo por tick de un trabajador, percentil p (0..100), en µs. */
+        public float getTickUs(float p) { ordenar(); return percentil(ticks, cantTicks, p) / 1e3f; }
+        public float getTickMaxUs() { return tickMax / 1e3f; }
+        public float getTickPromedioUs() { return nTicks == 0 ? 0f : sumaTicks / 1e3f / nTicks; }
+
+        /** Costo de una partida en un tick, percentil p, en µs. */
+        public float getPartidaUs(float p) { ordenar(); return percentil(partidas, cantPartidas, p) / 1e3f; }
+        public float getPartidaPromedioUs() { return nPartidas == 0 ? 0f : sumaPartidas / 1e3f / nPartidas; }
+
+        public float getAtrasoMaxMs() { return atrasoMax / 1e6f; }
+        public long getSaltos() { return saltos; }
+        public int getCantidadPartidas() { return cantidadPartidas; }
+        public int getJugadores() { return jugadores; }
+        public int getEspectadores() { return espectadores; }
+
+        private float porSegundo(long v) { return ns <= 0 ? 0f : v * 1e9f / ns; }
+
+        public float getPaquetesSalidaPorSegundo() { return porSegundo(paquetesSalida); }
+        public float getBytesSalidaPorSegundo() { return porSegundo(bytesSalida); }
+        public float getPaquetesEntradaPorSegundo() { return porSegundo(paquetesEntrada); }
+        public float getBytesEntradaPorSegundo() { return porSegundo(bytesEntrada); }
+        /** Frames que salieron partidos y en cuántos FRAGMENTO en total. */
+        public long getFragmentados() { return fragmentados; }
+        public long getFragmentos() { return fragmentos; }
+        /** Veces que un cliente pidió (y se le aplicó) otra tasa de snapshots. */
+        public long getCambiosTasa() { return cambiosTasa; }
+        /** De las motos ajenas en snapshots a clientes con AREA, la fracción que no fue. */
+        public float getFueraDeArea() { return motosArea == 0 ? 0f : (float) motosFuera / motosArea; }
+        /** Sesiones que se quedaron sin contacto en plena partida y las que volvieron con Reanudar. */
+        public long getSuspendidas() { return suspendidas; }
+        public long getReanudadas() { return reanudadas; }
+
+        @Override
+        public String toString() {
+            String s = String.format(
+                "[server] %d partidas, %d jugadores | tick p50 %.0f us, p99 %.0f us, max %.0f us | "
+                    + "partida %.1f us (p99 %.1f) | atraso max %.2f ms, %d saltos | "
+                    + "entrada %.0f pkt/s %.1f KB/s, salida %.0f pkt/s %.1f KB/s, %d descartados",
+                cantidadPartidas, jugadores,
+                getTickUs(50f), getTickUs(99f), getTickMaxUs(),
+                getPartidaPromedioUs(), getPartidaUs(99f),
+                getAtrasoMaxMs(), saltos,
+                getPaquetesEntradaPorSegundo(), getBytesEntradaPorSegundo() / 1024f,
+                getPaquetesSalidaPorSegundo(), getBytesSalidaPorSegundo() / 1024f, descartados);
+            if (fragmentados > 0) s += " | " + fragmentados + " frames partidos en " + fragmentos + " fragmentos";
+            if (cambiosTasa > 0) s += " | " + cambiosTasa + " cambios de tasa";
+            if (espectadores > 0) s += " | " + espectadores + " espectadores";
+            if (suspendidas > 0 || reanudadas > 0) s += " | " + suspendidas + " suspendidas, " + reanudadas + " reanudadas";
+            if (motosArea > 0) s += String.format(" | %.0f%% de las motos fuera del area", getFueraDeArea() * 100f);
+            return s;
+        }
+    }
+}
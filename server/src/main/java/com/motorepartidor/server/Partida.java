@@ -0,0 +1,642 @@
+package com.motorepartidor.server;
+
+import com.motorepartidor.fisica.EstadoMoto;
+import com.motorepartidor.fisica.MapaColisiones;
+import com.motorepartidor.fisica.ModeloConduccion;
+import red.CodecBinario;
+import red.Cuantizacion;
+import red.FlujoEntradas;
+import red.Protocolo;
+import red.ReceptorMensajes;
+import red.ReconstructorSnapshots;
+import red.Reensamblador;
+import red.Snapshot;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+/**
+ * Una partida de {@link #cupo} jugadores (dos por defecto, hasta {@link Snapshot#MAX_JUGADORES})
+ * con las reglas del juego, avanzada de a un tick fijo ({@link ModeloConduccion#DT}) por
+ * su {@link Trabajador}.
+ *
+ * - Manejo: {@link ModeloConduccion} contra las paredes del mapa, igual que la predicción.
+ * - Nafta: se gasta con la distancia recorrida; sin nafta no acelera. En un surtidor
+ *   ("Gasolina") con G se carga.
+ * - Pedidos: con E en el dealer se toma uno (un punto de "entregas" al azar, a veces
+ *   peligroso y mejor pago); con E en el destino se cobra.
+ * - Vida: chocar de frente a velocidad lastima (el doble con un pedido peligroso).
+ * - Gana quien llega primero a {@link #DINERO_OBJETIVO} o queda con vida; GameOver
+ *   manda id + 1 del ganador. De a dos, si pasa para los dos en el mismo tick es empate
+ *   (3); de a más desempata el dinero y después el id más bajo. Sin vida no se maneja.
+ * - Irse: de a dos (o si queda uno solo) termina la partida con OpponentLeft; si no, el
+ *   que se fue queda como sin vida.
+ *
+ * Los eventos (Delivery, DeliveryFin, GameOver, Reset, Comienza, OpponentLeft) van por
+ * el canal confiable a los clientes binarios y sueltos a los de texto. El estado sale
+ * cada {@link Trabajador#getIntervaloSnapshot()} ticks (o cada más, al cliente que pidió
+ * menos snapshots por segundo): SNAPSHOT delta contra la última baseline confirmada por
+ * cada cliente binario (SNAPSHOT_CUANTIZADO si lo pidió) y, si mandó AREA, solo con los
+ * jugadores de su área; Movimiento + cambios en texto (el Movimiento trae solo a los
+ * jugadores 0 y 1: los de texto ven de a dos).
+ *
+ * Reanudar: un jugador binario que se queda sin red en plena partida no se va: su sesión
+ * queda suspendida (la moto frena, no se le manda nada) hasta que manda Reanudar con su
+ * token o se vence {@link Trabajador#SUSPENDIDA_NS}. Al volver recibe el SNAPSHOT completo,
+ * los pedidos activos y, si terminó mientras tanto, el final.
+ *
+ * Espectadores: hasta {@link #MAX_ESPECTADORES} sesiones binarias más, en
+ * sesiones[cupo..]: reciben eventos y estado como cualquiera pero no manejan, no cuentan
+ * para arrancar ni para terminar y ningún jugador las ve. Como no mandan AREA, los que
+ * confirmaron la misma baseline reciben el mismo SNAPSHOT: se arma una vez por tick.
+ *
+ * Solo la toca su trabajador, salvo {@link #ocupado} y {@link #mirando} (lobby, bajo el
+ * lock del Servidor).
+ */
+final class Partida {
+
+    /** Por defecto (-Dmotorepartidor.server.jugadores). */
+    public static final int JUGADORES = 2;
+    /** Lugares para mirar por partida (aparte de los jugadores). */
+    public static final int MAX_ESPECTADORES = 64;
+
+    // ===== Reglas =====
+    /** Salidas: de a 4 en columna (50 px) y las columnas alternando a los lados (30 px). */
+    static final float X_SALIDA = 1700f, Y_SALIDA = 500f;
+    static final float SEPARACION_X = 30f, SEPARACION_Y = 50f;
+    static final int SALIDAS_POR_COLUMNA = 4;
+    static final int VIDA_INICIAL = 100;
+    static final float NAFTA_INICIAL = 100f;
+    static final float NAFTA_MAXIMA = 100f;
+    static final int DINERO_OBJETIVO = 1000;
+    static final float CONSUMO = 0.012f;          // nafta por px recorrido (~40 s a fondo)
+    static final float CARGA = 25f;               // nafta por segundo en el surtidor
+    static final float MARGEN_DEALER = 24f;
+    static final float MARGEN_ENTREGA = 16f;
+    static final float VELOCIDAD_CHOQUE = 80f;    // menos que esto no lastima
+    static final float DANIO_POR_VELOCIDAD = 0.1f;
+    static final float PROBABILIDAD_PELIGROSO = 0.3f;
+
+    /** Un cliente que no pidió binario en este tiempo es de texto: se empieza igual. */
+    static final long ESPERA_BINARIO_NS = 300_000_000L;
+    /** Texto: cada cuánto se reenvía el estado completo aunque no cambie (pérdidas). */
+    static final long REFRESCO_TEXTO_NS = 1_000_000_000L;
+    /** Uno que ya va sale recién a esto (px) afuera del área: que no entre y salga en el borde. */
+    static final float HISTERESIS_AREA = 128f;
+
+    private static final int HINT_NADA = 0, HINT_DEALER = 1, HINT_ENTREGA = 2;
+
+    final int id;
+    /** Jugadores de la partida (todos los arrays van de 0 a cupo - 1, el índice es el id). */
+    final int cupo;
+    final Trabajador trabajador;
+    private final MapaServidor mapa;
+    private final Random random;
+
+    /** Lugares tomados en el lobby (bajo el lock del Servidor). */
+    final boolean[] ocupado;
+    /** Lugares de espectador tomados (ídem); el k es la sesión cupo + k. */
+    final boolean[] mirando = new boolean[MAX_ESPECTADORES];
+
+    // ===== Hilo del trabajador =====
+    /** Jugadores en [0, cupo) por id, espectadores después. */
+    final Sesion[] sesiones;
+    boolean enTrabajador;
+    boolean empezada, terminada, vacia;
+    long terminadaNs;
+    /** Con terminada: lo que mandó el GameOver (id + 1 o 3), o 0 si fue un OpponentLeft. */
+    private int ganador;
+    long tick;
+
+    private final EstadoMoto[] motos;
+    private final float[] gas;
+    private final int[] dinero;
+    private final int[] vida;
+    private final int[] hint;
+    private final boolean[] enGas;
+
+    // ===== Pedido activo de cada jugador =====
+    private final boolean[] conPedido;
+    private final int[] destino;
+    private final boolean[] peligroso;
+    private final int[] recompensa;
+
+    private final Snapshot[] historial = new Snapshot[ReconstructorSnapshots.HISTORIAL];
+    private final int[] campos;
+    /** Bits de los cupo jugadores (la vista de quien no mandó AREA). */
+    private final long todos;
+
+    // ===== SNAPSHOT de los espectadores (se reusa mientras no cambie tick, baseline o formato) =====
+    private ByteBuffer compartido; // con el primer espectador que lo usa
+    private long compartidoTick = -1, compartidoBaseline;
+    private boolean compartidoCuantizado;
+
+    // ===== Métricas =====
+    long pedidos, entregas, choques;
+
+    Partida(int id, Trabajador trabajador, MapaServidor mapa, int cupo) {
+        if (cupo < 2 || cupo > Snapshot.MAX_JUGADORES) throw new IllegalArgumentException("cupo " + cupo);
+        this.id = id;
+        this.cupo = cupo;
+        this.trabajador = trabajador;
+        this.mapa = mapa;
+        this.random = new Random(id * 0x9E3779B97F4A7C15L);
+        ocupado = new boolean[cupo];
+        sesiones = new Sesion[cupo + MAX_ESPECTADORES];
+        motos = new EstadoMoto[cupo];
+        gas = new float[cupo];
+        dinero = new int[cupo];
+        vida = new int[cupo];
+        hint = new int[cupo];
+        enGas = new boolean[cupo];
+        conPedido = new boolean[cupo];
+        destino = new int[cupo];
+        peligroso = new boolean[cupo];
+        recompensa = new int[cupo];
+        campos = new int[cupo];
+        todos = cupo == Long.SIZE ? -1L : (1L << cupo) - 1;
+        for (int i = 0; i < cupo; i++) motos[i] = new EstadoMoto();
+        for (int i = 0; i < historial.length; i++) historial[i] = new Snapshot();
+        reiniciarEstado();
+    }
+
+    /** 0 y 1 en las salidas de siempre (1700,500 y 1700,450); el resto al lado. */
+    static float xInicial(int i) {
+        int c = i / SALIDAS_POR_COLUMNA;
+        return X_SALIDA + (c + 1) / 2 * SEPARACION_X * (c % 2 == 1 ? 1 : -1);
+    }
+
+    static float yInicial(int i) {
+        return Y_SALIDA - i % SALIDAS_POR_COLUMNA * SEPARACION_Y;
+    }
+
+    private void reiniciarEstado() {
+        for (int i = 0; i < cupo; i++) {
+            motos[i].set(xInicial(i), yInicial(i), 0f, 0f);
+            gas[i] = NAFTA_INICIAL;
+            dinero[i] = 0;
+            vida[i] = VIDA_INICIAL;
+            hint[i] = HINT_NADA;
+            enGas[i] = false;
+            conPedido[i] = false;
+        }
+        for (Snapshot s : historial) s.limpiar();
+    }
+
+    // =========================================================
+    // Jugadores
+    // =========================================================
+
+    /**
+     * Conexion (o su reintento) de una sesión de esta partida: OK, ID (con el token para
+     * reanudar; un cliente viejo lee solo el slot) y a esperar. Van en texto y sin canal
+     * fiable (el cliente todavía no eligió binario): si se pierden, el reintento de la
+     * Conexion los vuelve a pedir.
+     */
+    void unir(Sesion s, long ahora) {
+        sesiones[s.slot] = s;
+        s.unida = true;
+        s.reiniciarRed(ahora);
+        // con el tamaño del mapa el cliente puede pedir posiciones cuantizadas
+        trabajador.enviarTexto(s, Protocolo.OK + ":" + Protocolo.VERSION + ":" + (int) mapa.getAncho() + ":" + (int) mapa.getAlto());
+        trabajador.enviarTexto(s, "ID:" + s.slot + ":" + s.token);
+    }
+
+    /**
+     * "Espectador" (o su reintento): Mirando con el mapa y ya es binario; la tasa como la
+     * pidió. Si la partida está en juego el primer snapshot le va completo.
+     */
+    void mirar(Sesion s, long ahora, int capacidades, int hz) {
+        sesiones[s.slot] = s;
+        s.unida = true;
+        s.reiniciarRed(ahora);
+        s.binario = true;
+        s.cuantizado = (capacidades & Protocolo.CAPACIDAD_CUANTIZADO) != 0;
+        s.minimoAck = tick + 1;
+        trabajador.enviarTexto(s, Protocolo.MIRANDO + ":" + Protocolo.VERSION + ":" + (int) mapa.getAncho() + ":" + (int) mapa.getAlto());
+        if (hz > 0) trabajador.aplicarTasa(s, hz);
+        // llegó con la partida andando: el Comienza que se perdió
+        if (empezada && !terminada) critico(s, Protocolo.COMIENZA, "Comienza");
+    }
+
+    /**
+     * Reanudar del cliente de s (ya en su dirección nueva): todo lo de red de cero como en
+     * el handshake, pero la moto, la plata y el pedido siguen. El primer Reanudar de cada
+     * corte reinicia y rearma; uno repetido (el cliente no vio todavía el Reanudada) solo
+     * repite la respuesta, que el canal ya arrancó de nuevo.
+     * @param reanudaciones Reanudada que el cliente ya vio
+     */
+    void reanudar(Sesion s, long ahora, int capacidades, int hz, int reanudaciones) {
+        boolean nuevo = reanudaciones == s.reanudaciones;
+        if (!nuevo && reanudaciones != s.reanudaciones - 1) return; // de un corte viejo
+        if (nuevo) {
+            s.reanudaciones++;
+            s.suspendida = false;
+            s.reiniciarRed(ahora);
+            s.binario = true;
+            s.cuantizado = (capacidades & Protocolo.CAPACIDAD_CUANTIZADO) != 0;
+            s.minimoAck = tick + 1; // sin ack, el próximo SNAPSHOT sale completo
+            trabajador.metricas.registrarReanudada();
+        }
+        trabajador.enviarTexto(s, Protocolo.REANUDADA + ":" + Protocolo.VERSION + ":" + s.slot);
+        if (!nuevo) return;
+        if (hz > 0) trabajador.aplicarTasa(s, hz);
+        resincronizar(s);
+    }
+
+    /**
+     * Lo que no viaja en el SNAPSHOT y se pudo perder en el corte: el pedido propio (o que
+     * ya no tiene), los de los demás, el Comienza y, si terminó, el final.
+     */
+    private void resincronizar(Sesion s) {
+        MapaServidor.Zonas e = mapa.getEntregas();
+        for (int i = 0; i < cupo; i++) {
+            if (conPedido[i]) {
+                int k = destino[i];
+                CodecBinario.escribirDelivery(trabajador.critico(), i, e.x[k], e.y[k], e.w[k], e.h[k], peligroso[i], recompensa[i]);
+                trabajador.enviarFiable(s);
+            } else if (i == s.slot) {
+                CodecBinario.escribirDeliveryFin(trabajador.critico(), i);
+                trabajador.enviarFiable(s);
+            }
+        }
+        if (empezada && !terminada) critico(s, Protocolo.COMIENZA, "Comienza");
+        if (!terminada) return;
+        if (ganador == 0) {
+            critico(s, Protocolo.OPPONENT_LEFT, "OpponentLeft");
+        } else {
+            CodecBinario.escribirGameOver(trabajador.critico(), ganador);
+            trabajador.enviarFiable(s);
+        }
+    }
+
+    /** Disconnect o timeout. */
+    void salir(Sesion s) {
+        if (sesiones[s.slot] != s) return;
+        sesiones[s.slot] = null;
+        if (s.espectador) {
+            // no cambia nada del juego; en el lobby puede ser lo último que quedaba
+            boolean sola = trabajador.liberarEspectador(this, s.slot - cupo);
+            if (!empezada) vacia = sola;
+            return;
+        }
+        if (!empezada) {
+            // todavía en el lobby: el lugar queda libre para otro
+            vacia = trabajador.liberar(this, s.slot);
+            return;
+        }
+        if (terminada) return;
+        if (cupo > 2 && getJugadoresUnidos() >= 2) {
+            // siguen los demás: la moto queda parada y cuenta como sin vida
+            vida[s.slot] = 0;
+            conPedido[s.slot] = false;
+            return;
+        }
+        for (Sesion o : sesiones) {
+            if (o == null) continue;
+            if (o.binario) {
+                CodecBinario.escribirVacio(trabajador.critico(), Protocolo.OPPONENT_LEFT);
+                trabajador.enviarFiable(o);
+            } else {
+                trabajador.enviarTexto(o, "OpponentLeft");
+            }
+        }
+        terminar(System.nanoTime());
+    }
+
+    private boolean lista(long ahora) {
+        for (int i = 0; i < cupo; i++) {
+            Sesion s = sesiones[i];
+            if (s == null || !s.unida) return false;
+            if (!s.binario && ahora - s.unidaNs < ESPERA_BINARIO_NS) return false;
+        }
+        return true;
+    }
+
+    private void empezar() {
+        empezada = true;
+        reiniciarEstado();
+        for (Sesion s : sesiones) {
+            if (s == null) continue;
+            // el Reset hace que el cliente olvide sus baselines: de acá en más, completos
+            s.ackSnapshot = ReceptorMensajes.SIN_TICK;
+            s.minimoAck = tick + 1;
+            s.refrescarTexto();
+            critico(s, Protocolo.RESET, "Reset");
+            critico(s, Protocolo.COMIENZA, "Comienza");
+        }
+    }
+
+    private void terminar(long ahora) {
+        terminada = true;
+        terminadaNs = ahora;
+        trabajador.terminada(this);
+    }
+
+    // =========================================================
+    // Tick
+    // =========================================================
+
+    void tick(long ahora, MapaColisiones paredes) {
+        if (!empezada) {
+            if (!lista(ahora)) return;
+            empezar();
+        }
+        if (terminada) return;
+        tick++;
+
+        for (int i = 0; i < cupo; i++) {
+            Sesion s = sesiones[i];
+            if (s != null && s.suspendida) s = null; // sin red: frena como si no tuviera teclas
+            if (s != null) s.tomarTeclas();
+            simular(i, s, paredes);
+        }
+        if (verificarFin(ahora)) return;
+        mandarEstado(ahora, false);
+    }
+
+    private void simular(int i, Sesion s, MapaColisiones paredes) {
+        // sin vida (de a más de dos se sigue jugando) la moto frena sola
+        int teclas = s != null && vida[i] > 0 ? s.teclas : 0;
+        EstadoMoto m = motos[i];
+        float antes = m.velocidad;
+        float x0 = m.x, y0 = m.y;
+
+        ModeloConduccion.paso(m, teclas & ModeloConduccion.MASCARA_MOVIMIENTO, gas[i] > 0f, paredes);
+
+        float dx = m.x - x0, dy = m.y - y0;
+        gas[i] = Math.max(0f, gas[i] - (float) Math.sqrt(dx * dx + dy * dy) * CONSUMO);
+
+        // frenar no baja de VELOCIDAD_CHOQUE a 0 en un tick: si pasó, fue una pared
+        if (Math.abs(antes) >= VELOCIDAD_CHOQUE && m.velocidad == 0f) {
+            int danio = Math.round(Math.abs(antes) * DANIO_POR_VELOCIDAD) * (conPedido[i] && peligroso[i] ? 2 : 1);
+            vida[i] = Math.max(0, vida[i] - danio);
+            choques++;
+        }
+
+        float cx = m.x + ModeloConduccion.ANCHO / 2f;
+        float cy = m.y + ModeloConduccion.ALTO / 2f;
+
+        enGas[i] = mapa.getGasolina().buscar(cx, cy, 0f) >= 0;
+        if (enGas[i] && (teclas & FlujoEntradas.G) != 0) gas[i] = Math.min(NAFTA_MAXIMA, gas[i] + CARGA * ModeloConduccion.DT);
+
+        boolean enDealer = mapa.getDealer().buscar(cx, cy, MARGEN_DEALER) >= 0;
+        boolean enDestino = conPedido[i] && mapa.getEntregas().contiene(destino[i], cx, cy, MARGEN_ENTREGA);
+        if (s != null && vida[i] > 0 && s.flanco(FlujoEntradas.E)) {
+            if (!conPedido[i] && enDealer) tomarPedido(i);
+            else if (enDestino) entregar(i);
+        }
+        hint[i] = conPedido[i] ? (enDestino ? HINT_ENTREGA : HINT_NADA) : (enDealer ? HINT_DEALER : HINT_NADA);
+    }
+
+    private void tomarPedido(int i) {
+        MapaServidor.Zonas e = mapa.getEntregas();
+        MapaServidor.Zonas d = mapa.getDealer();
+        int k = random.nextInt(e.getCantidad());
+        float dx = (e.x[k] + e.w[k] / 2f) - (d.x[0] + d.w[0] / 2f);
+        float dy = (e.y[k] + e.h[k] / 2f) - (d.y[0] + d.h[0] / 2f);
+        boolean p = random.nextFloat() < PROBABILIDAD_PELIGROSO;
+        // 50 + 1 por cada 20 px de distancia, redondeado a 10; peligroso paga el doble
+        int r = Math.round((50f + (float) Math.sqrt(dx * dx + dy * dy) / 20f) / 10f) * 10 * (p ? 2 : 1);
+
+        conPedido[i] = true;
+        destino[i] = k;
+        peligroso[i] = p;
+        recompensa[i] = r;
+        pedidos++;
+
+        for (Sesion s : sesiones) {
+            if (s == null) continue;
+            if (s.binario) {
+                CodecBinario.escribirDelivery(trabajador.critico(), i, e.x[k], e.y[k], e.w[k], e.h[k], p, r);
+                trabajador.enviarFiable(s);
+            } else {
+                trabajador.enviarTexto(s, "Delivery:" + e.x[k] + "," + e.y[k] + "," + e.w[k] + "," + e.h[k]
+                    + ":" + (p ? 1 : 0) + ":" + r + ":" + i);
+            }
+        }
+    }
+
+    private void entregar(int i) {
+        dinero[i] += recompensa[i];
+        conPedido[i] = false;
+        entregas++;
+        for (Sesion s : sesiones) {
+            if (s == null) continue;
+            if (s.binario) {
+                CodecBinario.escribirDeliveryFin(trabajador.critico(), i);
+                trabajador.enviarFiable(s);
+            } else {
+                trabajador.enviarTexto(s, "DeliveryFin:" + i);
+            }
+        }
+    }
+
+    /**
+     * GameOver si alguien llegó al objetivo o queda uno solo con vida (o ninguno).
+     * Candidatos: los que llegaron y el que quedó con vida (si no quedó nadie, todos). De
+     * a dos, si son los dos es empate; de a más gana el de más dinero (y el de id más bajo).
+     */
+    private boolean verificarFin(long ahora) {
+        int vivos = 0;
+        for (int i = 0; i < cupo; i++) if (vida[i] > 0) vivos++;
+        int ganador = 0, candidatos = 0;
+        for (int i = 0; i < cupo; i++) {
+            boolean candidato = dinero[i] >= DINERO_OBJETIVO || (vivos <= 1 && (vivos == 0 || vida[i] > 0));
+            if (!candidato) continue;
+            candidatos++;
+            if (ganador == 0 || dinero[i] > dinero[ganador - 1]) ganador = i + 1;
+        }
+        if (candidatos == 0) return false;
+        if (cupo == 2 && candidatos == 2) ganador = 3;
+        this.ganador = ganador;
+
+        mandarEstado(ahora, true); // que vean el último estado antes del cartel
+        for (Sesion s : sesiones) {
+            if (s == null) continue;
+            if (s.binario) {
+                CodecBinario.escribirGameOver(trabajador.critico(), ganador);
+                trabajador.enviarFiable(s);
+            } else {
+                trabajador.enviarTexto(s, "GameOver:" + ganador);
+            }
+        }
+        terminar(ahora);
+        return true;
+    }
+
+    private void critico(Sesion s, byte tipo, String texto) {
+        if (s.binario) {
+            CodecBinario.escribirVacio(trabajador.critico(), tipo);
+            trabajador.enviarFiable(s);
+        } else {
+            trabajador.enviarTexto(s, texto);
+        }
+    }
+
+    // =========================================================
+    // Estado
+    // =========================================================
+
+    /** @param todas también a las sesiones que con su tasa no les tocaba en este tick */
+    private void mandarEstado(long ahora, boolean todas) {
+        if (!todas && !tocaAlguna()) return;
+        Snapshot sn = historial[(int) tick & (historial.length - 1)];
+        sn.limpiar();
+        sn.tick = tick;
+        for (int i = 0; i < cupo; i++) {
+            sn.presente[i] = true;
+            sn.x[i] = motos[i].x;
+            sn.y[i] = motos[i].y;
+            sn.angulo[i] = motos[i].angulo;
+            sn.velocidad[i] = motos[i].velocidad;
+            sn.gas[i] = gas[i];
+            sn.dinero[i] = dinero[i];
+            sn.vida[i] = vida[i];
+            sn.hint[i] = hint[i];
+            sn.gasHint[i] = enGas[i];
+        }
+        for (Sesion s : sesiones) {
+            if (s == null || !s.unida || s.suspendida) continue;
+            if (!todas && !toca(s)) continue;
+            if (s.binario) snapshotBinario(s, sn);
+            else estadoTexto(s, sn, ahora);
+        }
+    }
+
+    private boolean toca(Sesion s) {
+        int intervalo = s.intervaloSnapshot > 0 ? s.intervaloSnapshot : trabajador.getIntervaloSnapshot();
+        return tick % intervalo == 0;
+    }
+
+    private boolean tocaAlguna() {
+        for (Sesion s : sesiones) if (s != null && s.unida && !s.suspendida && toca(s)) return true;
+        return false;
+    }
+
+    /**
+     * Contra la baseline confirmada y lo que el cliente tenía en ella: el que entró al área
+     * va completo, el que sigue con lo que cambió y el que salió con {@link Snapshot#SALE}.
+     */
+    private void snapshotBinario(Sesion s, Snapshot sn) {
+        Snapshot base = null;
+        long vistaBase = 0L;
+        if (s.ackSnapshot != ReceptorMensajes.SIN_TICK) {
+            int k = (int) s.ackSnapshot & (historial.length - 1);
+            if (historial[k].tick == s.ackSnapshot) {
+                base = historial[k];
+                vistaBase = s.vistas[k];
+            }
+        }
+        long baseline = base == null ? ReceptorMensajes.SIN_TICK : base.tick;
+        boolean compartible = s.espectador && !s.conArea;
+        if (compartible && compartidoTick == tick && compartidoBaseline == baseline && compartidoCuantizado == s.cuantizado) {
+            // igual al del espectador anterior: la misma vista (todos) contra la misma baseline
+            s.vistas[(int) tick & (historial.length - 1)] = todos;
+            compartido.rewind();
+            trabajador.salida().put(compartido);
+            trabajador.enviarSalida(s);
+            return;
+        }
+        long vista = vista(s, sn);
+        long salen = vistaBase & ~vista;
+        int cantidad = 0;
+        for (int i = 0; i < cupo; i++) {
+            long bit = 1L << i;
+            if ((vista & bit) == 0) campos[i] = Snapshot.SALE;
+            else campos[i] = (vistaBase & bit) != 0 ? sn.diferencias(base, i) : Snapshot.TODOS;
+            if (campos[i] != 0 || (salen & bit) != 0) cantidad++;
+        }
+        ByteBuffer out = trabajador.salida();
+        Cuantizacion q = s.cuantizado ? mapa.getCuantizacion() : null;
+        if (q != null) CodecBinario.escribirSnapshotCuantizado(out, tick, baseline, s.entradaAplicada, cantidad);
+        else CodecBinario.escribirSnapshot(out, tick, baseline, s.entradaAplicada, cantidad);
+        for (int i = 0; i < cupo; i++) {
+            if (campos[i] != 0 || (salen & 1L << i) != 0) CodecBinario.escribirSnapshotJugador(out, sn, i, campos[i], q);
+        }
+        s.vistas[(int) tick & (historial.length - 1)] = vista;
+        if (compartible) {
+            // guardarlo para los que siguen (enviarSalida lo vuelve a dar vuelta)
+            if (compartido == null) compartido = ByteBuffer.allocateDirect(Reensamblador.MAX_MENSAJE);
+            out.flip();
+            compartido.clear();
+            compartido.put(out);
+            compartido.flip();
+            compartidoTick = tick;
+            compartidoBaseline = baseline;
+            compartidoCuantizado = s.cuantizado;
+        }
+        trabajador.enviarSalida(s);
+        if (s.conArea) {
+            int propia = s.espectador ? 0 : 1;
+            trabajador.metricas.registrarArea(Long.bitCount(vista) - propia, cupo - propia);
+        }
+    }
+
+    /** Bits de los jugadores que le van a s: todos, o los de su área (y el propio). */
+    private long vista(Sesion s, Snapshot sn) {
+        if (!s.conArea) return todos;
+        long v = s.espectador ? 0L : 1L << s.slot;
+        for (int i = 0; i < cupo; i++) {
+            if (i == s.slot) continue;
+            float m = (s.enVista & 1L << i) != 0 ? HISTERESIS_AREA : 0f;
+            if (sn.x[i] >= s.areaMinX - m && sn.x[i] <= s.areaMaxX + m
+                && sn.y[i] >= s.areaMinY - m && sn.y[i] <= s.areaMaxY + m) {
+                v |= 1L << i;
+            }
+        }
+        s.enVista = v;
+        return v;
+    }
+
+    private void estadoTexto(Sesion s, Snapshot sn, long ahora) {
+        trabajador.enviarTexto(s, "Movimiento:(" + sn.x[0] + "," + sn.y[0] + "):(" + sn.x[1] + "," + sn.y[1] + "):"
+            + sn.angulo[0] + ":" + sn.angulo[1] + ":" + tick);
+
+        if (ahora - s.proximoRefrescoNs >= 0) {
+            s.refrescarTexto();
+            s.proximoRefrescoNs = ahora + REFRESCO_TEXTO_NS;
+        }
+        for (int i = 0; i < cupo; i++) {
+            if (s.gasEnviado[i] != sn.gas[i]) {
+                trabajador.enviarTexto(s, "Gas:" + sn.gas[i] + ":" + i + ":" + tick);
+                s.gasEnviado[i] = sn.gas[i];
+            }
+            if (s.dineroEnviado[i] != sn.dinero[i]) {
+                trabajador.enviarTexto(s, "Dinero:" + sn.dinero[i] + ":" + i + ":" + tick);
+                s.dineroEnviado[i] = sn.dinero[i];
+            }
+            if (s.vidaEnviada[i] != sn.vida[i]) {
+                trabajador.enviarTexto(s, "Vida:" + sn.vida[i] + ":" + i + ":" + tick);
+                s.vidaEnviada[i] = sn.vida[i];
+            }
+            if (s.hintEnviado[i] != sn.hint[i]) {
+                trabajador.enviarTexto(s, "Hint:" + i + ":" + sn.hint[i]);
+                s.hintEnviado[i] = sn.hint[i];
+            }
+            int g = sn.gasHint[i] ? 1 : 0;
+            if (s.gasHintEnviado[i] != g) {
+                trabajador.enviarTexto(s, "GasHint:" + i + ":" + g);
+                s.gasHintEnviado[i] = g;
+            }
+        }
+    }
+
+    /** Ack de SNAPSHOT: desde ahí se pueden mandar deltas (si es más nuevo y posterior al Reset). */
+    void confirmarSnapshot(Sesion s, long tick) {
+        if (tick < s.minimoAck || tick > this.tick) return;
+        if (s.ackSnapshot == ReceptorMensajes.SIN_TICK || tick > s.ackSnapshot) s.ackSnapshot = tick;
+    }
+
+    /** Algún jugador sin red esperando reanudar. */
+    boolean conSuspendidas() {
+        for (int i = 0; i < cupo; i++) if (sesiones[i] != null && sesiones[i].suspendida) return true;
+        return false;
+    }
+
+    int getJugadoresUnidos() {
+        int n = 0;
+        for (int i = 0; i < cupo; i++) if (sesiones[i] != null) n++;
+        return n;
+    }
+}
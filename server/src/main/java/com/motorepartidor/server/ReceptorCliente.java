@@ -0,0 +1,67 @@
+package com.motorepartidor.server;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Destino de los mensajes cliente -> server ya decodificados (texto o binario).
+ * Es el espejo de {@link red.ReceptorMensajes}: solo primitivos.
+ *
+ * Los métodos tienen cuerpo vacío: cada hilo implementa solo lo que atiende (el
+ * receptor contesta Sondeo y Ping al toque; el resto lo procesa el trabajador).
+ */
+public interface ReceptorCliente {
+
+    /** Handshake (o su reintento: el cliente repite hasta recibir el ID). */
+    default void onConexion() {}
+
+    /**
+     * Handshake de espectador (o su reintento): versión binaria, capacidades y tasa como
+     * en {@link #onBinario}, todo de una.
+     */
+    default void onEspectador(int version, int capacidades, int hz) {}
+
+    /**
+     * Reanudar (o su reintento): el cliente de la sesión de ese token volvió, quizás desde
+     * otra dirección. Versión, capacidades y tasa como en {@link #onBinario}; reanudaciones
+     * = cuántas respuestas Reanudada ya vio (distingue un reintento de un corte nuevo).
+     */
+    default void onReanudar(long token, int version, int capacidades, int hz, int reanudaciones) {}
+
+    /**
+     * El cliente acepta el formato binario en esa versión; capacidades = bits
+     * Protocolo.CAPACIDAD_* (0 si no manda) y hz = snapshots por segundo que quiere
+     * (0 si no dice).
+     */
+    default void onBinario(int version, int capacidades, int hz) {}
+
+    /** Descubrimiento: eco de secuencia y marca. */
+    default void onSondeo(long secuencia, long marca) {}
+
+    /** @param secuencia u32, o SIN_TICK si el cliente es viejo y no manda eco */
+    default void onPing(int id, long secuencia, long marca, boolean binario) {}
+
+    /** Evento de tecla (keycode de Gdx, negativo = soltada). Solo clientes de texto. */
+    default void onInput(int id, int keycode) {}
+
+    default void onDisconnect(int id) {}
+
+    /**
+     * ENTRADA: teclas de `cantidad` ticks, la de `secuencia` primero.
+     * @param bitsAck ack del canal confiable que viene al final (si conAck)
+     */
+    default void onEntrada(int id, int secuencia, byte[] mascaras, int cantidad,
+                           boolean conAck, int ack, int bitsAck) {}
+
+    default void onSnapshotAck(int id, long tick) {}
+
+    /** PEDIDO_TASA: el cliente quiere otra cantidad de snapshots por segundo. */
+    default void onPedidoTasa(int id, int hz) {}
+
+    /** AREA: el rectángulo (px del mundo) que le interesa al cliente. */
+    default void onArea(int id, int minX, int minY, int maxX, int maxY) {}
+
+    /** Sobre FIABLE completo ([position, limit)): lo abre el canal de la sesión. */
+    default void onFiable(ByteBuffer sobre) {}
+
+    default void onFiableAck(ByteBuffer frame) {}
+}
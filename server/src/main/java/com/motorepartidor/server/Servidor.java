@@ -0,0 +1,432 @@
+package com.motorepartidor.server;
+
+import red.CodecBinario;
+import red.DescubrimientoServidores;
+import red.Protocolo;
+import red.ReceptorMensajes;
+import red.Snapshot;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.NetworkInterface;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.DatagramChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.ArrayDeque;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Server autoritativo local: un socket UDP, un hilo receptor y N {@link Trabajador}es.
+ *
+ * El receptor lee todos los datagramas y:
+ * - contesta en el momento lo que no necesita estado de partida: Sondeo (descubrimiento)
+ *   y Ping (el Pong lleva los nanoTime de recepción y respuesta, ver RelojServidor);
+ * - a un "Conexion" de una dirección nueva le busca lugar (lobby) y le crea la sesión;
+ *   a un "Espectador", una partida para mirar (la última que arrancó, si no una del lobby);
+ * - un "Reanudar" trae el token de una sesión: la pasa a la dirección de la que vino;
+ * - el resto lo copia a la cola del trabajador dueño de esa partida.
+ *
+ * Las partidas nuevas van al trabajador con menos partidas. El lobby (qué partida tiene
+ * lugar) se comparte entre el receptor, que asigna, y los trabajadores, que liberan
+ * cuando alguien se va antes de empezar: está bajo el lock de esta clase.
+ */
+public final class Servidor {
+
+    public static final int PUERTO = 6767;
+    public static final int MAX_DATAGRAMA = 1500;
+    /** -Dmotorepartidor.server.mtu=N parte los frames de más de N bytes (Protocolo.MTU por defecto). */
+    public static final String PROP_MTU = "motorepartidor.server.mtu";
+
+    private final int puerto;
+    private final MapaServidor mapa;
+    private final int jugadoresPorPartida;
+    private final Trabajador[] trabajadores;
+    private final DatagramChannel canal;
+    private final ConcurrentHashMap<SocketAddress, Sesion> sesiones = new ConcurrentHashMap<>();
+    /** De las sesiones, cuántas son de espectadores. */
+    private final AtomicInteger espectadores = new AtomicInteger();
+    /** Las de jugadores por token, para el Reanudar (puede venir de otra dirección). */
+    private final ConcurrentHashMap<Long, Sesion> porToken = new ConcurrentHashMap<>();
+    private final SecureRandom tokens = new SecureRandom();
+
+    // ===== Lobby (synchronized) =====
+    private final ArrayDeque<Partida> conLugar = new ArrayDeque<>();
+    /** Completas, arrancadas o por arrancar, hasta que terminan: las que se pueden mirar. */
+    private final ArrayDeque<Partida> llenas = new ArrayDeque<>();
+    private int proximaPartida = 0;
+
+    // ===== Hilo receptor =====
+    private final Thread receptor;
+    private final ByteBuffer entrada = ByteBuffer.allocateDirect(MAX_DATAGRAMA).order(ByteOrder.LITTLE_ENDIAN);
+    private final ByteBuffer respuesta = ByteBuffer.allocateDirect(64).order(ByteOrder.LITTLE_ENDIAN);
+    private final CodecCliente codec = new CodecCliente();
+    private final Atajos atajos = new Atajos();
+    private volatile boolean activo = true;
+
+    // ===== Métricas del receptor =====
+    private volatile long paquetesEntrada, bytesEntrada, descartados;
+    private long inicioVentanaNs = System.nanoTime();
+    private long informadoPaquetes, informadoBytes, informadoDescartados;
+
+    public Servidor(int puerto, MapaServidor mapa, int trabajadores, int intervaloSnapshot) throws IOException {
+        this(puerto, mapa, trabajadores, intervaloSnapshot, Partida.JUGADORES);
+    }
+
+    /**
+     * @param trabajadores      hilos de simulación
+     * @param intervaloSnapshot cada cuántos ticks de 60 Hz sale el estado
+     * @param jugadores         por partida (2 a Snapshot.MAX_JUGADORES)
+     */
+    public Servidor(int puerto, MapaServidor mapa, int trabajadores, int intervaloSnapshot, int jugadores) throws IOException {
+        if (jugadores < 2 || jugadores > Snapshot.MAX_JUGADORES) throw new IllegalArgumentException("jugadores " + jugadores);
+        this.puerto = puerto;
+        this.mapa = mapa;
+        this.jugadoresPorPartida = jugadores;
+
+        canal = DatagramChannel.open(StandardProtocolFamily.INET);
+        canal.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+        canal.setOption(StandardSocketOptions.SO_BROADCAST, true);
+        canal.setOption(StandardSocketOptions.SO_RCVBUF, 4 << 20);
+        canal.setOption(StandardSocketOptions.SO_SNDBUF, 4 << 20);
+        canal.bind(new InetSocketAddress(puerto));
+        unirseMulticast();
+
+        int mtu = Math.max(CodecBinario.CABECERA_FRAGMENTO + 1,
+            Math.min(MAX_DATAGRAMA, Integer.getInteger(PROP_MTU, Protocolo.MTU)));
+        this.trabajadores = new Trabajador[Math.max(1, trabajadores)];
+        for (int i = 0; i < this.trabajadores.length; i++) {
+            this.trabajadores[i] = new Trabajador(i, this, canal, mapa, Math.max(1, intervaloSnapshot), mtu);
+        }
+        receptor = new Thread(this::recibir, "receptor");
+        receptor.setDaemon(true);
+    }
+
+    /** Grupo de descubrimiento en todas las interfaces que puedan (sin ninguna, solo broadcast). */
+    private void unirseMulticast() {
+        String grupo = System.getProperty(DescubrimientoServidores.PROP_MULTICAST, DescubrimientoServidores.MULTICAST_DEFECTO);
+        if (grupo.isEmpty()) return;
+        try {
+            InetAddress g = InetAddress.getByName(grupo);
+            Enumeration<NetworkInterface> ifs = NetworkInterface.getNetworkInterfaces();
+            while (ifs != null && ifs.hasMoreElements()) {
+                NetworkInterface ni = ifs.nextElement();
+                if (!ni.isUp() || !ni.supportsMulticast()) continue;
+                try {
+                    canal.join(g, ni);
+                } catch (IOException | IllegalArgumentException ignored) {
+                    // interfaz sin IPv4 o que no deja: las demás alcanzan
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("[server] sin multicast (" + e.getMessage() + "): solo broadcast y unicast");
+        }
+    }
+
+    public void iniciar() {
+        for (Trabajador t : trabajadores) t.start();
+        receptor.start();
+    }
+
+    public void detener() {
+        activo = false;
+        for (Trabajador t : trabajadores) t.detener();
+        try { canal.close(); } catch (IOException ignored) {}
+    }
+
+    // =========================================================
+    // Hilo receptor
+    // =========================================================
+
+    private void recibir() {
+        while (activo) {
+            try {
+                entrada.clear();
+                SocketAddress origen = canal.receive(entrada);
+                if (origen == null) continue;
+                long ahora = System.nanoTime();
+                entrada.flip();
+                paquetesEntrada++;
+                bytesEntrada += entrada.remaining();
+                despachar((InetSocketAddress) origen, ahora);
+            } catch (IOException e) {
+                if (activo) e.printStackTrace();
+            } catch (RuntimeException e) {
+                // datagrama raro: se descarta sin matar el receptor
+            }
+        }
+    }
+
+    private void despachar(InetSocketAddress origen, long ahora) {
+        Sesion s = sesiones.get(origen);
+        if (s != null) s.ultimoContactoNs = ahora;
+
+        // Sondeo, Ping y Conexion se miran acá mismo; el resto va al trabajador
+        atajos.preparar(origen, s, ahora);
+        if (esAtajo(entrada)) {
+            codec.decodificar(entrada, atajos);
+            if (atajos.atendido) return;
+            s = atajos.sesion;
+        }
+        if (s == null || s.cerrada) return;
+
+        Trabajador t = s.partida.trabajador;
+        Trabajador.Datagrama d = t.cola.reservar();
+        if (d == null) {
+            descartados++;
+            return;
+        }
+        d.largo = entrada.remaining();
+        entrada.get(d.datos, 0, d.largo);
+        d.sesion = s;
+        d.nanos = ahora;
+        t.cola.publicar();
+    }
+
+    /** Texto (handshake, Sondeo, Ping viejo) o PING binario: lo ve el receptor. */
+    private static boolean esAtajo(ByteBuffer b) {
+        return !CodecBinario.esBinario(b) || CodecBinario.tipo(b) == Protocolo.PING;
+    }
+
+    /** Lo que se contesta sin pasar por el trabajador. */
+    private final class Atajos implements ReceptorCliente {
+        InetSocketAddress origen;
+        Sesion sesion;
+        long recibido;
+        boolean atendido;
+
+        void preparar(InetSocketAddress origen, Sesion s, long ahora) {
+            this.origen = origen;
+            this.sesion = s;
+            this.recibido = ahora;
+            this.atendido = false;
+        }
+
+        @Override
+        public void onSondeo(long secuencia, long marca) {
+            atendido = true;
+            responder("Servidor:" + secuencia + ":" + marca + ":" + Protocolo.VERSION + ":" + getJugadores());
+        }
+
+        @Override
+        public void onPing(int id, long secuencia, long marca, boolean binario) {
+            atendido = true;
+            if (sesion == null) return; // de una sesión que ya cerramos
+            if (binario) {
+                respuesta.clear();
+                CodecBinario.escribirPong(respuesta, secuencia, marca, recibido, System.nanoTime());
+                respuesta.flip();
+                enviar(respuesta, origen);
+            } else if (secuencia == ReceptorMensajes.SIN_TICK) {
+                responder("Pong");
+            } else {
+                responder("Pong:" + secuencia + ":" + marca + ":" + recibido + ":" + System.nanoTime());
+            }
+        }
+
+        @Override
+        public void onConexion() {
+            // dirección nueva: lugar en el lobby; una conocida es un reintento (lo ve el trabajador)
+            if (sesion == null || sesion.cerrada) sesion = nuevaSesion(origen, recibido);
+        }
+
+        @Override
+        public void onEspectador(int version, int capacidades, int hz) {
+            // igual: el Mirando (o el reintento) lo manda el trabajador
+            if (sesion == null || sesion.cerrada) sesion = nuevoEspectador(origen, recibido);
+        }
+
+        @Override
+        public void onReanudar(long token, int version, int capacidades, int hz, int reanudaciones) {
+            // la sesión se muda a esta dirección; la respuesta la manda el trabajador
+            Sesion s = reanudar(token, origen, recibido);
+            if (s == null) atendido = true;
+            else sesion = s;
+        }
+
+        private void responder(String msg) {
+            enviar(ByteBuffer.wrap(msg.getBytes(StandardCharsets.UTF_8)), origen);
+        }
+    }
+
+    private void enviar(ByteBuffer datos, InetSocketAddress destino) {
+        try {
+            canal.send(datos, destino);
+        } catch (IOException ignored) {
+            // UDP: se pierde
+        }
+    }
+
+    // =========================================================
+    // Lobby
+    // =========================================================
+
+    private synchronized Sesion nuevaSesion(InetSocketAddress origen, long ahora) {
+        Partida p = conLugar.peekFirst();
+        if (p == null) p = nuevaPartida();
+        int slot = 0;
+        while (p.ocupado[slot]) slot++;
+        p.ocupado[slot] = true;
+        if (lugaresLibres(p) == 0) {
+            conLugar.remove(p);
+            llenas.addLast(p);
+        }
+
+        long token;
+        do {
+            token = tokens.nextLong() & Long.MAX_VALUE;
+        } while (token == 0 || porToken.containsKey(token));
+        Sesion s = new Sesion(origen, p, slot, token, p.trabajador, ahora);
+        sesiones.put(origen, s);
+        porToken.put(token, s);
+        return s;
+    }
+
+    /**
+     * Lugar para mirar: la última partida que se llenó, si no la del lobby con más gente
+     * (arranca cuando se llene) y si no hay ninguna, una nueva. Null si todas las que
+     * hay tienen los {@link Partida#MAX_ESPECTADORES} (el cliente reintenta).
+     */
+    private synchronized Sesion nuevoEspectador(InetSocketAddress origen, long ahora) {
+        Partida p = conLugarParaMirar(llenas.descendingIterator());
+        if (p == null) p = conLugarParaMirar(conLugar.iterator());
+        if (p == null && conLugar.isEmpty()) p = nuevaPartida();
+        if (p == null) return null;
+        int k = 0;
+        while (p.mirando[k]) k++;
+        p.mirando[k] = true;
+
+        Sesion s = new Sesion(origen, p, p.cupo + k, 0L, p.trabajador, ahora);
+        sesiones.put(origen, s);
+        espectadores.incrementAndGet();
+        return s;
+    }
+
+    private static Partida conLugarParaMirar(Iterator<Partida> it) {
+        while (it.hasNext()) {
+            Partida p = it.next();
+            for (boolean m : p.mirando) if (!m) return p;
+        }
+        return null;
+    }
+
+    private Partida nuevaPartida() {
+        Trabajador t = menosCargado();
+        Partida p = new Partida(proximaPartida++, t, mapa, jugadoresPorPartida);
+        t.asignadas.incrementAndGet();
+        conLugar.addLast(p);
+        return p;
+    }
+
+    /**
+     * Alguien se fue antes de que empiece la partida (lo llama el trabajador).
+     * @return true si la partida quedó vacía (el trabajador la descarta)
+     */
+    synchronized boolean liberar(Partida p, int slot) {
+        p.ocupado[slot] = false;
+        llenas.remove(p);
+        if (lugaresLibres(p) == p.cupo && !conEspectadores(p)) {
+            conLugar.remove(p);
+            return true;
+        }
+        if (!conLugar.contains(p)) conLugar.addFirst(p); // la que ya tiene gente, primero
+        return false;
+    }
+
+    /** Un espectador se fue; true si la partida quedó sin nadie (solo cuenta en el lobby). */
+    synchronized boolean liberarEspectador(Partida p, int k) {
+        p.mirando[k] = false;
+        if (lugaresLibres(p) < p.cupo || conEspectadores(p)) return false;
+        conLugar.remove(p);
+        return true;
+    }
+
+    /** La partida terminó (lo llama el trabajador): ya no se ofrece para mirar. */
+    synchronized void descartar(Partida p) {
+        llenas.remove(p);
+        conLugar.remove(p);
+    }
+
+    private static boolean conEspectadores(Partida p) {
+        for (boolean m : p.mirando) if (m) return true;
+        return false;
+    }
+
+    private static int lugaresLibres(Partida p) {
+        int n = 0;
+        for (boolean o : p.ocupado) if (!o) n++;
+        return n;
+    }
+
+    private Trabajador menosCargado() {
+        Trabajador mejor = trabajadores[0];
+        for (Trabajador t : trabajadores) if (t.getCantidadPartidas() < mejor.getCantidadPartidas()) mejor = t;
+        return mejor;
+    }
+
+    /**
+     * Reanudar: la sesión del token, si sigue abierta, pasa a recibirse y mandarse por
+     * origen (el cliente pudo cambiar de IP o de puerto). Bajo el lock para no cruzarse
+     * con {@link #olvidar}. @return null si no hay ninguna
+     */
+    private synchronized Sesion reanudar(long token, InetSocketAddress origen, long ahora) {
+        Sesion s = porToken.get(token);
+        if (s == null || s.cerrada) return null;
+        InetSocketAddress vieja = s.direccion;
+        if (!vieja.equals(origen)) {
+            s.direccion = origen;
+            sesiones.put(origen, s);
+            sesiones.remove(vieja, s);
+        }
+        s.ultimoContactoNs = ahora;
+        return s;
+    }
+
+    /** La sesión terminó (la llama su trabajador): sus paquetes ya no se rutean. */
+    synchronized void olvidar(Sesion s) {
+        if (sesiones.remove(s.direccion, s) && s.espectador) espectadores.decrementAndGet();
+        if (s.token != 0) porToken.remove(s.token, s);
+    }
+
+    // =========================================================
+    // Métricas
+    // =========================================================
+
+    /** Junta la ventana de todos los trabajadores y arranca otra. */
+    public Metricas.Resumen tomarResumen() {
+        Metricas.Resumen r = new Metricas.Resumen();
+        for (Trabajador t : trabajadores) {
+            t.metricas.volcarEn(r);
+            r.cantidadPartidas += t.getCantidadPartidas();
+        }
+        long ahora = System.nanoTime();
+        r.ns = ahora - inicioVentanaNs;
+        inicioVentanaNs = ahora;
+        // los escribe solo el receptor: leer y restar lo ya informado
+        long p = paquetesEntrada, b = bytesEntrada, d = descartados;
+        r.paquetesEntrada = p - informadoPaquetes;
+        r.bytesEntrada = b - informadoBytes;
+        r.descartados = d - informadoDescartados;
+        informadoPaquetes = p;
+        informadoBytes = b;
+        informadoDescartados = d;
+        int e = espectadores.get();
+        r.jugadores = sesiones.size() - e;
+        r.espectadores = e;
+        return r;
+    }
+
+    public int getPuerto() { return puerto; }
+    /** Sesiones que manejan (sin los espectadores). */
+    public int getJugadores() { return sesiones.size() - espectadores.get(); }
+    public int getEspectadores() { return espectadores.get(); }
+    public int getTrabajadores() { return trabajadores.length; }
+}
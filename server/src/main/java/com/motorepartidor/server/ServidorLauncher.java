@@ -0,0 +1,56 @@
+package com.motorepartidor.server;
+
+import com.motorepartidor.fisica.ModeloConduccion;
+import red.Snapshot;
+
+import java.io.File;
+
+/**
+ * Arranca el server local sin ventana.
+ *
+ * Uso: ServidorLauncher [puerto]  (6767 por defecto), más propiedades opcionales:
+ * -Dmotorepartidor.server.trabajadores=N  hilos de simulación (por defecto, uno por núcleo)
+ * -Dmotorepartidor.server.snapshots=HZ    estado por segundo a cada cliente (30; los clientes pueden pedir menos)
+ * -Dmotorepartidor.server.mapa=ruta       .tmx (map/Map.tmx, o assets/map/Map.tmx)
+ * -Dmotorepartidor.server.reporte=S       cada cuántos segundos imprimir tiempos (5; 0 = nunca)
+ * -Dmotorepartidor.server.mtu=N           frames más largos salen partidos (1200)
+ * -Dmotorepartidor.server.jugadores=N     por partida (2; hasta 64, la partida arranca con todos)
+ */
+public class ServidorLauncher {
+
+    public static final String PROP_TRABAJADORES = "motorepartidor.server.trabajadores";
+    public static final String PROP_SNAPSHOTS = "motorepartidor.server.snapshots";
+    public static final String PROP_MAPA = "motorepartidor.server.mapa";
+    public static final String PROP_REPORTE = "motorepartidor.server.reporte";
+    public static final String PROP_JUGADORES = "motorepartidor.server.jugadores";
+
+    public static void main(String[] args) throws Exception {
+        int puerto = args.length > 0 ? Integer.parseInt(args[0]) : Servidor.PUERTO;
+        int trabajadores = Integer.getInteger(PROP_TRABAJADORES, Runtime.getRuntime().availableProcessors());
+        int hz = Math.max(1, Math.min(ModeloConduccion.TICKS_POR_SEGUNDO, Integer.getInteger(PROP_SNAPSHOTS, 30)));
+        int reporte = Integer.getInteger(PROP_REPORTE, 5);
+        int jugadores = Math.max(2, Math.min(Snapshot.MAX_JUGADORES, Integer.getInteger(PROP_JUGADORES, Partida.JUGADORES)));
+
+        MapaServidor mapa = MapaServidor.cargar(buscarMapa());
+        Servidor servidor = new Servidor(puerto, mapa, trabajadores, Math.round((float) ModeloConduccion.TICKS_POR_SEGUNDO / hz), jugadores);
+        Runtime.getRuntime().addShutdownHook(new Thread(servidor::detener));
+        servidor.iniciar();
+
+        System.out.println("[server] escuchando en UDP " + puerto + " | " + servidor.getTrabajadores() + " trabajadores, "
+            + hz + " snapshots/s, " + jugadores + " jugadores por partida | mapa " + (int) mapa.getAncho() + "x" + (int) mapa.getAlto() + " px, "
+            + mapa.getParedes().getCantidad() + " paredes, " + mapa.getGasolina().getCantidad() + " surtidores, "
+            + mapa.getEntregas().getCantidad() + " entregas");
+
+        while (true) {
+            Thread.sleep(reporte > 0 ? reporte * 1000L : Long.MAX_VALUE);
+            System.out.println(servidor.tomarResumen());
+        }
+    }
+
+    private static File buscarMapa() {
+        String ruta = System.getProperty(PROP_MAPA);
+        if (ruta != null) return new File(ruta);
+        File f = new File("map/Map.tmx");
+        return f.exists() ? f : new File("assets/map/Map.tmx");
+    }
+}
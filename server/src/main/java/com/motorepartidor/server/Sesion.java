@@ -0,0 +1,216 @@
+package com.motorepartidor.server;
+
+import red.CanalFiable;
+import red.FlujoEntradas;
+import red.ReceptorEntradas;
+import red.ReceptorMensajes;
+import red.ReconstructorSnapshots;
+
+import java.net.InetSocketAddress;
+
+/**
+ * Un cliente conectado: su dirección, su lugar en la partida y el estado de red que
+ * corresponde a ese cliente (formato, canal confiable, entradas pendientes, baseline de
+ * snapshots, área de interés y lo último que se le mandó en texto).
+ *
+ * La crea el hilo receptor; todo lo que no es final o volatile es del trabajador.
+ */
+final class Sesion {
+
+    /** Entradas esperando su tick; si se juntan más, se comprimen (ver {@link #encolarEntrada}). */
+    static final int COLA_ENTRADAS = 8;
+    /**
+     * Colchón de entradas contra el jitter. Si la cola pasa de esto durante
+     * {@link #TICKS_SOBRANTE} seguidos no es jitter: el cliente quedó adelantado (se
+     * trabó un momento y después mandó de golpe) y cada entrada de más es un tick de
+     * retraso para siempre. Se comprime una para ir bajando.
+     */
+    static final int COLA_OBJETIVO = 2;
+    static final int TICKS_SOBRANTE = 30;
+
+    /** Cambia si el cliente reanuda desde otra dirección (la mueve el receptor). */
+    volatile InetSocketAddress direccion;
+    final Partida partida;
+    final int slot;
+    /** Mira sin manejar: su slot está después de los jugadores (ver {@link Partida#mirar}). */
+    final boolean espectador;
+    /** Va en el ID; con él el cliente reanuda la sesión si se le corta la red (0 = espectador). */
+    final long token;
+    final long creadaNs;
+
+    /** Último paquete de este cliente (lo toca el receptor, lo mira el trabajador). */
+    volatile long ultimoContactoNs;
+    volatile boolean cerrada;
+
+    // ===== Hilo del trabajador =====
+    boolean unida;
+    long unidaNs;
+    /**
+     * Sin contacto en plena partida: se espera el Reanudar en vez de cerrarla. No maneja
+     * (la moto frena) y no se le manda nada.
+     */
+    boolean suspendida;
+    /** Reanudar atendidos (el cliente manda cuántos vio: así se reconoce uno repetido). */
+    int reanudaciones;
+    boolean binario;
+    /** Pidió posiciones cuantizadas (SNAPSHOT_CUANTIZADO). */
+    boolean cuantizado;
+    /**
+     * Cada cuántos ticks le sale el estado según la tasa que pidió, o 0 si no pidió
+     * (el intervalo del server; ver {@link Trabajador#aplicarTasa}).
+     */
+    int intervaloSnapshot;
+    final CanalFiable canal = new CanalFiable();
+    final CanalFiable.Salida salidaFiable;
+    final ReceptorEntradas receptorEntradas = new ReceptorEntradas();
+
+    // entradas recibidas y todavía no aplicadas (FIFO circular)
+    private final int[] colaSecuencia = new int[COLA_ENTRADAS];
+    private final int[] colaTeclas = new int[COLA_ENTRADAS];
+    private int colaInicio, colaCantidad;
+    private int ticksSobrante;
+
+    /** Teclas apretadas según los Input (solo texto) y los toques desde el último tick. */
+    int teclasTexto;
+    int apretadasTexto;
+    /** Teclas aplicadas en este tick y en el anterior (para los flancos de G/E). */
+    int teclas;
+    int teclasAnteriores;
+    /** Última secuencia de ENTRADA aplicada (u32), o SIN_TICK. */
+    long entradaAplicada = ReceptorMensajes.SIN_TICK;
+    long entradasComprimidas;
+
+    /** Último tick de snapshot que el cliente confirmó, o SIN_TICK (= mandar completo). */
+    long ackSnapshot = ReceptorMensajes.SIN_TICK;
+    /** Acks anteriores a este tick son de antes del Reset: no sirven de baseline. */
+    long minimoAck = 0;
+
+    // ===== Área de interés (AREA) =====
+    /** Mandó AREA: le van solo los jugadores de su área. Si no, todos (clientes viejos). */
+    boolean conArea;
+    int areaMinX, areaMinY, areaMaxX, areaMaxY;
+    /** Bit i = el jugador i fue en el último snapshot (para la histéresis del borde). */
+    long enVista;
+    /**
+     * enVista de cada snapshot que se le mandó, indexado por tick como el historial de la
+     * partida: qué jugadores tiene el cliente en cada baseline que puede confirmar.
+     */
+    final long[] vistas = new long[ReconstructorSnapshots.HISTORIAL];
+
+    // ===== Lo último mandado en texto, por jugador (se reenvía si cambió o para refrescar) =====
+    final float[] gasEnviado;
+    final int[] dineroEnviado;
+    final int[] vidaEnviada;
+    final int[] hintEnviado;
+    final int[] gasHintEnviado;
+    long proximoRefrescoNs;
+
+    Sesion(InetSocketAddress direccion, Partida partida, int slot, long token, Trabajador trabajador, long ahora) {
+        this.direccion = direccion;
+        this.partida = partida;
+        this.slot = slot;
+        this.espectador = slot >= partida.cupo;
+        this.token = token;
+        this.gasEnviado = new float[partida.cupo];
+        this.dineroEnviado = new int[partida.cupo];
+        this.vidaEnviada = new int[partida.cupo];
+        this.hintEnviado = new int[partida.cupo];
+        this.gasHintEnviado = new int[partida.cupo];
+        this.creadaNs = ahora;
+        this.ultimoContactoNs = ahora;
+        this.salidaFiable = sobre -> trabajador.enviar(sobre, this.direccion);
+    }
+
+    /** Olvida lo mandado en texto: el próximo estado sale completo. */
+    void refrescarTexto() {
+        for (int i = 0; i < gasEnviado.length; i++) {
+            gasEnviado[i] = -1f;
+            dineroEnviado[i] = vidaEnviada[i] = Integer.MIN_VALUE;
+            hintEnviado[i] = gasHintEnviado[i] = -1;
+        }
+    }
+
+    /** Handshake (o su reintento): el cliente arranca todo de cero. */
+    void reiniciarRed(long ahora) {
+        refrescarTexto();
+        binario = false;
+        cuantizado = false;
+        intervaloSnapshot = 0;
+        conArea = false;
+        enVista = 0L;
+        canal.reiniciar();
+        receptorEntradas.reiniciar();
+        colaInicio = colaCantidad = ticksSobrante = 0;
+        teclasTexto = apretadasTexto = 0;
+        teclas = teclasAnteriores = 0;
+        entradaAplicada = ReceptorMensajes.SIN_TICK;
+        ackSnapshot = ReceptorMensajes.SIN_TICK;
+        unidaNs = ahora;
+    }
+
+    /** Entradas nuevas que dejó el último {@link ReceptorEntradas#aceptar}. */
+    void encolarEntradas(int nuevas) {
+        for (int i = 0; i < nuevas; i++) {
+            encolarEntrada(receptorEntradas.getSecuencia(i), receptorEntradas.getTeclas(i));
+        }
+    }
+
+    private void encolarEntrada(int secuencia, int t) {
+        // el cliente va más rápido que el server (o llegó una ráfaga)
+        if (colaCantidad == COLA_ENTRADAS) comprimirVieja();
+        int i = (colaInicio + colaCantidad) % COLA_ENTRADAS;
+        colaSecuencia[i] = secuencia;
+        colaTeclas[i] = t;
+        colaCantidad++;
+    }
+
+    /** Input de texto: keycode de Gdx ya traducido a bit de FlujoEntradas. */
+    void tecla(int bit, boolean apretada) {
+        if (apretada) {
+            teclasTexto |= bit;
+            apretadasTexto |= bit; // un toque más corto que un tick igual cuenta
+        } else {
+            teclasTexto &= ~bit;
+        }
+    }
+
+    /**
+     * Teclas para este tick. En binario consume una entrada de la cola; si no llegó
+     * ninguna se repite la anterior (la secuencia confirmada no avanza).
+     */
+    void tomarTeclas() {
+        teclasAnteriores = teclas;
+        if (!binario) {
+            teclas = teclasTexto | apretadasTexto;
+            apretadasTexto = 0;
+            return;
+        }
+        if (colaCantidad == 0) return;
+        if (colaCantidad <= COLA_OBJETIVO) {
+            ticksSobrante = 0;
+        } else if (++ticksSobrante >= TICKS_SOBRANTE) {
+            ticksSobrante = 0;
+            comprimirVieja();
+        }
+        teclas = colaTeclas[colaInicio];
+        entradaAplicada = colaSecuencia[colaInicio] & 0xFFFFFFFFL;
+        colaInicio = (colaInicio + 1) % COLA_ENTRADAS;
+        colaCantidad--;
+    }
+
+    /** Saltea la entrada más vieja; sus toques de G/E pasan a la siguiente para no perderlos. */
+    private void comprimirVieja() {
+        int viejo = colaInicio;
+        colaInicio = (colaInicio + 1) % COLA_ENTRADAS;
+        colaCantidad--;
+        colaTeclas[colaInicio] |= colaTeclas[viejo] & (FlujoEntradas.G | FlujoEntradas.E);
+        entradasComprimidas++;
+    }
+
+    /** Tecla que se apretó en este tick (flanco 0 -> 1). */
+    boolean flanco(int bit) {
+        return (teclas & bit) != 0 && (teclasAnteriores & bit) == 0;
+    }
+
+    int getColaEntradas() { return colaCantidad; }
+}
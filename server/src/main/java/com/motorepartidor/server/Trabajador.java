@@ -0,0 +1,381 @@
+package com.motorepartidor.server;
+
+import com.badlogic.gdx.Input;
+import com.motorepartidor.fisica.MapaColisiones;
+import com.motorepartidor.fisica.ModeloConduccion;
+import red.CanalFiable;
+import red.CodecBinario;
+import red.ColaSpsc;
+import red.FlujoEntradas;
+import red.Fragmentador;
+import red.Protocolo;
+import red.Reensamblador;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.DatagramChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hilo que simula un grupo de partidas a tick fijo (60 Hz, {@link ModeloConduccion#TICK_NS}).
+ *
+ * Cada partida vive en un solo trabajador, así que nada de la simulación necesita locks.
+ * El receptor le pasa los datagramas de sus sesiones por una {@link ColaSpsc}; en cada
+ * tick el trabajador drena la cola, avanza todas sus partidas, manda estado y eventos y
+ * atiende las retransmisiones del canal confiable. Entre ticks duerme.
+ *
+ * Si un tick viene muy atrasado (GC, máquina saturada) no se recuperan todos los ticks
+ * perdidos de golpe: se saltea y se cuenta en las métricas.
+ */
+final class Trabajador extends Thread implements ReceptorCliente {
+
+    static final int CAPACIDAD_COLA = 4096;
+    /** Más atraso que esto y se saltean ticks en vez de correr para alcanzar. */
+    static final int TICKS_MAX_ATRASO = 5;
+    /** Sin ningún paquete (los pings son cada 250 ms) se da por ido. */
+    static final long TIMEOUT_NS = 5_000_000_000L;
+    /**
+     * Un jugador binario en plena partida no se da por ido en {@link #TIMEOUT_NS}: queda
+     * suspendido esperando que reanude (un corte de Wi-Fi) hasta TIMEOUT_NS + esto sin
+     * contacto. Aguanta un poco más que el cliente, que se rinde a los 20 s de notar el corte.
+     */
+    static final long SUSPENDIDA_NS = 20_000_000_000L;
+    /** Después del GameOver se sigue atendiendo el canal un rato para que lleguen los eventos. */
+    static final long CIERRE_NS = 3_000_000_000L;
+
+    /** Un datagrama de una sesión, copiado por el receptor. */
+    static final class Datagrama {
+        final byte[] datos = new byte[Servidor.MAX_DATAGRAMA];
+        final ByteBuffer vista = ByteBuffer.wrap(datos).order(ByteOrder.LITTLE_ENDIAN);
+        int largo;
+        Sesion sesion;
+        long nanos;
+    }
+
+    private final Servidor servidor;
+    private final DatagramChannel canal;
+    private final MapaColisiones paredes;
+    private final int intervaloSnapshot;
+    final ColaSpsc<Datagrama> cola = new ColaSpsc<>(CAPACIDAD_COLA, Datagrama::new);
+    final Metricas metricas = new Metricas();
+
+    private final List<Partida> partidas = new ArrayList<>();
+    /** Partidas asignadas (para repartir carga; lo incrementa el receptor). */
+    final AtomicInteger asignadas = new AtomicInteger();
+
+    /** Un frame puede pasar del MTU (ej. un snapshot con muchos jugadores): sale partido. */
+    private final ByteBuffer salida = ByteBuffer.allocateDirect(Reensamblador.MAX_MENSAJE).order(ByteOrder.LITTLE_ENDIAN);
+    private final Fragmentador fragmentador;
+    private final ByteBuffer critico = ByteBuffer.allocate(256).order(ByteOrder.LITTLE_ENDIAN);
+    private final CodecCliente codec = new CodecCliente();
+    private final CanalFiable.Entrega entregaFiable = this::entregarFiable;
+
+    private Sesion actual; // la del datagrama que se está procesando
+    private long ahora;
+    private volatile boolean activo = true;
+
+    Trabajador(int numero, Servidor servidor, DatagramChannel canal, MapaServidor mapa, int intervaloSnapshot, int mtu) {
+        super("trabajador-" + numero);
+        setDaemon(true);
+        this.servidor = servidor;
+        this.canal = canal;
+        this.paredes = mapa.crearColisiones();
+        this.intervaloSnapshot = intervaloSnapshot;
+        this.fragmentador = new Fragmentador(mtu);
+    }
+
+    void detener() {
+        activo = false;
+        LockSupport.unpark(this);
+    }
+
+    @Override
+    public void run() {
+        long proximo = System.nanoTime();
+        while (activo) {
+            long t = System.nanoTime();
+            long resta = proximo - t;
+            if (resta > 0) {
+                LockSupport.parkNanos(resta);
+                continue;
+            }
+            long atraso = -resta;
+            ahora = t;
+
+            drenar();
+            for (int i = 0; i < partidas.size(); i++) {
+                Partida p = partidas.get(i);
+                long t0 = System.nanoTime();
+                p.tick(ahora, paredes);
+                atenderCanales(p);
+                metricas.registrarPartida(System.nanoTime() - t0);
+            }
+            limpiar();
+            metricas.registrarTick(System.nanoTime() - t, atraso);
+
+            proximo += ModeloConduccion.TICK_NS;
+            if (t - proximo > TICKS_MAX_ATRASO * ModeloConduccion.TICK_NS) {
+                proximo = t + ModeloConduccion.TICK_NS;
+                metricas.registrarSalto();
+            }
+        }
+    }
+
+    private void drenar() {
+        Datagrama d;
+        while ((d = cola.siguiente()) != null) {
+            actual = d.sesion;
+            d.sesion = null;
+            if (!actual.cerrada) {
+                if (!actual.partida.enTrabajador) {
+                    actual.partida.enTrabajador = true;
+                    partidas.add(actual.partida);
+                }
+                d.vista.limit(d.largo).position(0);
+                codec.decodificar(d.vista, this);
+            }
+            cola.liberar();
+        }
+        actual = null;
+    }
+
+    private void atenderCanales(Partida p) {
+        for (Sesion s : p.sesiones) {
+            if (s == null) continue;
+            long sinContacto = ahora - s.ultimoContactoNs;
+            if (sinContacto > TIMEOUT_NS) {
+                if (!s.suspendida && suspendible(s)) {
+                    s.suspendida = true;
+                    metricas.registrarSuspendida();
+                }
+                if (!s.suspendida || sinContacto > TIMEOUT_NS + SUSPENDIDA_NS) {
+                    cerrar(s);
+                    continue;
+                }
+            }
+            // suspendida no escucha nadie: ni retransmisiones (al reanudar se rearma todo)
+            if (s.binario && !s.suspendida) s.canal.atender(ahora, s.salidaFiable);
+        }
+    }
+
+    /** Tiene con qué reanudar (token y binario) y una partida en juego que perder. */
+    private static boolean suspendible(Sesion s) {
+        return s.token != 0 && s.binario && s.partida.empezada && !s.partida.terminada;
+    }
+
+    /**
+     * Saca las partidas vacías o terminadas hace rato (y olvida sus sesiones). Una
+     * terminada espera a sus suspendidos: al reanudar se enteran de cómo terminó.
+     */
+    private void limpiar() {
+        for (int i = partidas.size() - 1; i >= 0; i--) {
+            Partida p = partidas.get(i);
+            boolean fin = p.vacia || (p.terminada && ahora - p.terminadaNs > CIERRE_NS && !p.conSuspendidas());
+            if (!fin) continue;
+            for (Sesion s : p.sesiones) if (s != null) cerrar(s);
+            partidas.remove(i);
+            asignadas.decrementAndGet();
+        }
+    }
+
+    private void cerrar(Sesion s) {
+        s.cerrada = true;
+        s.partida.salir(s);
+        servidor.olvidar(s);
+    }
+
+    // =========================================================
+    // Mensajes de las sesiones
+    // =========================================================
+
+    @Override
+    public void onConexion() {
+        if (!actual.espectador) actual.partida.unir(actual, ahora);
+    }
+
+    @Override
+    public void onEspectador(int version, int capacidades, int hz) {
+        if (actual.espectador && version == Protocolo.VERSION) actual.partida.mirar(actual, ahora, capacidades, hz);
+    }
+
+    @Override
+    public void onReanudar(long token, int version, int capacidades, int hz, int reanudaciones) {
+        Sesion s = actual;
+        if (s.espectador || !s.unida || token != s.token || version != Protocolo.VERSION) return;
+        s.partida.reanudar(s, ahora, capacidades, hz, reanudaciones);
+    }
+
+    @Override
+    public void onBinario(int version, int capacidades, int hz) {
+        if (!actual.unida || actual.espectador) return;
+        actual.binario = version == Protocolo.VERSION;
+        actual.cuantizado = actual.binario && (capacidades & Protocolo.CAPACIDAD_CUANTIZADO) != 0;
+        // un cliente que pide tasa entiende TASA; a los demás se les manda a la del server
+        if (actual.binario && hz > 0) aplicarTasa(actual, hz);
+    }
+
+    @Override
+    public void onPedidoTasa(int id, int hz) {
+        if (actual.binario) aplicarTasa(actual, hz);
+    }
+
+    /**
+     * Snapshots cada round(60 / hz) ticks, sin pasar de los del server ni bajar de
+     * {@link Protocolo#TASA_MINIMA}; se le contesta con lo aplicado y el máximo.
+     */
+    void aplicarTasa(Sesion s, int hz) {
+        int maxima = ModeloConduccion.TICKS_POR_SEGUNDO / intervaloSnapshot;
+        hz = Math.max(Protocolo.TASA_MINIMA, Math.min(hz, maxima));
+        int intervalo = Math.max(intervaloSnapshot, Math.round((float) ModeloConduccion.TICKS_POR_SEGUNDO / hz));
+        if (s.intervaloSnapshot != 0 && intervalo != s.intervaloSnapshot) metricas.registrarCambioTasa();
+        s.intervaloSnapshot = intervalo;
+        CodecBinario.escribirTasa(critico(), ModeloConduccion.TICKS_POR_SEGUNDO / intervalo, maxima);
+        enviarFiable(s);
+    }
+
+    @Override
+    public void onInput(int id, int keycode) {
+        int bit = bit(Math.abs(keycode));
+        if (bit != 0) actual.tecla(bit, keycode > 0);
+    }
+
+    @Override
+    public void onEntrada(int id, int secuencia, byte[] mascaras, int cantidad, boolean conAck, int ack, int bitsAck) {
+        Sesion s = actual;
+        if (!s.binario || s.espectador) return;
+        s.encolarEntradas(s.receptorEntradas.aceptar(secuencia, mascaras, cantidad));
+        if (conAck) s.canal.recibirAck(ack, bitsAck, ahora);
+    }
+
+    @Override
+    public void onSnapshotAck(int id, long tick) {
+        actual.partida.confirmarSnapshot(actual, tick);
+    }
+
+    @Override
+    public void onArea(int id, int minX, int minY, int maxX, int maxY) {
+        Sesion s = actual;
+        if (!s.binario || minX > maxX || minY > maxY) return;
+        s.conArea = true;
+        s.areaMinX = minX;
+        s.areaMinY = minY;
+        s.areaMaxX = maxX;
+        s.areaMaxY = maxY;
+    }
+
+    @Override
+    public void onFiable(ByteBuffer sobre) {
+        actual.canal.recibir(sobre, entregaFiable, ahora);
+    }
+
+    @Override
+    public void onFiableAck(ByteBuffer frame) {
+        actual.canal.recibirAckSuelto(frame, ahora);
+    }
+
+    /** Frame que salió en orden del canal confiable (del cliente: Disconnect y PEDIDO_TASA). */
+    private void entregarFiable(ByteBuffer frame) {
+        int tipo = CodecBinario.tipo(frame);
+        if (tipo == Protocolo.DISCONNECT) onDisconnect(actual.slot);
+        else if (tipo == Protocolo.PEDIDO_TASA) codec.decodificar(frame, this);
+    }
+
+    @Override
+    public void onDisconnect(int id) {
+        Sesion s = actual;
+        if (s.cerrada) return;
+        if (s.binario) {
+            // el ack ya, que el cliente espera la confirmación para cerrar
+            CodecBinario.escribirVacio(salida(), Protocolo.FIABLE_ACK);
+            if (s.canal.escribirAck(salida)) enviarSalida(s);
+        }
+        cerrar(s);
+    }
+
+    private static int bit(int keycode) {
+        switch (keycode) {
+            case Input.Keys.W: return FlujoEntradas.W;
+            case Input.Keys.A: return FlujoEntradas.A;
+            case Input.Keys.S: return FlujoEntradas.S;
+            case Input.Keys.D: return FlujoEntradas.D;
+            case Input.Keys.G: return FlujoEntradas.G;
+            case Input.Keys.E: return FlujoEntradas.E;
+            default: return 0;
+        }
+    }
+
+    // =========================================================
+    // Envío (los usa la partida)
+    // =========================================================
+
+    /** Buffer de salida vacío para armar un frame. */
+    ByteBuffer salida() {
+        salida.clear();
+        return salida;
+    }
+
+    /** Manda el frame armado en {@link #salida()}; si pasa del MTU, en FRAGMENTO. */
+    void enviarSalida(Sesion s) {
+        salida.flip();
+        if (salida.remaining() <= fragmentador.getMtu()) {
+            enviar(salida, s.direccion);
+            return;
+        }
+        int n = fragmentador.partir(salida);
+        for (int i = 0; i < n; i++) enviar(fragmentador.fragmento(i), s.direccion);
+        metricas.registrarFragmentado(n);
+    }
+
+    /** Buffer vacío para un evento crítico; después {@link #enviarFiable}. */
+    ByteBuffer critico() {
+        critico.clear();
+        return critico;
+    }
+
+    void enviarFiable(Sesion s) {
+        if (s.suspendida) return; // lo que importe se le vuelve a mandar al reanudar
+        critico.flip();
+        if (!s.canal.enviar(critico)) {
+            // ventana llena: el cliente no confirma nada hace rato, el timeout lo va a sacar
+            return;
+        }
+        s.canal.atender(ahora, s.salidaFiable);
+    }
+
+    void enviarTexto(Sesion s, String msg) {
+        enviar(ByteBuffer.wrap(msg.getBytes(StandardCharsets.UTF_8)), s.direccion);
+    }
+
+    void enviar(ByteBuffer datos, InetSocketAddress destino) {
+        int largo = datos.remaining();
+        try {
+            canal.send(datos, destino);
+            metricas.registrarEnvio(largo);
+        } catch (IOException e) {
+            // buffer del socket lleno o destino inalcanzable: es UDP, se pierde
+        }
+    }
+
+    boolean liberar(Partida p, int slot) {
+        return servidor.liberar(p, slot);
+    }
+
+    boolean liberarEspectador(Partida p, int k) {
+        return servidor.liberarEspectador(p, k);
+    }
+
+    /** Terminó: que el lobby no mande más espectadores a mirarla. */
+    void terminada(Partida p) {
+        servidor.descartar(p);
+    }
+
+    int getIntervaloSnapshot() { return intervaloSnapshot; }
+
+    int getCantidadPartidas() { return asignadas.get(); }
+}